@@ -0,0 +1,37 @@
+package com.notes.benchmark;
+
+import com.notes.SimpleNotesAppApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.UUID;
+
+final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start(String... properties) {
+        return builder(properties).web(WebApplicationType.NONE).run();
+    }
+
+    static ConfigurableApplicationContext startWeb(Class<?> configuration, String... properties) {
+        return builder(properties).sources(configuration)
+                .web(WebApplicationType.SERVLET)
+                .properties("server.port=0")
+                .run();
+    }
+
+    private static SpringApplicationBuilder builder(String... properties) {
+        String[] defaults = {
+                "spring.datasource.url=jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                "spring.jpa.show-sql=false",
+                "spring.main.banner-mode=off",
+                "logging.level.root=WARN"
+        };
+        return new SpringApplicationBuilder(SimpleNotesAppApplication.class)
+                .properties(defaults)
+                .properties(properties);
+    }
+}
@@ -0,0 +1,67 @@
+package com.notes.benchmark;
+
+import com.notes.dto.BulkNoteOperation;
+import com.notes.model.Note;
+import com.notes.repository.NoteRepository;
+import com.notes.service.NoteBulkService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * findByTitle против findAll при разном размере таблицы NOTES.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NoteRepositoryBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int tableSize;
+
+    private ConfigurableApplicationContext context;
+    private NoteRepository noteRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start("notes.cache.enabled=false");
+        noteRepository = context.getBean(NoteRepository.class);
+        context.getBean(NoteBulkService.class).apply(IntStream.range(0, tableSize)
+                .mapToObj(i -> {
+                    BulkNoteOperation operation = new BulkNoteOperation();
+                    operation.setTitle("title " + i);
+                    operation.setText("text " + i);
+                    return operation;
+                })
+                .iterator());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<Note> findByTitle() {
+        return noteRepository.findByTitle("title " + ThreadLocalRandom.current().nextInt(tableSize));
+    }
+
+    @Benchmark
+    public List<Note> findAll() {
+        return noteRepository.findAll();
+    }
+}
@@ -0,0 +1,116 @@
+package com.notes.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.notes.dto.NoteSummary;
+import com.notes.json.NoteJsonModule;
+import com.notes.model.Note;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Сериализация Note и сводок в JSON при разном размере текста: по аннотациям Jackson
+ * (reflective) и через NoteJsonModule (compiled). Ответ пишется в поток, как в тело HTTP-ответа,
+ * поэтому в аллокации не входит сам массив с результатом. Байты на ответ - gc.alloc.rate.norm:
+ * {@code ./gradlew jmh -PjmhInclude=NoteSerializationBenchmark -PjmhProfilers=gc}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NoteSerializationBenchmark {
+
+    private static final int LIST_SIZE = 100;
+
+    @Param({"100", "10000", "1000000"})
+    private int contentSize;
+
+    @Param({"reflective", "compiled"})
+    private String serializer;
+
+    private final OutputStream out = new DiscardingOutputStream();
+    private ObjectWriter noteWriter;
+    private ObjectWriter listWriter;
+    private ObjectWriter summaryListWriter;
+    private Note note;
+    private List<Note> notes;
+    private List<NoteSummary> summaries;
+
+    @Setup
+    public void setUp() {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        if (serializer.equals("compiled")) {
+            builder.modulesToInstall(new NoteJsonModule());
+        }
+        ObjectMapper objectMapper = builder.build();
+        noteWriter = objectMapper.writerFor(Note.class);
+        listWriter = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, Note.class));
+        summaryListWriter = objectMapper.writerFor(objectMapper.getTypeFactory()
+                .constructCollectionType(List.class, NoteSummary.class));
+        note = createNote(1);
+        notes = IntStream.range(0, LIST_SIZE).mapToObj(this::createNote).toList();
+        SpelAwareProxyProjectionFactory projections = new SpelAwareProxyProjectionFactory();
+        summaries = notes.stream()
+                .map(note -> projections.createProjection(NoteSummary.class, Map.of(
+                        "id", note.getId(),
+                        "title", note.getTitle(),
+                        "createdAt", note.getCreatedAt(),
+                        "updatedAt", note.getUpdatedAt(),
+                        "storedPreview", note.getText().substring(0, Math.min(NoteSummary.PREVIEW_LENGTH, contentSize)),
+                        "storedLength", (long) contentSize)))
+                .toList();
+    }
+
+    @Benchmark
+    public void serializeNote() throws IOException {
+        noteWriter.writeValue(out, note);
+    }
+
+    @Benchmark
+    public void serializeNoteList() throws IOException {
+        listWriter.writeValue(out, notes);
+    }
+
+    @Benchmark
+    public void serializeSummaryList() throws IOException {
+        summaryListWriter.writeValue(out, summaries);
+    }
+
+    private Note createNote(int id) {
+        Note note = new Note("title " + id, "x".repeat(contentSize));
+        note.setId(id);
+        note.setCreatedAt(LocalDateTime.of(2025, 6, 17, 10, 5).plusSeconds(id));
+        note.setUpdatedAt(LocalDateTime.of(2025, 6, 17, 14, 30).plusSeconds(id));
+        return note;
+    }
+
+    /**
+     * ObjectWriter закрывает поток после записи, а OutputStream.nullOutputStream() после close
+     * бросает исключение.
+     */
+    private static final class DiscardingOutputStream extends OutputStream {
+
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+}
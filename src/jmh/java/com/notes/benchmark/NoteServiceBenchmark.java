@@ -0,0 +1,93 @@
+package com.notes.benchmark;
+
+import com.notes.dto.BulkNoteOperation;
+import com.notes.model.Note;
+import com.notes.service.NoteBulkService;
+import com.notes.service.NoteService;
+import com.notes.service.NoteServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * Чтения и записи NoteService против H2: напрямую через NoteServiceImpl
+ * и через основной бин (с кэшем заметок).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NoteServiceBenchmark {
+
+    @Param({"10000"})
+    private int tableSize;
+
+    @Param({"1000"})
+    private int contentSize;
+
+    private final AtomicLong counter = new AtomicLong();
+
+    private ConfigurableApplicationContext context;
+    private NoteServiceImpl noteServiceImpl;
+    private NoteService noteService;
+    private String text;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        noteServiceImpl = context.getBean(NoteServiceImpl.class);
+        noteService = context.getBean(NoteService.class);
+        text = "x".repeat(contentSize);
+        context.getBean(NoteBulkService.class).apply(IntStream.range(0, tableSize)
+                .mapToObj(i -> {
+                    BulkNoteOperation operation = new BulkNoteOperation();
+                    operation.setTitle("title " + i);
+                    operation.setText(text);
+                    return operation;
+                })
+                .iterator());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Note getNoteByTitle() {
+        return noteServiceImpl.getNoteByTitle(randomTitle());
+    }
+
+    @Benchmark
+    public Note getNoteByTitleCached() {
+        return noteService.getNoteByTitle(randomTitle());
+    }
+
+    @Benchmark
+    public Note patchNoteByTitle() {
+        return noteServiceImpl.patchNoteByTitle(randomTitle(), null, text);
+    }
+
+    @Benchmark
+    public void createAndDeleteNote() {
+        String title = "bench " + counter.incrementAndGet();
+        noteServiceImpl.createNote(title, text);
+        noteServiceImpl.deleteNoteByTitle(title);
+    }
+
+    private String randomTitle() {
+        return "title " + ThreadLocalRandom.current().nextInt(tableSize);
+    }
+}
@@ -0,0 +1,143 @@
+package com.notes.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Время до первого ответа и RSS нового экземпляра: обычный запуск против быстрого (AOT,
+ * CDS-архив, профиль fast-startup). Каждый замер — отдельная JVM из распакованного bootJar;
+ * время считается от запуска процесса до первого 200 на GET /api/notes?limit=10, RSS берётся
+ * из /proc сразу после этого ответа (на системах без /proc не измеряется).
+ * <p>
+ * Запуск: {@code ./gradlew startupBenchmark -PfastStartup [-PstartupRuns=5]}.
+ */
+public final class StartupBenchmark {
+
+    private static final Duration START_TIMEOUT = Duration.ofSeconds(120);
+
+    private StartupBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String java = args[0];
+        File directory = new File(args[1]);
+        String jar = args[2];
+        int runs = Integer.parseInt(args[3]);
+        Path report = Path.of(args[4]);
+
+        Map<String, List<String>> modes = new LinkedHashMap<>();
+        modes.put("baseline", List.of(java, "-jar", jar));
+        modes.put("fast-startup", List.of(java, "-XX:SharedArchiveFile=application.jsa", "-Dspring.aot.enabled=true",
+                "-jar", jar, "--spring.profiles.active=fast-startup"));
+
+        Map<String, Map<String, Object>> results = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> mode : modes.entrySet()) {
+            List<Long> firstRequestMillis = new ArrayList<>();
+            List<Long> rssKilobytes = new ArrayList<>();
+            for (int run = 0; run < runs; run++) {
+                Measurement measurement = measure(directory, mode.getValue());
+                firstRequestMillis.add(measurement.firstRequestMillis());
+                if (measurement.rssKilobytes() > 0) {
+                    rssKilobytes.add(measurement.rssKilobytes());
+                }
+            }
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("runs", runs);
+            result.put("firstRequestMillis", firstRequestMillis);
+            result.put("firstRequestMillisMedian", median(firstRequestMillis));
+            result.put("rssMegabytesMedian", rssKilobytes.isEmpty() ? null : median(rssKilobytes) / 1024);
+            results.put(mode.getKey(), result);
+            System.out.printf("%-13s time to first request %5d ms (median of %d), RSS %s MB%n", mode.getKey(),
+                    median(firstRequestMillis), runs, rssKilobytes.isEmpty() ? "n/a" : median(rssKilobytes) / 1024);
+        }
+        Files.createDirectories(report.getParent());
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(report.toFile(), results);
+        System.out.println("Results: " + report);
+    }
+
+    private static Measurement measure(File directory, List<String> command) throws Exception {
+        int port = freePort();
+        List<String> fullCommand = new ArrayList<>(command);
+        fullCommand.addAll(List.of("--server.port=" + port, "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN", "--spring.jpa.show-sql=false"));
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(200)).build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/notes?limit=10"))
+                .timeout(Duration.ofSeconds(10))
+                .build();
+
+        long started = System.nanoTime();
+        Process process = new ProcessBuilder(fullCommand)
+                .directory(directory)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        try {
+            while (true) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("Приложение завершилось при старте с кодом " + process.exitValue());
+                }
+                if (System.nanoTime() - started > START_TIMEOUT.toNanos()) {
+                    throw new IllegalStateException("Приложение не ответило за " + START_TIMEOUT);
+                }
+                try {
+                    if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        break;
+                    }
+                } catch (IOException e) {
+                    // порт ещё не слушается
+                }
+                Thread.sleep(5);
+            }
+            long firstRequestMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+            return new Measurement(firstRequestMillis, rssKilobytes(process.pid()));
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    private static long rssKilobytes(long pid) throws IOException {
+        Path status = Path.of("/proc", Long.toString(pid), "status");
+        if (!Files.exists(status)) {
+            return 0;
+        }
+        for (String line : Files.readAllLines(status)) {
+            if (line.startsWith("VmRSS:")) {
+                return Long.parseLong(line.replaceAll("\\D", ""));
+            }
+        }
+        return 0;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static long median(List<Long> values) {
+        List<Long> sorted = values.stream().sorted().toList();
+        return sorted.get(sorted.size() / 2);
+    }
+
+    private record Measurement(long firstRequestMillis, long rssKilobytes) {
+    }
+}
@@ -0,0 +1,128 @@
+package com.notes.benchmark;
+
+import com.notes.dto.BulkNoteOperation;
+import com.notes.service.NoteBulkService;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.IntStream;
+
+/**
+ * Нагрузочный тест HTTP API на платформенных и виртуальных потоках. Каждый SQL-оператор
+ * задерживается на {@code dbLatencyMicros}, имитируя сетевую задержку до внешней БД,
+ * иначе встроенная H2 отвечает быстрее, чем успевает проявиться разница. Кэш заметок
+ * выключен, чтобы чтения доходили до пула соединений.
+ * <p>
+ * Режим virtual требует Java 21: {@code ./gradlew jmh -PjavaVersion=21 -PjmhInclude=ThreadingModeLoadBenchmark}.
+ * На более старой JVM этот вариант завершается с ошибкой, а platform выполняется как обычно.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(256)
+public class ThreadingModeLoadBenchmark {
+
+    private static final int NOTES = 1000;
+
+    @Param({"platform", "virtual"})
+    private String mode;
+
+    @Param({"2000"})
+    private int dbLatencyMicros;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private String baseUri;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        boolean virtual = "virtual".equals(mode);
+        if (virtual && Runtime.version().feature() < 21) {
+            throw new IllegalStateException("Виртуальные потоки требуют Java 21, текущая версия: " + Runtime.version());
+        }
+        context = BenchmarkApplication.startWeb(DbLatencyConfig.class,
+                "spring.profiles.active=" + (virtual ? "virtual" : "default"),
+                "notes.cache.enabled=false",
+                "notes.benchmark.db-latency-micros=" + dbLatencyMicros);
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        baseUri = "http://localhost:" + port + "/api/notes/";
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        context.getBean(NoteBulkService.class).apply(IntStream.range(0, NOTES)
+                .mapToObj(i -> {
+                    BulkNoteOperation operation = new BulkNoteOperation();
+                    operation.setTitle("title " + i);
+                    operation.setText("text " + i);
+                    return operation;
+                })
+                .iterator());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int getNote() throws IOException, InterruptedException {
+        String title = "title " + ThreadLocalRandom.current().nextInt(NOTES);
+        HttpRequest request = HttpRequest.newBuilder(
+                        URI.create(baseUri + URLEncoder.encode(title, StandardCharsets.UTF_8).replace("+", "%20")))
+                .timeout(Duration.ofSeconds(10))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    /**
+     * Регистрируется явно как источник контекста: без {@code @Configuration}, чтобы сканирование
+     * компонентов не подхватило его в контексты других бенчмарков.
+     */
+    static class DbLatencyConfig {
+
+        @Bean
+        @Order(Ordered.LOWEST_PRECEDENCE)
+        HibernatePropertiesCustomizer dbLatencyCustomizer(
+                @Value("${notes.benchmark.db-latency-micros}") long latencyMicros) {
+            return properties -> {
+                Object current = properties.get(AvailableSettings.STATEMENT_INSPECTOR);
+                StatementInspector delegate = current instanceof StatementInspector inspector ? inspector : sql -> sql;
+                long latencyNanos = TimeUnit.MICROSECONDS.toNanos(latencyMicros);
+                properties.put(AvailableSettings.STATEMENT_INSPECTOR, (StatementInspector) sql -> {
+                    LockSupport.parkNanos(latencyNanos);
+                    return delegate.inspect(sql);
+                });
+            };
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.notes.admission;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "notes.admission")
+public class AdmissionProperties {
+
+    private boolean enabled = false;
+    private int maxConcurrentRequests = 64;
+    private Duration queueTimeout = Duration.ofMillis(500);
+    private int minConcurrentRequests = 8;
+    private Duration latencyThreshold = Duration.ofMillis(250);
+    private double backoffRatio = 0.9;
+}
@@ -0,0 +1,156 @@
+package com.notes.admission;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ограничивает число одновременно обрабатываемых API-запросов. С виртуальными потоками
+ * число потоков больше не ограничивает нагрузку, и без лимита запросы выстраивались бы
+ * в очередь за соединениями пула, пока не истечёт connection-timeout.
+ * <p>
+ * Лимит подстраивается по задержке ответов (AIMD): пока ответы укладываются в latency-threshold
+ * и лимит занят хотя бы наполовину, он растёт на единицу до max-concurrent-requests; медленный
+ * ответ или 5xx уменьшают его в backoff-ratio раз, не чаще раза за latency-threshold и не ниже
+ * min-concurrent-requests.
+ */
+@Component
+@ConditionalOnProperty(prefix = "notes.admission", name = "enabled")
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private static final String API_PREFIX = "/api/";
+
+    private final AdjustableSemaphore permits;
+    private final AtomicInteger limit;
+    private final AtomicLong nextDecreaseAt = new AtomicLong(System.nanoTime());
+    private final int minLimit;
+    private final int maxLimit;
+    private final long queueTimeoutNanos;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+    private final Counter rejected;
+
+    public ConcurrencyLimitFilter(AdmissionProperties properties, MeterRegistry meterRegistry) {
+        this.maxLimit = properties.getMaxConcurrentRequests();
+        this.minLimit = Math.max(1, Math.min(properties.getMinConcurrentRequests(), maxLimit));
+        this.limit = new AtomicInteger(maxLimit);
+        this.permits = new AdjustableSemaphore(maxLimit);
+        this.queueTimeoutNanos = properties.getQueueTimeout().toNanos();
+        this.latencyThresholdNanos = properties.getLatencyThreshold().toNanos();
+        this.backoffRatio = properties.getBackoffRatio();
+        this.rejected = Counter.builder("notes.admission.rejected")
+                .description("API requests rejected because the concurrency limit was reached")
+                .register(meterRegistry);
+        Gauge.builder("notes.admission.inflight", this, filter -> filter.inFlight())
+                .description("API requests currently being processed")
+                .register(meterRegistry);
+        Gauge.builder("notes.admission.limit", this, filter -> filter.limit())
+                .description("Current adaptive limit of concurrent API requests")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith(API_PREFIX);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(queueTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            rejected.increment();
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Сервер перегружен, повторите запрос позже.");
+            return;
+        }
+        long started = System.nanoTime();
+        boolean failed = true;
+        try {
+            filterChain.doFilter(request, response);
+            failed = response.getStatus() >= 500;
+        } finally {
+            onCompleted(System.nanoTime() - started, failed);
+            permits.release();
+        }
+    }
+
+    /**
+     * Асинхронные запросы (long polling, SSE, потоковая выдача) учитываются до выхода из
+     * обработчика, поэтому их длительность на лимит не влияет.
+     */
+    void onCompleted(long latencyNanos, boolean failed) {
+        if (failed || latencyNanos > latencyThresholdNanos) {
+            decrease();
+        } else if (inFlight() * 2 >= limit.get()) {
+            increase();
+        }
+    }
+
+    private void increase() {
+        int current = limit.get();
+        if (current < maxLimit && limit.compareAndSet(current, current + 1)) {
+            permits.release();
+        }
+    }
+
+    private void decrease() {
+        long now = System.nanoTime();
+        long allowedAt = nextDecreaseAt.get();
+        if (now - allowedAt < 0 || !nextDecreaseAt.compareAndSet(allowedAt, now + latencyThresholdNanos)) {
+            return;
+        }
+        while (true) {
+            int current = limit.get();
+            int reduced = Math.max(minLimit, (int) (current * backoffRatio));
+            if (reduced == current) {
+                return;
+            }
+            if (limit.compareAndSet(current, reduced)) {
+                permits.reducePermits(current - reduced);
+                return;
+            }
+        }
+    }
+
+    int inFlight() {
+        return limit.get() - permits.availablePermits();
+    }
+
+    int limit() {
+        return limit.get();
+    }
+
+    private static final class AdjustableSemaphore extends Semaphore {
+
+        private AdjustableSemaphore(int permits) {
+            super(permits);
+        }
+
+        @Override
+        protected void reducePermits(int reduction) {
+            super.reducePermits(reduction);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.notes.admission;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ограничение частоты API-запросов для каждого клиента (выданный ключ из
+ * notes.rate-limit.client-header или адрес) с отдельными бюджетами на дешёвые чтения, полный список и запись. Стоит перед
+ * ConcurrencyLimitFilter: клиент, исчерпавший бюджет, получает 429 и не занимает место среди
+ * одновременно обрабатываемых запросов. Ведра лежат в Caffeine и удаляются после простоя.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+@ConditionalOnProperty(prefix = "notes.rate-limit", name = "enabled")
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final String API_PREFIX = "/api/";
+
+    private final String clientHeader;
+    private final Set<String> clientKeys;
+    private final Map<RequestCost, RateLimitProperties.Budget> budgets = new EnumMap<>(RequestCost.class);
+    private final Map<RequestCost, Counter> rejected = new EnumMap<>(RequestCost.class);
+    private final Cache<ClientBudget, TokenBucket> buckets;
+
+    public RateLimitFilter(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        this.clientHeader = properties.getClientHeader();
+        this.clientKeys = Set.copyOf(properties.getClientKeys());
+        budgets.put(RequestCost.CHEAP_READ, properties.getCheapRead());
+        budgets.put(RequestCost.EXPENSIVE_READ, properties.getExpensiveRead());
+        budgets.put(RequestCost.WRITE, properties.getWrite());
+        for (RequestCost cost : RequestCost.values()) {
+            rejected.put(cost, Counter.builder("notes.rate-limit.rejected")
+                    .description("API requests rejected because the client exhausted its budget")
+                    .tag("cost", cost.tag())
+                    .register(meterRegistry));
+        }
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxClients())
+                .expireAfterAccess(properties.getIdleTimeout())
+                .build();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith(API_PREFIX);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RequestCost cost = RequestCost.of(request);
+        long now = System.nanoTime();
+        TokenBucket bucket = buckets.get(new ClientBudget(client(request), cost), key -> {
+            RateLimitProperties.Budget budget = budgets.get(key.cost());
+            return new TokenBucket(budget.getPermitsPerSecond(), budget.getBurst(), now);
+        });
+        long waitNanos = bucket.tryAcquire(now);
+        if (waitNanos > 0) {
+            rejected.get(cost).increment();
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999))));
+            response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), "Слишком много запросов, повторите запрос позже.");
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private String client(HttpServletRequest request) {
+        String key = request.getHeader(clientHeader);
+        return key != null && clientKeys.contains(key) ? "key:" + key : "addr:" + request.getRemoteAddr();
+    }
+
+    private record ClientBudget(String client, RequestCost cost) {
+    }
+}
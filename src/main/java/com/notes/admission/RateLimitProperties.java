@@ -0,0 +1,50 @@
+package com.notes.admission;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "notes.rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = false;
+
+    /**
+     * Заголовок с ключом клиента; без него клиент определяется по адресу.
+     */
+    private String clientHeader = "X-API-Key";
+
+    /**
+     * Выданные клиентам ключи. Ключ не из этого списка не принимается, и запрос считается по
+     * адресу: иначе каждый случайный ключ получал бы новое ведро и вытеснял чужие из кэша.
+     */
+    private Set<String> clientKeys = new HashSet<>();
+    private long maxClients = 100_000;
+    private Duration idleTimeout = Duration.ofMinutes(10);
+
+    private Budget cheapRead = new Budget(100, 200);
+    private Budget expensiveRead = new Budget(1, 5);
+    private Budget write = new Budget(20, 40);
+
+    @Getter
+    @Setter
+    public static class Budget {
+
+        private double permitsPerSecond;
+        private int burst;
+
+        public Budget() {
+        }
+
+        public Budget(double permitsPerSecond, int burst) {
+            this.permitsPerSecond = permitsPerSecond;
+            this.burst = burst;
+        }
+    }
+}
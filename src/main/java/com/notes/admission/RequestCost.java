@@ -0,0 +1,45 @@
+package com.notes.admission;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Класс API-запроса для отдельного бюджета в RateLimitFilter.
+ */
+enum RequestCost {
+
+    CHEAP_READ("cheap-read"),
+    /**
+     * Полный список заметок (JSON, NDJSON или краткий вид) — без limit, prefix и title — и экспорт снимка.
+     */
+    EXPENSIVE_READ("expensive-read"),
+    WRITE("write");
+
+    private static final String COLLECTION = "/api/notes";
+    private static final String EXPORT = COLLECTION + "/_export";
+
+    private final String tag;
+
+    RequestCost(String tag) {
+        this.tag = tag;
+    }
+
+    String tag() {
+        return tag;
+    }
+
+    static RequestCost of(HttpServletRequest request) {
+        String method = request.getMethod();
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+            return WRITE;
+        }
+        if (EXPORT.equals(request.getRequestURI())) {
+            return EXPENSIVE_READ;
+        }
+        boolean collection = COLLECTION.equals(request.getRequestURI()) || (COLLECTION + "/").equals(request.getRequestURI());
+        if (collection && request.getParameter("limit") == null && request.getParameter("prefix") == null
+                && request.getParameter("title") == null) {
+            return EXPENSIVE_READ;
+        }
+        return CHEAP_READ;
+    }
+}
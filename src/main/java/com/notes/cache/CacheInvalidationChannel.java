@@ -0,0 +1,16 @@
+package com.notes.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * Рассылка инвалидаций кэша заметок и кэша второго уровня между экземплярами приложения. Сообщение
+ * получают все подписчики, включая отправителя; доставка не обязана быть синхронной.
+ * Для нескольких экземпляров нужна реализация поверх общего брокера; по умолчанию
+ * используется LocalCacheInvalidationChannel.
+ */
+public interface CacheInvalidationChannel {
+
+    void publish(NoteCacheInvalidation invalidation);
+
+    void subscribe(Consumer<NoteCacheInvalidation> listener);
+}
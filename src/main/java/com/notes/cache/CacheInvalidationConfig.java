@@ -0,0 +1,19 @@
+package com.notes.cache;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Канал инвалидаций общий для кэша заметок и кэша второго уровня и нужен, даже если
+ * включён только один из них.
+ */
+@Configuration(proxyBeanMethods = false)
+public class CacheInvalidationConfig {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public CacheInvalidationChannel cacheInvalidationChannel() {
+        return new LocalCacheInvalidationChannel();
+    }
+}
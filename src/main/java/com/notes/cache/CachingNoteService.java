@@ -0,0 +1,161 @@
+package com.notes.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.notes.datasource.PrimaryReads;
+import com.notes.dto.NotePage;
+import com.notes.dto.NoteSummary;
+import com.notes.dto.NoteVersion;
+import com.notes.event.NoteChangedEvent;
+import com.notes.model.Note;
+import com.notes.service.NoteService;
+import com.notes.service.NoteServiceImpl;
+import com.notes.storage.NoteContent;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+@Service
+@Timed(value = "notes.service", histogram = true)
+@ConditionalOnProperty(prefix = "notes.cache", name = "enabled", matchIfMissing = true)
+public class CachingNoteService implements NoteService {
+
+    private final NoteService delegate;
+    private final Cache<String, Note> cache;
+
+    private final NoteCacheInvalidationPublisher publisher;
+
+    public CachingNoteService(NoteServiceImpl delegate, Cache<String, Note> noteCache,
+                              CacheInvalidationChannel channel, NoteCacheInvalidationPublisher publisher) {
+        this.delegate = delegate;
+        this.cache = noteCache;
+        this.publisher = publisher;
+        channel.subscribe(this::onInvalidation);
+    }
+
+    /**
+     * Промахи читаются из основной базы: строка с отстающей реплики осталась бы в кэше до TTL
+     * или следующей записи по этому названию.
+     */
+    @Override
+    public Note getNoteByTitle(String title) {
+        return cache.get(title, missing -> {
+            try (PrimaryReads.Scope ignored = PrimaryReads.require()) {
+                return delegate.getNoteByTitle(missing);
+            }
+        });
+    }
+
+    @Override
+    public List<Note> getNotesByTitles(List<String> titles) {
+        Map<String, Note> notes = cache.getAll(titles, missing -> {
+            Map<String, Note> loaded = new HashMap<>();
+            try (PrimaryReads.Scope ignored = PrimaryReads.require()) {
+                delegate.getNotesByTitles(List.copyOf(missing)).forEach(note -> loaded.put(note.getTitle(), note));
+            }
+            return loaded;
+        });
+        List<Note> result = new ArrayList<>(notes.size());
+        for (String title : titles) {
+            Note note = notes.get(title);
+            if (note != null) {
+                result.add(note);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public NoteVersion getNoteVersion(String title) {
+        Note cached = cache.getIfPresent(title);
+        return cached != null ? NoteVersion.of(cached) : delegate.getNoteVersion(title);
+    }
+
+    @Override
+    public NoteContent openNoteContent(String title) {
+        return delegate.openNoteContent(title);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNoteChanged(NoteChangedEvent event) {
+        cache.invalidate(event.getTitle());
+        if (event.isRename()) {
+            cache.invalidate(event.getOldTitle());
+        }
+    }
+
+    /**
+     * Изменение на другом экземпляре: без этого он отдавал бы старую заметку до notes.cache.ttl.
+     */
+    void onInvalidation(NoteCacheInvalidation invalidation) {
+        if (!publisher.isLocal(invalidation)) {
+            cache.invalidateAll(invalidation.titles());
+        }
+    }
+
+    @Override
+    public Note getLastNote() {
+        return delegate.getLastNote();
+    }
+
+    @Override
+    public List<Note> getAllNotes() {
+        return delegate.getAllNotes();
+    }
+
+    @Override
+    public NotePage<Note> getNotesPage(String next, int limit) {
+        return delegate.getNotesPage(next, limit);
+    }
+
+    @Override
+    public List<NoteSummary> getAllNoteSummaries() {
+        return delegate.getAllNoteSummaries();
+    }
+
+    @Override
+    public NotePage<NoteSummary> getNoteSummariesPage(String next, int limit) {
+        return delegate.getNoteSummariesPage(next, limit);
+    }
+
+    @Override
+    public void forEachNote(Consumer<Note> action) {
+        delegate.forEachNote(action);
+    }
+
+    @Override
+    public Note createNote(String title, String text) {
+        return delegate.createNote(title, text);
+    }
+
+    @Override
+    public Note editNoteByTitle(String oldTitle, String newTitle, String newText) {
+        return delegate.editNoteByTitle(oldTitle, newTitle, newText);
+    }
+
+    @Override
+    public Note editNoteByTitle(String oldTitle, String newTitle, String newText, NoteVersion expectedVersion) {
+        return delegate.editNoteByTitle(oldTitle, newTitle, newText, expectedVersion);
+    }
+
+    @Override
+    public void deleteNoteByTitle(String title) {
+        delegate.deleteNoteByTitle(title);
+    }
+
+    @Override
+    public Note patchNoteByTitle(String oldTitle, String newTitle, String newText) {
+        return delegate.patchNoteByTitle(oldTitle, newTitle, newText);
+    }
+
+    @Override
+    public Note patchNoteByTitle(String oldTitle, String newTitle, String newText, NoteVersion expectedVersion) {
+        return delegate.patchNoteByTitle(oldTitle, newTitle, newText, expectedVersion);
+    }
+}
@@ -0,0 +1,24 @@
+package com.notes.cache;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Канал в пределах одной JVM: синхронно вызывает подписчиков в потоке отправителя.
+ * Подходит для одного экземпляра и для тестов, где несколько подписчиков изображают узлы.
+ */
+public class LocalCacheInvalidationChannel implements CacheInvalidationChannel {
+
+    private final List<Consumer<NoteCacheInvalidation>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(NoteCacheInvalidation invalidation) {
+        listeners.forEach(listener -> listener.accept(invalidation));
+    }
+
+    @Override
+    public void subscribe(Consumer<NoteCacheInvalidation> listener) {
+        listeners.add(listener);
+    }
+}
@@ -0,0 +1,28 @@
+package com.notes.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.notes.model.Note;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(prefix = "notes.cache", name = "enabled", matchIfMissing = true)
+public class NoteCacheConfig {
+
+    static final String CACHE_NAME = "notes";
+
+    @Bean
+    public Cache<String, Note> noteCache(NoteCacheProperties properties, MeterRegistry meterRegistry) {
+        Cache<String, Note> cache = Caffeine.newBuilder()
+                .maximumWeight(properties.getMaxContentBytes())
+                .weigher(new NoteWeigher(properties.getMaxEntries(), properties.getMaxContentBytes()))
+                .expireAfterWrite(properties.getTtl())
+                .recordStats()
+                .build();
+        return CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+}
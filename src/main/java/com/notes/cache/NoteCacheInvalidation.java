@@ -0,0 +1,10 @@
+package com.notes.cache;
+
+import java.util.List;
+
+/**
+ * Изменённая заметка для других экземпляров: её названия до и после изменения и id,
+ * если он известен (у удалённой заметки его нет). origin — экземпляр-отправитель.
+ */
+public record NoteCacheInvalidation(String origin, List<String> titles, Long id) {
+}
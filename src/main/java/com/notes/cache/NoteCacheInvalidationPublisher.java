@@ -0,0 +1,35 @@
+package com.notes.cache;
+
+import com.notes.event.NoteChangedEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * После коммита изменения заметки рассылает её названия и id через CacheInvalidationChannel,
+ * одним сообщением для всех кэшей экземпляра. Подписчики пропускают собственные сообщения
+ * (isLocal): свои записи они уже вытеснили по NoteChangedEvent.
+ */
+@Component
+public class NoteCacheInvalidationPublisher {
+
+    private final String origin = UUID.randomUUID().toString();
+    private final CacheInvalidationChannel channel;
+
+    public NoteCacheInvalidationPublisher(CacheInvalidationChannel channel) {
+        this.channel = channel;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNoteChanged(NoteChangedEvent event) {
+        List<String> titles = event.isRename() ? List.of(event.getOldTitle(), event.getTitle()) : List.of(event.getTitle());
+        Long id = event.getNote() == null ? null : event.getNote().getId();
+        channel.publish(new NoteCacheInvalidation(origin, titles, id));
+    }
+
+    public boolean isLocal(NoteCacheInvalidation invalidation) {
+        return origin.equals(invalidation.origin());
+    }
+}
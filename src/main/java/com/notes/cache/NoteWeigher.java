@@ -0,0 +1,24 @@
+package com.notes.cache;
+
+import com.github.benmanes.caffeine.cache.Weigher;
+import com.notes.model.Note;
+
+/**
+ * Вес записи — размер заметки в байтах, но не меньше maxContentBytes / maxEntries.
+ * Caffeine ограничивает только суммарный вес, а минимальный вес записи
+ * одновременно ограничивает и число записей в кэше.
+ */
+class NoteWeigher implements Weigher<String, Note> {
+
+    private final int minWeight;
+
+    NoteWeigher(long maxEntries, long maxContentBytes) {
+        this.minWeight = (int) Math.min(Integer.MAX_VALUE, Math.max(1, maxContentBytes / Math.max(1, maxEntries)));
+    }
+
+    @Override
+    public int weigh(String title, Note note) {
+        long bytes = 2L * title.length() + (note.getText() == null ? 0 : 2L * note.getText().length());
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(minWeight, bytes));
+    }
+}
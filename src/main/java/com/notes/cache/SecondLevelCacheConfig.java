@@ -0,0 +1,78 @@
+package com.notes.cache;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * Кэш второго уровня Hibernate на JCache (Caffeine): сущности Note, соответствие названия
+ * и id (natural id) и результаты запросов страниц и последней заметки. Регионы создаются
+ * здесь с ограничением размера, Hibernate недостающие регионы не создаёт.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "notes.l2-cache", name = "enabled", matchIfMissing = true)
+public class SecondLevelCacheConfig {
+
+    public static final String NOTE_REGION = "notes.note";
+    public static final String NOTE_TITLE_REGION = "notes.note-title";
+    public static final String NOTE_QUERY_REGION = "notes.note-queries";
+
+    /**
+     * Свой URI у каждого контекста: менеджер по умолчанию общий на всю JVM, и второй
+     * контекст (например, в тестах) не смог бы создать регионы с теми же именами.
+     */
+    @Bean(destroyMethod = "close")
+    public CacheManager secondLevelCacheManager(SecondLevelCacheProperties properties,
+                                                ObjectProvider<MeterRegistry> meterRegistry) {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("notes-l2-" + UUID.randomUUID()), getClass().getClassLoader());
+        OptionalLong ttl = OptionalLong.of(properties.getTtl().toNanos());
+        createRegion(cacheManager, NOTE_REGION, OptionalLong.of(properties.getMaxEntries()), ttl, meterRegistry);
+        createRegion(cacheManager, NOTE_TITLE_REGION, OptionalLong.of(properties.getMaxEntries()), ttl, meterRegistry);
+        createRegion(cacheManager, NOTE_QUERY_REGION, OptionalLong.of(properties.getMaxQueries()), ttl, meterRegistry);
+        createRegion(cacheManager, RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME,
+                OptionalLong.of(properties.getMaxQueries()), ttl, meterRegistry);
+        // Метка изменения таблицы не должна пропасть раньше результатов запросов по ней
+        createRegion(cacheManager, RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME,
+                OptionalLong.empty(), OptionalLong.empty(), meterRegistry);
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager secondLevelCacheManager) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.USE_QUERY_CACHE, true);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, new CacheModeRegionFactory());
+            properties.put(ConfigSettings.CACHE_MANAGER, secondLevelCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+
+    private static void createRegion(CacheManager cacheManager, String name, OptionalLong maximumSize,
+                                     OptionalLong expireAfterWrite, ObjectProvider<MeterRegistry> meterRegistry) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(maximumSize);
+        configuration.setExpireAfterWrite(expireAfterWrite);
+        configuration.setStatisticsEnabled(true);
+        Cache<Object, Object> cache = cacheManager.createCache(name, configuration);
+        meterRegistry.ifAvailable(registry -> JCacheMetrics.monitor(registry, cache));
+    }
+}
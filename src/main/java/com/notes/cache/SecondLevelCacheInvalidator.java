@@ -0,0 +1,62 @@
+package com.notes.cache;
+
+import com.notes.model.Note;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.cache.spi.access.NaturalIdDataAccess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Согласование кэша второго уровня между экземплярами. Получив от другого экземпляра
+ * сообщение NoteCacheInvalidationPublisher, вытесняет эти записи из своих регионов и
+ * помечает таблицу изменённой, чтобы устарели закэшированные результаты запросов.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "notes.l2-cache", name = "enabled", matchIfMissing = true)
+public class SecondLevelCacheInvalidator {
+
+    private final SessionFactoryImplementor sessionFactory;
+    private final NoteCacheInvalidationPublisher publisher;
+
+    public SecondLevelCacheInvalidator(EntityManagerFactory entityManagerFactory, CacheInvalidationChannel channel,
+                                       NoteCacheInvalidationPublisher publisher) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        this.publisher = publisher;
+        channel.subscribe(this::onInvalidation);
+    }
+
+    void onInvalidation(NoteCacheInvalidation invalidation) {
+        if (publisher.isLocal(invalidation)) {
+            return;
+        }
+        EntityPersister persister = sessionFactory.getMappingMetamodel().getEntityDescriptor(Note.class);
+        NaturalIdDataAccess titleCache = persister.getNaturalIdCacheAccessStrategy();
+        Set<Object> ids = new HashSet<>();
+        if (invalidation.id() != null) {
+            ids.add(invalidation.id());
+        }
+        try (SessionImplementor session = (SessionImplementor) sessionFactory.openSession()) {
+            for (String title : invalidation.titles()) {
+                Object key = titleCache.generateCacheKey(title, persister, session);
+                Object id = titleCache.get(session, key);
+                if (id != null) {
+                    ids.add(id);
+                }
+                titleCache.evict(key);
+            }
+            ids.forEach(id -> sessionFactory.getCache().evictEntityData(Note.class, id));
+            String[] tables = Arrays.stream(persister.getQuerySpaces()).map(String::valueOf).toArray(String[]::new);
+            sessionFactory.getCache().getTimestampsCache().invalidate(tables, session);
+        }
+        log.debug("Evicted notes {} invalidated by {}", invalidation.titles(), invalidation.origin());
+    }
+}
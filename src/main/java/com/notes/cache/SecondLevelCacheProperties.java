@@ -0,0 +1,18 @@
+package com.notes.cache;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "notes.l2-cache")
+public class SecondLevelCacheProperties {
+
+    private boolean enabled = true;
+    private long maxEntries = 10_000;
+    private long maxQueries = 1_000;
+    private Duration ttl = Duration.ofMinutes(10);
+}
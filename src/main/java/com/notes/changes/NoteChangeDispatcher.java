@@ -0,0 +1,303 @@
+package com.notes.changes;
+
+import com.notes.dto.NoteChangeBatch;
+import com.notes.model.NoteChange;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Рассылает изменения подписчикам long-poll и SSE. Подписчики не занимают потоки: запросы
+ * переводятся в асинхронный режим, а все рассылки выполняет один поток, который после каждой
+ * зафиксированной транзакции читает журнал один раз - начиная с самого отстающего подписчика.
+ * Сам он в сокеты не пишет: события SSE кладутся в ограниченную очередь подписчика, которую
+ * разбирает пул note-changes-send. Медленный клиент задерживает только себя, а когда его
+ * очередь переполняется, поток закрывается, и клиент переподключается с Last-Event-ID.
+ */
+@Slf4j
+@Component
+public class NoteChangeDispatcher implements DisposableBean {
+
+    private final NoteChangeLog changeLog;
+    private final NoteChangeProperties properties;
+    private final ScheduledExecutorService executor;
+    private final ExecutorService sendExecutor;
+    private final Counter dropped;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean dispatchScheduled = new AtomicBoolean();
+
+    public NoteChangeDispatcher(NoteChangeLog changeLog, NoteChangeProperties properties, MeterRegistry meterRegistry) {
+        this.changeLog = changeLog;
+        this.properties = properties;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "note-changes");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger sendThreads = new AtomicInteger();
+        this.sendExecutor = Executors.newFixedThreadPool(properties.getSendThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "note-changes-send-" + sendThreads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.dropped = Counter.builder("notes.changes.dropped")
+                .description("SSE subscriptions closed because the client did not keep up with the change feed")
+                .register(meterRegistry);
+        long heartbeatMillis = properties.getHeartbeat().toMillis();
+        executor.scheduleAtFixedRate(this::heartbeat, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+        changeLog.addCommitListener(this::signal);
+        Gauge.builder("notes.changes.subscribers", subscribers, Set::size)
+                .description("Open long-poll and SSE subscriptions to the change feed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Сразу отдаёт накопившиеся изменения, а если их нет - ждёт первого изменения до таймаута
+     * и тогда отвечает пустой порцией с тем же курсором.
+     */
+    public DeferredResult<NoteChangeBatch> poll(long since, int limit) {
+        NoteChangeBatch batch = changeLog.changesSince(since, limit);
+        DeferredResult<NoteChangeBatch> result = new DeferredResult<>(properties.getLongPollTimeout().toMillis(),
+                () -> new NoteChangeBatch(List.of(), batch.getNext()));
+        if (!batch.getChanges().isEmpty()) {
+            result.setResult(batch);
+            return result;
+        }
+        LongPollSubscriber subscriber = new LongPollSubscriber(batch.getNext(), limit, result);
+        subscribers.add(subscriber);
+        result.onCompletion(() -> subscribers.remove(subscriber));
+        signal();
+        return result;
+    }
+
+    public SseEmitter stream(long since) {
+        return subscribe(since, new SseEmitter(properties.getStreamTimeout().toMillis()));
+    }
+
+    SseEmitter subscribe(long since, SseEmitter emitter) {
+        StreamSubscriber subscriber = new StreamSubscriber(since, emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(error -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        signal();
+        return emitter;
+    }
+
+    int subscriberCount() {
+        return subscribers.size();
+    }
+
+    void signal() {
+        if (dispatchScheduled.compareAndSet(false, true)) {
+            executor.execute(this::dispatch);
+        }
+    }
+
+    private void dispatch() {
+        dispatchScheduled.set(false);
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        try {
+            long from = subscribers.stream().mapToLong(Subscriber::cursor).min().orElseThrow();
+            NoteChangeBatch batch = changeLog.changesSince(from, properties.getMaxBatchSize());
+            if (batch.getNext() == from) {
+                return;
+            }
+            for (Subscriber subscriber : subscribers) {
+                if (!subscriber.deliver(batch)) {
+                    subscribers.remove(subscriber);
+                }
+            }
+            if (batch.getChanges().size() == properties.getMaxBatchSize()) {
+                signal();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Change feed dispatch failed", e);
+        }
+    }
+
+    private void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber instanceof StreamSubscriber stream && !stream.ping()) {
+                subscribers.remove(subscriber);
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+        sendExecutor.shutdownNow();
+        subscribers.forEach(Subscriber::close);
+        subscribers.clear();
+    }
+
+    private abstract static class Subscriber {
+
+        protected long cursor;
+
+        Subscriber(long cursor) {
+            this.cursor = cursor;
+        }
+
+        long cursor() {
+            return cursor;
+        }
+
+        /**
+         * Возвращает false, если подписчика нужно удалить.
+         */
+        abstract boolean deliver(NoteChangeBatch batch);
+
+        abstract void close();
+
+        List<NoteChange> unseen(NoteChangeBatch batch) {
+            return batch.getChanges().stream().filter(change -> change.getSeq() > cursor).toList();
+        }
+    }
+
+    private static final class LongPollSubscriber extends Subscriber {
+
+        private final int limit;
+        private final DeferredResult<NoteChangeBatch> result;
+
+        LongPollSubscriber(long cursor, int limit, DeferredResult<NoteChangeBatch> result) {
+            super(cursor);
+            this.limit = limit;
+            this.result = result;
+        }
+
+        @Override
+        boolean deliver(NoteChangeBatch batch) {
+            List<NoteChange> changes = unseen(batch);
+            if (changes.isEmpty()) {
+                cursor = Math.max(cursor, batch.getNext());
+                return !result.isSetOrExpired();
+            }
+            if (changes.size() > limit) {
+                changes = changes.subList(0, limit);
+                result.setResult(new NoteChangeBatch(changes, changes.get(limit - 1).getSeq()));
+            } else {
+                result.setResult(new NoteChangeBatch(changes, batch.getNext()));
+            }
+            return false;
+        }
+
+        @Override
+        void close() {
+            result.setResult(new NoteChangeBatch(List.of(), cursor));
+        }
+    }
+
+    /**
+     * Курсор двигается, когда событие поставлено в очередь; отправкой занимается не больше
+     * одного потока пула одновременно, так что порядок событий сохраняется.
+     */
+    private final class StreamSubscriber extends Subscriber {
+
+        private final SseEmitter emitter;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> queue;
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private volatile boolean closing;
+
+        StreamSubscriber(long cursor, SseEmitter emitter) {
+            super(cursor);
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(properties.getStreamQueueCapacity());
+        }
+
+        @Override
+        boolean deliver(NoteChangeBatch batch) {
+            if (closing) {
+                return false;
+            }
+            for (NoteChange change : unseen(batch)) {
+                SseEmitter.SseEventBuilder event = SseEmitter.event()
+                        .id(Long.toString(change.getSeq()))
+                        .name("change")
+                        .data(change, MediaType.APPLICATION_JSON);
+                if (!queue.offer(event)) {
+                    dropped.increment();
+                    log.warn("Change feed subscriber fell {} events behind at seq {}, closing the stream",
+                            queue.size(), change.getSeq());
+                    closing = true;
+                    queue.clear();
+                    drain();
+                    return false;
+                }
+            }
+            cursor = Math.max(cursor, batch.getNext());
+            drain();
+            return true;
+        }
+
+        /**
+         * Пинг нужен только простаивающему соединению: если события ждут отправки, они сами
+         * держат соединение живым.
+         */
+        boolean ping() {
+            if (closing) {
+                return false;
+            }
+            if (queue.isEmpty()) {
+                queue.offer(SseEmitter.event().comment("ping"));
+                drain();
+            }
+            return true;
+        }
+
+        private void drain() {
+            if (sending.compareAndSet(false, true)) {
+                sendExecutor.execute(this::sendQueued);
+            }
+        }
+
+        private void sendQueued() {
+            try {
+                SseEmitter.SseEventBuilder event;
+                while (!closing && (event = queue.poll()) != null) {
+                    emitter.send(event);
+                }
+                if (closing) {
+                    emitter.complete();
+                    return;
+                }
+            } catch (IOException | IllegalStateException e) {
+                closing = true;
+                emitter.completeWithError(e);
+                return;
+            } finally {
+                sending.set(false);
+            }
+            if (!queue.isEmpty()) {
+                drain();
+            }
+        }
+
+        @Override
+        void close() {
+            emitter.complete();
+        }
+    }
+}
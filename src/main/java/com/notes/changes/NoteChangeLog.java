@@ -0,0 +1,119 @@
+package com.notes.changes;
+
+import com.notes.datasource.PrimaryReads;
+import com.notes.dto.NoteChangeBatch;
+import com.notes.event.NoteChangedEvent;
+import com.notes.model.NoteChange;
+import com.notes.repository.NoteChangeRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Журнал изменений заметок. Запись добавляется в той же транзакции, что и само изменение.
+ * <p>
+ * Номера выдаются в памяти, а транзакции фиксируются в произвольном порядке, поэтому читателю
+ * видны только записи до «водораздела» - номера, ниже которого не осталось незафиксированных
+ * транзакций. Иначе клиент, получивший seq 11, пропустил бы seq 10, зафиксированный позже.
+ * Схема рассчитана на один экземпляр приложения, пишущий в журнал.
+ */
+@Component
+public class NoteChangeLog implements SmartInitializingSingleton {
+
+    private final NoteChangeRepository changeRepository;
+    private final EntityManager entityManager;
+    private final List<Runnable> commitListeners = new CopyOnWriteArrayList<>();
+
+    private final Object lock = new Object();
+    private final NavigableSet<Long> pending = new TreeSet<>();
+    private long lastSeq;
+
+    public NoteChangeLog(NoteChangeRepository changeRepository, EntityManager entityManager) {
+        this.changeRepository = changeRepository;
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        long maxSeq = changeRepository.findMaxSeq();
+        synchronized (lock) {
+            lastSeq = Math.max(lastSeq, maxSeq);
+        }
+    }
+
+    @EventListener
+    public void onNoteChanged(NoteChangedEvent event) {
+        long seq = allocate();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                release(seq);
+                if (status == STATUS_COMMITTED) {
+                    commitListeners.forEach(Runnable::run);
+                }
+            }
+        });
+        entityManager.persist(new NoteChange(seq, event.getType(), event.getTitle(),
+                event.isRename() ? event.getOldTitle() : null, LocalDateTime.now()));
+    }
+
+    /**
+     * Граница видимости считается по коммитам в основной базе, поэтому и журнал читается
+     * из неё: на отстающей реплике записей до границы может ещё не быть, и курсор next
+     * перескочил бы через них навсегда.
+     */
+    @Transactional(readOnly = true)
+    public NoteChangeBatch changesSince(long since, int limit) {
+        try (PrimaryReads.Scope ignored = PrimaryReads.require()) {
+            long upTo = visibleUpTo();
+            if (upTo <= since) {
+                return new NoteChangeBatch(List.of(), since);
+            }
+            List<NoteChange> changes = changeRepository.findRange(since, upTo, Limit.of(limit));
+            long next = changes.size() < limit ? upTo : changes.get(changes.size() - 1).getSeq();
+            return new NoteChangeBatch(changes, next);
+        }
+    }
+
+    /**
+     * Номер последней видимой записи: с него подписка начинает получать только новые изменения.
+     */
+    public long head() {
+        return visibleUpTo();
+    }
+
+    void addCommitListener(Runnable listener) {
+        commitListeners.add(listener);
+    }
+
+    private long allocate() {
+        synchronized (lock) {
+            long seq = ++lastSeq;
+            pending.add(seq);
+            return seq;
+        }
+    }
+
+    private void release(long seq) {
+        synchronized (lock) {
+            pending.remove(seq);
+        }
+    }
+
+    private long visibleUpTo() {
+        synchronized (lock) {
+            return pending.isEmpty() ? lastSeq : pending.first() - 1;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.notes.changes;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "notes.changes")
+public class NoteChangeProperties {
+
+    private int maxBatchSize = 1000;
+    private Duration longPollTimeout = Duration.ofSeconds(30);
+    private Duration streamTimeout = Duration.ofMinutes(30);
+    private Duration heartbeat = Duration.ofSeconds(15);
+
+    /**
+     * Сколько событий может ждать отправки одному SSE-подписчику; переполнение означает,
+     * что клиент не успевает читать, и поток закрывается.
+     */
+    private int streamQueueCapacity = 1000;
+
+    /**
+     * Потоки, которые пишут события в SSE-соединения.
+     */
+    private int sendThreads = 4;
+}
@@ -0,0 +1,17 @@
+package com.notes.compression;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.zip.Deflater;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "notes.compression")
+public class NoteCompressionProperties {
+
+    private boolean enabled = true;
+    private int minLength = 4096;
+    private int level = Deflater.DEFAULT_COMPRESSION;
+}
@@ -0,0 +1,172 @@
+package com.notes.compression;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Сжатие текста заметки для хранения в CONTENT. Сжатое значение имеет вид
+ * {@code MARKER + <длина исходного текста в символах> + ':' + Base64(deflate(UTF-8))};
+ * значения без маркера - обычный текст, в том числе строки, записанные до включения сжатия.
+ * Текст, который сам начинается с маркера, всегда сжимается, чтобы чтение было однозначным.
+ */
+@Component
+public class NoteContentCodec {
+
+    /** Должен совпадать с маркером в NoteRepository.SUMMARY_SELECT. */
+    public static final String MARKER = "\u0001deflate:";
+
+    private static final Base64.Encoder BASE64_ENCODER = Base64.getEncoder();
+    private static final Base64.Decoder BASE64_DECODER = Base64.getDecoder();
+
+    private final boolean enabled;
+    private final int minLength;
+    private final int level;
+    private final DistributionSummary ratio;
+    private final Counter savedBytes;
+    private final Timer compressTimer;
+    private final Timer decompressTimer;
+
+    public NoteContentCodec(NoteCompressionProperties properties, MeterRegistry meterRegistry) {
+        this.enabled = properties.isEnabled();
+        this.minLength = properties.getMinLength();
+        this.level = properties.getLevel();
+        this.compressTimer = codecTimer(meterRegistry, "compress");
+        this.decompressTimer = codecTimer(meterRegistry, "decompress");
+        this.ratio = DistributionSummary.builder("notes.content.compression.ratio")
+                .description("Stored size divided by the original UTF-8 size of compressed note content")
+                .register(meterRegistry);
+        this.savedBytes = Counter.builder("notes.content.compression.saved")
+                .description("Bytes saved by compressing note content")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Для NoteContentConverter без контекста Spring; метрики никуда не публикуются.
+     */
+    static NoteContentCodec withDefaults() {
+        return new NoteContentCodec(new NoteCompressionProperties(), new SimpleMeterRegistry());
+    }
+
+    public String encode(String text) {
+        if (text == null) {
+            return null;
+        }
+        boolean forced = text.startsWith(MARKER);
+        if (!forced && (!enabled || text.length() < minLength)) {
+            return text;
+        }
+        long start = System.nanoTime();
+        byte[] original = text.getBytes(StandardCharsets.UTF_8);
+        String encoded = MARKER + text.length() + ':' + BASE64_ENCODER.encodeToString(deflate(original));
+        compressTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (!forced && encoded.length() >= original.length) {
+            return text;
+        }
+        ratio.record((double) encoded.length() / original.length);
+        savedBytes.increment(original.length - encoded.length());
+        return encoded;
+    }
+
+    public String decode(String stored) {
+        if (!isCompressed(stored)) {
+            return stored;
+        }
+        long start = System.nanoTime();
+        String text = new String(inflate(payload(stored), Integer.MAX_VALUE), StandardCharsets.UTF_8);
+        decompressTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return text;
+    }
+
+    /**
+     * Первые {@code maxChars} символов текста по префиксу хранимого значения: deflate-поток
+     * можно распаковывать частично, поэтому для превью достаточно начала столбца.
+     */
+    public static String decodePrefix(String storedPrefix, int maxChars) {
+        if (!isCompressed(storedPrefix)) {
+            return truncate(storedPrefix, maxChars);
+        }
+        String payload = payload(storedPrefix);
+        payload = payload.substring(0, payload.length() - payload.length() % 4);
+        String text = new String(inflate(payload, maxChars * 4), StandardCharsets.UTF_8);
+        if (text.length() < maxChars && text.endsWith("\uFFFD")) {
+            text = text.substring(0, text.length() - 1);
+        }
+        return truncate(text, maxChars);
+    }
+
+    /**
+     * Длина исходного текста в символах: для сжатого значения берётся из заголовка.
+     */
+    public static Long originalLength(String storedPrefix, Long storedLength) {
+        if (!isCompressed(storedPrefix)) {
+            return storedLength;
+        }
+        int end = storedPrefix.indexOf(':', MARKER.length());
+        return Long.parseLong(storedPrefix, MARKER.length(), end, 10);
+    }
+
+    public static boolean isCompressed(String stored) {
+        return stored != null && stored.startsWith(MARKER);
+    }
+
+    private byte[] deflate(byte[] input) {
+        Deflater deflater = new Deflater(level);
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, input.length / 4));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(String payload, int maxBytes) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(BASE64_DECODER.decode(payload));
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.min(maxBytes, payload.length() * 3));
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished() && !inflater.needsInput() && out.size() < maxBytes) {
+                out.write(buffer, 0, inflater.inflate(buffer));
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Повреждённое сжатое содержимое заметки", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static String payload(String stored) {
+        return stored.substring(stored.indexOf(':', MARKER.length()) + 1);
+    }
+
+    private static String truncate(String text, int maxChars) {
+        return text == null || text.length() <= maxChars ? text : text.substring(0, maxChars);
+    }
+
+    private static Timer codecTimer(MeterRegistry meterRegistry, String operation) {
+        return Timer.builder("notes.content.codec")
+                .description("CPU-bound time spent compressing or decompressing note content")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+}
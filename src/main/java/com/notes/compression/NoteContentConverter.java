@@ -0,0 +1,29 @@
+package com.notes.compression;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import org.springframework.beans.factory.ObjectProvider;
+
+/**
+ * Прозрачно сжимает CONTENT при записи и распаковывает при чтении. Создаётся Hibernate через
+ * контейнер бинов Spring; без настроенного NoteContentCodec используются параметры по умолчанию.
+ */
+@Converter
+public class NoteContentConverter implements AttributeConverter<String, String> {
+
+    private final NoteContentCodec codec;
+
+    public NoteContentConverter(ObjectProvider<NoteContentCodec> codec) {
+        this.codec = codec.getIfAvailable(NoteContentCodec::withDefaults);
+    }
+
+    @Override
+    public String convertToDatabaseColumn(String text) {
+        return codec.encode(text);
+    }
+
+    @Override
+    public String convertToEntityAttribute(String stored) {
+        return codec.decode(stored);
+    }
+}
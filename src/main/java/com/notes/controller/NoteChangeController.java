@@ -0,0 +1,60 @@
+package com.notes.controller;
+
+import com.notes.changes.NoteChangeDispatcher;
+import com.notes.changes.NoteChangeLog;
+import com.notes.changes.NoteChangeProperties;
+import com.notes.dto.NoteChangeBatch;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Лента изменений: клиент хранит курсор next из ответа и передаёт его в since. Путь
+ * начинается с «_», чтобы не закрывать заметку с названием changes от GET /api/notes/{title}.
+ */
+@RestController
+@RequestMapping("/api/notes/_changes")
+public class NoteChangeController {
+
+    private final NoteChangeLog changeLog;
+    private final NoteChangeDispatcher dispatcher;
+    private final NoteChangeProperties properties;
+
+    public NoteChangeController(NoteChangeLog changeLog, NoteChangeDispatcher dispatcher,
+                                NoteChangeProperties properties) {
+        this.changeLog = changeLog;
+        this.dispatcher = dispatcher;
+        this.properties = properties;
+    }
+
+    @GetMapping
+    public NoteChangeBatch getChanges(@RequestParam(defaultValue = "0") long since,
+                                      @RequestParam(defaultValue = "100") int limit) {
+        return changeLog.changesSince(since, batchSize(limit));
+    }
+
+    @GetMapping(params = "wait=true")
+    public DeferredResult<NoteChangeBatch> pollChanges(@RequestParam(defaultValue = "0") long since,
+                                                       @RequestParam(defaultValue = "100") int limit) {
+        return dispatcher.poll(since, batchSize(limit));
+    }
+
+    /**
+     * Без since и Last-Event-ID поток начинается с текущего момента.
+     */
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(@RequestParam(required = false) Long since,
+                                    @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        long from = lastEventId != null ? lastEventId : since != null ? since : changeLog.head();
+        return dispatcher.stream(from);
+    }
+
+    private int batchSize(int limit) {
+        return Math.max(1, Math.min(limit, properties.getMaxBatchSize()));
+    }
+}
@@ -1,51 +1,250 @@
 package com.notes.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.notes.dto.BulkNoteOperation;
+import com.notes.dto.BulkResult;
 import com.notes.dto.CreateNoteRequest;
+import com.notes.dto.NotePage;
+import com.notes.dto.NoteSearchResult;
+import com.notes.dto.NoteSummary;
+import com.notes.dto.NoteVersion;
 import com.notes.dto.PatchNoteRequest;
+import com.notes.dto.SnapshotImportResult;
 import com.notes.dto.UpdateNoteRequest;
+import com.notes.exception.NoteVersionMismatchException;
 import com.notes.model.Note;
+import com.notes.recent.RecentNotesTracker;
+import com.notes.search.NoteSearchIndex;
+import com.notes.search.NoteTitleIndex;
+import com.notes.service.NoteBulkService;
 import com.notes.service.NoteService;
+import com.notes.snapshot.NoteSnapshotService;
+import com.notes.storage.NoteContent;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/notes")
 public class NoteController {
 
+    private static final MediaType TEXT_UTF8 = new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8);
+
     private final NoteService noteService;
+    private final NoteSearchIndex searchIndex;
+    private final NoteTitleIndex titleIndex;
+    private final NoteBulkService bulkService;
+    private final RecentNotesTracker recentNotes;
+    private final NoteSnapshotService snapshotService;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter noteWriter;
 
-    public NoteController(NoteService noteService) {
+    public NoteController(NoteService noteService, NoteSearchIndex searchIndex, NoteTitleIndex titleIndex,
+                          NoteBulkService bulkService, RecentNotesTracker recentNotes,
+                          NoteSnapshotService snapshotService, ObjectMapper objectMapper) {
         this.noteService = noteService;
+        this.searchIndex = searchIndex;
+        this.titleIndex = titleIndex;
+        this.bulkService = bulkService;
+        this.recentNotes = recentNotes;
+        this.snapshotService = snapshotService;
+        this.objectMapper = objectMapper;
+        this.noteWriter = objectMapper.writerFor(Note.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
     }
 
-    @GetMapping
+    /**
+     * Полные списки исключают prefix и title: фильтр, для которого не нашлось обработчика,
+     * не должен превращаться в выдачу всех заметок.
+     */
+    @GetMapping(params = {"!prefix", "!title"})
     @ResponseBody
     public List<Note> getAllNotes() {
         return noteService.getAllNotes();
     }
 
+    @GetMapping(params = {"limit", "!prefix", "!title"})
+    public NotePage<Note> getNotesPage(@RequestParam int limit, @RequestParam(required = false) String next) {
+        return noteService.getNotesPage(next, limit);
+    }
+
+    /**
+     * Названия берутся из NoteTitleIndex, в базу уходит только выборка найденных заметок по названию.
+     */
+    @GetMapping(params = "prefix")
+    public List<Note> getNotesByTitlePrefix(@RequestParam String prefix,
+                                            @RequestParam(defaultValue = "false") boolean ignoreCase,
+                                            @RequestParam(defaultValue = "20") int limit) {
+        return noteService.getNotesByTitles(titleIndex.findByPrefix(prefix, ignoreCase, limit));
+    }
+
+    @GetMapping(params = {"title", "ignoreCase=true"})
+    public List<Note> getNotesByTitleIgnoringCase(@RequestParam String title) {
+        return noteService.getNotesByTitles(titleIndex.findIgnoringCase(title));
+    }
+
+    @GetMapping(params = {"title", "ignoreCase!=true"})
+    public List<Note> getNotesByTitle(@RequestParam String title) {
+        return noteService.getNotesByTitles(List.of(title));
+    }
+
+    @GetMapping(params = {"view=summary", "!prefix", "!title"})
+    public List<NoteSummary> getAllNoteSummaries() {
+        return noteService.getAllNoteSummaries();
+    }
+
+    @GetMapping(params = {"view=summary", "limit", "!prefix", "!title"})
+    public NotePage<NoteSummary> getNoteSummariesPage(@RequestParam int limit,
+                                                      @RequestParam(required = false) String next) {
+        return noteService.getNoteSummariesPage(next, limit);
+    }
+
+    @GetMapping(params = {"!prefix", "!title"}, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllNotes() {
+        StreamingResponseBody body = out -> {
+            JsonGenerator generator = objectMapper.createGenerator(out);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            noteService.forEachNote(note -> {
+                try {
+                    noteWriter.writeValue(generator, note);
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.close();
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    @GetMapping("/_export")
+    public ResponseEntity<StreamingResponseBody> exportNotes() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"notes.snapshot\"")
+                .body(snapshotService::exportTo);
+    }
+
+    /**
+     * Служебные пути начинаются с «_», как /_bulk и /_export, чтобы не закрывать заметки
+     * с такими названиями от GET /{title}.
+     */
+    @GetMapping("/_search")
+    public NoteSearchResult searchNotes(@RequestParam String q,
+                                        @RequestParam(defaultValue = "0") int offset,
+                                        @RequestParam(defaultValue = "20") int limit) {
+        return searchIndex.search(q, offset, limit);
+    }
+
+    @GetMapping("/_recent")
+    public List<Note> getRecentNotes(@RequestParam(defaultValue = "10") int limit) {
+        return recentNotes.recent(limit);
+    }
+
+    /**
+     * При If-None-Match версия сверяется без загрузки текста; 304 отдаётся до чтения заметки.
+     * Тег слабый, чтобы Tomcat сжимал ответ (см. NoteVersion).
+     */
     @GetMapping("/{title}")
-    public Note getNoteByTitle(@PathVariable String title) {
-        return noteService.getNoteByTitle(title);
+    public ResponseEntity<Note> getNoteByTitle(@PathVariable String title, WebRequest request) {
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                && request.checkNotModified(noteService.getNoteVersion(title).toWeakETag())) {
+            return null;
+        }
+        return withETag(ResponseEntity.ok(), noteService.getNoteByTitle(title));
+    }
+
+    /**
+     * Текст отдаётся байтами UTF-8 прямо из NoteContent, без String и JSON. Поддерживается
+     * один диапазон Range (с If-Range по ETag); запрос нескольких диапазонов отдаётся целиком.
+     * Синтаксически неверный Range игнорируется (RFC 9110, 14.2), 416 получает только
+     * корректный диапазон, начинающийся за концом текста.
+     */
+    @GetMapping("/{title}/content")
+    public void getNoteContent(@PathVariable String title, @RequestHeader HttpHeaders headers,
+                               HttpServletResponse response) throws IOException {
+        try (NoteContent content = noteService.openNoteContent(title)) {
+            long length = content.length();
+            String eTag = content.version().toETag();
+            response.setContentType(TEXT_UTF8.toString());
+            response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+            response.setHeader(HttpHeaders.ETAG, eTag);
+
+            long start = 0;
+            long count = length;
+            List<HttpRange> ranges = requestedRanges(headers, eTag);
+            if (ranges.size() == 1) {
+                start = ranges.get(0).getRangeStart(length);
+                if (start >= length) {
+                    response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    return;
+                }
+                count = ranges.get(0).getRangeEnd(length) - start + 1;
+            }
+            if (ranges.size() == 1) {
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + (start + count - 1) + "/" + length);
+            }
+            response.setContentLengthLong(count);
+            content.transferTo(start, count, Channels.newChannel(response.getOutputStream()));
+        }
     }
 
     @PostMapping
-    @ResponseStatus(HttpStatus.CREATED)
-    public Note createNote(@Valid @RequestBody CreateNoteRequest request) {
-        return noteService.createNote(request.getTitle(), request.getText());
+    public ResponseEntity<Note> createNote(@Valid @RequestBody CreateNoteRequest request) {
+        return withETag(ResponseEntity.status(HttpStatus.CREATED),
+                noteService.createNote(request.getTitle(), request.getText()));
+    }
+
+    @PostMapping(value = "/_bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public BulkResult bulk(InputStream body) throws IOException {
+        return bulkService.apply(objectMapper.readerFor(BulkNoteOperation.class).readValues(body));
+    }
+
+    @PostMapping(value = "/_import", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public SnapshotImportResult importNotes(InputStream body) throws IOException {
+        return snapshotService.importFrom(body);
     }
 
     @PutMapping("/{oldTitle}")
-    public Note editNote(@PathVariable String oldTitle, @RequestBody UpdateNoteRequest request) {
-        return noteService.editNoteByTitle(oldTitle, request.getTitle(), request.getText());
+    public ResponseEntity<Note> editNote(@PathVariable String oldTitle, @RequestBody UpdateNoteRequest request,
+                                         @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        NoteVersion expectedVersion = expectedVersion(oldTitle, ifMatch);
+        Note note = expectedVersion == null
+                ? noteService.editNoteByTitle(oldTitle, request.getTitle(), request.getText())
+                : noteService.editNoteByTitle(oldTitle, request.getTitle(), request.getText(), expectedVersion);
+        return withETag(ResponseEntity.ok(), note);
     }
 
     @PatchMapping("/{oldTitle}")
-    public Note patchNote(@PathVariable String oldTitle, @RequestBody PatchNoteRequest request){
-        return noteService.patchNoteByTitle(oldTitle, request.getTitle(), request.getText());
+    public ResponseEntity<Note> patchNote(@PathVariable String oldTitle, @RequestBody PatchNoteRequest request,
+                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        NoteVersion expectedVersion = expectedVersion(oldTitle, ifMatch);
+        Note note = expectedVersion == null
+                ? noteService.patchNoteByTitle(oldTitle, request.getTitle(), request.getText())
+                : noteService.patchNoteByTitle(oldTitle, request.getTitle(), request.getText(), expectedVersion);
+        return withETag(ResponseEntity.ok(), note);
     }
 
     @DeleteMapping("/{title}")
@@ -53,4 +252,38 @@ public class NoteController {
     public void deleteNote(@PathVariable String title) {
         noteService.deleteNoteByTitle(title);
     }
+
+    private static ResponseEntity<Note> withETag(ResponseEntity.BodyBuilder response, Note note) {
+        return response.eTag(NoteVersion.of(note).toWeakETag()).body(note);
+    }
+
+    /**
+     * Range игнорируется, если If-Range не совпадает с текущим ETag.
+     */
+    private static List<HttpRange> requestedRanges(HttpHeaders headers, String eTag) {
+        String ifRange = headers.getFirst(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.trim().equals(eTag)) {
+            return List.of();
+        }
+        try {
+            return headers.getRange();
+        } catch (IllegalArgumentException e) {
+            return List.of();
+        }
+    }
+
+    /**
+     * If-Match: * (или отсутствие заголовка) означает безусловное изменение; тег, который
+     * не выдавался этим сервером, не может совпасть с текущей версией.
+     */
+    private static NoteVersion expectedVersion(String title, String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        NoteVersion expectedVersion = NoteVersion.parseETag(ifMatch);
+        if (expectedVersion == null) {
+            throw new NoteVersionMismatchException("Заметка с названием " + title + " не соответствует If-Match: " + ifMatch);
+        }
+        return expectedVersion;
+    }
 }
@@ -0,0 +1,50 @@
+package com.notes.controller;
+
+import com.notes.dto.NoteRevisionSummary;
+import com.notes.dto.NoteRevisionView;
+import com.notes.dto.NoteVersion;
+import com.notes.model.Note;
+import com.notes.revision.NoteRevisionService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * История заметки: номер ревизии совпадает с версией заметки из ETag.
+ */
+@RestController
+@RequestMapping("/api/notes/{title}/revisions")
+public class NoteRevisionController {
+
+    private static final int MAX_LIMIT = 1000;
+
+    private final NoteRevisionService revisionService;
+
+    public NoteRevisionController(NoteRevisionService revisionService) {
+        this.revisionService = revisionService;
+    }
+
+    @GetMapping
+    public List<NoteRevisionSummary> getRevisions(@PathVariable String title,
+                                                  @RequestParam(required = false) Long before,
+                                                  @RequestParam(defaultValue = "100") int limit) {
+        return revisionService.getRevisions(title, before, Math.max(1, Math.min(limit, MAX_LIMIT)));
+    }
+
+    @GetMapping("/{revision}")
+    public NoteRevisionView getRevision(@PathVariable String title, @PathVariable long revision) {
+        return revisionService.getRevision(title, revision);
+    }
+
+    @PostMapping("/{revision}/restore")
+    public ResponseEntity<Note> restoreRevision(@PathVariable String title, @PathVariable long revision) {
+        Note note = revisionService.restoreRevision(title, revision);
+        return ResponseEntity.ok().eTag(NoteVersion.of(note).toWeakETag()).body(note);
+    }
+}
@@ -0,0 +1,38 @@
+package com.notes.datasource;
+
+/**
+ * Признак текущего потока «читать из основной базы», который учитывает ReplicaPool:
+ * <pre>
+ * try (PrimaryReads.Scope ignored = PrimaryReads.require()) { ... }
+ * </pre>
+ */
+public final class PrimaryReads {
+
+    private static final ThreadLocal<Boolean> REQUIRED = new ThreadLocal<>();
+
+    private PrimaryReads() {
+    }
+
+    public static boolean isRequired() {
+        return Boolean.TRUE.equals(REQUIRED.get());
+    }
+
+    public static Scope require() {
+        Boolean previous = REQUIRED.get();
+        REQUIRED.set(Boolean.TRUE);
+        return () -> {
+            if (previous == null) {
+                REQUIRED.remove();
+            } else {
+                REQUIRED.set(previous);
+            }
+        };
+    }
+
+    @FunctionalInterface
+    public interface Scope extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,76 @@
+package com.notes.datasource;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Чтение своих записей при репликах с отставанием. Запрос на изменение ставит клиенту cookie
+ * с моментом, до которого его чтения идут в основную базу (notes.replicas.sticky-window).
+ * Cookie ставится до обработки запроса, пока ответ ещё не отправлен.
+ */
+@Component
+@ConditionalOnProperty(prefix = "notes.replicas", name = "enabled")
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    static final String COOKIE_NAME = "NOTES_PRIMARY_UNTIL";
+
+    private static final String API_PREFIX = "/api/";
+    private static final Set<String> READ_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+
+    private final long stickyWindowMillis;
+
+    public ReadYourWritesFilter(ReplicaProperties properties) {
+        this.stickyWindowMillis = properties.getStickyWindow().toMillis();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith(API_PREFIX);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long now = System.currentTimeMillis();
+        if (!READ_METHODS.contains(request.getMethod())) {
+            Cookie cookie = new Cookie(COOKIE_NAME, Long.toString(now + stickyWindowMillis));
+            cookie.setPath(API_PREFIX);
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) Math.max(1, (stickyWindowMillis + 999) / 1000));
+            response.addCookie(cookie);
+        }
+        if (primaryUntil(request) <= now) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        try (PrimaryReads.Scope ignored = PrimaryReads.require()) {
+            filterChain.doFilter(request, response);
+        }
+    }
+
+    private static long primaryUntil(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return 0;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE_NAME.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,156 @@
+package com.notes.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Источник соединений для read-only транзакций: реплики по кругу, пропуская недоступные.
+ * Реплика, на которой не удалось взять соединение, выключается до следующей успешной
+ * фоновой проверки. Если доступных реплик нет или потоку нужны свежие данные
+ * (PrimaryReads), соединение берётся из основной базы.
+ */
+@Slf4j
+public class ReplicaPool extends AbstractDataSource implements AutoCloseable {
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 1;
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final AtomicInteger next = new AtomicInteger();
+    private final ScheduledExecutorService healthChecker;
+
+    private final Counter replicaReads;
+    private final Counter stickyReads;
+    private final Counter fallbackReads;
+
+    public ReplicaPool(DataSource primary, List<HikariDataSource> replicas, long healthCheckIntervalMillis,
+                       MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replicas = replicas.stream().map(Replica::new).toList();
+        this.replicaReads = readCounter(meterRegistry, "replica");
+        this.stickyReads = readCounter(meterRegistry, "primary-sticky");
+        this.fallbackReads = readCounter(meterRegistry, "primary-fallback");
+        Gauge.builder("notes.replicas.healthy", this, pool -> pool.healthyCount())
+                .description("Replicas currently used for read-only transactions")
+                .register(meterRegistry);
+
+        this.healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "notes-replica-health");
+            thread.setDaemon(true);
+            return thread;
+        });
+        healthChecker.scheduleWithFixedDelay(this::checkHealth, healthCheckIntervalMillis, healthCheckIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    private static Counter readCounter(MeterRegistry meterRegistry, String target) {
+        return Counter.builder("notes.replicas.reads")
+                .description("Read-only connections by the source they were taken from")
+                .tag("target", target)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return route(null, null);
+    }
+
+    /**
+     * Пул реплики открыт с учётными данными основной базы, поэтому реплика подходит, только
+     * если запрошены они же; иначе соединение с этими учётными данными берётся из основной базы.
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return route(username, password);
+    }
+
+    private Connection route(String username, String password) throws SQLException {
+        if (PrimaryReads.isRequired()) {
+            stickyReads.increment();
+            return primaryConnection(username, password);
+        }
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(size, 1));
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (!replica.healthy || (username != null && !replica.accepts(username, password))) {
+                continue;
+            }
+            try {
+                Connection connection = replica.dataSource.getConnection();
+                replicaReads.increment();
+                return connection;
+            } catch (SQLException e) {
+                markDown(replica, e);
+            }
+        }
+        fallbackReads.increment();
+        return primaryConnection(username, password);
+    }
+
+    private Connection primaryConnection(String username, String password) throws SQLException {
+        return username == null ? primary.getConnection() : primary.getConnection(username, password);
+    }
+
+    void checkHealth() {
+        for (Replica replica : replicas) {
+            boolean healthy;
+            try (Connection connection = replica.dataSource.getConnection()) {
+                healthy = connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+            } catch (SQLException e) {
+                healthy = false;
+            }
+            if (healthy && !replica.healthy) {
+                log.info("Replica {} is back, routing reads to it", replica.dataSource.getJdbcUrl());
+            } else if (!healthy && replica.healthy) {
+                log.warn("Replica {} failed the health check, reads go elsewhere", replica.dataSource.getJdbcUrl());
+            }
+            replica.healthy = healthy;
+        }
+    }
+
+    private void markDown(Replica replica, SQLException e) {
+        if (replica.healthy) {
+            replica.healthy = false;
+            log.warn("Replica {} is unavailable, reads go elsewhere: {}", replica.dataSource.getJdbcUrl(), e.getMessage());
+        }
+    }
+
+    int healthyCount() {
+        return (int) replicas.stream().filter(replica -> replica.healthy).count();
+    }
+
+    @Override
+    public void close() {
+        healthChecker.shutdownNow();
+        replicas.forEach(replica -> replica.dataSource.close());
+    }
+
+    private static final class Replica {
+
+        private final HikariDataSource dataSource;
+        private volatile boolean healthy = true;
+
+        private Replica(HikariDataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        private boolean accepts(String username, String password) {
+            return username.equals(dataSource.getUsername()) && Objects.equals(password, dataSource.getPassword());
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.notes.datasource;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "notes.replicas")
+public class ReplicaProperties {
+
+    private boolean enabled = false;
+
+    /**
+     * JDBC URL реплик; логин и пароль те же, что у spring.datasource.
+     */
+    private List<String> urls = new ArrayList<>();
+    private int poolSize = 5;
+    private Duration connectionTimeout = Duration.ofSeconds(1);
+    private Duration healthCheckInterval = Duration.ofSeconds(5);
+
+    /**
+     * Сколько после записи чтения клиента идут в основную базу, чтобы он видел свои изменения
+     * несмотря на отставание реплик.
+     */
+    private Duration stickyWindow = Duration.ofSeconds(2);
+}
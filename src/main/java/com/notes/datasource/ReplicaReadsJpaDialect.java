@@ -0,0 +1,47 @@
+package com.notes.datasource;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+
+import java.sql.SQLException;
+
+/**
+ * Read-only транзакция без PrimaryReads читает реплику, а реплика может отставать. Такая
+ * транзакция берёт сущности, natural id и результаты запросов из кэша второго уровня, но не
+ * кладёт туда прочитанное (CacheMode.GET): иначе старая строка с реплики жила бы в кэше до
+ * TTL или следующей записи. Кэш пополняют только сессии на основной базе.
+ */
+final class ReplicaReadsJpaDialect extends HibernateJpaDialect {
+
+    @Override
+    public Object beginTransaction(EntityManager entityManager, TransactionDefinition definition)
+            throws PersistenceException, SQLException, TransactionException {
+        Object transactionData = super.beginTransaction(entityManager, definition);
+        if (!definition.isReadOnly() || PrimaryReads.isRequired()) {
+            return transactionData;
+        }
+        // Сессия может пережить транзакцию (open-in-view), поэтому прежний режим возвращаем в cleanupTransaction
+        Session session = entityManager.unwrap(Session.class);
+        CacheMode previousCacheMode = session.getCacheMode();
+        session.setCacheMode(CacheMode.GET);
+        return new ReplicaRead(transactionData, session, previousCacheMode);
+    }
+
+    @Override
+    public void cleanupTransaction(Object transactionData) {
+        if (transactionData instanceof ReplicaRead read) {
+            read.session().setCacheMode(read.previousCacheMode());
+            super.cleanupTransaction(read.transactionData());
+        } else {
+            super.cleanupTransaction(transactionData);
+        }
+    }
+
+    private record ReplicaRead(Object transactionData, Session session, CacheMode previousCacheMode) {
+    }
+}
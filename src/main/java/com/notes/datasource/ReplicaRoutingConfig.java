@@ -0,0 +1,89 @@
+package com.notes.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.AbstractEntityManagerFactoryBean;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Маршрутизация чтений на реплики. Транзакция с readOnly = true помечает соединение как read-only
+ * ещё до первого запроса, а LazyConnectionDataSourceProxy берёт физическое соединение только
+ * при первом запросе: для read-only — из ReplicaPool, для остальных — из основной базы.
+ * Прочитанное с реплики не попадает в кэш второго уровня, см. ReplicaReadsJpaDialect.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "notes.replicas", name = "enabled")
+public class ReplicaRoutingConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ReplicaPool replicaPool(HikariDataSource primaryDataSource, DataSourceProperties dataSourceProperties,
+                                   ReplicaProperties properties, MeterRegistry meterRegistry) {
+        List<String> urls = properties.getUrls();
+        List<HikariDataSource> replicas = IntStream.range(0, urls.size())
+                .mapToObj(i -> replica(primaryDataSource.getPoolName() + "-replica-" + (i + 1), urls.get(i),
+                        dataSourceProperties, properties))
+                .toList();
+        return new ReplicaPool(primaryDataSource, replicas, properties.getHealthCheckInterval().toMillis(), meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaPool replicaPool) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        dataSource.setReadOnlyDataSource(replicaPool);
+        return dataSource;
+    }
+
+    /**
+     * Диалект задаётся фабрике EntityManager до её инициализации: JpaTransactionManager
+     * берёт диалект у фабрики, а свой диалект у адаптера Hibernate подменить нельзя.
+     */
+    @Bean
+    public static BeanPostProcessor replicaReadsJpaDialect() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof AbstractEntityManagerFactoryBean entityManagerFactory) {
+                    entityManagerFactory.setJpaDialect(new ReplicaReadsJpaDialect());
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * Реплика не должна мешать старту и подолгу держать запрос: пул создаётся без проверки
+     * соединения, а ожидание соединения ограничено notes.replicas.connection-timeout.
+     */
+    private static HikariDataSource replica(String poolName, String url, DataSourceProperties dataSourceProperties,
+                                            ReplicaProperties properties) {
+        HikariDataSource replica = new HikariDataSource();
+        replica.setPoolName(poolName);
+        replica.setJdbcUrl(url);
+        replica.setUsername(dataSourceProperties.determineUsername());
+        replica.setPassword(dataSourceProperties.determinePassword());
+        replica.setDriverClassName(dataSourceProperties.determineDriverClassName());
+        replica.setMaximumPoolSize(properties.getPoolSize());
+        replica.setConnectionTimeout(properties.getConnectionTimeout().toMillis());
+        replica.setInitializationFailTimeout(-1);
+        replica.setReadOnly(true);
+        return replica;
+    }
+}
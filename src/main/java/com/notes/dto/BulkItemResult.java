@@ -0,0 +1,17 @@
+package com.notes.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkItemResult {
+
+    private int index;
+    private BulkNoteOperation.Op op;
+    private String title;
+    private int status;
+    private String error;
+}
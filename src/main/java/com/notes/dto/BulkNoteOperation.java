@@ -0,0 +1,30 @@
+package com.notes.dto;
+
+import jakarta.annotation.Nullable;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+public class BulkNoteOperation {
+
+    public enum Op {
+        CREATE, UPDATE, DELETE
+    }
+
+    @NotNull(message = "Operation cannot be null")
+    private Op op = Op.CREATE;
+
+    @NotBlank(message = "Title cannot be blank")
+    private String title;
+
+    @Nullable
+    private String newTitle;
+
+    @Nullable
+    private String text;
+}
@@ -0,0 +1,15 @@
+package com.notes.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class BulkResult {
+
+    private int succeeded;
+    private int failed;
+    private List<BulkItemResult> items;
+}
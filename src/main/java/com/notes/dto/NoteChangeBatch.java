@@ -0,0 +1,15 @@
+package com.notes.dto;
+
+import com.notes.model.NoteChange;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class NoteChangeBatch {
+
+    private List<NoteChange> changes;
+    private long next;
+}
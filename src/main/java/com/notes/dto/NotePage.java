@@ -0,0 +1,14 @@
+package com.notes.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class NotePage<T> {
+
+    private List<T> items;
+    private String next;
+}
@@ -0,0 +1,13 @@
+package com.notes.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class NoteSearchHit {
+
+    private long id;
+    private String title;
+    private double score;
+}
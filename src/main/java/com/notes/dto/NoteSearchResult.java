@@ -0,0 +1,14 @@
+package com.notes.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class NoteSearchResult {
+
+    private int total;
+    private List<NoteSearchHit> hits;
+}
@@ -0,0 +1,38 @@
+package com.notes.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.notes.compression.NoteContentCodec;
+
+import java.time.LocalDateTime;
+
+@JsonPropertyOrder({"id", "title", "createdAt", "updatedAt", "preview", "length"})
+public interface NoteSummary {
+
+    int PREVIEW_LENGTH = 200;
+
+    long getId();
+
+    String getTitle();
+
+    @JsonFormat(pattern = "yyyy-MM-dd hh:mm:ss")
+    LocalDateTime getCreatedAt();
+
+    @JsonFormat(pattern = "yyyy-MM-dd hh:mm:ss")
+    LocalDateTime getUpdatedAt();
+
+    @JsonIgnore
+    String getStoredPreview();
+
+    @JsonIgnore
+    Long getStoredLength();
+
+    default String getPreview() {
+        return NoteContentCodec.decodePrefix(getStoredPreview(), PREVIEW_LENGTH);
+    }
+
+    default Long getLength() {
+        return NoteContentCodec.originalLength(getStoredPreview(), getStoredLength());
+    }
+}
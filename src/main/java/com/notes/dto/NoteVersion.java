@@ -0,0 +1,48 @@
+package com.notes.dto;
+
+import com.notes.model.Note;
+
+/**
+ * Версия заметки для условных запросов: ETag имеет вид {@code "<id>.<version>"}, так что
+ * заметка, удалённая и созданная заново с тем же названием, не совпадёт со старым тегом.
+ * JSON-представления получают слабый тег {@code W/"<id>.<version>"}: Tomcat не сжимает
+ * ответ со строгим ETag, а сжатое и несжатое тело одной версии побайтно различаются.
+ */
+public record NoteVersion(long id, long version) {
+
+    public static NoteVersion of(Note note) {
+        return new NoteVersion(note.getId(), note.getVersion());
+    }
+
+    public String toETag() {
+        return "\"" + id + "." + version + "\"";
+    }
+
+    public String toWeakETag() {
+        return "W/" + toETag();
+    }
+
+    /**
+     * Разбирает ETag, выданный сервером, в строгой или слабой форме; для чужих тегов
+     * возвращает null.
+     */
+    public static NoteVersion parseETag(String etag) {
+        String value = etag.trim();
+        if (value.startsWith("W/")) {
+            value = value.substring(2);
+        }
+        if (value.length() < 2 || value.charAt(0) != '"' || value.charAt(value.length() - 1) != '"') {
+            return null;
+        }
+        int dot = value.indexOf('.');
+        if (dot < 0) {
+            return null;
+        }
+        try {
+            return new NoteVersion(Long.parseLong(value, 1, dot, 10),
+                    Long.parseLong(value, dot + 1, value.length() - 1, 10));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
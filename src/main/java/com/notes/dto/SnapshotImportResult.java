@@ -0,0 +1,17 @@
+package com.notes.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class SnapshotImportResult {
+
+    private long imported;
+
+    /**
+     * Заметки, название которых уже занято (в базе или раньше в том же снимке).
+     */
+    private long skipped;
+    private int blocks;
+}
@@ -0,0 +1,40 @@
+package com.notes.event;
+
+import com.notes.model.Note;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class NoteChangedEvent {
+
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+
+    private final Type type;
+    private final String title;
+    private final String oldTitle;
+    private final Note note;
+    private final long deletedNoteId;
+
+    public static NoteChangedEvent created(Note note) {
+        return new NoteChangedEvent(Type.CREATED, note.getTitle(), null, note, 0);
+    }
+
+    public static NoteChangedEvent updated(String oldTitle, Note note) {
+        return new NoteChangedEvent(Type.UPDATED, note.getTitle(), oldTitle, note, 0);
+    }
+
+    /**
+     * id удалённой заметки нужен слушателям, которые хранят данные по id: название к моменту
+     * обработки события может уже принадлежать другой заметке.
+     */
+    public static NoteChangedEvent deleted(long noteId, String title) {
+        return new NoteChangedEvent(Type.DELETED, title, null, null, noteId);
+    }
+
+    public boolean isRename() {
+        return oldTitle != null && !oldTitle.equals(title);
+    }
+}
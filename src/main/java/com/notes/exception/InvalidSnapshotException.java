@@ -0,0 +1,8 @@
+package com.notes.exception;
+
+public class InvalidSnapshotException extends RuntimeException {
+
+    public InvalidSnapshotException(String message) {
+        super(message);
+    }
+}
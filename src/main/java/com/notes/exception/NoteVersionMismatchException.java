@@ -0,0 +1,8 @@
+package com.notes.exception;
+
+public class NoteVersionMismatchException extends RuntimeException {
+
+    public NoteVersionMismatchException(String message) {
+        super(message);
+    }
+}
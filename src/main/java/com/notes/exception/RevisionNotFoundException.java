@@ -0,0 +1,8 @@
+package com.notes.exception;
+
+public class RevisionNotFoundException extends RuntimeException {
+
+    public RevisionNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,69 @@
+package com.notes.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Пишет LocalDateTime так же, как {@code @JsonFormat(pattern = "yyyy-MM-dd hh:mm:ss")} в
+ * BaseEntity (часы 01-12, без AM/PM), но цифрами в буфер потока, без DateTimeFormatter и
+ * промежуточной строки. Дата в буфере перезаписывается только при смене дня.
+ */
+final class JsonTimestamps {
+
+    static final String PATTERN = "yyyy-MM-dd hh:mm:ss";
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern(PATTERN);
+    private static final int LENGTH = PATTERN.length();
+    private static final ThreadLocal<Buffer> BUFFERS = ThreadLocal.withInitial(Buffer::new);
+
+    private JsonTimestamps() {
+    }
+
+    static void write(JsonGenerator generator, LocalDateTime value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+            return;
+        }
+        int year = value.getYear();
+        if (year < 1 || year > 9999) {
+            // год эры и знак для пятизначных лет - как у DateTimeFormatter
+            generator.writeString(FORMATTER.format(value));
+            return;
+        }
+        Buffer buffer = BUFFERS.get();
+        char[] chars = buffer.chars;
+        long day = value.toLocalDate().toEpochDay();
+        if (buffer.day != day) {
+            writeDigits(chars, 0, year, 4);
+            chars[4] = '-';
+            writeDigits(chars, 5, value.getMonthValue(), 2);
+            chars[7] = '-';
+            writeDigits(chars, 8, value.getDayOfMonth(), 2);
+            chars[10] = ' ';
+            buffer.day = day;
+        }
+        int hour = value.getHour() % 12;
+        writeDigits(chars, 11, hour == 0 ? 12 : hour, 2);
+        chars[13] = ':';
+        writeDigits(chars, 14, value.getMinute(), 2);
+        chars[16] = ':';
+        writeDigits(chars, 17, value.getSecond(), 2);
+        generator.writeString(chars, 0, LENGTH);
+    }
+
+    private static void writeDigits(char[] chars, int offset, int value, int width) {
+        for (int i = offset + width - 1; i >= offset; i--) {
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    private static final class Buffer {
+
+        private final char[] chars = new char[LENGTH];
+        private long day = Long.MIN_VALUE;
+    }
+}
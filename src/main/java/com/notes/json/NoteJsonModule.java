@@ -0,0 +1,21 @@
+package com.notes.json;
+
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.notes.dto.NoteSummary;
+import com.notes.model.Note;
+import org.springframework.stereotype.Component;
+
+/**
+ * Сериализаторы ответов с заметками вместо обхода геттеров Note/BaseEntity и форматирования дат
+ * через DateTimeFormatter. JSON совпадает с тем, что дают аннотации Jackson на этих классах;
+ * Spring Boot подключает модуль к ObjectMapper как бин.
+ */
+@Component
+public class NoteJsonModule extends SimpleModule {
+
+    public NoteJsonModule() {
+        super("NoteJsonModule");
+        addSerializer(Note.class, new NoteSerializer());
+        addSerializer(NoteSummary.class, new NoteSummarySerializer());
+    }
+}
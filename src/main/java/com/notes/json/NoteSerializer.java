@@ -0,0 +1,42 @@
+package com.notes.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.notes.model.Note;
+
+import java.io.IOException;
+
+/**
+ * Note в том же виде и порядке полей, что и сериализация Jackson по геттерам Note/BaseEntity:
+ * updatedAt, createdAt, id, title, text. Имена полей закодированы заранее.
+ */
+final class NoteSerializer extends StdSerializer<Note> {
+
+    private static final SerializedString UPDATED_AT = new SerializedString("updatedAt");
+    private static final SerializedString CREATED_AT = new SerializedString("createdAt");
+    private static final SerializedString ID = new SerializedString("id");
+    private static final SerializedString TITLE = new SerializedString("title");
+    private static final SerializedString TEXT = new SerializedString("text");
+
+    NoteSerializer() {
+        super(Note.class);
+    }
+
+    @Override
+    public void serialize(Note note, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        generator.writeStartObject(note);
+        generator.writeFieldName(UPDATED_AT);
+        JsonTimestamps.write(generator, note.getUpdatedAt());
+        generator.writeFieldName(CREATED_AT);
+        JsonTimestamps.write(generator, note.getCreatedAt());
+        generator.writeFieldName(ID);
+        generator.writeNumber(note.getId());
+        generator.writeFieldName(TITLE);
+        generator.writeString(note.getTitle());
+        generator.writeFieldName(TEXT);
+        generator.writeString(note.getText());
+        generator.writeEndObject();
+    }
+}
@@ -0,0 +1,50 @@
+package com.notes.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.notes.dto.NoteSummary;
+
+import java.io.IOException;
+
+/**
+ * NoteSummary в порядке @JsonPropertyOrder: id, title, createdAt, updatedAt, preview, length.
+ * Подходит и для проекций Spring Data, и для сводок движка log.
+ */
+final class NoteSummarySerializer extends StdSerializer<NoteSummary> {
+
+    private static final SerializedString ID = new SerializedString("id");
+    private static final SerializedString TITLE = new SerializedString("title");
+    private static final SerializedString CREATED_AT = new SerializedString("createdAt");
+    private static final SerializedString UPDATED_AT = new SerializedString("updatedAt");
+    private static final SerializedString PREVIEW = new SerializedString("preview");
+    private static final SerializedString LENGTH = new SerializedString("length");
+
+    NoteSummarySerializer() {
+        super(NoteSummary.class);
+    }
+
+    @Override
+    public void serialize(NoteSummary summary, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        generator.writeStartObject(summary);
+        generator.writeFieldName(ID);
+        generator.writeNumber(summary.getId());
+        generator.writeFieldName(TITLE);
+        generator.writeString(summary.getTitle());
+        generator.writeFieldName(CREATED_AT);
+        JsonTimestamps.write(generator, summary.getCreatedAt());
+        generator.writeFieldName(UPDATED_AT);
+        JsonTimestamps.write(generator, summary.getUpdatedAt());
+        generator.writeFieldName(PREVIEW);
+        generator.writeString(summary.getPreview());
+        generator.writeFieldName(LENGTH);
+        Long length = summary.getLength();
+        if (length == null) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(length);
+        }
+        generator.writeEndObject();
+    }
+}
@@ -0,0 +1,95 @@
+package com.notes.metrics;
+
+import com.notes.dto.NotePage;
+import com.notes.event.NoteChangedEvent;
+import com.notes.model.Note;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.util.Collection;
+
+/**
+ * Распределение размера текста заметок в байтах UTF-8: записанных (in) и отданных клиенту (out).
+ */
+@ControllerAdvice
+public class ContentSizeMetrics implements ResponseBodyAdvice<Object> {
+
+    private final DistributionSummary contentIn;
+    private final DistributionSummary contentOut;
+
+    public ContentSizeMetrics(MeterRegistry meterRegistry) {
+        this.contentIn = contentSummary(meterRegistry, "in");
+        this.contentOut = contentSummary(meterRegistry, "out");
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNoteChanged(NoteChangedEvent event) {
+        if (event.getNote() != null) {
+            contentIn.record(utf8Length(event.getNote().getText()));
+        }
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (body instanceof Note note) {
+            contentOut.record(utf8Length(note.getText()));
+        } else if (body instanceof NotePage<?> page) {
+            recordAll(page.getItems());
+        } else if (body instanceof Collection<?> items) {
+            recordAll(items);
+        }
+        return body;
+    }
+
+    private void recordAll(Collection<?> items) {
+        for (Object item : items) {
+            if (item instanceof Note note) {
+                contentOut.record(utf8Length(note.getText()));
+            }
+        }
+    }
+
+    static long utf8Length(String text) {
+        if (text == null) {
+            return 0;
+        }
+        long length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private static DistributionSummary contentSummary(MeterRegistry meterRegistry, String direction) {
+        return DistributionSummary.builder("notes.content.size")
+                .description("Note content size in UTF-8 bytes")
+                .baseUnit("bytes")
+                .tag("direction", direction)
+                .register(meterRegistry);
+    }
+}
@@ -1,10 +1,15 @@
 package com.notes.model;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.Column;
 import jakarta.persistence.EntityListeners;
 import jakarta.persistence.MappedSuperclass;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Transient;
+import jakarta.persistence.Version;
 import jakarta.validation.Valid;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.cglib.core.Local;
@@ -32,4 +37,36 @@ public class BaseEntity {
     @CreatedDate
     @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt;
+
+    @JsonIgnore
+    @Version
+    @Column(name = "VERSION", nullable = false)
+    private long version;
+
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private LocalDateTime restoredCreatedAt;
+
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private LocalDateTime restoredUpdatedAt;
+
+    /**
+     * Даты из снимка, которые должны пережить persist: AuditingEntityListener проставляет
+     * текущее время, а applyRestoredTimestamps вызывается после него и возвращает эти.
+     */
+    public void restoreTimestamps(LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this.createdAt = this.restoredCreatedAt = createdAt;
+        this.updatedAt = this.restoredUpdatedAt = updatedAt;
+    }
+
+    @PrePersist
+    void applyRestoredTimestamps() {
+        if (restoredCreatedAt != null) {
+            createdAt = restoredCreatedAt;
+            updatedAt = restoredUpdatedAt;
+        }
+    }
 }
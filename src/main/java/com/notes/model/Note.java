@@ -1,23 +1,50 @@
 package com.notes.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.notes.cache.SecondLevelCacheConfig;
+import com.notes.compression.NoteContentConverter;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
+
+import java.util.Locale;
 
 @Getter
 @Setter
 @ToString
 @Entity
-@Table(name = "NOTES")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.NOTE_REGION)
+@NaturalIdCache(region = SecondLevelCacheConfig.NOTE_TITLE_REGION)
+@Table(name = "NOTES", indexes = {
+        @Index(name = "IDX_NOTES_UPDATED_AT", columnList = "updated_at DESC, ID DESC"),
+        @Index(name = "IDX_NOTES_TITLE_NORMALIZED", columnList = "TITLE_NORMALIZED, TITLE")
+})
 public class Note extends BaseEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "notes_seq")
+    @SequenceGenerator(name = "notes_seq", sequenceName = "NOTES_SEQ", allocationSize = 50)
     private long id;
 
+    @NaturalId(mutable = true)
     @Column(name = "TITLE", unique = true, nullable = false, length = 40)
     private String title;
 
+    /**
+     * Название в нижнем регистре для поиска без учёта регистра; обновляется вместе с title.
+     * Длиннее title, потому что строчная форма некоторых символов занимает два char.
+     */
+    @JsonIgnore
+    @Setter(AccessLevel.NONE)
+    @Column(name = "TITLE_NORMALIZED", nullable = false, length = 80)
+    private String titleNormalized;
+
     @Lob
+    @Convert(converter = NoteContentConverter.class)
     @Column(name = "CONTENT")
     private String text;
 
@@ -26,10 +53,19 @@ public class Note extends BaseEntity {
     }
 
     public Note(String title, String text) {
-        this.title = title;
+        setTitle(title);
         this.text = text;
     }
 
+    public void setTitle(String title) {
+        this.title = title;
+        this.titleNormalized = normalizeTitle(title);
+    }
+
+    public static String normalizeTitle(String title) {
+        return title == null ? null : title.toLowerCase(Locale.ROOT);
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (this == obj) return true;
@@ -0,0 +1,53 @@
+package com.notes.model;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.notes.event.NoteChangedEvent;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * Запись журнала изменений: номер seq назначает NoteChangeLog, он монотонно растёт.
+ */
+@Getter
+@Setter
+@ToString
+@Entity
+@Table(name = "NOTE_CHANGES")
+public class NoteChange {
+
+    @Id
+    @Column(name = "SEQ")
+    private long seq;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "OP", nullable = false, length = 8)
+    private NoteChangedEvent.Type op;
+
+    @Column(name = "TITLE", nullable = false, length = 40)
+    private String title;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @Column(name = "OLD_TITLE", length = 40)
+    private String oldTitle;
+
+    @JsonFormat(pattern = "yyyy-MM-dd hh:mm:ss")
+    @Column(name = "CHANGED_AT", nullable = false)
+    private LocalDateTime changedAt;
+
+    public NoteChange() {
+
+    }
+
+    public NoteChange(long seq, NoteChangedEvent.Type op, String title, String oldTitle, LocalDateTime changedAt) {
+        this.seq = seq;
+        this.op = op;
+        this.title = title;
+        this.oldTitle = oldTitle;
+        this.changedAt = changedAt;
+    }
+}
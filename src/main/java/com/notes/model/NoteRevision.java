@@ -0,0 +1,71 @@
+package com.notes.model;
+
+import com.notes.compression.NoteContentConverter;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * Ревизия заметки; номер ревизии равен версии заметки. FULL хранит текст целиком, DELTA -
+ * отличие от предыдущей ревизии: сколько символов сохранить с начала и с конца прежнего
+ * текста и что вставить между ними.
+ */
+@Getter
+@Setter
+@ToString(exclude = "content")
+@Entity
+@Table(name = "NOTE_REVISIONS",
+        uniqueConstraints = @UniqueConstraint(name = "UK_NOTE_REVISIONS_NOTE", columnNames = {"NOTE_ID", "REVISION"}),
+        indexes = @Index(name = "IDX_NOTE_REVISIONS_TITLE", columnList = "TITLE"))
+public class NoteRevision {
+
+    public enum Kind {
+        FULL, DELTA
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "note_revisions_seq")
+    @SequenceGenerator(name = "note_revisions_seq", sequenceName = "NOTE_REVISIONS_SEQ", allocationSize = 50)
+    private long id;
+
+    @Column(name = "NOTE_ID", nullable = false)
+    private long noteId;
+
+    @Column(name = "REVISION", nullable = false)
+    private long revision;
+
+    @Column(name = "TITLE", nullable = false, length = 40)
+    private String title;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "KIND", nullable = false, length = 5)
+    private Kind kind;
+
+    @Column(name = "PREFIX_LENGTH", nullable = false)
+    private int prefixLength;
+
+    @Column(name = "SUFFIX_LENGTH", nullable = false)
+    private int suffixLength;
+
+    @Lob
+    @Convert(converter = NoteContentConverter.class)
+    @Column(name = "CONTENT")
+    private String content;
+
+    @Column(name = "CHANGED_AT", nullable = false)
+    private LocalDateTime changedAt;
+
+    /**
+     * Текст этой ревизии по тексту предыдущей (для FULL он не нужен).
+     */
+    public String applyTo(String previous) {
+        if (kind == Kind.FULL) {
+            return content;
+        }
+        String base = previous == null ? "" : previous;
+        return base.substring(0, prefixLength) + content + base.substring(base.length() - suffixLength);
+    }
+}
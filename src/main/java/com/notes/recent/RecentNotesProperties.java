@@ -0,0 +1,13 @@
+package com.notes.recent;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "notes.recent")
+public class RecentNotesProperties {
+
+    private int capacity = 100;
+}
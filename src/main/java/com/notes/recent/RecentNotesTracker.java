@@ -0,0 +1,151 @@
+package com.notes.recent;
+
+import com.notes.datasource.PrimaryReads;
+import com.notes.event.NoteChangedEvent;
+import com.notes.model.Note;
+import com.notes.storage.NoteStore;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Последние изменённые заметки (до notes.recent.capacity) в памяти, в порядке UPDATED_AT DESC, ID DESC.
+ * <p>
+ * Список всегда является точным началом этого порядка: заметка, которая старше последнего
+ * элемента, в него не вставляется. Поэтому запрос не длиннее списка обслуживается из памяти,
+ * а более длинный (после удалений или на холодном старте) - индексированным запросом,
+ * результат которого снова заполняет список. Читатели не берут блокировок.
+ */
+@Component
+public class RecentNotesTracker implements SmartInitializingSingleton {
+
+    static final Comparator<Note> MOST_RECENT_FIRST = Comparator.comparing(Note::getUpdatedAt)
+            .thenComparingLong(Note::getId)
+            .reversed();
+
+    private static final int MAX_TOMBSTONES = 1024;
+
+    private final NoteStore noteStore;
+    private final int capacity;
+
+    private volatile State state = new State(List.of(), false);
+
+    /**
+     * Время удаления по названию: событие изменения, обработанное после удаления той же заметки,
+     * не должно вернуть её в список.
+     */
+    private final Map<String, LocalDateTime> tombstones = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, LocalDateTime> eldest) {
+            return size() > MAX_TOMBSTONES;
+        }
+    };
+
+    public RecentNotesTracker(NoteStore noteStore, RecentNotesProperties properties) {
+        this.noteStore = noteStore;
+        this.capacity = properties.getCapacity();
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        reload();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public List<Note> recent(int limit) {
+        int size = Math.max(1, Math.min(limit, capacity));
+        State current = state;
+        if (size > current.notes().size() && !current.exhaustive()) {
+            current = reload();
+        }
+        return current.notes().subList(0, Math.min(size, current.notes().size()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNoteChanged(NoteChangedEvent event) {
+        synchronized (this) {
+            if (event.getType() == NoteChangedEvent.Type.DELETED) {
+                tombstones.put(event.getTitle(), LocalDateTime.now());
+                List<Note> notes = new ArrayList<>(state.notes());
+                notes.removeIf(note -> note.getTitle().equals(event.getTitle()));
+                state = new State(List.copyOf(notes), state.exhaustive());
+                return;
+            }
+            state = merge(state, List.of(event.getNote()));
+        }
+    }
+
+    /**
+     * Читает основную базу: список, заполненный с отстающей реплики, перестал бы быть
+     * точным началом порядка.
+     */
+    private State reload() {
+        List<Note> fetched;
+        try (PrimaryReads.Scope ignored = PrimaryReads.require()) {
+            fetched = noteStore.findFirstPage(capacity);
+        }
+        synchronized (this) {
+            List<Note> notes = new ArrayList<>(fetched);
+            if (fetched.isEmpty()) {
+                notes.addAll(state.notes());
+            } else {
+                Note oldestFetched = fetched.get(fetched.size() - 1);
+                state.notes().stream()
+                        .filter(note -> MOST_RECENT_FIRST.compare(note, oldestFetched) < 0)
+                        .forEach(notes::add);
+            }
+            state = normalize(notes, fetched.size() < capacity);
+            return state;
+        }
+    }
+
+    private State merge(State current, List<Note> updates) {
+        List<Note> notes = new ArrayList<>(current.notes());
+        for (Note update : updates) {
+            notes.removeIf(note -> note.getId() == update.getId() && note.getVersion() <= update.getVersion());
+            boolean olderThanTail = !current.exhaustive() && !notes.isEmpty()
+                    && MOST_RECENT_FIRST.compare(update, notes.get(notes.size() - 1)) > 0;
+            if (!olderThanTail) {
+                notes.add(update);
+            }
+        }
+        return normalize(notes, current.exhaustive());
+    }
+
+    /**
+     * Оставляет по одной, самой новой версии каждой заметки, убирает удалённые и обрезает до capacity.
+     */
+    private State normalize(List<Note> notes, boolean exhaustive) {
+        Map<Long, Note> latest = new LinkedHashMap<>();
+        for (Note note : notes) {
+            if (!isDeletedAfter(note)) {
+                latest.merge(note.getId(), note, (a, b) -> a.getVersion() >= b.getVersion() ? a : b);
+            }
+        }
+        List<Note> result = new ArrayList<>(latest.values());
+        result.sort(MOST_RECENT_FIRST);
+        if (result.size() > capacity) {
+            result.subList(capacity, result.size()).clear();
+            exhaustive = false;
+        }
+        return new State(List.copyOf(result), exhaustive);
+    }
+
+    private boolean isDeletedAfter(Note note) {
+        LocalDateTime deletedAt = tombstones.get(note.getTitle());
+        return deletedAt != null && !note.getUpdatedAt().isAfter(deletedAt);
+    }
+
+    private record State(List<Note> notes, boolean exhaustive) {
+    }
+}
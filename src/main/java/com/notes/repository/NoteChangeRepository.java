@@ -0,0 +1,18 @@
+package com.notes.repository;
+
+import com.notes.model.NoteChange;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface NoteChangeRepository extends JpaRepository<NoteChange, Long> {
+
+    @Query("select c from NoteChange c where c.seq > :since and c.seq <= :upTo order by c.seq")
+    List<NoteChange> findRange(@Param("since") long since, @Param("upTo") long upTo, Limit limit);
+
+    @Query("select coalesce(max(c.seq), 0) from NoteChange c")
+    long findMaxSeq();
+}
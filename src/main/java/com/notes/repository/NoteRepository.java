@@ -1,17 +1,130 @@
 package com.notes.repository;
 
+import com.notes.cache.SecondLevelCacheConfig;
+import com.notes.dto.NoteSummary;
+import com.notes.dto.NoteVersion;
 import com.notes.model.Note;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface NoteRepository extends JpaRepository<Note, Long> {
 
     Optional<Note> findByTitle(String title);
 
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = AvailableHints.HINT_CACHE_REGION, value = SecondLevelCacheConfig.NOTE_QUERY_REGION)
+    })
     Optional<Note> findFirstByOrderByUpdatedAtDesc();
 
-    void deleteByTitle(String title);
+    /**
+     * Удаляет заметку и возвращает её id; кэш второго уровня об этом не знает, как и при
+     * updateByTitle.
+     */
+    @Query(value = "SELECT ID FROM OLD TABLE (DELETE FROM NOTES WHERE TITLE = :title)", nativeQuery = true)
+    Optional<Long> deleteByTitle(@Param("title") String title);
 
     boolean existsByTitle(String title);
+
+    List<Note> findByTitleIn(Collection<String> titles);
+
+    /**
+     * Порядок совпадает с IDX_NOTES_TITLE_NORMALIZED, так что названия читаются из индекса.
+     */
+    @Query("select n.title from Note n order by n.titleNormalized, n.title")
+    List<String> findAllTitles();
+
+    @Query("select new com.notes.dto.NoteVersion(n.id, n.version) from Note n where n.title = :title")
+    Optional<NoteVersion> findVersionByTitle(@Param("title") String title);
+
+    /**
+     * Если передан expectedId, строка обновляется только при совпадении id и VERSION.
+     * Прочитанная строка ещё не закоммичена, поэтому в кэш второго уровня не кладётся.
+     */
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_SPEC_CACHE_STORE_MODE, value = "BYPASS"))
+    @Query(value = """
+            SELECT * FROM FINAL TABLE (
+                UPDATE NOTES SET TITLE = :newTitle, TITLE_NORMALIZED = :newTitleNormalized, CONTENT = :newText, UPDATED_AT = :updatedAt,
+                                 VERSION = VERSION + 1
+                WHERE TITLE = :oldTitle""" + VERSION_CONDITION + ")", nativeQuery = true)
+    Optional<Note> updateByTitle(@Param("oldTitle") String oldTitle, @Param("newTitle") String newTitle,
+                                 @Param("newTitleNormalized") String newTitleNormalized,
+                                 @Param("newText") String newText, @Param("updatedAt") LocalDateTime updatedAt,
+                                 @Param("expectedId") Long expectedId, @Param("expectedVersion") Long expectedVersion);
+
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_SPEC_CACHE_STORE_MODE, value = "BYPASS"))
+    @Query(value = """
+            SELECT * FROM FINAL TABLE (
+                UPDATE NOTES SET TITLE = COALESCE(CAST(:newTitle AS VARCHAR(40)), TITLE),
+                                 TITLE_NORMALIZED = COALESCE(CAST(:newTitleNormalized AS VARCHAR(80)), TITLE_NORMALIZED),
+                                 CONTENT = COALESCE(CAST(:newText AS CHARACTER LARGE OBJECT), CONTENT),
+                                 UPDATED_AT = :updatedAt,
+                                 VERSION = VERSION + 1
+                WHERE TITLE = :oldTitle""" + VERSION_CONDITION + ")", nativeQuery = true)
+    Optional<Note> patchByTitle(@Param("oldTitle") String oldTitle, @Param("newTitle") String newTitle,
+                                @Param("newTitleNormalized") String newTitleNormalized,
+                                @Param("newText") String newText, @Param("updatedAt") LocalDateTime updatedAt,
+                                @Param("expectedId") Long expectedId, @Param("expectedVersion") Long expectedVersion);
+
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = AvailableHints.HINT_CACHE_REGION, value = SecondLevelCacheConfig.NOTE_QUERY_REGION)
+    })
+    @Query("select n from Note n order by n.updatedAt desc, n.id desc")
+    List<Note> findFirstPage(Limit limit);
+
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = AvailableHints.HINT_CACHE_REGION, value = SecondLevelCacheConfig.NOTE_QUERY_REGION)
+    })
+    @Query("""
+            select n from Note n
+            where n.updatedAt < :updatedAt or (n.updatedAt = :updatedAt and n.id < :id)
+            order by n.updatedAt desc, n.id desc""")
+    List<Note> findPageAfter(@Param("updatedAt") LocalDateTime updatedAt, @Param("id") long id, Limit limit);
+
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "256"),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select n from Note n order by n.updatedAt desc, n.id desc")
+    Stream<Note> streamAll();
+
+    @Query(value = SUMMARY_SELECT + " ORDER BY UPDATED_AT DESC, ID DESC", nativeQuery = true)
+    List<NoteSummary> findAllSummaries(@Param("previewLength") int previewLength);
+
+    @Query(value = SUMMARY_SELECT + " ORDER BY UPDATED_AT DESC, ID DESC", nativeQuery = true)
+    List<NoteSummary> findFirstSummaryPage(@Param("previewLength") int previewLength, Limit limit);
+
+    @Query(value = SUMMARY_SELECT
+            + " WHERE UPDATED_AT < :updatedAt OR (UPDATED_AT = :updatedAt AND ID < :id)"
+            + " ORDER BY UPDATED_AT DESC, ID DESC", nativeQuery = true)
+    List<NoteSummary> findSummaryPageAfter(@Param("updatedAt") LocalDateTime updatedAt, @Param("id") long id,
+                                           @Param("previewLength") int previewLength, Limit limit);
+
+    String VERSION_CONDITION =
+            " AND (CAST(:expectedId AS BIGINT) IS NULL OR (ID = :expectedId AND VERSION = :expectedVersion))";
+
+    /**
+     * Для сжатого CONTENT (см. NoteContentCodec.MARKER) берётся префикс, достаточный
+     * для распаковки превью; NoteSummary распаковывает его и читает длину из заголовка.
+     */
+    String SUMMARY_SELECT = """
+            SELECT ID AS id, TITLE AS title, CREATED_AT AS createdAt, UPDATED_AT AS updatedAt,
+                   SUBSTRING(CONTENT, 1, CASE WHEN SUBSTRING(CONTENT, 1, 9) = CHAR(1) || 'deflate:'
+                                              THEN :previewLength * 6 + 128
+                                              ELSE :previewLength END) AS storedPreview,
+                   LENGTH(CONTENT) AS storedLength
+            FROM NOTES""";
 }
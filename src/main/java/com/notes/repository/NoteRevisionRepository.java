@@ -0,0 +1,39 @@
+package com.notes.repository;
+
+import com.notes.dto.NoteRevisionSummary;
+import com.notes.model.NoteRevision;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface NoteRevisionRepository extends JpaRepository<NoteRevision, Long> {
+
+    /**
+     * Ревизии, из которых собирается текст ревизии revision: от ближайшей FULL не позже неё
+     * до неё самой, по возрастанию.
+     */
+    default List<NoteRevision> findChain(long noteId, long revision) {
+        return findChain(noteId, revision, NoteRevision.Kind.FULL);
+    }
+
+    @Query("select r from NoteRevision r where r.noteId = :noteId and r.revision <= :revision and r.revision >= "
+            + "(select max(f.revision) from NoteRevision f where f.noteId = :noteId and f.revision <= :revision "
+            + "and f.kind = :full) order by r.revision")
+    List<NoteRevision> findChain(@Param("noteId") long noteId, @Param("revision") long revision,
+                                 @Param("full") NoteRevision.Kind full);
+
+    @Query("select coalesce(max(r.revision), -1) from NoteRevision r where r.noteId = :noteId")
+    long findLastRevision(@Param("noteId") long noteId);
+
+    @Query("select new com.notes.dto.NoteRevisionSummary(r.revision, r.title, r.changedAt) from NoteRevision r "
+            + "where r.noteId = :noteId and r.revision < :before order by r.revision desc")
+    List<NoteRevisionSummary> findSummaries(@Param("noteId") long noteId, @Param("before") long before, Limit limit);
+
+    @Modifying
+    @Query("delete from NoteRevision r where r.noteId = :noteId")
+    int deleteByNoteId(@Param("noteId") long noteId);
+}
@@ -0,0 +1,25 @@
+package com.notes.revision;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "notes.revisions")
+public class NoteRevisionProperties {
+
+    /**
+     * Каждая snapshot-interval-я ревизия хранится целиком, поэтому текст любой ревизии
+     * собирается не больше чем из snapshot-interval записей.
+     */
+    private int snapshotInterval = 20;
+    private int queueCapacity = 10000;
+    private int maxBatchSize = 256;
+
+    /**
+     * Тексты последних ревизий в памяти, от которых считаются следующие дельты.
+     */
+    private DataSize cacheSize = DataSize.ofMegabytes(16);
+}
@@ -0,0 +1,67 @@
+package com.notes.revision;
+
+import com.notes.dto.NoteRevisionSummary;
+import com.notes.dto.NoteRevisionView;
+import com.notes.dto.NoteVersion;
+import com.notes.exception.RevisionNotFoundException;
+import com.notes.model.Note;
+import com.notes.model.NoteRevision;
+import com.notes.repository.NoteRevisionRepository;
+import com.notes.service.NoteService;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * История заметки по NOTE_REVISIONS. Ревизии пишутся асинхронно (NoteRevisionWriter), поэтому
+ * последняя правка появляется в истории с небольшой задержкой.
+ */
+@Service
+public class NoteRevisionService {
+
+    private final NoteRevisionRepository repository;
+    private final NoteService noteService;
+
+    public NoteRevisionService(NoteRevisionRepository repository, NoteService noteService) {
+        this.repository = repository;
+        this.noteService = noteService;
+    }
+
+    /**
+     * Ревизии от новых к старым; before - номер, с которого продолжить (не включая его).
+     */
+    @Transactional(readOnly = true)
+    public List<NoteRevisionSummary> getRevisions(String title, Long before, int limit) {
+        NoteVersion note = noteService.getNoteVersion(title);
+        return repository.findSummaries(note.id(), before == null ? Long.MAX_VALUE : before, Limit.of(limit));
+    }
+
+    @Transactional(readOnly = true)
+    public NoteRevisionView getRevision(String title, long revision) {
+        NoteVersion note = noteService.getNoteVersion(title);
+        List<NoteRevision> chain = repository.findChain(note.id(), revision);
+        if (chain.isEmpty() || chain.get(chain.size() - 1).getRevision() != revision) {
+            throw new RevisionNotFoundException("Ревизия " + revision + " заметки " + title + " не найдена.");
+        }
+        NoteRevision last = chain.get(chain.size() - 1);
+        return new NoteRevisionView(revision, last.getTitle(), reconstruct(chain), last.getChangedAt());
+    }
+
+    /**
+     * Возвращает заметке текст ревизии; название остаётся текущим. Восстановление - обычная
+     * правка и само становится новой ревизией.
+     */
+    public Note restoreRevision(String title, long revision) {
+        return noteService.editNoteByTitle(title, title, getRevision(title, revision).getText());
+    }
+
+    static String reconstruct(List<NoteRevision> chain) {
+        String text = null;
+        for (NoteRevision revision : chain) {
+            text = revision.applyTo(text);
+        }
+        return text;
+    }
+}
@@ -0,0 +1,227 @@
+package com.notes.revision;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.notes.event.NoteChangedEvent;
+import com.notes.model.Note;
+import com.notes.model.NoteRevision;
+import com.notes.repository.NoteRevisionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Пишет ревизии заметок вне пути запроса: после коммита изменение кладётся в очередь, а поток
+ * note-revisions сохраняет накопившиеся ревизии одной транзакцией. Дельта считается от текста
+ * последней ревизии, который держится в памяти (при промахе собирается из NOTE_REVISIONS).
+ * Если очередь заполнена, ревизия теряется: следующая будет посчитана от последней записанной.
+ * Если транзакция пачки не прошла, её ревизии повторяются по одной, и теряются только те,
+ * которые не записались и поодиночке.
+ */
+@Slf4j
+@Component
+public class NoteRevisionWriter implements DisposableBean {
+
+    private static final long POLL_TIMEOUT_MILLIS = 100;
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    /**
+     * Номер ревизии в Change удаления: история заметки удаляется целиком.
+     */
+    private static final long DELETED = -1;
+
+    private final NoteRevisionRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final int snapshotInterval;
+    private final int maxBatchSize;
+    private final BlockingQueue<Change> queue;
+    private final Cache<Long, Head> heads;
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong processed = new AtomicLong();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    private final Counter dropped;
+    private final Map<NoteRevision.Kind, Counter> written = new EnumMap<>(NoteRevision.Kind.class);
+
+    public NoteRevisionWriter(NoteRevisionRepository repository, PlatformTransactionManager transactionManager,
+                              NoteRevisionProperties properties, MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotInterval = Math.max(1, properties.getSnapshotInterval());
+        this.maxBatchSize = properties.getMaxBatchSize();
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        this.heads = Caffeine.newBuilder()
+                .maximumWeight(properties.getCacheSize().toBytes())
+                .weigher((Long id, Head head) -> head.text() == null ? 64 : 64 + 2 * head.text().length())
+                .build();
+
+        this.dropped = Counter.builder("notes.revisions.dropped")
+                .description("Note revisions lost because the revision queue was full or they could not be stored")
+                .register(meterRegistry);
+        for (NoteRevision.Kind kind : NoteRevision.Kind.values()) {
+            written.put(kind, Counter.builder("notes.revisions.written")
+                    .description("Note revisions stored, full texts and deltas")
+                    .tag("kind", kind.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+        Gauge.builder("notes.revisions.queued", queue, BlockingQueue::size)
+                .description("Note revisions waiting to be written")
+                .register(meterRegistry);
+
+        this.writer = new Thread(this::writeLoop, "note-revisions");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNoteChanged(NoteChangedEvent event) {
+        Note note = event.getNote();
+        long noteId = event.getType() == NoteChangedEvent.Type.DELETED ? event.getDeletedNoteId() : note.getId();
+        if (noteId == 0) {
+            return;
+        }
+        Change change = event.getType() == NoteChangedEvent.Type.DELETED
+                ? new Change(noteId, DELETED, event.getTitle(), null, null)
+                : new Change(noteId, note.getVersion(), note.getTitle(), note.getText(), note.getUpdatedAt());
+        if (queue.offer(change)) {
+            enqueued.incrementAndGet();
+        } else {
+            dropped.increment();
+            log.warn("Revision queue is full, revision {} of note {} is not stored", change.revision(), change.title());
+        }
+    }
+
+    private void writeLoop() {
+        List<Change> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Change first = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatchSize - 1);
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                processed.addAndGet(batch.size());
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<Change> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> batch.forEach(this::write));
+        } catch (RuntimeException e) {
+            // Откаченная транзакция могла успеть обновить heads
+            heads.invalidateAll();
+            if (batch.size() == 1) {
+                lost(batch.get(0), e);
+                return;
+            }
+            log.warn("Batch of {} note revisions failed, retrying one by one: {}", batch.size(), e.getMessage());
+            for (Change change : batch) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> write(change));
+                } catch (RuntimeException single) {
+                    heads.invalidate(change.noteId());
+                    lost(change, single);
+                }
+            }
+        }
+    }
+
+    private void lost(Change change, RuntimeException e) {
+        dropped.increment();
+        log.warn("Failed to store revision {} of note {}: {}", change.revision(), change.title(), e.getMessage());
+    }
+
+    private void write(Change change) {
+        if (change.revision() == DELETED) {
+            repository.deleteByNoteId(change.noteId());
+            heads.invalidate(change.noteId());
+            return;
+        }
+        Head head = heads.getIfPresent(change.noteId());
+        if (head == null) {
+            head = loadHead(change.noteId());
+        }
+        if (head != null && head.revision() >= change.revision()) {
+            return;
+        }
+
+        NoteRevision revision = new NoteRevision();
+        revision.setNoteId(change.noteId());
+        revision.setRevision(change.revision());
+        revision.setTitle(change.title());
+        revision.setChangedAt(change.changedAt());
+        TextDelta delta = head == null || head.text() == null || change.text() == null
+                || head.deltas() + 1 >= snapshotInterval ? null : TextDelta.between(head.text(), change.text());
+        if (delta == null || delta.inserted().length() >= change.text().length()) {
+            revision.setKind(NoteRevision.Kind.FULL);
+            revision.setContent(change.text());
+        } else {
+            revision.setKind(NoteRevision.Kind.DELTA);
+            revision.setPrefixLength(delta.prefixLength());
+            revision.setSuffixLength(delta.suffixLength());
+            revision.setContent(delta.inserted());
+        }
+        repository.save(revision);
+        written.get(revision.getKind()).increment();
+        heads.put(change.noteId(), new Head(change.revision(), change.text(),
+                revision.getKind() == NoteRevision.Kind.FULL ? 0 : head.deltas() + 1));
+    }
+
+    private Head loadHead(long noteId) {
+        long last = repository.findLastRevision(noteId);
+        if (last < 0) {
+            return null;
+        }
+        List<NoteRevision> chain = repository.findChain(noteId, last);
+        return new Head(last, NoteRevisionService.reconstruct(chain), chain.size() - 1);
+    }
+
+    /**
+     * Ждёт, пока будут обработаны все ревизии, поставленные в очередь до вызова.
+     */
+    void awaitWritten() throws InterruptedException {
+        long target = enqueued.get();
+        while (processed.get() < target) {
+            Thread.sleep(5);
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        writer.join(SHUTDOWN_TIMEOUT_MILLIS);
+    }
+
+    private record Change(long noteId, long revision, String title, String text, LocalDateTime changedAt) {
+    }
+
+    /**
+     * Последняя записанная ревизия заметки и число дельт после последнего полного текста.
+     */
+    private record Head(long revision, String text, int deltas) {
+    }
+}
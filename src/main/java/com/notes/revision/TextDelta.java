@@ -0,0 +1,29 @@
+package com.notes.revision;
+
+/**
+ * Отличие нового текста от прежнего: общие начало и конец сохраняются, середина заменяется
+ * на inserted. Для типичной правки (дописать, исправить фрагмент) дельта не больше самой правки.
+ * Границы не режут суррогатные пары, чтобы inserted оставался корректной строкой UTF-16.
+ */
+record TextDelta(int prefixLength, int suffixLength, String inserted) {
+
+    static TextDelta between(String previous, String text) {
+        int limit = Math.min(previous.length(), text.length());
+        int prefix = 0;
+        while (prefix < limit && previous.charAt(prefix) == text.charAt(prefix)) {
+            prefix++;
+        }
+        if (prefix > 0 && prefix < text.length() && Character.isHighSurrogate(text.charAt(prefix - 1))) {
+            prefix--;
+        }
+        int suffix = 0;
+        while (suffix < limit - prefix
+                && previous.charAt(previous.length() - 1 - suffix) == text.charAt(text.length() - 1 - suffix)) {
+            suffix++;
+        }
+        if (suffix > 0 && suffix < text.length() - prefix && Character.isLowSurrogate(text.charAt(text.length() - suffix))) {
+            suffix--;
+        }
+        return new TextDelta(prefix, suffix, text.substring(prefix, text.length() - suffix));
+    }
+}
@@ -0,0 +1,217 @@
+package com.notes.search;
+
+import com.notes.dto.NoteSearchHit;
+import com.notes.dto.NoteSearchResult;
+import com.notes.model.Note;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Инвертированный индекс по названию и тексту заметок с ранжированием BM25.
+ * Слово запроса, оканчивающееся на '*', ищется как префикс.
+ */
+@Component
+public class NoteSearchIndex {
+
+    static final int MAX_PAGE_SIZE = 1000;
+    static final int MAX_PREFIX_EXPANSIONS = 64;
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int TITLE_BOOST = 2;
+
+    private static final Comparator<ScoredNote> BY_SCORE = Comparator
+            .comparingDouble(ScoredNote::score)
+            .thenComparing(ScoredNote::id, Comparator.reverseOrder());
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NavigableMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+    private final Map<Long, IndexedNote> notes = new HashMap<>();
+    private final Map<String, Long> idsByTitle = new HashMap<>();
+    private long totalLength;
+
+    public void index(Note note) {
+        Map<String, Integer> terms = new HashMap<>();
+        for (String token : NoteTokenizer.tokenize(note.getTitle())) {
+            terms.merge(token, TITLE_BOOST, Integer::sum);
+        }
+        for (String token : NoteTokenizer.tokenize(note.getText())) {
+            terms.merge(token, 1, Integer::sum);
+        }
+        int length = terms.values().stream().mapToInt(Integer::intValue).sum();
+
+        lock.writeLock().lock();
+        try {
+            removeById(note.getId());
+            Long previousId = idsByTitle.get(note.getTitle());
+            if (previousId != null) {
+                removeById(previousId);
+            }
+            terms.forEach((term, frequency) ->
+                    postings.computeIfAbsent(term, t -> new HashMap<>()).put(note.getId(), frequency));
+            notes.put(note.getId(), new IndexedNote(note.getTitle(), length, terms));
+            idsByTitle.put(note.getTitle(), note.getId());
+            totalLength += length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String title) {
+        lock.writeLock().lock();
+        try {
+            Long id = idsByTitle.get(title);
+            if (id != null) {
+                removeById(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            notes.clear();
+            idsByTitle.clear();
+            totalLength = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return notes.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public NoteSearchResult search(String query, int offset, int limit) {
+        List<QueryTerm> queryTerms = parse(query);
+        int from = Math.max(0, offset);
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+
+        lock.readLock().lock();
+        try {
+            if (queryTerms.isEmpty() || notes.isEmpty()) {
+                return new NoteSearchResult(0, List.of());
+            }
+            Map<Long, Double> scores = score(queryTerms);
+            return new NoteSearchResult(scores.size(), topHits(scores, from, pageSize));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<Long, Double> score(List<QueryTerm> queryTerms) {
+        double documentCount = notes.size();
+        double averageLength = Math.max(1.0, (double) totalLength / notes.size());
+        Map<Long, Double> scores = new HashMap<>();
+
+        for (QueryTerm queryTerm : queryTerms) {
+            for (Map<Long, Integer> termPostings : matchingPostings(queryTerm)) {
+                double idf = Math.log(1 + (documentCount - termPostings.size() + 0.5) / (termPostings.size() + 0.5));
+                termPostings.forEach((id, frequency) -> {
+                    double lengthRatio = notes.get(id).length() / averageLength;
+                    double termScore = idf * frequency * (K1 + 1) / (frequency + K1 * (1 - B + B * lengthRatio));
+                    scores.merge(id, termScore, Double::sum);
+                });
+            }
+        }
+        return scores;
+    }
+
+    private List<Map<Long, Integer>> matchingPostings(QueryTerm queryTerm) {
+        if (!queryTerm.prefix()) {
+            Map<Long, Integer> exact = postings.get(queryTerm.text());
+            return exact == null ? List.of() : List.of(exact);
+        }
+        List<Map<Long, Integer>> matches = new ArrayList<>();
+        for (Map<Long, Integer> termPostings : postings
+                .subMap(queryTerm.text(), true, queryTerm.text() + Character.MAX_VALUE, true).values()) {
+            if (matches.size() == MAX_PREFIX_EXPANSIONS) {
+                break;
+            }
+            matches.add(termPostings);
+        }
+        return matches;
+    }
+
+    private List<NoteSearchHit> topHits(Map<Long, Double> scores, int offset, int pageSize) {
+        if (offset >= scores.size()) {
+            return List.of();
+        }
+        int wanted = (int) Math.min((long) offset + pageSize, scores.size());
+        PriorityQueue<ScoredNote> top = new PriorityQueue<>(wanted + 1, BY_SCORE);
+        scores.forEach((id, score) -> {
+            top.add(new ScoredNote(id, score));
+            if (top.size() > wanted) {
+                top.poll();
+            }
+        });
+
+        List<ScoredNote> ranked = new ArrayList<>(top);
+        ranked.sort(Collections.reverseOrder(BY_SCORE));
+        List<NoteSearchHit> hits = new ArrayList<>();
+        for (int i = offset; i < ranked.size(); i++) {
+            ScoredNote scored = ranked.get(i);
+            hits.add(new NoteSearchHit(scored.id(), notes.get(scored.id()).title(), scored.score()));
+        }
+        return hits;
+    }
+
+    private void removeById(long id) {
+        IndexedNote removed = notes.remove(id);
+        if (removed == null) {
+            return;
+        }
+        idsByTitle.remove(removed.title(), id);
+        totalLength -= removed.length();
+        removed.terms().keySet().forEach(term -> {
+            Map<Long, Integer> termPostings = postings.get(term);
+            termPostings.remove(id);
+            if (termPostings.isEmpty()) {
+                postings.remove(term);
+            }
+        });
+    }
+
+    private static List<QueryTerm> parse(String query) {
+        List<QueryTerm> queryTerms = new ArrayList<>();
+        if (query == null) {
+            return queryTerms;
+        }
+        for (String part : query.trim().split("\\s+")) {
+            List<String> tokens = NoteTokenizer.tokenize(part);
+            boolean prefix = part.endsWith(String.valueOf(NoteTokenizer.PREFIX_WILDCARD));
+            for (int i = 0; i < tokens.size(); i++) {
+                queryTerms.add(new QueryTerm(tokens.get(i), prefix && i == tokens.size() - 1));
+            }
+        }
+        return queryTerms;
+    }
+
+    private record IndexedNote(String title, int length, Map<String, Integer> terms) {
+    }
+
+    private record QueryTerm(String text, boolean prefix) {
+    }
+
+    private record ScoredNote(long id, double score) {
+    }
+}
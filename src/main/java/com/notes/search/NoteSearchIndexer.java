@@ -0,0 +1,48 @@
+package com.notes.search;
+
+import com.notes.datasource.PrimaryReads;
+import com.notes.event.NoteChangedEvent;
+import com.notes.service.NoteService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+@Slf4j
+@Component
+public class NoteSearchIndexer implements SmartInitializingSingleton {
+
+    private final NoteSearchIndex searchIndex;
+    private final NoteService noteService;
+
+    public NoteSearchIndexer(NoteSearchIndex searchIndex, NoteService noteService) {
+        this.searchIndex = searchIndex;
+        this.noteService = noteService;
+    }
+
+    /**
+     * Индекс строится по основной базе: заметки, которых отстающая реплика ещё не получила,
+     * иначе не нашлись бы до следующей записи каждой из них.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        long started = System.nanoTime();
+        searchIndex.clear();
+        try (PrimaryReads.Scope ignored = PrimaryReads.require()) {
+            noteService.forEachNote(searchIndex::index);
+        }
+        log.info("Search index rebuilt: {} notes in {} ms", searchIndex.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNoteChanged(NoteChangedEvent event) {
+        if (event.getType() == NoteChangedEvent.Type.DELETED) {
+            searchIndex.remove(event.getTitle());
+            return;
+        }
+        if (event.isRename()) {
+            searchIndex.remove(event.getOldTitle());
+        }
+        searchIndex.index(event.getNote());
+    }
+}
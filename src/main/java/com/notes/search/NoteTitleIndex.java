@@ -0,0 +1,123 @@
+package com.notes.search;
+
+import com.notes.datasource.PrimaryReads;
+import com.notes.event.NoteChangedEvent;
+import com.notes.model.Note;
+import com.notes.storage.NoteStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Отсортированные названия заметок в памяти: поиск по префиксу и без учёта регистра за
+ * O(log n + k), без обращения к базе. Два skip list — по названию и по паре
+ * (название в нижнем регистре, название); читатели не берут блокировок.
+ */
+@Slf4j
+@Component
+public class NoteTitleIndex implements SmartInitializingSingleton {
+
+    static final int MAX_LIMIT = 1000;
+
+    private static final Comparator<TitleKey> BY_NORMALIZED = Comparator.comparing(TitleKey::normalized)
+            .thenComparing(TitleKey::title);
+
+    private final NoteStore noteStore;
+    private final NavigableSet<String> titles = new ConcurrentSkipListSet<>();
+    private final NavigableSet<TitleKey> normalized = new ConcurrentSkipListSet<>(BY_NORMALIZED);
+
+    public NoteTitleIndex(NoteStore noteStore) {
+        this.noteStore = noteStore;
+    }
+
+    /**
+     * Названия читаются из основной базы, как и в NoteSearchIndexer.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        long started = System.nanoTime();
+        titles.clear();
+        normalized.clear();
+        try (PrimaryReads.Scope ignored = PrimaryReads.require()) {
+            noteStore.findAllTitles().forEach(this::add);
+        }
+        log.info("Title index rebuilt: {} titles in {} ms", titles.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNoteChanged(NoteChangedEvent event) {
+        if (event.getType() == NoteChangedEvent.Type.DELETED) {
+            remove(event.getTitle());
+            return;
+        }
+        if (event.isRename()) {
+            remove(event.getOldTitle());
+        }
+        add(event.getTitle());
+    }
+
+    /**
+     * Названия, начинающиеся с prefix, по возрастанию; без учёта регистра — в порядке
+     * названий в нижнем регистре.
+     */
+    public List<String> findByPrefix(String prefix, boolean ignoreCase, int limit) {
+        int max = Math.max(1, Math.min(limit, MAX_LIMIT));
+        List<String> result = new ArrayList<>();
+        if (ignoreCase) {
+            String key = Note.normalizeTitle(prefix);
+            for (TitleKey entry : normalized.tailSet(new TitleKey(key, ""), true)) {
+                if (result.size() == max || !entry.normalized().startsWith(key)) {
+                    break;
+                }
+                result.add(entry.title());
+            }
+        } else {
+            for (String title : titles.tailSet(prefix, true)) {
+                if (result.size() == max || !title.startsWith(prefix)) {
+                    break;
+                }
+                result.add(title);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Все названия, совпадающие с title без учёта регистра.
+     */
+    public List<String> findIgnoringCase(String title) {
+        String key = Note.normalizeTitle(title);
+        List<String> result = new ArrayList<>();
+        for (TitleKey entry : normalized.tailSet(new TitleKey(key, ""), true)) {
+            if (!entry.normalized().equals(key)) {
+                break;
+            }
+            result.add(entry.title());
+        }
+        return result;
+    }
+
+    public int size() {
+        return titles.size();
+    }
+
+    private void add(String title) {
+        titles.add(title);
+        normalized.add(new TitleKey(Note.normalizeTitle(title), title));
+    }
+
+    private void remove(String title) {
+        titles.remove(title);
+        normalized.remove(new TitleKey(Note.normalizeTitle(title), title));
+    }
+
+    private record TitleKey(String normalized, String title) {
+    }
+}
@@ -0,0 +1,14 @@
+package com.notes.service;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "notes.bulk")
+public class NoteBulkProperties {
+
+    private int chunkSize = 500;
+    private int batchSize = 50;
+}
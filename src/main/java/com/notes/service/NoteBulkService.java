@@ -0,0 +1,231 @@
+package com.notes.service;
+
+import com.notes.dto.BulkItemResult;
+import com.notes.dto.BulkNoteOperation;
+import com.notes.dto.BulkResult;
+import com.notes.event.NoteChangedEvent;
+import com.notes.model.Note;
+import com.notes.storage.NoteStore;
+import com.notes.storage.NoteWrite;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.PersistenceException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Применяет поток операций над заметками порциями по notes.bulk.chunk-size,
+ * каждая порция — одна транзакция и один NoteStore.writeBatch с батчами по notes.bulk.batch-size.
+ * Если порция не применилась целиком, её операции повторяются по одной.
+ */
+@Slf4j
+@Service
+@Timed(value = "notes.bulk", histogram = true)
+public class NoteBulkService {
+
+    private final NoteStore noteStore;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final NoteBulkProperties properties;
+
+    public NoteBulkService(NoteStore noteStore, ApplicationEventPublisher eventPublisher, PlatformTransactionManager transactionManager,
+                           Validator validator, NoteBulkProperties properties) {
+        this.noteStore = noteStore;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.validator = validator;
+        this.properties = properties;
+    }
+
+    public BulkResult apply(Iterator<BulkNoteOperation> operations) {
+        List<BulkItemResult> results = new ArrayList<>();
+        List<PendingOperation> chunk = new ArrayList<>();
+        BulkItemResult readError = null;
+        int index = 0;
+
+        while (readError == null) {
+            try {
+                if (!operations.hasNext()) {
+                    break;
+                }
+                chunk.add(new PendingOperation(index, operations.next()));
+                index++;
+            } catch (RuntimeException e) {
+                readError = new BulkItemResult(index, null, null, HttpStatus.BAD_REQUEST.value(),
+                        "Некорректный элемент запроса: " + e.getMessage());
+                break;
+            }
+            if (chunk.size() == properties.getChunkSize()) {
+                results.addAll(applyChunk(chunk));
+                chunk = new ArrayList<>();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            results.addAll(applyChunk(chunk));
+        }
+        if (readError != null) {
+            results.add(readError);
+        }
+
+        int failed = (int) results.stream().filter(result -> result.getStatus() >= 400).count();
+        return new BulkResult(results.size() - failed, failed, results);
+    }
+
+    private List<BulkItemResult> applyChunk(List<PendingOperation> chunk) {
+        try {
+            return transactionTemplate.execute(status -> applyInTransaction(chunk));
+        } catch (DataAccessException | PersistenceException e) {
+            if (chunk.size() == 1) {
+                return List.of(failure(chunk.get(0), e));
+            }
+            log.warn("Bulk chunk of {} operations failed, retrying one by one: {}", chunk.size(), e.getMessage());
+            List<BulkItemResult> results = new ArrayList<>();
+            for (PendingOperation pending : chunk) {
+                results.addAll(applyChunk(List.of(pending)));
+            }
+            return results;
+        }
+    }
+
+    private List<BulkItemResult> applyInTransaction(List<PendingOperation> chunk) {
+        Set<String> titles = new HashSet<>();
+        for (PendingOperation pending : chunk) {
+            titles.add(pending.operation().getTitle());
+            if (pending.operation().getNewTitle() != null) {
+                titles.add(pending.operation().getNewTitle());
+            }
+        }
+        Map<String, Note> notesByTitle = new HashMap<>();
+        noteStore.findByTitleIn(titles).forEach(note -> notesByTitle.put(note.getTitle(), note));
+
+        List<BulkItemResult> results = new ArrayList<>(chunk.size());
+        List<NoteWrite> writes = new ArrayList<>(chunk.size());
+        for (PendingOperation pending : chunk) {
+            results.add(applyOperation(pending, notesByTitle, writes));
+        }
+
+        noteStore.writeBatch(writes, properties.getBatchSize());
+        return results;
+    }
+
+    private BulkItemResult applyOperation(PendingOperation pending, Map<String, Note> notesByTitle,
+                                          List<NoteWrite> writes) {
+        BulkNoteOperation operation = pending.operation();
+        Set<ConstraintViolation<BulkNoteOperation>> violations = validator.validate(operation);
+        if (!violations.isEmpty()) {
+            return result(pending, HttpStatus.BAD_REQUEST, violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .collect(Collectors.joining("; ")));
+        }
+
+        String title = operation.getTitle();
+        switch (operation.getOp()) {
+            case CREATE -> {
+                if (notesByTitle.containsKey(title)) {
+                    return result(pending, HttpStatus.CONFLICT, "Заметка с названием " + title + " уже существует.");
+                }
+                Note note = new Note(title, operation.getText());
+                writes.add(NoteWrite.create(note));
+                notesByTitle.put(title, note);
+                eventPublisher.publishEvent(NoteChangedEvent.created(note));
+                return result(pending, HttpStatus.CREATED, null);
+            }
+            case UPDATE -> {
+                Note note = notesByTitle.get(title);
+                if (note == null) {
+                    return result(pending, HttpStatus.NOT_FOUND, "Заметка с названием " + title + " не найдена.");
+                }
+                String newTitle = operation.getNewTitle();
+                if (newTitle != null && !newTitle.equals(title)) {
+                    if (notesByTitle.containsKey(newTitle)) {
+                        return result(pending, HttpStatus.CONFLICT, "Заметка с названием " + newTitle + " уже существует.");
+                    }
+                    notesByTitle.remove(title);
+                    note.setTitle(newTitle);
+                    notesByTitle.put(newTitle, note);
+                }
+                if (operation.getText() != null) {
+                    note.setText(operation.getText());
+                }
+                writes.add(NoteWrite.update(title, note));
+                eventPublisher.publishEvent(NoteChangedEvent.updated(title, note));
+                return result(pending, HttpStatus.OK, null);
+            }
+            case DELETE -> {
+                Note note = notesByTitle.remove(title);
+                if (note == null) {
+                    return result(pending, HttpStatus.NOT_FOUND, "Невозможно удалить. Заметка с названием " + title + " не найдена.");
+                }
+                writes.add(NoteWrite.delete(note));
+                eventPublisher.publishEvent(NoteChangedEvent.deleted(note.getId(), title));
+                return result(pending, HttpStatus.NO_CONTENT, null);
+            }
+            default -> throw new IllegalStateException("Unexpected operation: " + operation.getOp());
+        }
+    }
+
+    private static BulkItemResult result(PendingOperation pending, HttpStatus status, String error) {
+        return new BulkItemResult(pending.index(), pending.operation().getOp(), pending.operation().getTitle(),
+                status.value(), error);
+    }
+
+    /**
+     * Сообщение базы (имена ограничений, SQL) клиенту не отдаётся: SQLSTATE класса 23 —
+     * занятое название, класса 22 — недопустимые данные. Ошибки движков без SQLException
+     * уже сформулированы для пользователя и передаются как есть.
+     */
+    private static BulkItemResult failure(PendingOperation pending, RuntimeException e) {
+        BulkNoteOperation operation = pending.operation();
+        log.warn("Bulk {} of note {} failed: {}", operation.getOp(), operation.getTitle(), rootCauseMessage(e));
+        String title = operation.getNewTitle() != null ? operation.getNewTitle() : operation.getTitle();
+        String sqlState = sqlState(e);
+        if (sqlState == null && e instanceof DataIntegrityViolationException) {
+            return result(pending, HttpStatus.CONFLICT, e.getMessage());
+        }
+        if (sqlState != null && sqlState.startsWith("23")) {
+            return result(pending, HttpStatus.CONFLICT, "Заметка с названием " + title + " уже существует.");
+        }
+        if (sqlState != null && sqlState.startsWith("22")) {
+            return result(pending, HttpStatus.BAD_REQUEST, "Недопустимые данные заметки " + title + ".");
+        }
+        return result(pending, HttpStatus.CONFLICT, "Заметка " + operation.getTitle() + " изменена параллельно, повторите операцию.");
+    }
+
+    private static String sqlState(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause() == cause ? null : cause.getCause()) {
+            if (cause instanceof SQLException sqlException && sqlException.getSQLState() != null) {
+                return sqlException.getSQLState();
+            }
+        }
+        return null;
+    }
+
+    private static String rootCauseMessage(Throwable e) {
+        Throwable cause = e;
+        while (cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+        return cause.getMessage();
+    }
+
+    private record PendingOperation(int index, BulkNoteOperation operation) {
+    }
+}
@@ -0,0 +1,46 @@
+package com.notes.service;
+
+import com.notes.dto.NoteSummary;
+import com.notes.exception.InvalidCursorException;
+import com.notes.model.Note;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Непрозрачный курсор постраничной выборки: позиция последней отданной заметки
+ * в порядке (updatedAt desc, id desc).
+ */
+record NoteCursor(LocalDateTime updatedAt, long id) {
+
+    private static final char SEPARATOR = '|';
+
+    static NoteCursor of(Note note) {
+        return new NoteCursor(note.getUpdatedAt(), note.getId());
+    }
+
+    static NoteCursor of(NoteSummary summary) {
+        return new NoteCursor(summary.getUpdatedAt(), summary.getId());
+    }
+
+    String encode() {
+        String raw = updatedAt.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static NoteCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new InvalidCursorException("Некорректный курсор: " + token);
+            }
+            return new NoteCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new InvalidCursorException("Некорректный курсор: " + token);
+        }
+    }
+}
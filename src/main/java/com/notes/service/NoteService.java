@@ -1,8 +1,13 @@
 package com.notes.service;
 
+import com.notes.dto.NotePage;
+import com.notes.dto.NoteSummary;
+import com.notes.dto.NoteVersion;
 import com.notes.model.Note;
+import com.notes.storage.NoteContent;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface NoteService {
 
@@ -10,13 +15,40 @@ public interface NoteService {
 
     List<Note> getAllNotes();
 
+    NotePage<Note> getNotesPage(String next, int limit);
+
+    List<NoteSummary> getAllNoteSummaries();
+
+    NotePage<NoteSummary> getNoteSummariesPage(String next, int limit);
+
+    void forEachNote(Consumer<Note> action);
+
     Note createNote(String title, String text);
     Note getNoteByTitle(String title);
 
+    /**
+     * Заметки с указанными названиями в порядке titles; отсутствующие пропускаются.
+     */
+    List<Note> getNotesByTitles(List<String> titles);
+
+    NoteVersion getNoteVersion(String title);
+
+    /**
+     * Текст заметки для отдачи потоком; вызывающий обязан закрыть NoteContent.
+     */
+    NoteContent openNoteContent(String title);
+
     Note editNoteByTitle(String oldTitle, String newTitle, String newText);
 
+    /**
+     * Изменяет заметку, только если её текущая версия равна expectedVersion.
+     */
+    Note editNoteByTitle(String oldTitle, String newTitle, String newText, NoteVersion expectedVersion);
+
     void deleteNoteByTitle(String title);
 
     Note patchNoteByTitle(String oldTitle, String newTitle, String newText);
+
+    Note patchNoteByTitle(String oldTitle, String newTitle, String newText, NoteVersion expectedVersion);
 }
 
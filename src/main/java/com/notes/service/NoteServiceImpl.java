@@ -1,33 +1,113 @@
 package com.notes.service;
 
+import com.notes.dto.NotePage;
+import com.notes.dto.NoteSummary;
+import com.notes.dto.NoteVersion;
+import com.notes.event.NoteChangedEvent;
 import com.notes.exception.NoteNotFoundException;
+import com.notes.exception.NoteVersionMismatchException;
 import com.notes.model.Note;
-import com.notes.repository.NoteRepository;
+import com.notes.storage.NoteContent;
+import com.notes.storage.NoteStore;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Fallback;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+/**
+ * Синхронная запись в NoteStore. Помечен как @Fallback: если включены кэш или отложенная запись,
+ * внедряется обёртка над этим сервисом.
+ */
 @Service
+@Fallback
+@Timed(value = "notes.service", histogram = true)
 public class NoteServiceImpl implements NoteService {
 
-    private final NoteRepository noteRepository;
+    static final int MAX_PAGE_SIZE = 1000;
 
-    public NoteServiceImpl(NoteRepository noteRepository) {
-        this.noteRepository = noteRepository;
+    private final NoteStore noteStore;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public NoteServiceImpl(NoteStore noteStore, ApplicationEventPublisher eventPublisher) {
+        this.noteStore = noteStore;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
     @Transactional(readOnly = true)
     public Note getLastNote() {
-        return noteRepository.findFirstByOrderByUpdatedAtDesc()
+        return noteStore.findLatest()
                 .orElseThrow(() -> new NoteNotFoundException("В базе данных нет ни одной заметки."));
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<Note> getAllNotes() {
-        return noteRepository.findAll();
+        return noteStore.findAll();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public NotePage<Note> getNotesPage(String next, int limit) {
+        int pageSize = pageSize(limit);
+        int fetchLimit = pageSize + 1;
+
+        List<Note> notes;
+        if (next == null || next.isEmpty()) {
+            notes = noteStore.findFirstPage(fetchLimit);
+        } else {
+            NoteCursor cursor = NoteCursor.decode(next);
+            notes = noteStore.findPageAfter(cursor.updatedAt(), cursor.id(), fetchLimit);
+        }
+
+        if (notes.size() <= pageSize) {
+            return new NotePage<>(notes, null);
+        }
+        List<Note> page = notes.subList(0, pageSize);
+        return new NotePage<>(page, NoteCursor.of(page.get(pageSize - 1)).encode());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<NoteSummary> getAllNoteSummaries() {
+        return noteStore.findAllSummaries(NoteSummary.PREVIEW_LENGTH);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public NotePage<NoteSummary> getNoteSummariesPage(String next, int limit) {
+        int pageSize = pageSize(limit);
+        int fetchLimit = pageSize + 1;
+
+        List<NoteSummary> summaries;
+        if (next == null || next.isEmpty()) {
+            summaries = noteStore.findFirstSummaryPage(NoteSummary.PREVIEW_LENGTH, fetchLimit);
+        } else {
+            NoteCursor cursor = NoteCursor.decode(next);
+            summaries = noteStore.findSummaryPageAfter(cursor.updatedAt(), cursor.id(), NoteSummary.PREVIEW_LENGTH, fetchLimit);
+        }
+
+        if (summaries.size() <= pageSize) {
+            return new NotePage<>(summaries, null);
+        }
+        List<NoteSummary> page = summaries.subList(0, pageSize);
+        return new NotePage<>(page, NoteCursor.of(page.get(pageSize - 1)).encode());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachNote(Consumer<Note> action) {
+        try (Stream<Note> notes = noteStore.streamAll()) {
+            notes.forEach(action);
+        }
     }
 
     @Override
@@ -37,47 +117,100 @@ public class NoteServiceImpl implements NoteService {
         note.setTitle(title);
         note.setText(text);
 
-        return noteRepository.save(note);
+        noteStore.create(note);
+        eventPublisher.publishEvent(NoteChangedEvent.created(note));
+        return note;
     }
 
     @Override
     @Transactional(readOnly = true)
     public Note getNoteByTitle(String title) {
-        return noteRepository.findByTitle(title)
+        return noteStore.findByTitle(title)
+                .orElseThrow(() -> new NoteNotFoundException("Заметка с названием " + title + " не найдена."));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Note> getNotesByTitles(List<String> titles) {
+        if (titles.isEmpty()) {
+            return List.of();
+        }
+        Map<String, Note> notesByTitle = new HashMap<>();
+        noteStore.findByTitleIn(titles).forEach(note -> notesByTitle.put(note.getTitle(), note));
+        List<Note> notes = new ArrayList<>(notesByTitle.size());
+        for (String title : titles) {
+            Note note = notesByTitle.get(title);
+            if (note != null) {
+                notes.add(note);
+            }
+        }
+        return notes;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public NoteVersion getNoteVersion(String title) {
+        return noteStore.findVersionByTitle(title)
+                .orElseThrow(() -> new NoteNotFoundException("Заметка с названием " + title + " не найдена."));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public NoteContent openNoteContent(String title) {
+        return noteStore.openContent(title)
                 .orElseThrow(() -> new NoteNotFoundException("Заметка с названием " + title + " не найдена."));
     }
 
     @Override
     @Transactional
     public Note editNoteByTitle(String oldTitle, String newTitle, String newText) {
-        Note noteToUpdate = noteRepository.findByTitle(oldTitle).orElseThrow(() -> new NoteNotFoundException("Заметка с названием " + oldTitle + " не найдена"));
-        noteToUpdate.setTitle(newTitle);
-        noteToUpdate.setText(newText);
-        noteRepository.save(noteToUpdate);
-        return noteToUpdate;
+        return editNoteByTitle(oldTitle, newTitle, newText, null);
     }
 
     @Override
     @Transactional
-    public Note patchNoteByTitle(String oldTitle, String newTitle, String newText){
-        Note noteToUpdate = noteRepository.findByTitle(oldTitle).orElseThrow(() -> new NoteNotFoundException("Заметка с названием " + oldTitle + " не найдена"));
-        if (newTitle != null){
-            noteToUpdate.setTitle(newTitle);
-        }
-        if (newText != null){
-            noteToUpdate.setText(newText);
+    public Note editNoteByTitle(String oldTitle, String newTitle, String newText, NoteVersion expectedVersion) {
+        Note updatedNote = noteStore.updateByTitle(oldTitle, newTitle, newText, expectedVersion)
+                .orElseThrow(() -> updateFailed(oldTitle, expectedVersion));
+        eventPublisher.publishEvent(NoteChangedEvent.updated(oldTitle, updatedNote));
+        return updatedNote;
+    }
+
+    @Override
+    @Transactional
+    public Note patchNoteByTitle(String oldTitle, String newTitle, String newText) {
+        return patchNoteByTitle(oldTitle, newTitle, newText, null);
+    }
+
+    @Override
+    @Transactional
+    public Note patchNoteByTitle(String oldTitle, String newTitle, String newText, NoteVersion expectedVersion) {
+        Note updatedNote = noteStore.patchByTitle(oldTitle, newTitle, newText, expectedVersion)
+                .orElseThrow(() -> updateFailed(oldTitle, expectedVersion));
+        eventPublisher.publishEvent(NoteChangedEvent.updated(oldTitle, updatedNote));
+        return updatedNote;
+    }
+
+    /**
+     * Условное обновление не различает «нет заметки» и «другая версия», поэтому при
+     * неудаче с ожидаемой версией выполняется дополнительная проверка существования.
+     */
+    private RuntimeException updateFailed(String oldTitle, NoteVersion expectedVersion) {
+        if (expectedVersion != null && noteStore.existsByTitle(oldTitle)) {
+            return new NoteVersionMismatchException("Заметка с названием " + oldTitle + " была изменена другим запросом.");
         }
-        noteRepository.save(noteToUpdate);
-        return noteToUpdate;
+        return new NoteNotFoundException("Заметка с названием " + oldTitle + " не найдена");
     }
 
     @Override
     @Transactional
     public void deleteNoteByTitle(String title) {
-        if (noteRepository.existsByTitle(title)) {
-            noteRepository.deleteByTitle(title);
-        } else {
-            throw new NoteNotFoundException("Невозможно удалить. Заметка с названием " + title + " не найдена.");
-        }
+        long noteId = noteStore.deleteByTitle(title).orElseThrow(() ->
+                new NoteNotFoundException("Невозможно удалить. Заметка с названием " + title + " не найдена."));
+        eventPublisher.publishEvent(NoteChangedEvent.deleted(noteId, title));
+    }
+
+    private static int pageSize(int limit) {
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
     }
 }
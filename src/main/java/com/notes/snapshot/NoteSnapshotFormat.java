@@ -0,0 +1,41 @@
+package com.notes.snapshot;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Снимок заметок — поток блоков, все числа big-endian:
+ * <pre>
+ * заголовок: "NSNP", версия формата (1 байт)
+ * блок:      число заметок (int, больше 0), длина данных (int), CRC32C данных (int), данные
+ * заметка:   название (int длина + UTF-8), createdAt и updatedAt (long, микросекунды UTC),
+ *            текст (int длина + UTF-8, -1 — null)
+ * конец:     0 (int), общее число заметок (long)
+ * </pre>
+ * Блок проверяется по контрольной сумме целиком, до разбора заметок. Число заметок в
+ * сумму не входит, поэтому читатель сверяет его с длиной данных: заметка занимает не
+ * меньше MIN_NOTE_BYTES.
+ */
+final class NoteSnapshotFormat {
+
+    static final byte[] MAGIC = {'N', 'S', 'N', 'P'};
+    static final int VERSION = 1;
+    static final int NULL_LENGTH = -1;
+
+    /**
+     * Пустое название, две даты и null вместо текста.
+     */
+    static final int MIN_NOTE_BYTES = Integer.BYTES + 2 * Long.BYTES + Integer.BYTES;
+
+    private NoteSnapshotFormat() {
+    }
+
+    static long toMicros(LocalDateTime value) {
+        return value.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + value.getNano() / 1_000;
+    }
+
+    static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,127 @@
+package com.notes.snapshot;
+
+import com.notes.exception.InvalidSnapshotException;
+import com.notes.model.Note;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Читает снимок в формате NoteSnapshotFormat по блоку. Блок отдаётся только после проверки
+ * контрольной суммы, поэтому повреждённые данные не доходят до базы.
+ */
+public class NoteSnapshotReader {
+
+    private final DataInputStream in;
+    private final int maxBlockBytes;
+    private final CRC32C checksum = new CRC32C();
+    private byte[] buffer = new byte[8192];
+    private int blocks;
+    private long read;
+    private boolean finished;
+
+    public NoteSnapshotReader(InputStream in, int maxBlockBytes) throws IOException {
+        this.in = new DataInputStream(in);
+        this.maxBlockBytes = maxBlockBytes;
+        byte[] magic = new byte[NoteSnapshotFormat.MAGIC.length];
+        try {
+            this.in.readFully(magic);
+            if (!Arrays.equals(magic, NoteSnapshotFormat.MAGIC)) {
+                throw new InvalidSnapshotException("Данные не являются снимком заметок.");
+            }
+            int version = this.in.readUnsignedByte();
+            if (version != NoteSnapshotFormat.VERSION) {
+                throw new InvalidSnapshotException("Неподдерживаемая версия снимка: " + version);
+            }
+        } catch (EOFException e) {
+            throw new InvalidSnapshotException("Данные не являются снимком заметок.");
+        }
+    }
+
+    /**
+     * Следующий блок заметок или пустой список, если снимок закончился.
+     */
+    public List<Note> nextBlock() throws IOException {
+        if (finished) {
+            return List.of();
+        }
+        int number = blocks + 1;
+        try {
+            int count = in.readInt();
+            if (count == 0) {
+                long total = in.readLong();
+                if (total != read) {
+                    throw new InvalidSnapshotException("Снимок содержит " + read + " заметок, а в конце указано " + total);
+                }
+                finished = true;
+                return List.of();
+            }
+            int length = in.readInt();
+            int expectedChecksum = in.readInt();
+            if (count < 0 || length < 0 || length > maxBlockBytes || count > length / NoteSnapshotFormat.MIN_NOTE_BYTES) {
+                throw new InvalidSnapshotException("Некорректный заголовок блока " + number);
+            }
+            if (buffer.length < length) {
+                buffer = new byte[Math.max(length, Math.min(buffer.length * 2, maxBlockBytes))];
+            }
+            in.readFully(buffer, 0, length);
+            checksum.reset();
+            checksum.update(buffer, 0, length);
+            if ((int) checksum.getValue() != expectedChecksum) {
+                throw new InvalidSnapshotException("Контрольная сумма блока " + number + " не совпадает");
+            }
+            List<Note> notes = parse(ByteBuffer.wrap(buffer, 0, length), count, number);
+            blocks++;
+            read += count;
+            return notes;
+        } catch (EOFException e) {
+            throw new InvalidSnapshotException("Снимок обрывается в блоке " + number);
+        }
+    }
+
+    public int blocks() {
+        return blocks;
+    }
+
+    private static List<Note> parse(ByteBuffer data, int count, int number) {
+        List<Note> notes = new ArrayList<>(count);
+        try {
+            for (int i = 0; i < count; i++) {
+                String title = readString(data, number);
+                long createdAt = data.getLong();
+                long updatedAt = data.getLong();
+                Note note = new Note(title, readString(data, number));
+                note.restoreTimestamps(NoteSnapshotFormat.fromMicros(createdAt), NoteSnapshotFormat.fromMicros(updatedAt));
+                notes.add(note);
+            }
+        } catch (BufferUnderflowException e) {
+            throw new InvalidSnapshotException("Блок " + number + " короче указанного числа заметок");
+        }
+        if (data.hasRemaining()) {
+            throw new InvalidSnapshotException("Блок " + number + " длиннее указанного числа заметок");
+        }
+        return notes;
+    }
+
+    private static String readString(ByteBuffer data, int number) {
+        int length = data.getInt();
+        if (length == NoteSnapshotFormat.NULL_LENGTH) {
+            return null;
+        }
+        if (length < 0 || length > data.remaining()) {
+            throw new InvalidSnapshotException("Некорректная длина строки в блоке " + number);
+        }
+        String value = new String(data.array(), data.arrayOffset() + data.position(), length, StandardCharsets.UTF_8);
+        data.position(data.position() + length);
+        return value;
+    }
+}
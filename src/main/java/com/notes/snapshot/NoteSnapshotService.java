@@ -0,0 +1,110 @@
+package com.notes.snapshot;
+
+import com.notes.dto.SnapshotImportResult;
+import com.notes.event.NoteChangedEvent;
+import com.notes.exception.InvalidSnapshotException;
+import com.notes.model.Note;
+import com.notes.service.NoteBulkProperties;
+import com.notes.service.NoteService;
+import com.notes.storage.NoteStore;
+import com.notes.storage.NoteWrite;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Экспорт и импорт всех заметок в двоичном снимке (NoteSnapshotFormat). Экспорт идёт потоком
+ * через NoteService.forEachNote, импорт — по блоку снимка в отдельной транзакции с одним
+ * NoteStore.writeBatch; в памяти в обоих случаях не больше одного блока. Блок с ошибкой
+ * отклоняет импорт, уже записанные блоки остаются.
+ */
+@Slf4j
+@Service
+public class NoteSnapshotService {
+
+    private static final int MAX_TITLE_LENGTH = 40;
+
+    private final NoteService noteService;
+    private final NoteStore noteStore;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final SnapshotProperties properties;
+    private final NoteBulkProperties bulkProperties;
+
+    public NoteSnapshotService(NoteService noteService, NoteStore noteStore, ApplicationEventPublisher eventPublisher,
+                               PlatformTransactionManager transactionManager, SnapshotProperties properties,
+                               NoteBulkProperties bulkProperties) {
+        this.noteService = noteService;
+        this.noteStore = noteStore;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+        this.bulkProperties = bulkProperties;
+    }
+
+    public long exportTo(OutputStream out) throws IOException {
+        NoteSnapshotWriter writer = new NoteSnapshotWriter(out, properties.getBlockNotes(),
+                (int) properties.getBlockSize().toBytes());
+        noteService.forEachNote(note -> {
+            try {
+                writer.write(note);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        long exported = writer.finish();
+        log.info("Exported {} notes", exported);
+        return exported;
+    }
+
+    public SnapshotImportResult importFrom(InputStream in) throws IOException {
+        NoteSnapshotReader reader = new NoteSnapshotReader(in, (int) properties.getMaxBlockSize().toBytes());
+        long imported = 0;
+        long skipped = 0;
+        while (true) {
+            List<Note> block = reader.nextBlock();
+            if (block.isEmpty()) {
+                break;
+            }
+            int restored = transactionTemplate.execute(status -> importBlock(block, reader.blocks()));
+            imported += restored;
+            skipped += block.size() - restored;
+        }
+        log.info("Imported {} notes from {} snapshot blocks, {} skipped", imported, reader.blocks(), skipped);
+        return new SnapshotImportResult(imported, skipped, reader.blocks());
+    }
+
+    private int importBlock(List<Note> block, int number) {
+        List<String> titles = new ArrayList<>(block.size());
+        for (Note note : block) {
+            String title = note.getTitle();
+            if (title == null || title.isBlank() || title.length() > MAX_TITLE_LENGTH) {
+                throw new InvalidSnapshotException("Некорректное название заметки в блоке " + number + ": " + title);
+            }
+            titles.add(title);
+        }
+        Set<String> taken = new HashSet<>();
+        noteStore.findByTitleIn(titles).forEach(note -> taken.add(note.getTitle()));
+
+        List<NoteWrite> writes = new ArrayList<>(block.size());
+        for (Note note : block) {
+            if (taken.add(note.getTitle())) {
+                writes.add(NoteWrite.restore(note));
+            }
+        }
+        noteStore.writeBatch(writes, bulkProperties.getBatchSize());
+        writes.forEach(write -> eventPublisher.publishEvent(NoteChangedEvent.created(write.note())));
+        return writes.size();
+    }
+}
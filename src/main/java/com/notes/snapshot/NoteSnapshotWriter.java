@@ -0,0 +1,89 @@
+package com.notes.snapshot;
+
+import com.notes.model.Note;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32C;
+
+/**
+ * Пишет снимок в формате NoteSnapshotFormat. В памяти держится только текущий блок;
+ * буфер блока переиспользуется, поэтому память не зависит от числа заметок.
+ */
+public class NoteSnapshotWriter {
+
+    private final DataOutputStream out;
+    private final int blockNotes;
+    private final int blockBytes;
+    private final BlockBuffer block = new BlockBuffer();
+    private final DataOutputStream blockData = new DataOutputStream(block);
+    private final CRC32C checksum = new CRC32C();
+    private int notesInBlock;
+    private long total;
+
+    public NoteSnapshotWriter(OutputStream out, int blockNotes, int blockBytes) throws IOException {
+        this.out = new DataOutputStream(out);
+        this.blockNotes = blockNotes;
+        this.blockBytes = blockBytes;
+        this.out.write(NoteSnapshotFormat.MAGIC);
+        this.out.writeByte(NoteSnapshotFormat.VERSION);
+    }
+
+    public void write(Note note) throws IOException {
+        writeString(note.getTitle());
+        blockData.writeLong(NoteSnapshotFormat.toMicros(note.getCreatedAt()));
+        blockData.writeLong(NoteSnapshotFormat.toMicros(note.getUpdatedAt()));
+        writeString(note.getText());
+        notesInBlock++;
+        total++;
+        if (notesInBlock == blockNotes || block.size() >= blockBytes) {
+            flushBlock();
+        }
+    }
+
+    /**
+     * Дописывает последний блок и конец снимка; сам поток не закрывается.
+     * Возвращает число записанных заметок.
+     */
+    public long finish() throws IOException {
+        flushBlock();
+        out.writeInt(0);
+        out.writeLong(total);
+        out.flush();
+        return total;
+    }
+
+    private void flushBlock() throws IOException {
+        if (notesInBlock == 0) {
+            return;
+        }
+        checksum.reset();
+        checksum.update(block.buffer(), 0, block.size());
+        out.writeInt(notesInBlock);
+        out.writeInt(block.size());
+        out.writeInt((int) checksum.getValue());
+        out.write(block.buffer(), 0, block.size());
+        block.reset();
+        notesInBlock = 0;
+    }
+
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            blockData.writeInt(NoteSnapshotFormat.NULL_LENGTH);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        blockData.writeInt(bytes.length);
+        blockData.write(bytes);
+    }
+
+    private static final class BlockBuffer extends ByteArrayOutputStream {
+
+        byte[] buffer() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.notes.snapshot;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "notes.snapshot")
+public class SnapshotProperties {
+
+    /**
+     * Блок экспорта закрывается по числу заметок или по размеру, что наступит раньше;
+     * при импорте каждый блок — одна транзакция.
+     */
+    private int blockNotes = 500;
+    private DataSize blockSize = DataSize.ofMegabytes(1);
+
+    /**
+     * Блок больше этого размера при импорте отклоняется, не читая его данных.
+     */
+    private DataSize maxBlockSize = DataSize.ofMegabytes(64);
+}
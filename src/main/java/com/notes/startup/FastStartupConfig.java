@@ -0,0 +1,32 @@
+package com.notes.startup;
+
+import com.notes.cache.SecondLevelCacheInvalidator;
+import com.notes.controller.NoteChangeController;
+import com.notes.controller.NoteController;
+import com.notes.controller.NoteRevisionController;
+import com.notes.service.NoteService;
+import com.notes.storage.NoteStore;
+import jakarta.servlet.Filter;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * При spring.main.lazy-initialization=true (профиль fast-startup) бины создаются при первом
+ * обращении, кроме пути запроса: контроллеров, фильтров, NoteService с обёртками и NoteStore
+ * со всем, что они тянут (пул соединений, EntityManagerFactory). Иначе их создание легло бы
+ * на первый запрос. SmartInitializingSingleton тоже создаются сразу: ленивый бин не получит
+ * afterSingletonsInstantiated, и индексы остались бы пустыми. SecondLevelCacheInvalidator
+ * подписывается на инвалидации других экземпляров в конструкторе, поэтому тоже создаётся сразу.
+ */
+@Configuration(proxyBeanMethods = false)
+public class FastStartupConfig {
+
+    @Bean
+    static LazyInitializationExcludeFilter requestPathEagerInitialization() {
+        return LazyInitializationExcludeFilter.forBeanTypes(NoteController.class, NoteChangeController.class,
+                NoteRevisionController.class, Filter.class, NoteService.class, NoteStore.class, SmartInitializingSingleton.class,
+                SecondLevelCacheInvalidator.class);
+    }
+}
@@ -0,0 +1,56 @@
+package com.notes.storage;
+
+import com.notes.dto.NoteVersion;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Открытый на чтение текст заметки в UTF-8. Держит ресурсы движка (например, сегмент
+ * журнала) до close(), поэтому байты можно отдавать частями без загрузки в String.
+ */
+public interface NoteContent extends AutoCloseable {
+
+    NoteVersion version();
+
+    /**
+     * Длина текста в байтах UTF-8.
+     */
+    long length();
+
+    /**
+     * Пишет count байт, начиная с position, в target.
+     */
+    void transferTo(long position, long count, WritableByteChannel target) throws IOException;
+
+    @Override
+    void close();
+
+    static NoteContent of(NoteVersion version, byte[] bytes) {
+        return new NoteContent() {
+
+            @Override
+            public NoteVersion version() {
+                return version;
+            }
+
+            @Override
+            public long length() {
+                return bytes.length;
+            }
+
+            @Override
+            public void transferTo(long position, long count, WritableByteChannel target) throws IOException {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes, Math.toIntExact(position), Math.toIntExact(count));
+                while (buffer.hasRemaining()) {
+                    target.write(buffer);
+                }
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+}
@@ -0,0 +1,78 @@
+package com.notes.storage;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "notes.storage")
+public class NoteStorageProperties {
+
+    private Engine engine = Engine.JPA;
+
+    private final Log log = new Log();
+
+    private final Sharded sharded = new Sharded();
+
+    public enum Engine {
+        JPA, LOG, SHARDED
+    }
+
+    @Getter
+    @Setter
+    public static class Log {
+
+        private Path directory = Path.of("data", "notes-log");
+
+        private DataSize segmentSize = DataSize.ofMegabytes(64);
+
+        /**
+         * Сбрасывать ли сегмент на диск после каждой записи (или батча).
+         */
+        private boolean fsync = true;
+
+        private Duration compactionInterval = Duration.ofMinutes(1);
+
+        /**
+         * Закрытый сегмент уплотняется, когда доля живых данных в нём ниже порога.
+         */
+        private double compactionThreshold = 0.5;
+    }
+
+    @Getter
+    @Setter
+    public static class Sharded {
+
+        /**
+         * JDBC-адреса шардов; порядок задаёт номер шарда и менять его нельзя, иначе
+         * названия будут искаться не на тех шардах. Новый шард добавляется в конец.
+         */
+        private List<String> urls = new ArrayList<>();
+
+        /**
+         * Точек на кольце консистентного хеширования на каждый шард.
+         */
+        private int virtualNodes = 128;
+
+        private int poolSize = 5;
+
+        private Duration connectionTimeout = Duration.ofSeconds(1);
+
+        /**
+         * Потоки для параллельного опроса шардов в запросах по всем заметкам.
+         */
+        private int queryThreads = 8;
+
+        /**
+         * Как часто доводить переезды заметок между шардами, прерванные сбоем.
+         */
+        private Duration moveRecoveryInterval = Duration.ofSeconds(30);
+    }
+}
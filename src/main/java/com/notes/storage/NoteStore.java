@@ -0,0 +1,91 @@
+package com.notes.storage;
+
+import com.notes.dto.NoteSummary;
+import com.notes.dto.NoteVersion;
+import com.notes.model.Note;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.stream.Stream;
+
+/**
+ * Хранилище заметок под NoteService. Движок выбирается свойством notes.storage.engine:
+ * jpa (по умолчанию, таблица NOTES), log (сегментный журнал, см. LogStructuredNoteStore)
+ * или sharded (несколько баз, см. ShardedNoteStore).
+ * Нарушение уникальности названия сообщается через DataIntegrityViolationException.
+ */
+public interface NoteStore {
+
+    Optional<Note> findByTitle(String title);
+
+    Optional<NoteVersion> findVersionByTitle(String title);
+
+    boolean existsByTitle(String title);
+
+    List<Note> findByTitleIn(Collection<String> titles);
+
+    /**
+     * Все названия без текста, для построения NoteTitleIndex; порядок не гарантируется.
+     */
+    List<String> findAllTitles();
+
+    Optional<Note> findLatest();
+
+    List<Note> findAll();
+
+    /**
+     * Страницы упорядочены по (updatedAt desc, id desc).
+     */
+    List<Note> findFirstPage(int limit);
+
+    List<Note> findPageAfter(LocalDateTime updatedAt, long id, int limit);
+
+    List<NoteSummary> findAllSummaries(int previewLength);
+
+    List<NoteSummary> findFirstSummaryPage(int previewLength, int limit);
+
+    List<NoteSummary> findSummaryPageAfter(LocalDateTime updatedAt, long id, int previewLength, int limit);
+
+    /**
+     * Поток нужно закрыть; отданные заметки не удерживаются хранилищем.
+     */
+    Stream<Note> streamAll();
+
+    /**
+     * По умолчанию текст загружается целиком; движки с файловым хранением отдают его
+     * прямо из файла. Возвращённый NoteContent нужно закрыть.
+     */
+    default Optional<NoteContent> openContent(String title) {
+        return findByTitle(title).map(note -> NoteContent.of(NoteVersion.of(note),
+                note.getText() == null ? new byte[0] : note.getText().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Заполняет id, версию и даты у переданной заметки.
+     */
+    Note create(Note note);
+
+    /**
+     * Если expectedVersion не null, заметка меняется только при совпадении id и версии.
+     */
+    Optional<Note> updateByTitle(String oldTitle, String newTitle, String newText, NoteVersion expectedVersion);
+
+    /**
+     * Как updateByTitle, но null в newTitle или newText оставляет поле без изменений.
+     */
+    Optional<Note> patchByTitle(String oldTitle, String newTitle, String newText, NoteVersion expectedVersion);
+
+    /**
+     * Возвращает id удалённой заметки или пустое значение, если заметки с таким названием нет.
+     */
+    OptionalLong deleteByTitle(String title);
+
+    /**
+     * Применяет изменения по порядку; batchSize — размер JDBC-батча для движка jpa.
+     */
+    void writeBatch(List<NoteWrite> writes, int batchSize);
+}
@@ -0,0 +1,34 @@
+package com.notes.storage;
+
+import com.notes.model.Note;
+
+/**
+ * Изменение для NoteStore.writeBatch. Название и текст фиксируются в момент создания,
+ * потому что одна и та же заметка может меняться в батче несколько раз.
+ */
+public record NoteWrite(Kind kind, String previousTitle, String title, String text, Note note) {
+
+    public enum Kind {
+        CREATE, UPDATE, DELETE,
+        /**
+         * Создание с датами, уже заданными в заметке (импорт снимка).
+         */
+        RESTORE
+    }
+
+    public static NoteWrite create(Note note) {
+        return new NoteWrite(Kind.CREATE, null, note.getTitle(), note.getText(), note);
+    }
+
+    public static NoteWrite restore(Note note) {
+        return new NoteWrite(Kind.RESTORE, null, note.getTitle(), note.getText(), note);
+    }
+
+    public static NoteWrite update(String previousTitle, Note note) {
+        return new NoteWrite(Kind.UPDATE, previousTitle, note.getTitle(), note.getText(), note);
+    }
+
+    public static NoteWrite delete(Note note) {
+        return new NoteWrite(Kind.DELETE, null, note.getTitle(), null, note);
+    }
+}
@@ -0,0 +1,216 @@
+package com.notes.storage.jpa;
+
+import com.notes.compression.NoteContentCodec;
+import com.notes.dto.NoteSummary;
+import com.notes.dto.NoteVersion;
+import com.notes.model.Note;
+import com.notes.repository.NoteRepository;
+import com.notes.storage.NoteStore;
+import com.notes.storage.NoteWrite;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.hibernate.cache.spi.TimestampsCache;
+import org.hibernate.cache.spi.access.EntityDataAccess;
+import org.hibernate.cache.spi.access.NaturalIdDataAccess;
+import org.hibernate.cache.spi.access.SoftLock;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.stream.Stream;
+
+/**
+ * Хранение в таблице NOTES через NoteRepository. Методы рассчитаны на вызов внутри
+ * транзакции сервиса; записи из writeBatch отслеживаются контекстом персистентности.
+ */
+@Component
+@ConditionalOnProperty(prefix = "notes.storage", name = "engine", havingValue = "jpa", matchIfMissing = true)
+public class JpaNoteStore implements NoteStore {
+
+    private final NoteRepository noteRepository;
+    private final EntityManager entityManager;
+    private final NoteContentCodec contentCodec;
+
+    public JpaNoteStore(NoteRepository noteRepository, EntityManager entityManager, NoteContentCodec contentCodec) {
+        this.noteRepository = noteRepository;
+        this.entityManager = entityManager;
+        this.contentCodec = contentCodec;
+    }
+
+    /**
+     * По natural id: при включённом кэше второго уровня название разрешается в id и заметку без SQL.
+     */
+    @Override
+    public Optional<Note> findByTitle(String title) {
+        return entityManager.unwrap(Session.class).bySimpleNaturalId(Note.class)
+                .setSynchronizationEnabled(false)
+                .loadOptional(title);
+    }
+
+    @Override
+    public Optional<NoteVersion> findVersionByTitle(String title) {
+        return noteRepository.findVersionByTitle(title);
+    }
+
+    @Override
+    public boolean existsByTitle(String title) {
+        return noteRepository.existsByTitle(title);
+    }
+
+    @Override
+    public List<Note> findByTitleIn(Collection<String> titles) {
+        return noteRepository.findByTitleIn(titles);
+    }
+
+    @Override
+    public List<String> findAllTitles() {
+        return noteRepository.findAllTitles();
+    }
+
+    @Override
+    public Optional<Note> findLatest() {
+        return noteRepository.findFirstByOrderByUpdatedAtDesc();
+    }
+
+    @Override
+    public List<Note> findAll() {
+        return noteRepository.findAll();
+    }
+
+    @Override
+    public List<Note> findFirstPage(int limit) {
+        return noteRepository.findFirstPage(Limit.of(limit));
+    }
+
+    @Override
+    public List<Note> findPageAfter(LocalDateTime updatedAt, long id, int limit) {
+        return noteRepository.findPageAfter(updatedAt, id, Limit.of(limit));
+    }
+
+    @Override
+    public List<NoteSummary> findAllSummaries(int previewLength) {
+        return noteRepository.findAllSummaries(previewLength);
+    }
+
+    @Override
+    public List<NoteSummary> findFirstSummaryPage(int previewLength, int limit) {
+        return noteRepository.findFirstSummaryPage(previewLength, Limit.of(limit));
+    }
+
+    @Override
+    public List<NoteSummary> findSummaryPageAfter(LocalDateTime updatedAt, long id, int previewLength, int limit) {
+        return noteRepository.findSummaryPageAfter(updatedAt, id, previewLength, Limit.of(limit));
+    }
+
+    @Override
+    public Stream<Note> streamAll() {
+        return noteRepository.streamAll().peek(entityManager::detach);
+    }
+
+    /**
+     * saveAndFlush, чтобы нарушение уникальности названия пришло отсюда уже переведённым
+     * в DataIntegrityViolationException, а не при коммите.
+     */
+    @Override
+    public Note create(Note note) {
+        return noteRepository.saveAndFlush(note);
+    }
+
+    /**
+     * Нативный UPDATE обходит NoteContentConverter, поэтому текст кодируется здесь.
+     */
+    @Override
+    public Optional<Note> updateByTitle(String oldTitle, String newTitle, String newText, NoteVersion expectedVersion) {
+        Optional<Note> updated = noteRepository.updateByTitle(oldTitle, newTitle, Note.normalizeTitle(newTitle), contentCodec.encode(newText), LocalDateTime.now(),
+                expectedId(expectedVersion), expectedVersion(expectedVersion));
+        updated.ifPresent(note -> lockCached(note.getId(), List.of(oldTitle, note.getTitle())));
+        return updated;
+    }
+
+    @Override
+    public Optional<Note> patchByTitle(String oldTitle, String newTitle, String newText, NoteVersion expectedVersion) {
+        Optional<Note> updated = noteRepository.patchByTitle(oldTitle, newTitle, Note.normalizeTitle(newTitle), contentCodec.encode(newText), LocalDateTime.now(),
+                expectedId(expectedVersion), expectedVersion(expectedVersion));
+        updated.ifPresent(note -> lockCached(note.getId(), List.of(oldTitle, note.getTitle())));
+        return updated;
+    }
+
+    @Override
+    public OptionalLong deleteByTitle(String title) {
+        Optional<Long> deleted = noteRepository.deleteByTitle(title);
+        deleted.ifPresent(id -> lockCached(id, List.of(title)));
+        return deleted.map(OptionalLong::of).orElseGet(OptionalLong::empty);
+    }
+
+    @Override
+    public void writeBatch(List<NoteWrite> writes, int batchSize) {
+        entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+        for (NoteWrite write : writes) {
+            Note note = write.note();
+            switch (write.kind()) {
+                case CREATE, RESTORE -> entityManager.persist(note);
+                case UPDATE -> {
+                    if (!entityManager.contains(note)) {
+                        entityManager.merge(note);
+                    }
+                }
+                case DELETE -> entityManager.remove(entityManager.contains(note) ? note : entityManager.merge(note));
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    /**
+     * UPDATE ... FINAL TABLE и DELETE ... OLD TABLE для Hibernate — чтение, и кэш второго
+     * уровня о них не знает. Поэтому здесь делается то же, что при изменении сущности: записи
+     * заметки и её названий блокируются до конца транзакции (читатели идут в базу, загруженное до
+     * коммита в кэш не попадает), а таблица помечается изменённой для кэша запросов.
+     */
+    private void lockCached(long id, Collection<String> titles) {
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        EntityPersister persister = session.getFactory().getMappingMetamodel().getEntityDescriptor(Note.class);
+        if (!persister.canWriteToCache()) {
+            return;
+        }
+        EntityDataAccess noteCache = persister.getCacheAccessStrategy();
+        Object noteKey = noteCache.generateCacheKey(id, persister, session.getFactory(), session.getTenantIdentifier());
+        SoftLock noteLock = noteCache.lockItem(session, noteKey, null);
+
+        NaturalIdDataAccess titleCache = persister.getNaturalIdCacheAccessStrategy();
+        Map<Object, SoftLock> titleLocks = new HashMap<>();
+        for (String title : new HashSet<>(titles)) {
+            Object titleKey = titleCache.generateCacheKey(title, persister, session);
+            titleLocks.put(titleKey, titleCache.lockItem(session, titleKey, null));
+        }
+
+        String[] tables = Arrays.stream(persister.getQuerySpaces()).map(String::valueOf).toArray(String[]::new);
+        TimestampsCache timestamps = session.getFactory().getCache().getTimestampsCache();
+        timestamps.preInvalidate(tables, session);
+
+        session.getActionQueue().registerProcess((success, completed) -> {
+            noteCache.unlockItem(completed, noteKey, noteLock);
+            titleLocks.forEach((titleKey, titleLock) -> titleCache.unlockItem(completed, titleKey, titleLock));
+            timestamps.invalidate(tables, completed);
+        });
+    }
+
+    private static Long expectedId(NoteVersion expectedVersion) {
+        return expectedVersion == null ? null : expectedVersion.id();
+    }
+
+    private static Long expectedVersion(NoteVersion expectedVersion) {
+        return expectedVersion == null ? null : expectedVersion.version();
+    }
+}
@@ -0,0 +1,152 @@
+package com.notes.storage.log;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Запись журнала: [int длина][int CRC32][тело]. Тело — тип, LSN, id, версия, даты,
+ * название, прежнее название (при переименовании), длина текста в символах и сам текст,
+ * который идёт последним, чтобы превью можно было читать префиксом без разбора записи.
+ */
+record LogRecord(Type type, long lsn, long id, long version, LocalDateTime createdAt, LocalDateTime updatedAt,
+                 String title, String previousTitle, int textLength, String text) {
+
+    static final int HEADER_SIZE = 8;
+
+    private static final int FIXED_SIZE = 1 + 5 * Long.BYTES;
+
+    enum Type {
+        PUT, DELETE
+    }
+
+    static LogRecord put(long lsn, long id, long version, LocalDateTime createdAt, LocalDateTime updatedAt,
+                         String title, String previousTitle, String text) {
+        return new LogRecord(Type.PUT, lsn, id, version, createdAt, updatedAt, title, previousTitle,
+                text == null ? -1 : text.length(), text);
+    }
+
+    static LogRecord delete(long lsn, long id, String title) {
+        return new LogRecord(Type.DELETE, lsn, id, 0, null, null, title, null, -1, null);
+    }
+
+    /**
+     * LSN выдаётся при записи в журнал, а не при подготовке записи в транзакции.
+     */
+    LogRecord withLsn(long lsn) {
+        return new LogRecord(type, lsn, id, version, createdAt, updatedAt, title, previousTitle, textLength, text);
+    }
+
+    /**
+     * Смещение байтов текста от начала записи.
+     */
+    int textOffset() {
+        return HEADER_SIZE + FIXED_SIZE + Short.BYTES + utf8Length(title) + Short.BYTES
+                + (previousTitle == null ? 0 : utf8Length(previousTitle)) + 2 * Integer.BYTES;
+    }
+
+    ByteBuffer encode() {
+        byte[] titleBytes = title.getBytes(StandardCharsets.UTF_8);
+        byte[] previousTitleBytes = previousTitle == null ? null : previousTitle.getBytes(StandardCharsets.UTF_8);
+        byte[] textBytes = text == null ? new byte[0] : text.getBytes(StandardCharsets.UTF_8);
+        int payloadSize = FIXED_SIZE + Short.BYTES + titleBytes.length
+                + Short.BYTES + (previousTitleBytes == null ? 0 : previousTitleBytes.length)
+                + 2 * Integer.BYTES + textBytes.length;
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + payloadSize);
+        buffer.putInt(payloadSize).putInt(0);
+        buffer.put((byte) type.ordinal())
+                .putLong(lsn)
+                .putLong(id)
+                .putLong(version)
+                .putLong(toMicros(createdAt))
+                .putLong(toMicros(updatedAt));
+        buffer.putShort((short) titleBytes.length).put(titleBytes);
+        if (previousTitleBytes == null) {
+            buffer.putShort((short) -1);
+        } else {
+            buffer.putShort((short) previousTitleBytes.length).put(previousTitleBytes);
+        }
+        buffer.putInt(textLength).putInt(textBytes.length).put(textBytes);
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), HEADER_SIZE, payloadSize);
+        buffer.putInt(Integer.BYTES, (int) crc.getValue());
+        return buffer.flip();
+    }
+
+    /**
+     * Разбирает запись целиком, начиная с заголовка. Возвращает null, если контрольная сумма
+     * не сходится; без withText текст не декодируется (textLength при этом известен).
+     */
+    static LogRecord decode(ByteBuffer frame, boolean withText) {
+        int payloadSize = frame.getInt(0);
+        int expectedCrc = frame.getInt(Integer.BYTES);
+        CRC32 crc = new CRC32();
+        crc.update(frame.slice(HEADER_SIZE, payloadSize));
+        if ((int) crc.getValue() != expectedCrc) {
+            return null;
+        }
+
+        ByteBuffer payload = frame.slice(HEADER_SIZE, payloadSize);
+        Type type = Type.values()[payload.get()];
+        long lsn = payload.getLong();
+        long id = payload.getLong();
+        long version = payload.getLong();
+        LocalDateTime createdAt = fromMicros(payload.getLong());
+        LocalDateTime updatedAt = fromMicros(payload.getLong());
+        String title = readString(payload, payload.getShort());
+        short previousTitleLength = payload.getShort();
+        String previousTitle = previousTitleLength < 0 ? null : readString(payload, previousTitleLength);
+        int textLength = payload.getInt();
+        int textBytes = payload.getInt();
+        String text = withText && textLength >= 0 ? readString(payload, textBytes) : null;
+        return new LogRecord(type, lsn, id, version, createdAt, updatedAt, title, previousTitle, textLength, text);
+    }
+
+    static LocalDateTime now() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+    }
+
+    static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private static String readString(ByteBuffer buffer, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long toMicros(LocalDateTime value) {
+        if (value == null) {
+            return Long.MIN_VALUE;
+        }
+        return value.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + value.getNano() / 1_000;
+    }
+
+    private static LocalDateTime fromMicros(long micros) {
+        if (micros == Long.MIN_VALUE) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+}
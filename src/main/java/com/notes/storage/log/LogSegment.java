@@ -0,0 +1,182 @@
+package com.notes.storage.log;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Файл сегмента журнала. Запись идёт только в конец активного сегмента под блокировкой
+ * хранилища; позиционное чтение безопасно параллельно с ней. Одну ссылку держит само
+ * хранилище, остальные — открытые на чтение NoteContent; файл закрывается и удаляется
+ * после освобождения последней ссылки.
+ */
+final class LogSegment implements Closeable {
+
+    static final String SUFFIX = ".seg";
+
+    private final long id;
+    private final Path path;
+    private final FileChannel channel;
+    private final AtomicInteger references = new AtomicInteger(1);
+    private volatile long size;
+    private volatile boolean retired;
+    private long liveBytes;
+
+    private LogSegment(long id, Path path, FileChannel channel) throws IOException {
+        this.id = id;
+        this.path = path;
+        this.channel = channel;
+        this.size = channel.size();
+    }
+
+    static LogSegment open(Path directory, long id) throws IOException {
+        Path path = directory.resolve(String.format("%020d%s", id, SUFFIX));
+        return new LogSegment(id, path, FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE));
+    }
+
+    static boolean isSegment(Path path) {
+        return path.getFileName().toString().matches("\\d{20}\\" + SUFFIX);
+    }
+
+    static long idOf(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+    }
+
+    long id() {
+        return id;
+    }
+
+    Path path() {
+        return path;
+    }
+
+    long size() {
+        return size;
+    }
+
+    long liveBytes() {
+        return liveBytes;
+    }
+
+    void addLiveBytes(long delta) {
+        liveBytes += delta;
+    }
+
+    /**
+     * Дописывает буфер в конец сегмента; при ошибке сегмент обрезается до прежнего размера.
+     */
+    long append(ByteBuffer buffer) throws IOException {
+        long position = size;
+        try {
+            long writePosition = position;
+            while (buffer.hasRemaining()) {
+                writePosition += channel.write(buffer, writePosition);
+            }
+            size = writePosition;
+            return position;
+        } catch (IOException e) {
+            truncate(position);
+            throw e;
+        }
+    }
+
+    ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Неожиданный конец сегмента " + path + " на позиции " + position);
+            }
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Последовательно разбирает записи сегмента и возвращает конец последней целой записи.
+     * Обрыв или несовпадение контрольной суммы останавливают разбор.
+     */
+    long scan(boolean withText, RecordVisitor visitor) throws IOException {
+        long position = 0;
+        long end = size;
+        while (position + LogRecord.HEADER_SIZE <= end) {
+            int payloadSize = read(position, LogRecord.HEADER_SIZE).getInt(0);
+            long frameSize = LogRecord.HEADER_SIZE + (long) payloadSize;
+            if (payloadSize <= 0 || position + frameSize > end) {
+                break;
+            }
+            LogRecord record = LogRecord.decode(read(position, (int) frameSize), withText);
+            if (record == null) {
+                break;
+            }
+            visitor.accept(record, position, (int) frameSize);
+            position += frameSize;
+        }
+        return position;
+    }
+
+    void transferTo(long position, long count, WritableByteChannel target) throws IOException {
+        long end = position + count;
+        while (position < end) {
+            position += channel.transferTo(position, end - position, target);
+        }
+    }
+
+    /**
+     * Возвращает false, если сегмент уже освобождён хранилищем и всеми читателями.
+     */
+    boolean retain() {
+        int current;
+        do {
+            current = references.get();
+            if (current == 0) {
+                return false;
+            }
+        } while (!references.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    void release() throws IOException {
+        if (references.decrementAndGet() == 0) {
+            channel.close();
+            if (retired) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    void force() throws IOException {
+        channel.force(false);
+    }
+
+    void truncate(long newSize) throws IOException {
+        channel.truncate(newSize);
+        size = newSize;
+    }
+
+    @Override
+    public void close() throws IOException {
+        release();
+    }
+
+    /**
+     * Сегмент больше не нужен хранилищу: файл удаляется, когда закроется последний читатель.
+     */
+    void delete() throws IOException {
+        retired = true;
+        release();
+    }
+
+    @FunctionalInterface
+    interface RecordVisitor {
+
+        void accept(LogRecord record, long position, int frameSize) throws IOException;
+    }
+}
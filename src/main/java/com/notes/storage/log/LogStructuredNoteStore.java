@@ -0,0 +1,862 @@
+package com.notes.storage.log;
+
+import com.notes.dto.NoteSummary;
+import com.notes.dto.NoteVersion;
+import com.notes.model.Note;
+import com.notes.storage.NoteContent;
+import com.notes.storage.NoteStorageProperties;
+import com.notes.storage.NoteStore;
+import com.notes.storage.NoteWrite;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Хранилище заметок в виде журнала только на дозапись (notes.storage.engine=log).
+ * Каждое изменение — запись с LSN в активном сегменте; в памяти держится индекс
+ * название → позиция записи. При старте сегменты перечитываются, побеждает запись с
+ * большим LSN, оборванный хвост последнего сегмента отрезается. Фоновое уплотнение
+ * переносит живые записи из разреженных сегментов в активный и удаляет старые файлы.
+ * Внутри транзакции Spring изменения не пишутся сразу: записи копятся в Pending и
+ * дописываются в журнал в beforeCommit, после повторной проверки названий и версий
+ * относительно того, что успели зафиксировать другие транзакции. Откат транзакции сервиса
+ * их просто отбрасывает. До коммита накопленные изменения видят только проверки записи
+ * этой же транзакции, чтения идут по зафиксированному индексу.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "notes.storage", name = "engine", havingValue = "log")
+public class LogStructuredNoteStore implements NoteStore, DisposableBean {
+
+    private static final int MAX_TITLE_LENGTH = 40;
+
+    private static final Comparator<Entry> MOST_RECENT_FIRST = Comparator
+            .comparing(Entry::updatedAt, Comparator.reverseOrder())
+            .thenComparing(Entry::id, Comparator.reverseOrder());
+
+    private final NoteStorageProperties.Log properties;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Entry> byTitle = new HashMap<>();
+    private final NavigableSet<Entry> byRecency = new TreeSet<>(MOST_RECENT_FIRST);
+    private final TreeMap<Long, LogSegment> segments = new TreeMap<>();
+    private final ScheduledExecutorService compactor;
+    private LogSegment active;
+    private long lastLsn;
+    private long lastId;
+
+    public LogStructuredNoteStore(NoteStorageProperties properties) throws IOException {
+        this.properties = properties.getLog();
+        recover();
+        long interval = this.properties.getCompactionInterval().toMillis();
+        this.compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "notes-log-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compactor.scheduleWithFixedDelay(this::compactQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Optional<Note> findByTitle(String title) {
+        return read(() -> {
+            Entry entry = byTitle.get(title);
+            return entry == null ? Optional.empty() : Optional.of(load(entry));
+        });
+    }
+
+    @Override
+    public Optional<NoteVersion> findVersionByTitle(String title) {
+        return read(() -> Optional.ofNullable(byTitle.get(title)).map(entry -> new NoteVersion(entry.id(), entry.version())));
+    }
+
+    @Override
+    public boolean existsByTitle(String title) {
+        return read(() -> byTitle.containsKey(title));
+    }
+
+    @Override
+    public List<Note> findByTitleIn(Collection<String> titles) {
+        return read(() -> {
+            List<Note> notes = new ArrayList<>();
+            for (String title : titles) {
+                Entry entry = byTitle.get(title);
+                if (entry != null) {
+                    notes.add(load(entry));
+                }
+            }
+            return notes;
+        });
+    }
+
+    @Override
+    public List<String> findAllTitles() {
+        return read(() -> new ArrayList<>(byTitle.keySet()));
+    }
+
+    @Override
+    public Optional<Note> findLatest() {
+        return read(() -> byRecency.isEmpty() ? Optional.empty() : Optional.of(load(byRecency.first())));
+    }
+
+    @Override
+    public List<Note> findAll() {
+        return read(() -> loadAll(byRecency, Integer.MAX_VALUE));
+    }
+
+    @Override
+    public List<Note> findFirstPage(int limit) {
+        return read(() -> loadAll(byRecency, limit));
+    }
+
+    @Override
+    public List<Note> findPageAfter(LocalDateTime updatedAt, long id, int limit) {
+        return read(() -> loadAll(byRecency.tailSet(Entry.probe(updatedAt, id), false), limit));
+    }
+
+    @Override
+    public List<NoteSummary> findAllSummaries(int previewLength) {
+        return read(() -> summarize(byRecency, previewLength, Integer.MAX_VALUE));
+    }
+
+    @Override
+    public List<NoteSummary> findFirstSummaryPage(int previewLength, int limit) {
+        return read(() -> summarize(byRecency, previewLength, limit));
+    }
+
+    @Override
+    public List<NoteSummary> findSummaryPageAfter(LocalDateTime updatedAt, long id, int previewLength, int limit) {
+        return read(() -> summarize(byRecency.tailSet(Entry.probe(updatedAt, id), false), previewLength, limit));
+    }
+
+    /**
+     * Текст отдаётся из файла сегмента через FileChannel.transferTo; сегмент не удаляется
+     * уплотнением, пока содержимое не закрыто.
+     */
+    @Override
+    public Optional<NoteContent> openContent(String title) {
+        return read(() -> {
+            Entry entry = byTitle.get(title);
+            if (entry == null) {
+                return Optional.empty();
+            }
+            LogSegment segment = segments.get(entry.segment());
+            if (!segment.retain()) {
+                throw new DataRetrievalFailureException("Сегмент " + segment.path() + " уже закрыт");
+            }
+            return Optional.of(new SegmentContent(segment, entry));
+        });
+    }
+
+    /**
+     * Порядок фиксируется при открытии потока, сами записи читаются по мере обхода.
+     */
+    @Override
+    public Stream<Note> streamAll() {
+        List<Entry> snapshot = read(() -> new ArrayList<>(byRecency));
+        return snapshot.stream()
+                .map(entry -> findByTitle(entry.title()).filter(note -> note.getId() == entry.id()))
+                .flatMap(Optional::stream);
+    }
+
+    @Override
+    public Note create(Note note) {
+        return write(() -> {
+            Pending pending = pending();
+            checkTitle(note.getTitle(), null, view(pending));
+            LocalDateTime now = LogRecord.now();
+            LogRecord record = LogRecord.put(0, ++lastId, 0, now, now, note.getTitle(), null, note.getText());
+            apply(pending, List.of(record));
+            fill(note, record);
+            return note;
+        });
+    }
+
+    @Override
+    public Optional<Note> updateByTitle(String oldTitle, String newTitle, String newText, NoteVersion expectedVersion) {
+        return write(() -> update(oldTitle, newTitle, newText, expectedVersion, false));
+    }
+
+    @Override
+    public Optional<Note> patchByTitle(String oldTitle, String newTitle, String newText, NoteVersion expectedVersion) {
+        return write(() -> update(oldTitle, newTitle, newText, expectedVersion, true));
+    }
+
+    @Override
+    public OptionalLong deleteByTitle(String title) {
+        return write(() -> {
+            Pending pending = pending();
+            Entry entry = view(pending).apply(title);
+            if (entry == null) {
+                return OptionalLong.empty();
+            }
+            apply(pending, List.of(LogRecord.delete(0, entry.id(), title)));
+            return OptionalLong.of(entry.id());
+        });
+    }
+
+    /**
+     * Батч проверяется целиком до записи и пишется в журнал одним вызовом с одним fsync,
+     * поэтому batchSize здесь не используется.
+     */
+    @Override
+    public void writeBatch(List<NoteWrite> writes, int batchSize) {
+        write(() -> {
+            Pending pending = pending();
+            Function<String, Entry> committed = view(pending);
+            Map<String, Entry> staged = new HashMap<>();
+            Function<String, Entry> view =
+                    title -> staged.containsKey(title) ? staged.get(title) : committed.apply(title);
+            List<LogRecord> records = new ArrayList<>(writes.size());
+            LocalDateTime now = LogRecord.now();
+
+            for (NoteWrite write : writes) {
+                LogRecord record;
+                switch (write.kind()) {
+                    case CREATE -> {
+                        checkTitle(write.title(), null, view);
+                        record = LogRecord.put(0, ++lastId, 0, now, now, write.title(), null, write.text());
+                    }
+                    case RESTORE -> {
+                        checkTitle(write.title(), null, view);
+                        record = LogRecord.put(0, ++lastId, 0, write.note().getCreatedAt(),
+                                write.note().getUpdatedAt(), write.title(), null, write.text());
+                    }
+                    case UPDATE -> {
+                        Entry current = existing(view.apply(write.previousTitle()), write.previousTitle());
+                        checkTitle(write.title(), current, view);
+                        boolean renamed = !write.title().equals(write.previousTitle());
+                        if (renamed) {
+                            staged.put(write.previousTitle(), null);
+                        }
+                        record = LogRecord.put(0, current.id(), current.version() + 1, current.createdAt(), now,
+                                write.title(), renamed ? write.previousTitle() : null, write.text());
+                    }
+                    case DELETE -> {
+                        Entry current = existing(view.apply(write.title()), write.title());
+                        record = LogRecord.delete(0, current.id(), write.title());
+                    }
+                    default -> throw new IllegalStateException("Unexpected write: " + write.kind());
+                }
+                staged.put(write.title(), record.type() == LogRecord.Type.PUT ? Entry.of(record, -1, -1, 0) : null);
+                records.add(record);
+            }
+
+            apply(pending, records);
+            for (int i = 0; i < writes.size(); i++) {
+                if (records.get(i).type() == LogRecord.Type.PUT) {
+                    fill(writes.get(i).note(), records.get(i));
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Уплотняет закрытые сегменты, в которых доля живых данных ниже порога.
+     * Возвращает число удалённых сегментов.
+     */
+    int compact() throws IOException {
+        List<LogSegment> candidates = read(() -> segments.values().stream()
+                .filter(segment -> segment != active)
+                .filter(segment -> segment.liveBytes() < segment.size() * properties.getCompactionThreshold())
+                .toList());
+
+        int removed = 0;
+        for (LogSegment segment : candidates) {
+            segment.scan(false, (record, position, frameSize) -> write(() -> {
+                relocate(record, segment, position);
+                return null;
+            }));
+            boolean deleted = write(() -> {
+                forceActive();
+                if (segment.liveBytes() != 0) {
+                    log.warn("Segment {} still has {} live bytes after compaction, keeping it", segment.path(), segment.liveBytes());
+                    return false;
+                }
+                segments.remove(segment.id());
+                segment.delete();
+                return true;
+            });
+            if (deleted) {
+                removed++;
+                log.info("Compacted note log segment {}", segment.path());
+            }
+        }
+        return removed;
+    }
+
+    @Override
+    public void destroy() throws IOException, InterruptedException {
+        // Прерывание закрыло бы FileChannel посреди уплотнения, поэтому ждём его завершения.
+        compactor.shutdown();
+        compactor.awaitTermination(1, TimeUnit.MINUTES);
+        write(() -> {
+            forceActive();
+            for (LogSegment segment : segments.values()) {
+                segment.close();
+            }
+            return null;
+        });
+    }
+
+    private Optional<Note> update(String oldTitle, String newTitle, String newText, NoteVersion expectedVersion,
+                                  boolean partial) throws IOException {
+        Pending pending = pending();
+        Function<String, Entry> view = view(pending);
+        Entry current = view.apply(oldTitle);
+        if (current == null || (expectedVersion != null
+                && (expectedVersion.id() != current.id() || expectedVersion.version() != current.version()))) {
+            return Optional.empty();
+        }
+        String title = partial && newTitle == null ? oldTitle : newTitle;
+        String text = partial && newText == null ? text(pending, current) : newText;
+        checkTitle(title, current, view);
+
+        LogRecord record = LogRecord.put(0, current.id(), current.version() + 1, current.createdAt(),
+                LogRecord.now(), title, title.equals(oldTitle) ? null : oldTitle, text);
+        apply(pending, List.of(record));
+        Note note = new Note();
+        fill(note, record);
+        return Optional.of(note);
+    }
+
+    private static void checkTitle(String title, Entry current, Function<String, Entry> view) {
+        if (title == null || title.length() > MAX_TITLE_LENGTH) {
+            throw new DataIntegrityViolationException("Недопустимое название заметки: " + title);
+        }
+        Entry owner = view.apply(title);
+        if (owner != null && (current == null || owner.id() != current.id())) {
+            throw new DataIntegrityViolationException("Заметка с названием " + title + " уже существует.");
+        }
+    }
+
+    private static Entry existing(Entry entry, String title) {
+        if (entry == null) {
+            throw new DataIntegrityViolationException("Заметка с названием " + title + " не найдена.");
+        }
+        return entry;
+    }
+
+    /**
+     * Накопленные изменения текущей транзакции или null, если транзакции Spring нет и
+     * изменения пишутся в журнал сразу.
+     */
+    private Pending pending() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        Pending pending = (Pending) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new Pending();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        return pending;
+    }
+
+    private Function<String, Entry> view(Pending pending) {
+        return pending == null ? byTitle::get : pending::view;
+    }
+
+    private String text(Pending pending, Entry entry) throws IOException {
+        return entry.segment() < 0 ? pending.latest(entry.id()).text() : load(entry).getText();
+    }
+
+    private void apply(Pending pending, List<LogRecord> records) throws IOException {
+        if (pending == null) {
+            appendAndIndex(records);
+        } else {
+            records.forEach(pending::stage);
+        }
+    }
+
+    /**
+     * Записи транзакции готовились по индексу на момент вызова; пока она шла, другие
+     * транзакции могли занять название или изменить ту же заметку, поэтому перед записью
+     * каждая запись проверяется ещё раз, уже по зафиксированному состоянию.
+     */
+    private void commit(List<LogRecord> staged) throws IOException {
+        Map<String, Entry> applied = new HashMap<>();
+        Function<String, Entry> view = title -> applied.containsKey(title) ? applied.get(title) : byTitle.get(title);
+        for (LogRecord record : staged) {
+            if (record.type() == LogRecord.Type.DELETE) {
+                Entry current = view.apply(record.title());
+                if (current == null || current.id() != record.id()) {
+                    throw changed(record.title());
+                }
+            } else {
+                Entry current = null;
+                if (record.version() > 0) {
+                    String before = record.previousTitle() != null ? record.previousTitle() : record.title();
+                    current = view.apply(before);
+                    if (current == null || current.id() != record.id() || current.version() != record.version() - 1) {
+                        throw changed(before);
+                    }
+                }
+                checkTitle(record.title(), current, view);
+            }
+            overlay(applied, record);
+        }
+        appendAndIndex(staged);
+    }
+
+    private static void overlay(Map<String, Entry> view, LogRecord record) {
+        if (record.type() == LogRecord.Type.DELETE) {
+            view.put(record.title(), null);
+            return;
+        }
+        if (record.previousTitle() != null) {
+            view.put(record.previousTitle(), null);
+        }
+        view.put(record.title(), Entry.of(record, -1, -1, 0));
+    }
+
+    private static ConcurrencyFailureException changed(String title) {
+        return new ConcurrencyFailureException("Заметка с названием " + title + " изменена параллельной транзакцией.");
+    }
+
+    /**
+     * Выдаёт записям LSN по порядку и дописывает их в активный сегмент одним вызовом.
+     */
+    private void appendAndIndex(List<LogRecord> staged) throws IOException {
+        List<LogRecord> records = new ArrayList<>(staged.size());
+        List<ByteBuffer> frames = new ArrayList<>(staged.size());
+        int total = 0;
+        for (LogRecord unnumbered : staged) {
+            LogRecord record = unnumbered.withLsn(++lastLsn);
+            records.add(record);
+            ByteBuffer frame = record.encode();
+            frames.add(frame);
+            total += frame.remaining();
+        }
+        reserve(total);
+
+        ByteBuffer batch = ByteBuffer.allocate(total);
+        frames.forEach(frame -> batch.put(frame.duplicate()));
+        long position = active.append(batch.flip());
+        if (properties.isFsync()) {
+            active.force();
+        }
+
+        for (int i = 0; i < records.size(); i++) {
+            int frameSize = frames.get(i).remaining();
+            replay(records.get(i), active, position, frameSize, null);
+            position += frameSize;
+        }
+    }
+
+    /**
+     * Применяет запись к индексу. При восстановлении записи идут не по порядку LSN
+     * (уплотнение переносит старые записи в новые сегменты), поэтому удалённые названия
+     * запоминаются в deletedAt, чтобы не воскрешать их более старыми записями.
+     */
+    private void replay(LogRecord record, LogSegment segment, long position, int frameSize, Map<String, Long> deletedAt) {
+        if (record.type() == LogRecord.Type.DELETE) {
+            remember(deletedAt, record.title(), record.lsn());
+            Entry existing = byTitle.get(record.title());
+            if (existing != null && existing.lsn() < record.lsn()) {
+                unindex(existing);
+            }
+            return;
+        }
+        if (record.previousTitle() != null) {
+            remember(deletedAt, record.previousTitle(), record.lsn());
+            Entry previous = byTitle.get(record.previousTitle());
+            if (previous != null && previous.lsn() < record.lsn()) {
+                unindex(previous);
+            }
+        }
+        Long deletedLsn = deletedAt == null ? null : deletedAt.get(record.title());
+        Entry existing = byTitle.get(record.title());
+        if ((deletedLsn != null && deletedLsn >= record.lsn()) || (existing != null && existing.lsn() >= record.lsn())) {
+            return;
+        }
+        if (existing != null) {
+            unindex(existing);
+        }
+        index(Entry.of(record, segment.id(), position, frameSize));
+    }
+
+    private static void remember(Map<String, Long> deletedAt, String title, long lsn) {
+        if (deletedAt != null) {
+            deletedAt.merge(title, lsn, Math::max);
+        }
+    }
+
+    private void relocate(LogRecord record, LogSegment segment, long position) throws IOException {
+        if (record.type() == LogRecord.Type.DELETE) {
+            keepTombstone(record.title(), record.id(), record.lsn(), segment);
+            return;
+        }
+        Entry entry = byTitle.get(record.title());
+        if (entry == null || entry.segment() != segment.id() || entry.position() != position) {
+            if (record.previousTitle() != null) {
+                keepTombstone(record.previousTitle(), record.id(), record.lsn(), segment);
+            }
+            return;
+        }
+        LogRecord full = LogRecord.decode(segment.read(position, entry.frameSize()), true);
+        if (full == null) {
+            throw new DataRetrievalFailureException("Повреждена запись заметки " + record.title() + " в " + segment.path());
+        }
+        reserve(entry.frameSize());
+        long newPosition = active.append(full.encode());
+        unindex(entry);
+        index(Entry.of(full, active.id(), newPosition, entry.frameSize()));
+    }
+
+    /**
+     * Удаление нужно переносить, пока в более старых сегментах могут оставаться
+     * перекрытые им записи и пока название не занято более новой заметкой.
+     */
+    private void keepTombstone(String title, long id, long lsn, LogSegment segment) throws IOException {
+        if (segments.firstKey() == segment.id()) {
+            return;
+        }
+        Entry live = byTitle.get(title);
+        if (live != null && live.lsn() > lsn) {
+            return;
+        }
+        ByteBuffer frame = LogRecord.delete(lsn, id, title).encode();
+        reserve(frame.remaining());
+        active.append(frame);
+    }
+
+    private void index(Entry entry) {
+        byTitle.put(entry.title(), entry);
+        byRecency.add(entry);
+        segments.get(entry.segment()).addLiveBytes(entry.frameSize());
+    }
+
+    private void unindex(Entry entry) {
+        byTitle.remove(entry.title(), entry);
+        byRecency.remove(entry);
+        segments.get(entry.segment()).addLiveBytes(-entry.frameSize());
+    }
+
+    private void reserve(long bytes) throws IOException {
+        if (active.size() > 0 && active.size() + bytes > properties.getSegmentSize().toBytes()) {
+            roll();
+        }
+    }
+
+    private void roll() throws IOException {
+        forceActive();
+        active = LogSegment.open(properties.getDirectory(), active.id() + 1);
+        segments.put(active.id(), active);
+    }
+
+    private void forceActive() throws IOException {
+        if (properties.isFsync()) {
+            active.force();
+        }
+    }
+
+    private void recover() throws IOException {
+        Path directory = properties.getDirectory();
+        Files.createDirectories(directory);
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(LogSegment::isSegment)
+                    .sorted(Comparator.comparingLong(LogSegment::idOf))
+                    .toList();
+        }
+
+        Map<String, Long> deletedAt = new HashMap<>();
+        for (int i = 0; i < files.size(); i++) {
+            LogSegment segment = LogSegment.open(directory, LogSegment.idOf(files.get(i)));
+            segments.put(segment.id(), segment);
+            long end = segment.scan(false, (record, position, frameSize) -> {
+                lastLsn = Math.max(lastLsn, record.lsn());
+                lastId = Math.max(lastId, record.id());
+                replay(record, segment, position, frameSize, deletedAt);
+            });
+            if (end < segment.size()) {
+                if (i == files.size() - 1) {
+                    log.warn("Truncating torn tail of note log segment {}: {} bytes", segment.path(), segment.size() - end);
+                    segment.truncate(end);
+                } else {
+                    log.error("Note log segment {} is corrupted at offset {}, the rest of it is ignored", segment.path(), end);
+                }
+            }
+        }
+        if (segments.isEmpty()) {
+            segments.put(1L, LogSegment.open(directory, 1));
+        }
+        active = segments.lastEntry().getValue();
+        log.info("Recovered {} notes from {} log segments, last LSN {}", byTitle.size(), segments.size(), lastLsn);
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (Exception e) {
+            log.warn("Note log compaction failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private Note load(Entry entry) throws IOException {
+        LogSegment segment = segments.get(entry.segment());
+        LogRecord record = LogRecord.decode(segment.read(entry.position(), entry.frameSize()), true);
+        if (record == null) {
+            throw new DataRetrievalFailureException("Повреждена запись заметки " + entry.title() + " в " + segment.path());
+        }
+        Note note = new Note();
+        fill(note, record);
+        return note;
+    }
+
+    private List<Note> loadAll(Collection<Entry> entries, int limit) throws IOException {
+        List<Note> notes = new ArrayList<>(Math.min(limit, entries.size()));
+        for (Entry entry : entries) {
+            if (notes.size() == limit) {
+                break;
+            }
+            notes.add(load(entry));
+        }
+        return notes;
+    }
+
+    private List<NoteSummary> summarize(Collection<Entry> entries, int previewLength, int limit) throws IOException {
+        List<NoteSummary> summaries = new ArrayList<>(Math.min(limit, entries.size()));
+        for (Entry entry : entries) {
+            if (summaries.size() == limit) {
+                break;
+            }
+            summaries.add(new Summary(entry, preview(entry, previewLength)));
+        }
+        return summaries;
+    }
+
+    /**
+     * Символ UTF-16 занимает не больше трёх байт, поэтому для превью читается только
+     * previewLength * 3 байт текста.
+     */
+    private String preview(Entry entry, int previewLength) throws IOException {
+        if (entry.textLength() < 0) {
+            return null;
+        }
+        int textBytes = entry.frameSize() - entry.textOffset();
+        int length = (int) Math.min(textBytes, (long) previewLength * 3);
+        ByteBuffer bytes = segments.get(entry.segment()).read(entry.position() + entry.textOffset(), length);
+        String prefix = StandardCharsets.UTF_8.decode(bytes).toString();
+        return prefix.length() > previewLength ? prefix.substring(0, previewLength) : prefix;
+    }
+
+    private static void fill(Note note, LogRecord record) {
+        note.setId(record.id());
+        note.setVersion(record.version());
+        note.setTitle(record.title());
+        note.setCreatedAt(record.createdAt());
+        note.setUpdatedAt(record.updatedAt());
+        note.setText(record.text());
+    }
+
+    private <T> T read(IoSupplier<T> action) {
+        lock.readLock().lock();
+        try {
+            return action.get();
+        } catch (IOException e) {
+            throw new DataAccessResourceFailureException("Не удалось прочитать журнал заметок: " + e.getMessage(), e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private <T> T write(IoSupplier<T> action) {
+        lock.writeLock().lock();
+        try {
+            return action.get();
+        } catch (IOException e) {
+            throw new DataAccessResourceFailureException("Не удалось записать журнал заметок: " + e.getMessage(), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Изменения одной транзакции: записи без LSN по порядку и их наложение на индекс.
+     */
+    private final class Pending implements TransactionSynchronization {
+
+        private final List<LogRecord> records = new ArrayList<>();
+        private final Map<String, Entry> staged = new HashMap<>();
+        private final Map<Long, LogRecord> latest = new HashMap<>();
+
+        void stage(LogRecord record) {
+            records.add(record);
+            overlay(staged, record);
+            if (record.type() == LogRecord.Type.PUT) {
+                latest.put(record.id(), record);
+            }
+        }
+
+        Entry view(String title) {
+            return staged.containsKey(title) ? staged.get(title) : byTitle.get(title);
+        }
+
+        LogRecord latest(long id) {
+            return latest.get(id);
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            if (!records.isEmpty()) {
+                write(() -> {
+                    commit(records);
+                    return null;
+                });
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(LogStructuredNoteStore.this);
+        }
+    }
+
+    @FunctionalInterface
+    private interface IoSupplier<T> {
+
+        T get() throws IOException;
+    }
+
+    private record Entry(String title, long id, long version, LocalDateTime createdAt, LocalDateTime updatedAt,
+                         long lsn, int textLength, long segment, long position, int frameSize, int textOffset) {
+
+        static Entry of(LogRecord record, long segment, long position, int frameSize) {
+            return new Entry(record.title(), record.id(), record.version(), record.createdAt(), record.updatedAt(),
+                    record.lsn(), record.textLength(), segment, position, frameSize, record.textOffset());
+        }
+
+        static Entry probe(LocalDateTime updatedAt, long id) {
+            return new Entry(null, id, 0, null, updatedAt, 0, 0, 0, 0, 0, 0);
+        }
+    }
+
+    private static final class SegmentContent implements NoteContent {
+
+        private final LogSegment segment;
+        private final Entry entry;
+        private boolean closed;
+
+        private SegmentContent(LogSegment segment, Entry entry) {
+            this.segment = segment;
+            this.entry = entry;
+        }
+
+        @Override
+        public NoteVersion version() {
+            return new NoteVersion(entry.id(), entry.version());
+        }
+
+        @Override
+        public long length() {
+            return entry.frameSize() - entry.textOffset();
+        }
+
+        @Override
+        public void transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            if (position < 0 || count < 0 || position + count > length()) {
+                throw new IndexOutOfBoundsException("Диапазон " + position + "+" + count + " вне текста длиной " + length());
+            }
+            segment.transferTo(entry.position() + entry.textOffset() + position, count, target);
+        }
+
+        @Override
+        public synchronized void close() {
+            if (!closed) {
+                closed = true;
+                try {
+                    segment.release();
+                } catch (IOException e) {
+                    log.warn("Failed to release note log segment {}: {}", segment.path(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    static final class Summary implements NoteSummary {
+
+        private final Entry entry;
+        private final String preview;
+
+        private Summary(Entry entry, String preview) {
+            this.entry = entry;
+            this.preview = preview;
+        }
+
+        @Override
+        public long getId() {
+            return entry.id();
+        }
+
+        @Override
+        public String getTitle() {
+            return entry.title();
+        }
+
+        @Override
+        public LocalDateTime getCreatedAt() {
+            return entry.createdAt();
+        }
+
+        @Override
+        public LocalDateTime getUpdatedAt() {
+            return entry.updatedAt();
+        }
+
+        @Override
+        public String getStoredPreview() {
+            return preview;
+        }
+
+        @Override
+        public Long getStoredLength() {
+            return entry.textLength() < 0 ? null : (long) entry.textLength();
+        }
+
+        @Override
+        public String getPreview() {
+            return preview;
+        }
+
+        @Override
+        public Long getLength() {
+            return getStoredLength();
+        }
+    }
+}
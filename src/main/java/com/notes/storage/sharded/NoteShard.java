@@ -0,0 +1,306 @@
+package com.notes.storage.sharded;
+
+import com.notes.compression.NoteContentCodec;
+import com.notes.dto.NoteSummary;
+import com.notes.model.Note;
+import com.notes.repository.NoteRepository;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.jdbc.support.SQLExceptionSubclassTranslator;
+import org.springframework.jdbc.support.SQLExceptionTranslator;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Одна база шардированного хранилища: таблица NOTES той же схемы, что в schema.sql, и
+ * NOTE_MOVES с незавершёнными переездами заметок на другой шард. Соединения берутся
+ * напрямую из пула, мимо транзакций Spring: локальные транзакции шарда не должны
+ * смешиваться с JPA-транзакцией сервиса на основной базе.
+ */
+final class NoteShard {
+
+    /**
+     * Шаг последовательности id: шард i выдаёт i + 1, i + 1 + MAX_SHARDS, ..., так что id
+     * уникальны во всех шардах и не меняются при переезде заметки.
+     */
+    static final int MAX_SHARDS = 1024;
+
+    static final String NOTE_COLUMNS = "ID, TITLE, CREATED_AT, UPDATED_AT, CONTENT, VERSION";
+
+    /**
+     * Строка, переезд которой начат, но не завершён, уже вставлена или вот-вот будет
+     * вставлена на целевом шарде, поэтому в списках её не показываем.
+     */
+    static final String NOT_MOVING = " WHERE NOT EXISTS (SELECT 1 FROM NOTE_MOVES M WHERE M.NOTE_ID = NOTES.ID)";
+
+    static final String AFTER_CURSOR = " AND (UPDATED_AT < ? OR (UPDATED_AT = ? AND ID < ?))";
+
+    static final String MOST_RECENT_FIRST = " ORDER BY UPDATED_AT DESC, ID DESC";
+
+    /**
+     * Тот же запрос сводок, что у движка jpa, с позиционными параметрами вместо именованных.
+     */
+    static final String SUMMARY_SELECT = NoteRepository.SUMMARY_SELECT.replace(":previewLength", "?");
+
+    private final int index;
+    private final DataSource dataSource;
+    private final NoteContentCodec contentCodec;
+    private final SQLExceptionTranslator translator = new SQLExceptionSubclassTranslator();
+
+    NoteShard(int index, DataSource dataSource, NoteContentCodec contentCodec) {
+        this.index = index;
+        this.dataSource = dataSource;
+        this.contentCodec = contentCodec;
+    }
+
+    int index() {
+        return index;
+    }
+
+    DataSource dataSource() {
+        return dataSource;
+    }
+
+    void createSchema() {
+        execute("create shard schema", connection -> {
+            try (var statement = connection.createStatement()) {
+                statement.execute("CREATE SEQUENCE IF NOT EXISTS NOTES_SEQ START WITH " + (index + 1)
+                        + " INCREMENT BY " + MAX_SHARDS);
+                statement.execute("""
+                        CREATE TABLE IF NOT EXISTS NOTES (
+                        ID BIGINT NOT NULL PRIMARY KEY,
+                        TITLE VARCHAR(40) UNIQUE NOT NULL,
+                        TITLE_NORMALIZED VARCHAR(80) NOT NULL,
+                        CREATED_AT TIMESTAMP DEFAULT NULL,
+                        UPDATED_AT TIMESTAMP DEFAULT NULL,
+                        CONTENT TEXT DEFAULT NULL,
+                        VERSION BIGINT DEFAULT 0 NOT NULL
+                        )""");
+                statement.execute("CREATE INDEX IF NOT EXISTS IDX_NOTES_UPDATED_AT ON NOTES (UPDATED_AT DESC, ID DESC)");
+                statement.execute("""
+                        CREATE TABLE IF NOT EXISTS NOTE_MOVES (
+                        NOTE_ID BIGINT NOT NULL PRIMARY KEY,
+                        TARGET_SHARD INT NOT NULL
+                        )""");
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Выполняет работу на одном соединении в режиме autocommit.
+     */
+    <T> T execute(String task, SqlWork<T> work) {
+        try (Connection connection = dataSource.getConnection()) {
+            return work.run(connection);
+        } catch (SQLException e) {
+            throw translate(task, e);
+        }
+    }
+
+    <T> T inTransaction(String task, SqlWork<T> work) {
+        Connection connection = begin(task);
+        try {
+            T result = work.run(connection);
+            commit(task, connection);
+            return result;
+        } catch (SQLException e) {
+            rollback(connection);
+            throw translate(task, e);
+        } catch (RuntimeException e) {
+            rollback(connection);
+            throw e;
+        }
+    }
+
+    Connection begin(String task) {
+        try {
+            Connection connection = dataSource.getConnection();
+            connection.setAutoCommit(false);
+            return connection;
+        } catch (SQLException e) {
+            throw translate(task, e);
+        }
+    }
+
+    void commit(String task, Connection connection) {
+        try (connection) {
+            connection.commit();
+            connection.setAutoCommit(true);
+        } catch (SQLException e) {
+            throw translate(task, e);
+        }
+    }
+
+    void rollback(Connection connection) {
+        try (connection) {
+            connection.rollback();
+            connection.setAutoCommit(true);
+        } catch (SQLException e) {
+            // соединение уже неисправно, пул его заменит
+        }
+    }
+
+    DataAccessException translate(String task, SQLException e) {
+        DataAccessException translated = translator.translate("Shard " + index + ": " + task, null, e);
+        return translated != null ? translated : new UncategorizedSQLException("Shard " + index + ": " + task, null, e);
+    }
+
+    /**
+     * Открывает курсор по заметкам; соединение держится до close().
+     */
+    Cursor cursor(String sql) {
+        Connection connection = null;
+        try {
+            connection = dataSource.getConnection();
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setFetchSize(256);
+            return new Cursor(connection, statement.executeQuery());
+        } catch (SQLException e) {
+            closeQuietly(connection);
+            throw translate("open cursor", e);
+        }
+    }
+
+    static List<Note> notes(PreparedStatement statement, NoteContentCodec contentCodec) throws SQLException {
+        List<Note> notes = new ArrayList<>();
+        try (ResultSet rows = statement.executeQuery()) {
+            while (rows.next()) {
+                notes.add(note(rows, contentCodec));
+            }
+        }
+        return notes;
+    }
+
+    static Note note(ResultSet row, NoteContentCodec contentCodec) throws SQLException {
+        Note note = new Note();
+        note.setId(row.getLong("ID"));
+        note.setTitle(row.getString("TITLE"));
+        note.setCreatedAt(row.getObject("CREATED_AT", LocalDateTime.class));
+        note.setUpdatedAt(row.getObject("UPDATED_AT", LocalDateTime.class));
+        note.setText(contentCodec.decode(row.getString("CONTENT")));
+        note.setVersion(row.getLong("VERSION"));
+        return note;
+    }
+
+    static List<NoteSummary> summaries(PreparedStatement statement) throws SQLException {
+        List<NoteSummary> summaries = new ArrayList<>();
+        try (ResultSet rows = statement.executeQuery()) {
+            while (rows.next()) {
+                long storedLength = rows.getLong("storedLength");
+                Long length = rows.wasNull() ? null : storedLength;
+                summaries.add(new Summary(rows.getLong("id"), rows.getString("title"),
+                        rows.getObject("createdAt", LocalDateTime.class), rows.getObject("updatedAt", LocalDateTime.class),
+                        rows.getString("storedPreview"), length));
+            }
+        }
+        return summaries;
+    }
+
+    private static void closeQuietly(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            // соединение уже неисправно, пул его заменит
+        }
+    }
+
+    @FunctionalInterface
+    interface SqlWork<T> {
+
+        T run(Connection connection) throws SQLException;
+    }
+
+    /**
+     * Курсор по строкам одного шарда для слияния в NoteStore.streamAll.
+     */
+    final class Cursor implements AutoCloseable {
+
+        private final Connection connection;
+        private final ResultSet rows;
+        private Note current;
+
+        private Cursor(Connection connection, ResultSet rows) {
+            this.connection = connection;
+            this.rows = rows;
+        }
+
+        Note current() {
+            return current;
+        }
+
+        boolean advance() {
+            try {
+                current = rows.next() ? note(rows, contentCodec) : null;
+                return current != null;
+            } catch (SQLException e) {
+                throw translate("read cursor", e);
+            }
+        }
+
+        @Override
+        public void close() {
+            closeQuietly(connection);
+        }
+    }
+
+    private static final class Summary implements NoteSummary {
+
+        private final long id;
+        private final String title;
+        private final LocalDateTime createdAt;
+        private final LocalDateTime updatedAt;
+        private final String storedPreview;
+        private final Long storedLength;
+
+        private Summary(long id, String title, LocalDateTime createdAt, LocalDateTime updatedAt,
+                        String storedPreview, Long storedLength) {
+            this.id = id;
+            this.title = title;
+            this.createdAt = createdAt;
+            this.updatedAt = updatedAt;
+            this.storedPreview = storedPreview;
+            this.storedLength = storedLength;
+        }
+
+        @Override
+        public long getId() {
+            return id;
+        }
+
+        @Override
+        public String getTitle() {
+            return title;
+        }
+
+        @Override
+        public LocalDateTime getCreatedAt() {
+            return createdAt;
+        }
+
+        @Override
+        public LocalDateTime getUpdatedAt() {
+            return updatedAt;
+        }
+
+        @Override
+        public String getStoredPreview() {
+            return storedPreview;
+        }
+
+        @Override
+        public Long getStoredLength() {
+            return storedLength;
+        }
+    }
+}
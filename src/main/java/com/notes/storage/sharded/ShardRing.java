@@ -0,0 +1,58 @@
+package com.notes.storage.sharded;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Кольцо консистентного хеширования: у каждого шарда virtualNodes точек, название
+ * принадлежит шарду первой точки не меньше своего хеша. При добавлении шарда к нему
+ * переезжает примерно 1/N названий, остальные остаются на месте; переносит их
+ * ShardedNoteStore при старте. Хеш строится из String.hashCode, так что размещение
+ * одинаково в любой JVM.
+ */
+final class ShardRing {
+
+    private final long[] points;
+    private final int[] owners;
+
+    ShardRing(int shards, int virtualNodes) {
+        if (shards < 1 || virtualNodes < 1) {
+            throw new IllegalArgumentException("Нужен хотя бы один шард и одна точка на кольце");
+        }
+        TreeMap<Long, Integer> ring = new TreeMap<>();
+        for (int shard = 0; shard < shards; shard++) {
+            for (int node = 0; node < virtualNodes; node++) {
+                ring.putIfAbsent(mix(((long) shard << 32) | node), shard);
+            }
+        }
+        this.points = new long[ring.size()];
+        this.owners = new int[ring.size()];
+        int i = 0;
+        for (Map.Entry<Long, Integer> point : ring.entrySet()) {
+            points[i] = point.getKey();
+            owners[i] = point.getValue();
+            i++;
+        }
+    }
+
+    int shardFor(String title) {
+        int i = Arrays.binarySearch(points, mix(title.hashCode()));
+        if (i < 0) {
+            i = -i - 1;
+        }
+        return owners[i == points.length ? 0 : i];
+    }
+
+    /**
+     * Финальное перемешивание MurmurHash3: соседние значения расходятся по всему кольцу.
+     */
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
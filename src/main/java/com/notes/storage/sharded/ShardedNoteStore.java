@@ -0,0 +1,908 @@
+package com.notes.storage.sharded;
+
+import com.notes.compression.NoteContentCodec;
+import com.notes.dto.NoteSummary;
+import com.notes.dto.NoteVersion;
+import com.notes.model.Note;
+import com.notes.storage.NoteStorageProperties;
+import com.notes.storage.NoteStore;
+import com.notes.storage.NoteWrite;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Заметки, разнесённые по нескольким базам (notes.storage.engine=sharded). Шард заметки
+ * выбирается консистентным хешем названия (ShardRing), так что запросы по названию идут
+ * в одну базу, а запросы по всем заметкам опрашивают шарды параллельно и сливают
+ * упорядоченные ответы по (updatedAt desc, id desc).
+ * <p>
+ * Переименование, меняющее шард, переносит строку (см. move). При старте заметки, которые
+ * по кольцу принадлежат другому шарду (например, после добавления шарда), переносятся туда
+ * же (см. rebalance). Как и у движка log, записи не участвуют в JPA-транзакции сервиса:
+ * её откат их не отменяет.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "notes.storage", name = "engine", havingValue = "sharded")
+public class ShardedNoteStore implements NoteStore, DisposableBean {
+
+    private static final Comparator<Note> NOTE_ORDER = Comparator
+            .comparing(Note::getUpdatedAt, Comparator.reverseOrder())
+            .thenComparing(Note::getId, Comparator.reverseOrder());
+
+    private static final Comparator<NoteSummary> SUMMARY_ORDER = Comparator
+            .comparing(NoteSummary::getUpdatedAt, Comparator.reverseOrder())
+            .thenComparing(NoteSummary::getId, Comparator.reverseOrder());
+
+    private static final String SELECT_NOTES = "SELECT " + NoteShard.NOTE_COLUMNS + " FROM NOTES";
+
+    private static final int TITLE_LOCK_STRIPES = 64;
+
+    private final List<NoteShard> shards;
+    private final ShardRing ring;
+    private final NoteContentCodec contentCodec;
+    private final ExecutorService queryExecutor;
+    private final ScheduledExecutorService moveRecovery;
+    private final ReentrantLock[] titleLocks = new ReentrantLock[TITLE_LOCK_STRIPES];
+
+    /**
+     * id заметок, переезд которых идёт в этом процессе; фоновый recoverMoves их не трогает.
+     */
+    private final Set<Long> activeMoves = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public ShardedNoteStore(NoteStorageProperties properties, DataSourceProperties dataSourceProperties,
+                            NoteContentCodec contentCodec) {
+        this(dataSources(properties.getSharded(), dataSourceProperties), properties.getSharded(), contentCodec);
+    }
+
+    ShardedNoteStore(List<? extends DataSource> dataSources, NoteStorageProperties.Sharded properties,
+                     NoteContentCodec contentCodec) {
+        if (dataSources.isEmpty() || dataSources.size() > NoteShard.MAX_SHARDS) {
+            throw new IllegalStateException("Для движка sharded нужно от 1 до " + NoteShard.MAX_SHARDS
+                    + " адресов в notes.storage.sharded.urls");
+        }
+        this.shards = IntStream.range(0, dataSources.size())
+                .mapToObj(i -> new NoteShard(i, dataSources.get(i), contentCodec))
+                .toList();
+        this.ring = new ShardRing(shards.size(), properties.getVirtualNodes());
+        this.contentCodec = contentCodec;
+        for (int i = 0; i < titleLocks.length; i++) {
+            titleLocks[i] = new ReentrantLock();
+        }
+        AtomicInteger threads = new AtomicInteger();
+        this.queryExecutor = Executors.newFixedThreadPool(Math.max(1, properties.getQueryThreads()), runnable -> {
+            Thread thread = new Thread(runnable, "notes-shard-query-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        shards.forEach(NoteShard::createSchema);
+        recoverMoves();
+        rebalance();
+        long interval = properties.getMoveRecoveryInterval().toMillis();
+        this.moveRecovery = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "notes-shard-move-recovery");
+            thread.setDaemon(true);
+            return thread;
+        });
+        moveRecovery.scheduleWithFixedDelay(this::recoverMovesQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Optional<Note> findByTitle(String title) {
+        return shardFor(title).execute("find note", connection ->
+                first(queryNotes(connection, SELECT_NOTES + " WHERE TITLE = ?", title)));
+    }
+
+    @Override
+    public Optional<NoteVersion> findVersionByTitle(String title) {
+        return shardFor(title).execute("find note version", connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("SELECT ID, VERSION FROM NOTES WHERE TITLE = ?")) {
+                statement.setString(1, title);
+                try (ResultSet rows = statement.executeQuery()) {
+                    return rows.next() ? Optional.of(new NoteVersion(rows.getLong(1), rows.getLong(2))) : Optional.empty();
+                }
+            }
+        });
+    }
+
+    @Override
+    public boolean existsByTitle(String title) {
+        return findVersionByTitle(title).isPresent();
+    }
+
+    @Override
+    public List<Note> findByTitleIn(Collection<String> titles) {
+        Map<NoteShard, List<String>> byShard = new LinkedHashMap<>();
+        for (String title : titles) {
+            byShard.computeIfAbsent(shardFor(title), shard -> new ArrayList<>()).add(title);
+        }
+        return flatten(scatter(byShard.keySet(), shard -> shard.execute("find notes", connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(SELECT_NOTES + " WHERE TITLE = ANY(?)")) {
+                statement.setArray(1, connection.createArrayOf("VARCHAR", byShard.get(shard).toArray()));
+                return NoteShard.notes(statement, contentCodec);
+            }
+        })));
+    }
+
+    @Override
+    public List<String> findAllTitles() {
+        return flatten(scatter(shards, shard -> shard.execute("find titles", connection -> {
+            List<String> titles = new ArrayList<>();
+            try (PreparedStatement statement = connection.prepareStatement("SELECT TITLE FROM NOTES" + NoteShard.NOT_MOVING);
+                 ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    titles.add(rows.getString(1));
+                }
+            }
+            return titles;
+        })));
+    }
+
+    @Override
+    public Optional<Note> findLatest() {
+        return first(findFirstPage(1));
+    }
+
+    @Override
+    public List<Note> findAll() {
+        return findFirstPage(Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Note> findFirstPage(int limit) {
+        return merge(scatter(shards, shard -> shard.execute("find page", connection ->
+                queryNotes(connection, SELECT_NOTES + NoteShard.NOT_MOVING + NoteShard.MOST_RECENT_FIRST + limit(limit)))),
+                NOTE_ORDER, limit);
+    }
+
+    @Override
+    public List<Note> findPageAfter(LocalDateTime updatedAt, long id, int limit) {
+        return merge(scatter(shards, shard -> shard.execute("find page", connection ->
+                queryNotes(connection, SELECT_NOTES + NoteShard.NOT_MOVING + NoteShard.AFTER_CURSOR
+                        + NoteShard.MOST_RECENT_FIRST + limit(limit), updatedAt, updatedAt, id))), NOTE_ORDER, limit);
+    }
+
+    @Override
+    public List<NoteSummary> findAllSummaries(int previewLength) {
+        return findFirstSummaryPage(previewLength, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<NoteSummary> findFirstSummaryPage(int previewLength, int limit) {
+        return merge(scatter(shards, shard -> shard.execute("find summaries", connection ->
+                querySummaries(connection, NoteShard.SUMMARY_SELECT + NoteShard.NOT_MOVING + NoteShard.MOST_RECENT_FIRST
+                        + limit(limit), previewLength, previewLength))), SUMMARY_ORDER, limit);
+    }
+
+    @Override
+    public List<NoteSummary> findSummaryPageAfter(LocalDateTime updatedAt, long id, int previewLength, int limit) {
+        return merge(scatter(shards, shard -> shard.execute("find summaries", connection ->
+                querySummaries(connection, NoteShard.SUMMARY_SELECT + NoteShard.NOT_MOVING + NoteShard.AFTER_CURSOR
+                                + NoteShard.MOST_RECENT_FIRST + limit(limit),
+                        previewLength, previewLength, updatedAt, updatedAt, id))), SUMMARY_ORDER, limit);
+    }
+
+    /**
+     * Слияние курсоров всех шардов: в памяти держится по одной заметке на шард, пока каждый
+     * курсор держит своё соединение.
+     */
+    @Override
+    public Stream<Note> streamAll() {
+        List<NoteShard.Cursor> cursors = new ArrayList<>(shards.size());
+        PriorityQueue<NoteShard.Cursor> heads = new PriorityQueue<>(Comparator.comparing(NoteShard.Cursor::current, NOTE_ORDER));
+        try {
+            for (NoteShard shard : shards) {
+                NoteShard.Cursor cursor = shard.cursor(SELECT_NOTES + NoteShard.NOT_MOVING + NoteShard.MOST_RECENT_FIRST);
+                cursors.add(cursor);
+                if (cursor.advance()) {
+                    heads.add(cursor);
+                }
+            }
+        } catch (RuntimeException e) {
+            cursors.forEach(NoteShard.Cursor::close);
+            throw e;
+        }
+        Iterator<Note> merged = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public Note next() {
+                NoteShard.Cursor head = heads.poll();
+                if (head == null) {
+                    throw new NoSuchElementException();
+                }
+                Note note = head.current();
+                if (head.advance()) {
+                    heads.add(head);
+                }
+                return note;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(merged, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> cursors.forEach(NoteShard.Cursor::close));
+    }
+
+    @Override
+    public Note create(Note note) {
+        LocalDateTime now = now();
+        long id = shardFor(note.getTitle()).execute("create note", connection ->
+                insert(connection, null, note.getTitle(), note.getText(), now, now, 0));
+        fill(note, id, 0, now, now);
+        return note;
+    }
+
+    @Override
+    public Optional<Note> updateByTitle(String oldTitle, String newTitle, String newText, NoteVersion expectedVersion) {
+        return update(oldTitle, newTitle, newText, expectedVersion, false);
+    }
+
+    @Override
+    public Optional<Note> patchByTitle(String oldTitle, String newTitle, String newText, NoteVersion expectedVersion) {
+        return update(oldTitle, newTitle, newText, expectedVersion, true);
+    }
+
+    @Override
+    public OptionalLong deleteByTitle(String title) {
+        return locked(title, title, () -> shardFor(title).execute("delete note", connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT ID FROM OLD TABLE (DELETE FROM NOTES WHERE TITLE = ?)")) {
+                statement.setString(1, title);
+                try (ResultSet rows = statement.executeQuery()) {
+                    return rows.next() ? OptionalLong.of(rows.getLong(1)) : OptionalLong.empty();
+                }
+            }
+        }));
+    }
+
+    /**
+     * Изменения выполняются в одной транзакции на каждом затронутом шарде. Транзакции
+     * коммитятся по очереди только после того, как все изменения прошли, поэтому нарушение
+     * уникальности откатывает батч целиком.
+     * <p>
+     * Переименование на другой шард идёт тем же протоколом, что и move: намерение в NOTE_MOVES
+     * записывается на исходном шарде сразу, вставка на целевом шарде входит в транзакцию батча,
+     * а исходная строка удаляется вместе с намерением после коммитов (settleMoves). Сбой посреди
+     * коммитов не теряет заметку: она остаётся на исходном шарде или уже есть на целевом, и
+     * settleMoves или recoverMoves доводят переезд. JDBC-батчи не используются, batchSize здесь
+     * не важен.
+     */
+    @Override
+    public void writeBatch(List<NoteWrite> writes, int batchSize) {
+        Map<NoteShard, Connection> transactions = new LinkedHashMap<>();
+        Function<NoteShard, Connection> transaction =
+                shard -> transactions.computeIfAbsent(shard, key -> key.begin("write batch"));
+        Map<Long, BatchMove> moves = new LinkedHashMap<>();
+        NoteShard current = null;
+        try {
+            try {
+                LocalDateTime now = now();
+                for (NoteWrite write : writes) {
+                    Note note = write.note();
+                    switch (write.kind()) {
+                        case CREATE, RESTORE -> {
+                            current = shardFor(write.title());
+                            LocalDateTime createdAt = write.kind() == NoteWrite.Kind.RESTORE ? note.getCreatedAt() : now;
+                            LocalDateTime updatedAt = write.kind() == NoteWrite.Kind.RESTORE ? note.getUpdatedAt() : now;
+                            releaseTitle(transaction, moves, current, write.title());
+                            long id = insert(transaction.apply(current), null, write.title(), write.text(), createdAt, updatedAt, 0);
+                            fill(note, id, 0, createdAt, updatedAt);
+                        }
+                        case UPDATE -> {
+                            current = shardFor(write.previousTitle());
+                            NoteShard target = shardFor(write.title());
+                            Note existing = lockById(transaction.apply(current), note.getId())
+                                    .orElseThrow(() -> notFound(write.previousTitle()));
+                            if (current == target) {
+                                releaseTitle(transaction, moves, current, write.title());
+                                updateById(transaction.apply(current), note.getId(), write.title(), write.text(), now);
+                            } else {
+                                moveInBatch(transaction, moves, current, target, existing, write.title(), write.text(), now);
+                                current = target;
+                            }
+                            fill(note, note.getId(), existing.getVersion() + 1, existing.getCreatedAt(), now);
+                        }
+                        case DELETE -> {
+                            current = shardFor(write.title());
+                            if (!deleteById(transaction.apply(current), note.getId())) {
+                                throw notFound(write.title());
+                            }
+                            BatchMove move = moves.get(note.getId());
+                            if (move != null && move.target != move.source) {
+                                deleteById(transaction.apply(move.source), move.id);
+                                move.target = move.source;
+                            }
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                transactions.forEach((shard, connection) -> shard.rollback(connection));
+                settleMoves(moves);
+                throw current.translate("write batch", e);
+            } catch (RuntimeException e) {
+                transactions.forEach((shard, connection) -> shard.rollback(connection));
+                settleMoves(moves);
+                throw e;
+            }
+            try {
+                commitAll(targetsFirst(transactions, moves));
+            } finally {
+                settleMoves(moves);
+            }
+        } finally {
+            moves.keySet().forEach(activeMoves::remove);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        moveRecovery.shutdownNow();
+        queryExecutor.shutdownNow();
+        for (NoteShard shard : shards) {
+            if (shard.dataSource() instanceof HikariDataSource dataSource) {
+                dataSource.close();
+            }
+        }
+    }
+
+    int shardIndexFor(String title) {
+        return shardFor(title).index();
+    }
+
+    private NoteShard shardFor(String title) {
+        return shards.get(ring.shardFor(title));
+    }
+
+    private Optional<Note> update(String oldTitle, String newTitle, String newText, NoteVersion expectedVersion,
+                                  boolean partial) {
+        String title = partial && newTitle == null ? oldTitle : newTitle;
+        boolean keepText = partial && newText == null;
+        NoteShard source = shardFor(oldTitle);
+        NoteShard target = shardFor(title);
+        return locked(oldTitle, title, () -> source == target
+                ? source.execute("update note", connection ->
+                        updateInPlace(connection, oldTitle, title, newText, keepText, expectedVersion))
+                : move(source, target, oldTitle, title, newText, keepText, expectedVersion));
+    }
+
+    private Optional<Note> updateInPlace(Connection connection, String oldTitle, String title, String text,
+                                         boolean keepText, NoteVersion expectedVersion) throws SQLException {
+        String sql = "SELECT " + NoteShard.NOTE_COLUMNS + " FROM FINAL TABLE (UPDATE NOTES SET TITLE = ?, TITLE_NORMALIZED = ?, "
+                + (keepText ? "" : "CONTENT = ?, ")
+                + "UPDATED_AT = ?, VERSION = VERSION + 1 WHERE TITLE = ?"
+                + " AND (CAST(? AS BIGINT) IS NULL OR (ID = ? AND VERSION = ?)))";
+        List<Object> params = new ArrayList<>(List.of(title, Note.normalizeTitle(title)));
+        if (!keepText) {
+            params.add(contentCodec.encode(text));
+        }
+        Long expectedId = expectedVersion == null ? null : expectedVersion.id();
+        Long expected = expectedVersion == null ? null : expectedVersion.version();
+        params.addAll(Arrays.asList(now(), oldTitle, expectedId, expectedId, expected));
+        return first(queryNotes(connection, sql, params.toArray()));
+    }
+
+    /**
+     * Переименование с переездом на другой шард. Распределённой транзакции нет (H2 не
+     * доводит подготовленные транзакции до конца после перезапуска), поэтому переезд
+     * идёт тремя локальными транзакциями:
+     * <ol>
+     *     <li>на исходном шарде строка блокируется, сверяется версия и записывается
+     *     намерение в NOTE_MOVES;</li>
+     *     <li>на целевом шарде вставляется заметка с тем же id под новым названием;
+     *     если название занято, намерение снимается и заметка остаётся как была;</li>
+     *     <li>на исходном шарде удаляются строка и намерение.</li>
+     * </ol>
+     * Прерванный переезд доводит recoverMoves при старте и затем по расписанию: по наличию
+     * id на целевом шарде он либо завершает шаг 3, либо снимает намерение. Пока намерение
+     * висит, исходная строка не попадает в списки, а запись по обоим названиям ждёт titleLocks.
+     */
+    private Optional<Note> move(NoteShard source, NoteShard target, String oldTitle, String title, String text,
+                                boolean keepText, NoteVersion expectedVersion) {
+        return startMove(source, target, oldTitle, expectedVersion).map(note -> {
+            Note moved = new Note(title, keepText ? note.getText() : text);
+            fill(moved, note.getId(), note.getVersion() + 1, note.getCreatedAt(), now());
+            finishMove(source, target, moved);
+            return moved;
+        });
+    }
+
+    /**
+     * Шаг 1 переезда. Если заметка найдена, её id остаётся в activeMoves до конца finishMove.
+     */
+    private Optional<Note> startMove(NoteShard source, NoteShard target, String title, NoteVersion expectedVersion) {
+        Set<Long> started = new HashSet<>(1);
+        try {
+            return source.inTransaction("start note move", connection -> {
+                Optional<Note> note = first(queryNotes(connection, SELECT_NOTES + " WHERE TITLE = ? FOR UPDATE", title))
+                        .filter(found -> expectedVersion == null
+                                || (expectedVersion.id() == found.getId() && expectedVersion.version() == found.getVersion()));
+                if (note.isPresent()) {
+                    started.add(note.get().getId());
+                    activeMoves.add(note.get().getId());
+                    insertMove(connection, note.get().getId(), target.index());
+                }
+                return note;
+            });
+        } catch (RuntimeException e) {
+            activeMoves.removeAll(started);
+            throw e;
+        }
+    }
+
+    /**
+     * Шаги 2 и 3 переезда. Сбой шага 3 заметку уже не теряет: она на целевом шарде,
+     * а строку и намерение на исходном удалит recoverMoves.
+     */
+    private void finishMove(NoteShard source, NoteShard target, Note moved) {
+        long id = moved.getId();
+        try {
+            try {
+                target.execute("move note", connection -> insert(connection, id, moved.getTitle(), moved.getText(),
+                        moved.getCreatedAt(), moved.getUpdatedAt(), moved.getVersion()));
+            } catch (RuntimeException e) {
+                source.execute("abort note move", connection -> deleteMove(connection, id));
+                throw e;
+            }
+            try {
+                source.inTransaction("finish note move", connection -> {
+                    deleteById(connection, id);
+                    return deleteMove(connection, id);
+                });
+            } catch (RuntimeException e) {
+                log.warn("Note {} was moved to shard {}, leaving its source row on shard {} to recovery: {}",
+                        id, target.index(), source.index(), e.getMessage());
+            }
+        } finally {
+            activeMoves.remove(id);
+        }
+    }
+
+    /**
+     * Переезд внутри writeBatch. Намерение коммитится на исходном шарде сразу, до изменений
+     * батча; если заметка за батч переезжает ещё раз, намерение перенаправляется, а её
+     * незакоммиченная копия на промежуточном шарде удаляется в транзакции этого шарда.
+     * Возврат на исходный шард заменяет там строку в транзакции батча, и переезд
+     * превращается в снятие намерения.
+     */
+    private void moveInBatch(Function<NoteShard, Connection> transaction, Map<Long, BatchMove> moves,
+                             NoteShard current, NoteShard target, Note existing, String title, String text,
+                             LocalDateTime now) throws SQLException {
+        long id = existing.getId();
+        BatchMove move = moves.get(id);
+        if (move == null) {
+            move = new BatchMove(current, id);
+            moves.put(id, move);
+            activeMoves.add(id);
+        } else if (current != move.source) {
+            deleteById(transaction.apply(current), id);
+        }
+        if (current == move.source) {
+            move.sourceTitle = existing.getTitle();
+        }
+        releaseTitle(transaction, moves, target, title);
+        if (target == move.source) {
+            deleteById(transaction.apply(target), id);
+            move.sourceDeleted = false;
+        } else if (move.intentTarget != target) {
+            boolean started = move.intentTarget != null;
+            move.source.execute(started ? "redirect note move" : "start note move", connection -> {
+                if (started) {
+                    deleteMove(connection, id);
+                }
+                insertMove(connection, id, target.index());
+                return null;
+            });
+            move.intentTarget = target;
+        }
+        insert(transaction.apply(target), id, title, text, existing.getCreatedAt(), now, existing.getVersion() + 1);
+        move.target = target;
+    }
+
+    /**
+     * Строка, которая уезжает с шарда в этом батче, держит своё название до конца переезда.
+     * Если батч занимает это название на том же шарде, строка удаляется в транзакции батча;
+     * чтобы сбой коммитов не потерял такую заметку, targetsFirst коммитит целевые шарды раньше.
+     */
+    private static void releaseTitle(Function<NoteShard, Connection> transaction, Map<Long, BatchMove> moves,
+                                     NoteShard shard, String title) throws SQLException {
+        for (BatchMove move : moves.values()) {
+            if (move.source == shard && move.target != shard && !move.sourceDeleted && move.sourceTitle.equals(title)) {
+                deleteById(transaction.apply(shard), move.id);
+                move.sourceDeleted = true;
+            }
+        }
+    }
+
+    private static Map<NoteShard, Connection> targetsFirst(Map<NoteShard, Connection> transactions,
+                                                           Map<Long, BatchMove> moves) {
+        Map<NoteShard, Connection> ordered = new LinkedHashMap<>();
+        for (BatchMove move : moves.values()) {
+            if (move.target != move.source && transactions.containsKey(move.target)) {
+                ordered.put(move.target, transactions.get(move.target));
+            }
+        }
+        ordered.putAll(transactions);
+        return ordered;
+    }
+
+    /**
+     * Доводит переезды батча после коммитов или отката так же, как recoverMoves. Что не
+     * удалось довести, остаётся фоновому recoverMoves.
+     */
+    private void settleMoves(Map<Long, BatchMove> moves) {
+        for (BatchMove move : moves.values()) {
+            try {
+                if (move.target == move.source) {
+                    move.source.execute("abort note move", connection -> deleteMove(connection, move.id));
+                } else {
+                    recoverMove(move.source, move.id, move.target.index());
+                }
+            } catch (RuntimeException e) {
+                log.warn("Leaving move of note {} from shard {} to recovery: {}", move.id, move.source.index(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Доводит переезды, намерения которых остались в NOTE_MOVES после сбоя: при старте и
+     * затем раз в notes.storage.sharded.move-recovery-interval. Переезды, которые сейчас
+     * идут в этом процессе, пропускаются.
+     */
+    void recoverMoves() {
+        for (NoteShard source : shards) {
+            Map<Long, Integer> moves = source.execute("find note moves", connection -> {
+                Map<Long, Integer> found = new LinkedHashMap<>();
+                try (PreparedStatement statement = connection.prepareStatement("SELECT NOTE_ID, TARGET_SHARD FROM NOTE_MOVES");
+                     ResultSet rows = statement.executeQuery()) {
+                    while (rows.next()) {
+                        found.put(rows.getLong(1), rows.getInt(2));
+                    }
+                }
+                return found;
+            });
+            moves.forEach((id, targetIndex) -> {
+                if (!activeMoves.contains(id)) {
+                    boolean arrived = recoverMove(source, id, targetIndex);
+                    log.warn("{} interrupted move of note {} from shard {} to shard {}",
+                            arrived ? "Completed" : "Rolled back", id, source.index(), targetIndex);
+                }
+            });
+        }
+    }
+
+    private void recoverMovesQuietly() {
+        try {
+            recoverMoves();
+        } catch (Exception e) {
+            log.warn("Note move recovery failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Завершает переезд, если заметка уже есть на целевом шарде, и снимает намерение иначе.
+     */
+    private boolean recoverMove(NoteShard source, long id, int targetIndex) {
+        boolean arrived = targetIndex < shards.size() && shards.get(targetIndex).execute("find moved note",
+                connection -> lockById(connection, id).isPresent());
+        source.inTransaction("recover note move", connection -> {
+            if (arrived) {
+                deleteById(connection, id);
+            }
+            return deleteMove(connection, id);
+        });
+        return arrived;
+    }
+
+    /**
+     * Переносит тем же протоколом, что и move, заметки, которые лежат не на своём по кольцу
+     * шарде: после добавления шарда к нему переезжает примерно 1/N названий. Версия и время
+     * изменения сохраняются. Без этого такие заметки не находились бы по названию.
+     */
+    private void rebalance() {
+        for (NoteShard source : shards) {
+            List<String> misplaced = source.execute("find misplaced notes", connection -> {
+                List<String> titles = new ArrayList<>();
+                try (PreparedStatement statement = connection.prepareStatement("SELECT TITLE FROM NOTES");
+                     ResultSet rows = statement.executeQuery()) {
+                    while (rows.next()) {
+                        if (ring.shardFor(rows.getString(1)) != source.index()) {
+                            titles.add(rows.getString(1));
+                        }
+                    }
+                }
+                return titles;
+            });
+            for (String title : misplaced) {
+                NoteShard target = shardFor(title);
+                locked(title, title, () -> startMove(source, target, title, null).map(note -> {
+                    finishMove(source, target, note);
+                    return note;
+                }));
+            }
+            if (!misplaced.isEmpty()) {
+                log.info("Moved {} notes from shard {} to the shards the ring assigns them to", misplaced.size(), source.index());
+            }
+        }
+    }
+
+    private long insert(Connection connection, Long id, String title, String text, LocalDateTime createdAt,
+                        LocalDateTime updatedAt, long version) throws SQLException {
+        if (title == null || title.length() > 40) {
+            throw new DataIntegrityViolationException("Недопустимое название заметки: " + title);
+        }
+        String sql = "SELECT ID FROM FINAL TABLE (INSERT INTO NOTES"
+                + " (ID, TITLE, TITLE_NORMALIZED, CREATED_AT, UPDATED_AT, CONTENT, VERSION) VALUES ("
+                + (id == null ? "NEXT VALUE FOR NOTES_SEQ" : "?") + ", ?, ?, ?, ?, ?, ?))";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            int i = 1;
+            if (id != null) {
+                statement.setLong(i++, id);
+            }
+            statement.setString(i++, title);
+            statement.setString(i++, Note.normalizeTitle(title));
+            statement.setObject(i++, createdAt);
+            statement.setObject(i++, updatedAt);
+            statement.setString(i++, contentCodec.encode(text));
+            statement.setLong(i, version);
+            try (ResultSet rows = statement.executeQuery()) {
+                rows.next();
+                return rows.getLong(1);
+            }
+        }
+    }
+
+    private void updateById(Connection connection, long id, String title, String text, LocalDateTime updatedAt)
+            throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "UPDATE NOTES SET TITLE = ?, TITLE_NORMALIZED = ?, CONTENT = ?, UPDATED_AT = ?, VERSION = VERSION + 1 WHERE ID = ?")) {
+            statement.setString(1, title);
+            statement.setString(2, Note.normalizeTitle(title));
+            statement.setString(3, contentCodec.encode(text));
+            statement.setObject(4, updatedAt);
+            statement.setLong(5, id);
+            statement.executeUpdate();
+        }
+    }
+
+    private Optional<Note> lockById(Connection connection, long id) throws SQLException {
+        return first(queryNotes(connection, SELECT_NOTES + " WHERE ID = ? FOR UPDATE", id));
+    }
+
+    private static boolean deleteById(Connection connection, long id) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("DELETE FROM NOTES WHERE ID = ?")) {
+            statement.setLong(1, id);
+            return statement.executeUpdate() > 0;
+        }
+    }
+
+    private static void insertMove(Connection connection, long id, int targetIndex) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO NOTE_MOVES (NOTE_ID, TARGET_SHARD) VALUES (?, ?)")) {
+            statement.setLong(1, id);
+            statement.setInt(2, targetIndex);
+            statement.executeUpdate();
+        }
+    }
+
+    private static boolean deleteMove(Connection connection, long id) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("DELETE FROM NOTE_MOVES WHERE NOTE_ID = ?")) {
+            statement.setLong(1, id);
+            return statement.executeUpdate() > 0;
+        }
+    }
+
+    private List<Note> queryNotes(Connection connection, String sql, Object... params) throws SQLException {
+        try (PreparedStatement statement = prepare(connection, sql, params)) {
+            return NoteShard.notes(statement, contentCodec);
+        }
+    }
+
+    private static List<NoteSummary> querySummaries(Connection connection, String sql, Object... params) throws SQLException {
+        try (PreparedStatement statement = prepare(connection, sql, params)) {
+            return NoteShard.summaries(statement);
+        }
+    }
+
+    private static PreparedStatement prepare(Connection connection, String sql, Object... params) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(sql);
+        for (int i = 0; i < params.length; i++) {
+            statement.setObject(i + 1, params[i]);
+        }
+        return statement;
+    }
+
+    private void commitAll(Map<NoteShard, Connection> transactions) {
+        List<Map.Entry<NoteShard, Connection>> pending = new ArrayList<>(transactions.entrySet());
+        for (int i = 0; i < pending.size(); i++) {
+            try {
+                pending.get(i).getKey().commit("write batch", pending.get(i).getValue());
+            } catch (RuntimeException e) {
+                for (Map.Entry<NoteShard, Connection> rest : pending.subList(i + 1, pending.size())) {
+                    rest.getKey().rollback(rest.getValue());
+                }
+                if (i > 0) {
+                    log.error("Note batch was committed on {} of {} shards", i, pending.size());
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Опрашивает шарды параллельно; результаты идут в порядке шардов.
+     */
+    private <T> List<T> scatter(Collection<NoteShard> targets, Function<NoteShard, T> query) {
+        if (targets.size() == 1) {
+            return List.of(query.apply(targets.iterator().next()));
+        }
+        List<CompletableFuture<T>> futures = targets.stream()
+                .map(shard -> CompletableFuture.supplyAsync(() -> query.apply(shard), queryExecutor))
+                .toList();
+        List<T> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<T> future : futures) {
+            try {
+                results.add(future.join());
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Слияние упорядоченных ответов шардов с отсечением по limit.
+     */
+    private static <T> List<T> merge(List<List<T>> parts, Comparator<? super T> order, int limit) {
+        int total = parts.stream().mapToInt(List::size).sum();
+        List<T> merged = new ArrayList<>(Math.min(total, limit));
+        int[] positions = new int[parts.size()];
+        while (merged.size() < limit) {
+            int best = -1;
+            for (int i = 0; i < parts.size(); i++) {
+                if (positions[i] < parts.get(i).size() && (best < 0
+                        || order.compare(parts.get(i).get(positions[i]), parts.get(best).get(positions[best])) < 0)) {
+                    best = i;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            merged.add(parts.get(best).get(positions[best]++));
+        }
+        return merged;
+    }
+
+    private <T> T locked(String first, String second, Supplier<T> action) {
+        ReentrantLock low = titleLocks[Math.min(stripe(first), stripe(second))];
+        ReentrantLock high = titleLocks[Math.max(stripe(first), stripe(second))];
+        low.lock();
+        high.lock();
+        try {
+            return action.get();
+        } finally {
+            high.unlock();
+            low.unlock();
+        }
+    }
+
+    private static int stripe(String title) {
+        return Math.floorMod(title.hashCode(), TITLE_LOCK_STRIPES);
+    }
+
+    private static <T> List<T> flatten(List<List<T>> parts) {
+        return parts.stream().flatMap(List::stream).collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    private static <T> Optional<T> first(List<T> values) {
+        return values.isEmpty() ? Optional.empty() : Optional.of(values.get(0));
+    }
+
+    private static String limit(int limit) {
+        return limit == Integer.MAX_VALUE ? "" : " LIMIT " + limit;
+    }
+
+    /**
+     * Переезд заметки внутри одного writeBatch: исходный шард, где лежит закоммиченная
+     * строка, и шард, где заметка оказалась к концу батча. target == source значит, что
+     * заметка вернулась или удалена и остаётся только снять намерение.
+     */
+    private static final class BatchMove {
+
+        private final NoteShard source;
+        private final long id;
+        private String sourceTitle;
+        private NoteShard target;
+        private NoteShard intentTarget;
+        private boolean sourceDeleted;
+
+        private BatchMove(NoteShard source, long id) {
+            this.source = source;
+            this.id = id;
+            this.target = source;
+        }
+    }
+
+    private static DataIntegrityViolationException notFound(String title) {
+        return new DataIntegrityViolationException("Заметка с названием " + title + " не найдена.");
+    }
+
+    private static void fill(Note note, long id, long version, LocalDateTime createdAt, LocalDateTime updatedAt) {
+        note.setId(id);
+        note.setVersion(version);
+        note.setCreatedAt(createdAt);
+        note.setUpdatedAt(updatedAt);
+    }
+
+    private static LocalDateTime now() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+    }
+
+    private static List<HikariDataSource> dataSources(NoteStorageProperties.Sharded properties,
+                                                      DataSourceProperties dataSourceProperties) {
+        List<String> urls = properties.getUrls();
+        return IntStream.range(0, urls.size())
+                .mapToObj(i -> {
+                    HikariDataSource shard = new HikariDataSource();
+                    shard.setPoolName("notes-shard-" + i);
+                    shard.setJdbcUrl(urls.get(i));
+                    shard.setUsername(dataSourceProperties.determineUsername());
+                    shard.setPassword(dataSourceProperties.determinePassword());
+                    shard.setDriverClassName(dataSourceProperties.determineDriverClassName());
+                    shard.setMaximumPoolSize(properties.getPoolSize());
+                    shard.setConnectionTimeout(properties.getConnectionTimeout().toMillis());
+                    return shard;
+                })
+                .toList();
+    }
+}
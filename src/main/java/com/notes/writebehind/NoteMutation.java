@@ -0,0 +1,134 @@
+package com.notes.writebehind;
+
+import com.notes.dto.NoteVersion;
+import com.notes.model.Note;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Изменение в очереди отложенной записи. Пока писатель не забрал изменение из очереди,
+ * к нему можно присоединить следующие правки текста той же заметки — в базу уйдёт одна запись,
+ * а все присоединённые запросы получат её результат.
+ */
+final class NoteMutation {
+
+    enum Kind {
+        CREATE, EDIT, PATCH, DELETE
+    }
+
+    private final Kind kind;
+    private final String title;
+    private final String newTitle;
+    private final NoteVersion expectedVersion;
+    private final CompletableFuture<Note> ack = new CompletableFuture<>();
+    private final List<CompletableFuture<Note>> acks = new ArrayList<>(1);
+    private String text;
+    private boolean taken;
+
+    private NoteMutation(Kind kind, String title, String newTitle, String text, NoteVersion expectedVersion) {
+        this.kind = kind;
+        this.title = title;
+        this.newTitle = newTitle;
+        this.text = text;
+        this.expectedVersion = expectedVersion;
+        this.acks.add(ack);
+    }
+
+    static NoteMutation create(String title, String text) {
+        return new NoteMutation(Kind.CREATE, title, null, text, null);
+    }
+
+    static NoteMutation edit(String oldTitle, String newTitle, String newText, NoteVersion expectedVersion) {
+        return new NoteMutation(Kind.EDIT, oldTitle, newTitle, newText, expectedVersion);
+    }
+
+    static NoteMutation patch(String oldTitle, String newTitle, String newText, NoteVersion expectedVersion) {
+        return new NoteMutation(Kind.PATCH, oldTitle, newTitle, newText, expectedVersion);
+    }
+
+    static NoteMutation delete(String title) {
+        return new NoteMutation(Kind.DELETE, title, null, null, null);
+    }
+
+    /**
+     * Копия без ожидаемой версии: в режиме ENQUEUE версия проверяется при постановке в очередь.
+     */
+    NoteMutation unconditional() {
+        return new NoteMutation(kind, title, newTitle, text, null);
+    }
+
+    Kind kind() {
+        return kind;
+    }
+
+    String title() {
+        return title;
+    }
+
+    NoteVersion expectedVersion() {
+        return expectedVersion;
+    }
+
+    synchronized String text() {
+        return text;
+    }
+
+    CompletableFuture<Note> ack() {
+        return ack;
+    }
+
+    /**
+     * Название заметки после изменения; null для удаления и для PUT без названия.
+     */
+    String resultTitle() {
+        return switch (kind) {
+            case CREATE -> title;
+            case EDIT -> newTitle;
+            case PATCH -> newTitle == null ? title : newTitle;
+            case DELETE -> null;
+        };
+    }
+
+    boolean renames() {
+        return kind != Kind.CREATE && !title.equals(resultTitle());
+    }
+
+    /**
+     * Присоединяет следующую правку той же заметки, если это изменение ещё в очереди.
+     * Без предварительной проверки (режим COMMIT) объединяются только безусловные правки
+     * текста: иначе отказ одной из них стал бы отказом для другой.
+     */
+    synchronized boolean absorb(NoteMutation next, boolean validated) {
+        if (taken || kind == Kind.DELETE || !next.isTextEdit() || next.expectedVersion != null
+                || !next.title.equals(resultTitle())) {
+            return false;
+        }
+        if (!validated && (!isTextEdit() || expectedVersion != null)) {
+            return false;
+        }
+        text = next.text;
+        acks.add(next.ack);
+        return true;
+    }
+
+    private boolean isTextEdit() {
+        return (kind == Kind.EDIT || kind == Kind.PATCH) && !renames() && text != null;
+    }
+
+    /**
+     * Вызывается писателем при выборке из очереди; после этого присоединять правки нельзя.
+     */
+    synchronized void take() {
+        taken = true;
+    }
+
+    synchronized void complete(Note note) {
+        acks.forEach(waiter -> waiter.complete(note));
+    }
+
+    synchronized void fail(RuntimeException error) {
+        acks.forEach(waiter -> waiter.completeExceptionally(error));
+    }
+}
@@ -0,0 +1,669 @@
+package com.notes.writebehind;
+
+import com.notes.cache.CachingNoteService;
+import com.notes.datasource.PrimaryReads;
+import com.notes.dto.NotePage;
+import com.notes.dto.NoteSummary;
+import com.notes.dto.NoteVersion;
+import com.notes.event.NoteChangedEvent;
+import com.notes.exception.NoteNotFoundException;
+import com.notes.exception.NoteVersionMismatchException;
+import com.notes.exception.WriteQueueFullException;
+import com.notes.model.Note;
+import com.notes.service.NoteService;
+import com.notes.service.NoteServiceImpl;
+import com.notes.storage.NoteContent;
+import com.notes.storage.NoteStore;
+import com.notes.storage.NoteWrite;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Отложенная запись изменений заметок. Запросы кладут изменения в очередь, а один поток-писатель
+ * забирает всё накопившееся (до notes.write-behind.max-group-size) и применяет одной транзакцией
+ * через NoteStore.writeBatch. Правки текста заметки, которая ещё ждёт в очереди, присоединяются
+ * к уже стоящему изменению.
+ * <p>
+ * При ack=COMMIT запрос ждёт коммита своей группы, поведение совпадает с синхронной записью.
+ * При ack=ENQUEUE изменение проверяется по текущему состоянию с учётом очереди, и клиент получает
+ * ожидаемый результат сразу; до коммита чтения по этому названию отдаются из очереди. Созданная
+ * так заметка до коммита имеет id 0, поэтому её ETag не совпадёт с итоговым. Массовые операции
+ * пишут в обход очереди.
+ */
+@Slf4j
+@Service
+@Primary
+@ConditionalOnProperty(prefix = "notes.write-behind", name = "enabled")
+public class WriteBehindNoteService implements NoteService, DisposableBean {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private final NoteService delegate;
+    private final NoteStore noteStore;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean ackOnEnqueue;
+    private final int queueCapacity;
+    private final int maxGroupSize;
+    private final long enqueueTimeoutNanos;
+
+    private final Queue<NoteMutation> queue = new ConcurrentLinkedQueue<>();
+    private final Semaphore slots;
+    private final Map<String, NoteMutation> lastByTitle = new ConcurrentHashMap<>();
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock submitLock = new ReentrantLock();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    private final Counter rejected;
+    private final Counter coalesced;
+    private final Counter failed;
+    private final DistributionSummary groupSize;
+
+    @Autowired
+    public WriteBehindNoteService(NoteServiceImpl noteService, ObjectProvider<CachingNoteService> cachingNoteService,
+                                  NoteStore noteStore, ApplicationEventPublisher eventPublisher,
+                                  PlatformTransactionManager transactionManager, WriteBehindProperties properties,
+                                  MeterRegistry meterRegistry) {
+        this(backing(noteService, cachingNoteService), noteStore, eventPublisher, transactionManager, properties,
+                meterRegistry);
+    }
+
+    WriteBehindNoteService(NoteService delegate, NoteStore noteStore, ApplicationEventPublisher eventPublisher,
+                           PlatformTransactionManager transactionManager, WriteBehindProperties properties,
+                           MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.noteStore = noteStore;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ackOnEnqueue = properties.getAck() == WriteBehindProperties.Ack.ENQUEUE;
+        this.queueCapacity = properties.getQueueCapacity();
+        this.maxGroupSize = properties.getMaxGroupSize();
+        this.enqueueTimeoutNanos = properties.getEnqueueTimeout().toNanos();
+        this.slots = new Semaphore(queueCapacity);
+
+        this.rejected = Counter.builder("notes.write-behind.rejected")
+                .description("Mutations rejected because the write-behind queue was full")
+                .register(meterRegistry);
+        this.coalesced = Counter.builder("notes.write-behind.coalesced")
+                .description("Mutations merged into a mutation of the same note already in the queue")
+                .register(meterRegistry);
+        this.failed = Counter.builder("notes.write-behind.failed")
+                .description("Mutations acknowledged on enqueue that failed to commit")
+                .register(meterRegistry);
+        this.groupSize = DistributionSummary.builder("notes.write-behind.group.size")
+                .description("Mutations committed in one write-behind transaction")
+                .register(meterRegistry);
+        Gauge.builder("notes.write-behind.queued", this, service -> service.queued())
+                .description("Mutations waiting in the write-behind queue")
+                .register(meterRegistry);
+
+        this.writer = new Thread(this::drainLoop, "notes-write-behind");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Чтения идут через кэш, если он включён.
+     */
+    private static NoteService backing(NoteServiceImpl noteService, ObjectProvider<CachingNoteService> cachingNoteService) {
+        CachingNoteService caching = cachingNoteService.getIfAvailable();
+        return caching != null ? caching : noteService;
+    }
+
+    @Override
+    public Note createNote(String title, String text) {
+        return submit(NoteMutation.create(title, text));
+    }
+
+    @Override
+    public Note editNoteByTitle(String oldTitle, String newTitle, String newText) {
+        return submit(NoteMutation.edit(oldTitle, newTitle, newText, null));
+    }
+
+    @Override
+    public Note editNoteByTitle(String oldTitle, String newTitle, String newText, NoteVersion expectedVersion) {
+        return submit(NoteMutation.edit(oldTitle, newTitle, newText, expectedVersion));
+    }
+
+    @Override
+    public Note patchNoteByTitle(String oldTitle, String newTitle, String newText) {
+        return submit(NoteMutation.patch(oldTitle, newTitle, newText, null));
+    }
+
+    @Override
+    public Note patchNoteByTitle(String oldTitle, String newTitle, String newText, NoteVersion expectedVersion) {
+        return submit(NoteMutation.patch(oldTitle, newTitle, newText, expectedVersion));
+    }
+
+    @Override
+    public void deleteNoteByTitle(String title) {
+        submit(NoteMutation.delete(title));
+    }
+
+    @Override
+    public Note getNoteByTitle(String title) {
+        Pending entry = pending.get(title);
+        if (entry == null) {
+            return delegate.getNoteByTitle(title);
+        }
+        if (entry.note() == null) {
+            throw notFound(title);
+        }
+        return entry.note();
+    }
+
+    @Override
+    public List<Note> getNotesByTitles(List<String> titles) {
+        if (pending.isEmpty()) {
+            return delegate.getNotesByTitles(titles);
+        }
+        Map<String, Pending> queued = new HashMap<>();
+        List<String> committed = new ArrayList<>();
+        for (String title : titles) {
+            Pending entry = pending.get(title);
+            if (entry != null) {
+                queued.put(title, entry);
+            } else {
+                committed.add(title);
+            }
+        }
+        Map<String, Note> notesByTitle = new HashMap<>();
+        delegate.getNotesByTitles(committed).forEach(note -> notesByTitle.put(note.getTitle(), note));
+        List<Note> notes = new ArrayList<>(titles.size());
+        for (String title : titles) {
+            Pending entry = queued.get(title);
+            Note note = entry != null ? entry.note() : notesByTitle.get(title);
+            if (note != null) {
+                notes.add(note);
+            }
+        }
+        return notes;
+    }
+
+    @Override
+    public NoteVersion getNoteVersion(String title) {
+        Pending entry = pending.get(title);
+        if (entry == null) {
+            return delegate.getNoteVersion(title);
+        }
+        if (entry.note() == null) {
+            throw notFound(title);
+        }
+        return NoteVersion.of(entry.note());
+    }
+
+    @Override
+    public NoteContent openNoteContent(String title) {
+        Pending entry = pending.get(title);
+        if (entry == null) {
+            return delegate.openNoteContent(title);
+        }
+        Note note = entry.note();
+        if (note == null) {
+            throw notFound(title);
+        }
+        return NoteContent.of(NoteVersion.of(note),
+                note.getText() == null ? new byte[0] : note.getText().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public Note getLastNote() {
+        return delegate.getLastNote();
+    }
+
+    @Override
+    public List<Note> getAllNotes() {
+        return delegate.getAllNotes();
+    }
+
+    @Override
+    public NotePage<Note> getNotesPage(String next, int limit) {
+        return delegate.getNotesPage(next, limit);
+    }
+
+    @Override
+    public List<NoteSummary> getAllNoteSummaries() {
+        return delegate.getAllNoteSummaries();
+    }
+
+    @Override
+    public NotePage<NoteSummary> getNoteSummariesPage(String next, int limit) {
+        return delegate.getNoteSummariesPage(next, limit);
+    }
+
+    @Override
+    public void forEachNote(Consumer<Note> action) {
+        delegate.forEachNote(action);
+    }
+
+    private Note submit(NoteMutation mutation) {
+        acquireSlot();
+        boolean queued = false;
+        Note accepted = null;
+        try {
+            if (ackOnEnqueue) {
+                submitLock.lock();
+                try {
+                    Note current = validate(mutation);
+                    NoteMutation unconditional = mutation.unconditional();
+                    NoteMutation owner = enqueue(unconditional);
+                    queued = owner == unconditional;
+                    accepted = remember(unconditional, owner, current);
+                } finally {
+                    submitLock.unlock();
+                }
+            } else {
+                queued = enqueue(mutation) == mutation;
+            }
+        } finally {
+            if (!queued) {
+                slots.release();
+            }
+        }
+        if (queued) {
+            LockSupport.unpark(writer);
+        }
+        return ackOnEnqueue ? accepted : await(mutation.ack());
+    }
+
+    /**
+     * Очередь ограничена числом слотов: при переполнении запрос ждёт enqueue-timeout, а затем
+     * получает 503, чтобы очередь не росла быстрее, чем её успевает разбирать писатель.
+     */
+    private void acquireSlot() {
+        if (!running) {
+            throw new IllegalStateException("Очередь отложенной записи остановлена.");
+        }
+        boolean acquired;
+        try {
+            acquired = slots.tryAcquire(enqueueTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            rejected.increment();
+            throw new WriteQueueFullException("Очередь записи заполнена, повторите запрос позже.");
+        }
+    }
+
+    /**
+     * Возвращает изменение, которое запишет mutation: её саму или изменение той же заметки,
+     * ещё ждущее в очереди, если правку удалось к нему присоединить.
+     */
+    private NoteMutation enqueue(NoteMutation mutation) {
+        NoteMutation last = lastByTitle.get(mutation.title());
+        if (last != null && last.absorb(mutation, ackOnEnqueue)) {
+            coalesced.increment();
+            return last;
+        }
+        lastByTitle.put(mutation.title(), mutation);
+        if (mutation.resultTitle() != null) {
+            lastByTitle.put(mutation.resultTitle(), mutation);
+        }
+        queue.add(mutation);
+        return mutation;
+    }
+
+    /**
+     * Проверки режима ENQUEUE: клиент получает ответ до записи, поэтому ошибки, которые
+     * синхронная запись вернула бы в ответе, выявляются здесь по состоянию с учётом очереди.
+     */
+    private Note validate(NoteMutation mutation) {
+        String title = mutation.title();
+        Note current = current(title);
+        switch (mutation.kind()) {
+            case CREATE -> {
+                if (current != null) {
+                    throw conflict(title);
+                }
+            }
+            case EDIT, PATCH -> {
+                if (current == null) {
+                    throw updateNotFound(title);
+                }
+                NoteVersion expected = mutation.expectedVersion();
+                if (expected != null && !expected.equals(NoteVersion.of(current))) {
+                    throw mismatch(title);
+                }
+                String resultTitle = mutation.resultTitle();
+                if (resultTitle == null) {
+                    throw invalidTitle(null);
+                }
+                if (!resultTitle.equals(title) && current(resultTitle) != null) {
+                    throw conflict(resultTitle);
+                }
+            }
+            case DELETE -> {
+                if (current == null) {
+                    throw deleteNotFound(title);
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Проверка опирается на последнее состояние, поэтому читает основную базу, а не реплику.
+     */
+    private Note current(String title) {
+        Pending entry = pending.get(title);
+        if (entry != null) {
+            return entry.note();
+        }
+        try (PrimaryReads.Scope ignored = PrimaryReads.require()) {
+            return delegate.getNoteByTitle(title);
+        } catch (NoteNotFoundException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Запоминает ожидаемое состояние до коммита owner. Присоединённая правка не меняет версию:
+     * owner запишет заметку один раз.
+     */
+    private Note remember(NoteMutation mutation, NoteMutation owner, Note current) {
+        String title = mutation.title();
+        LocalDateTime now = LocalDateTime.now();
+        Note predicted = switch (mutation.kind()) {
+            case CREATE -> predicted(0, 0, title, mutation.text(), now, now);
+            case EDIT, PATCH -> predicted(current.getId(),
+                    owner == mutation ? current.getVersion() + 1 : current.getVersion(), mutation.resultTitle(),
+                    mutation.kind() == NoteMutation.Kind.PATCH && mutation.text() == null ? current.getText() : mutation.text(),
+                    current.getCreatedAt(), now);
+            case DELETE -> null;
+        };
+        if (mutation.kind() == NoteMutation.Kind.DELETE || mutation.renames()) {
+            pending.put(title, new Pending(null, owner));
+        }
+        if (predicted != null) {
+            pending.put(predicted.getTitle(), new Pending(predicted, owner));
+        }
+        return predicted;
+    }
+
+    private static Note predicted(long id, long version, String title, String text, LocalDateTime createdAt,
+                                  LocalDateTime updatedAt) {
+        Note note = new Note(title, text);
+        note.setId(id);
+        note.setVersion(version);
+        note.setCreatedAt(createdAt);
+        note.setUpdatedAt(updatedAt);
+        return note;
+    }
+
+    private void drainLoop() {
+        while (running || !queue.isEmpty()) {
+            List<NoteMutation> group = drain();
+            if (group.isEmpty()) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                continue;
+            }
+            groupSize.record(group.size());
+            apply(group);
+        }
+    }
+
+    private List<NoteMutation> drain() {
+        List<NoteMutation> group = new ArrayList<>();
+        NoteMutation mutation;
+        while (group.size() < maxGroupSize && (mutation = queue.poll()) != null) {
+            mutation.take();
+            lastByTitle.remove(mutation.title(), mutation);
+            if (mutation.resultTitle() != null) {
+                lastByTitle.remove(mutation.resultTitle(), mutation);
+            }
+            slots.release();
+            group.add(mutation);
+        }
+        return group;
+    }
+
+    /**
+     * Группа пишется одной транзакцией; если она не применилась целиком, изменения
+     * повторяются по одному, как порции в NoteBulkService.
+     */
+    private void apply(List<NoteMutation> group) {
+        List<Outcome> outcomes;
+        try {
+            outcomes = transactionTemplate.execute(status -> applyInTransaction(group));
+        } catch (RuntimeException e) {
+            if (group.size() == 1) {
+                finish(group.get(0), Outcome.failed(e));
+                return;
+            }
+            log.warn("Write-behind group of {} mutations failed, retrying one by one: {}", group.size(), e.getMessage());
+            group.forEach(mutation -> apply(List.of(mutation)));
+            return;
+        }
+        for (int i = 0; i < group.size(); i++) {
+            finish(group.get(i), outcomes.get(i));
+        }
+    }
+
+    private List<Outcome> applyInTransaction(List<NoteMutation> group) {
+        Set<String> titles = new HashSet<>();
+        for (NoteMutation mutation : group) {
+            titles.add(mutation.title());
+            if (mutation.resultTitle() != null) {
+                titles.add(mutation.resultTitle());
+            }
+        }
+        Map<String, Note> notesByTitle = new HashMap<>();
+        noteStore.findByTitleIn(titles).forEach(note -> notesByTitle.put(note.getTitle(), note));
+
+        Set<Note> changed = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<NoteWrite> writes = new ArrayList<>(group.size());
+        List<Outcome> outcomes = new ArrayList<>(group.size());
+        for (NoteMutation mutation : group) {
+            try {
+                outcomes.add(Outcome.of(stage(mutation, notesByTitle, changed, writes)));
+            } catch (NoteNotFoundException | NoteVersionMismatchException | DataIntegrityViolationException e) {
+                outcomes.add(Outcome.failed(e));
+            }
+        }
+
+        noteStore.writeBatch(writes, maxGroupSize);
+        return outcomes;
+    }
+
+    /**
+     * Заметка, уже изменённая в этой группе, получит новую версию, поэтому условная правка
+     * после неё считается конфликтом версий.
+     */
+    private Note stage(NoteMutation mutation, Map<String, Note> notesByTitle, Set<Note> changed,
+                       List<NoteWrite> writes) {
+        String title = mutation.title();
+        switch (mutation.kind()) {
+            case CREATE -> {
+                if (notesByTitle.containsKey(title)) {
+                    throw conflict(title);
+                }
+                Note note = new Note(title, mutation.text());
+                writes.add(NoteWrite.create(note));
+                notesByTitle.put(title, note);
+                changed.add(note);
+                eventPublisher.publishEvent(NoteChangedEvent.created(note));
+                return note;
+            }
+            case EDIT, PATCH -> {
+                Note note = notesByTitle.get(title);
+                if (note == null) {
+                    throw updateNotFound(title);
+                }
+                NoteVersion expected = mutation.expectedVersion();
+                if (expected != null && (changed.contains(note) || !expected.equals(NoteVersion.of(note)))) {
+                    throw mismatch(title);
+                }
+                String newTitle = mutation.resultTitle();
+                if (newTitle == null) {
+                    throw invalidTitle(null);
+                }
+                if (!newTitle.equals(title)) {
+                    if (notesByTitle.containsKey(newTitle)) {
+                        throw conflict(newTitle);
+                    }
+                    notesByTitle.remove(title);
+                    note.setTitle(newTitle);
+                    notesByTitle.put(newTitle, note);
+                }
+                if (mutation.kind() == NoteMutation.Kind.EDIT || mutation.text() != null) {
+                    note.setText(mutation.text());
+                }
+                writes.add(NoteWrite.update(title, note));
+                changed.add(note);
+                eventPublisher.publishEvent(NoteChangedEvent.updated(title, note));
+                return note;
+            }
+            case DELETE -> {
+                Note note = notesByTitle.remove(title);
+                if (note == null) {
+                    throw deleteNotFound(title);
+                }
+                writes.add(NoteWrite.delete(note));
+                eventPublisher.publishEvent(NoteChangedEvent.deleted(note.getId(), title));
+                return null;
+            }
+            default -> throw new IllegalStateException("Unexpected mutation: " + mutation.kind());
+        }
+    }
+
+    private void finish(NoteMutation mutation, Outcome outcome) {
+        if (outcome.error() != null) {
+            if (ackOnEnqueue) {
+                failed.increment();
+                log.warn("Acknowledged {} of note {} failed to commit: {}", mutation.kind(), mutation.title(),
+                        outcome.error().getMessage());
+            }
+            mutation.fail(outcome.error());
+        } else {
+            mutation.complete(outcome.note());
+        }
+        if (ackOnEnqueue) {
+            settle(mutation);
+        }
+    }
+
+    /**
+     * Убирает состояние, записанное mutation, из очереди чтений. Под submitLock, чтобы не обогнать
+     * remember для правки, присоединённой к mutation.
+     */
+    private void settle(NoteMutation mutation) {
+        submitLock.lock();
+        try {
+            pending.computeIfPresent(mutation.title(), (title, entry) -> entry.source() == mutation ? null : entry);
+            if (mutation.resultTitle() != null) {
+                pending.computeIfPresent(mutation.resultTitle(), (title, entry) -> entry.source() == mutation ? null : entry);
+            }
+        } finally {
+            submitLock.unlock();
+        }
+    }
+
+    private static Note await(CompletableFuture<Note> ack) {
+        try {
+            return ack.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Ожидание записи прервано.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    int queued() {
+        return queueCapacity - slots.availablePermits();
+    }
+
+    boolean hasPendingWrites() {
+        return !pending.isEmpty() || !queue.isEmpty();
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(SHUTDOWN_TIMEOUT_MILLIS);
+        NoteMutation mutation;
+        while ((mutation = queue.poll()) != null) {
+            mutation.fail(new IllegalStateException("Очередь отложенной записи остановлена."));
+        }
+    }
+
+    private static NoteNotFoundException notFound(String title) {
+        return new NoteNotFoundException("Заметка с названием " + title + " не найдена.");
+    }
+
+    private static NoteNotFoundException updateNotFound(String title) {
+        return new NoteNotFoundException("Заметка с названием " + title + " не найдена");
+    }
+
+    private static NoteNotFoundException deleteNotFound(String title) {
+        return new NoteNotFoundException("Невозможно удалить. Заметка с названием " + title + " не найдена.");
+    }
+
+    private static NoteVersionMismatchException mismatch(String title) {
+        return new NoteVersionMismatchException("Заметка с названием " + title + " была изменена другим запросом.");
+    }
+
+    private static DataIntegrityViolationException conflict(String title) {
+        return new DataIntegrityViolationException("Заметка с названием " + title + " уже существует.");
+    }
+
+    private static DataIntegrityViolationException invalidTitle(String title) {
+        return new DataIntegrityViolationException("Недопустимое название заметки: " + title);
+    }
+
+    private record Pending(Note note, NoteMutation source) {
+    }
+
+    private record Outcome(Note note, RuntimeException error) {
+
+        static Outcome of(Note note) {
+            return new Outcome(note, null);
+        }
+
+        static Outcome failed(RuntimeException error) {
+            return new Outcome(null, error);
+        }
+    }
+}
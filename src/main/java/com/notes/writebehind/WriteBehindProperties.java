@@ -0,0 +1,26 @@
+package com.notes.writebehind;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "notes.write-behind")
+public class WriteBehindProperties {
+
+    private boolean enabled = false;
+    private Ack ack = Ack.COMMIT;
+    private int queueCapacity = 10000;
+    private int maxGroupSize = 256;
+    private Duration enqueueTimeout = Duration.ofMillis(100);
+
+    /**
+     * Когда отвечать клиенту: после коммита группы или сразу после постановки в очередь.
+     */
+    public enum Ack {
+        COMMIT, ENQUEUE
+    }
+}
@@ -1,9 +1,47 @@
 DROP TABLE IF EXISTS NOTES;
+DROP SEQUENCE IF EXISTS NOTES_SEQ;
+
+CREATE SEQUENCE NOTES_SEQ START WITH 1 INCREMENT BY 50;
 
 CREATE TABLE NOTES (
-ID INT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+ID BIGINT NOT NULL PRIMARY KEY,
 TITLE VARCHAR(40) UNIQUE NOT NULL,
+TITLE_NORMALIZED VARCHAR(80) NOT NULL,
 CREATED_AT TIMESTAMP DEFAULT NULL,
 UPDATED_AT TIMESTAMP DEFAULT NULL,
-CONTENT TEXT DEFAULT NULL
+CONTENT TEXT DEFAULT NULL,
+VERSION BIGINT DEFAULT 0 NOT NULL
+);
+
+CREATE INDEX IDX_NOTES_UPDATED_AT ON NOTES (UPDATED_AT DESC, ID DESC);
+CREATE INDEX IDX_NOTES_TITLE_NORMALIZED ON NOTES (TITLE_NORMALIZED, TITLE);
+
+DROP TABLE IF EXISTS NOTE_CHANGES;
+
+CREATE TABLE NOTE_CHANGES (
+SEQ BIGINT NOT NULL PRIMARY KEY,
+OP VARCHAR(8) NOT NULL,
+TITLE VARCHAR(40) NOT NULL,
+OLD_TITLE VARCHAR(40) DEFAULT NULL,
+CHANGED_AT TIMESTAMP NOT NULL
 );
+
+DROP TABLE IF EXISTS NOTE_REVISIONS;
+DROP SEQUENCE IF EXISTS NOTE_REVISIONS_SEQ;
+
+CREATE SEQUENCE NOTE_REVISIONS_SEQ START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE NOTE_REVISIONS (
+ID BIGINT NOT NULL PRIMARY KEY,
+NOTE_ID BIGINT NOT NULL,
+REVISION BIGINT NOT NULL,
+TITLE VARCHAR(40) NOT NULL,
+KIND VARCHAR(5) NOT NULL,
+PREFIX_LENGTH INT NOT NULL,
+SUFFIX_LENGTH INT NOT NULL,
+CONTENT TEXT DEFAULT NULL,
+CHANGED_AT TIMESTAMP NOT NULL,
+CONSTRAINT UK_NOTE_REVISIONS_NOTE UNIQUE (NOTE_ID, REVISION)
+);
+
+CREATE INDEX IDX_NOTE_REVISIONS_TITLE ON NOTE_REVISIONS (TITLE);
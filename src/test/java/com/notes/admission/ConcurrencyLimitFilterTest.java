@@ -0,0 +1,94 @@
+package com.notes.admission;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConcurrencyLimitFilterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private ConcurrencyLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        AdmissionProperties properties = new AdmissionProperties();
+        properties.setMaxConcurrentRequests(1);
+        properties.setQueueTimeout(Duration.ZERO);
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new ConcurrencyLimitFilter(properties, meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Запрос сверх лимита должен отклоняться с 503 и Retry-After")
+    void doFilter_whenLimitReached_shouldReject() throws Exception {
+        MockHttpServletResponse nested = new MockHttpServletResponse();
+        FilterChain holdingChain = (request, response) ->
+                filter.doFilter(new MockHttpServletRequest("GET", "/api/notes"), nested, new MockFilterChain());
+
+        MockHttpServletResponse outer = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/notes"), outer, holdingChain);
+
+        assertThat(outer.getStatus()).isEqualTo(200);
+        assertThat(nested.getStatus()).isEqualTo(503);
+        assertThat(nested.getHeader("Retry-After")).isEqualTo("1");
+        assertThat(meterRegistry.get("notes.admission.rejected").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Разрешение должно возвращаться после завершения запроса")
+    void doFilter_afterRequestCompleted_shouldReleasePermit() throws Exception {
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/notes"), first, new MockFilterChain());
+        MockHttpServletResponse second = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/notes"), second, new MockFilterChain());
+
+        assertThat(second.getStatus()).isEqualTo(200);
+        assertThat(filter.inFlight()).isZero();
+    }
+
+    @Test
+    @DisplayName("Медленный ответ должен уменьшать лимит, а быстрые ответы при занятом лимите — увеличивать")
+    void onCompleted_shouldAdaptLimitToLatency() throws Exception {
+        AdmissionProperties properties = new AdmissionProperties();
+        properties.setMaxConcurrentRequests(3);
+        properties.setMinConcurrentRequests(1);
+        properties.setQueueTimeout(Duration.ZERO);
+        properties.setLatencyThreshold(Duration.ofMillis(50));
+        properties.setBackoffRatio(0.5);
+        filter = new ConcurrencyLimitFilter(properties, meterRegistry);
+
+        filter.onCompleted(TimeUnit.MILLISECONDS.toNanos(100), false);
+        assertThat(filter.limit()).isEqualTo(1);
+
+        MockHttpServletResponse nested = new MockHttpServletResponse();
+        FilterChain holdingChain = (request, response) ->
+                filter.doFilter(new MockHttpServletRequest("GET", "/api/notes"), nested, new MockFilterChain());
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/notes"), new MockHttpServletResponse(), holdingChain);
+
+        assertThat(nested.getStatus()).isEqualTo(503);
+        assertThat(filter.limit()).isEqualTo(2);
+        assertThat(filter.inFlight()).isZero();
+    }
+
+    @Test
+    @DisplayName("Запросы вне /api/ не должны ограничиваться")
+    void doFilter_whenNotApi_shouldNotLimit() throws Exception {
+        MockHttpServletResponse nested = new MockHttpServletResponse();
+        FilterChain holdingChain = (request, response) ->
+                filter.doFilter(new MockHttpServletRequest("GET", "/actuator/health"), nested, new MockFilterChain());
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/notes"), new MockHttpServletResponse(), holdingChain);
+
+        assertThat(nested.getStatus()).isEqualTo(200);
+    }
+}
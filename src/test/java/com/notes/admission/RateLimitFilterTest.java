@@ -0,0 +1,79 @@
+package com.notes.admission;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimitFilterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private RateLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setExpensiveRead(new RateLimitProperties.Budget(0.1, 1));
+        properties.setWrite(new RateLimitProperties.Budget(0.1, 2));
+        properties.setClientKeys(Set.of("client", "other"));
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new RateLimitFilter(properties, meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Клиент, исчерпавший бюджет, должен получать 429 с Retry-After")
+    void doFilter_whenBudgetExhausted_shouldReject() throws Exception {
+        assertThat(send("POST", "/api/notes", "client").getStatus()).isEqualTo(200);
+        assertThat(send("DELETE", "/api/notes/title", "client").getStatus()).isEqualTo(200);
+
+        MockHttpServletResponse rejected = send("PUT", "/api/notes/title", "client");
+
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(Long.parseLong(rejected.getHeader("Retry-After"))).isBetween(9L, 10L);
+        assertThat(meterRegistry.get("notes.rate-limit.rejected").tag("cost", "write").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Бюджеты разных клиентов и классов запросов должны быть независимы")
+    void doFilter_shouldKeepSeparateBudgets() throws Exception {
+        assertThat(send("GET", "/api/notes", "client").getStatus()).isEqualTo(200);
+        assertThat(send("GET", "/api/notes", "client").getStatus()).isEqualTo(429);
+
+        assertThat(send("GET", "/api/notes/title", "client").getStatus()).isEqualTo(200);
+        assertThat(send("GET", "/api/notes?limit=10", "client").getStatus()).isEqualTo(200);
+        assertThat(send("GET", "/api/notes", "other").getStatus()).isEqualTo(200);
+        assertThat(send("GET", "/api/notes", null).getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    @DisplayName("Неизвестный ключ не должен давать отдельного бюджета: запрос считается по адресу")
+    void doFilter_whenKeyIsUnknown_shouldUseAddressBudget() throws Exception {
+        assertThat(send("GET", "/api/notes", "random-1").getStatus()).isEqualTo(200);
+        assertThat(send("GET", "/api/notes", "random-2").getStatus()).isEqualTo(429);
+        assertThat(send("GET", "/api/notes", null).getStatus()).isEqualTo(429);
+
+        assertThat(send("GET", "/api/notes", "client").getStatus()).isEqualTo(200);
+    }
+
+    private MockHttpServletResponse send(String method, String uri, String apiKey) throws Exception {
+        MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.request(HttpMethod.valueOf(method), uri);
+        if (apiKey != null) {
+            builder.header("X-API-Key", apiKey);
+        }
+        MockHttpServletRequest request = builder.buildRequest(new MockServletContext());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
@@ -0,0 +1,127 @@
+package com.notes.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.notes.datasource.PrimaryReads;
+import com.notes.event.NoteChangedEvent;
+import com.notes.exception.NoteNotFoundException;
+import com.notes.model.Note;
+import com.notes.service.NoteServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachingNoteServiceTest {
+
+    @Mock
+    private NoteServiceImpl delegate;
+
+    private Cache<String, Note> cache;
+
+    private CachingNoteService cachingNoteService;
+
+    @BeforeEach
+    void setUp() {
+        cache = Caffeine.newBuilder().maximumSize(100).recordStats().build();
+        LocalCacheInvalidationChannel channel = new LocalCacheInvalidationChannel();
+        cachingNoteService = new CachingNoteService(delegate, cache, channel, new NoteCacheInvalidationPublisher(channel));
+    }
+
+    @Test
+    @DisplayName("Повторный запрос заметки по названию должен обслуживаться из кэша")
+    void getNoteByTitle_whenCalledTwice_shouldHitDatabaseOnce() {
+        Note note = new Note("title", "text");
+        when(delegate.getNoteByTitle("title")).thenReturn(note);
+
+        assertThat(cachingNoteService.getNoteByTitle("title")).isSameAs(note);
+        assertThat(cachingNoteService.getNoteByTitle("title")).isSameAs(note);
+
+        verify(delegate, times(1)).getNoteByTitle("title");
+        assertThat(cache.stats().hitCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Промах кэша должен читаться из основной базы, а не с реплики")
+    void getNoteByTitle_whenMissed_shouldLoadFromPrimary() {
+        when(delegate.getNoteByTitle("title")).thenAnswer(invocation -> {
+            assertThat(PrimaryReads.isRequired()).isTrue();
+            return new Note("title", "text");
+        });
+
+        cachingNoteService.getNoteByTitle("title");
+
+        verify(delegate).getNoteByTitle("title");
+        assertThat(PrimaryReads.isRequired()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Отсутствующая заметка не должна попадать в кэш")
+    void getNoteByTitle_whenNoteNotExists_shouldNotCacheMiss() {
+        when(delegate.getNoteByTitle("title")).thenThrow(new NoteNotFoundException("Заметка с названием title не найдена."));
+
+        assertThatThrownBy(() -> cachingNoteService.getNoteByTitle("title")).isInstanceOf(NoteNotFoundException.class);
+
+        assertThat(cache.getIfPresent("title")).isNull();
+    }
+
+    @Test
+    @DisplayName("Переименование заметки должно вытеснять из кэша и старое, и новое название")
+    void onNoteChanged_whenNoteIsRenamed_shouldInvalidateBothTitles() {
+        Note renamed = new Note("newTitle", "text");
+        cache.put("oldTitle", new Note("oldTitle", "text"));
+        cache.put("newTitle", renamed);
+
+        cachingNoteService.onNoteChanged(NoteChangedEvent.updated("oldTitle", renamed));
+
+        assertThat(cache.getIfPresent("oldTitle")).isNull();
+        assertThat(cache.getIfPresent("newTitle")).isNull();
+    }
+
+    @Test
+    @DisplayName("Удаление заметки должно вытеснять её из кэша")
+    void onNoteChanged_whenNoteIsDeleted_shouldInvalidateTitle() {
+        cache.put("title", new Note("title", "text"));
+
+        cachingNoteService.onNoteChanged(NoteChangedEvent.deleted(1, "title"));
+
+        assertThat(cache.getIfPresent("title")).isNull();
+    }
+
+    @Test
+    @DisplayName("Изменение на одном экземпляре должно вытеснять заметку из кэша другого")
+    void getNoteByTitle_whenChangedOnAnotherInstance_shouldReloadNote() {
+        LocalCacheInvalidationChannel channel = new LocalCacheInvalidationChannel();
+        NoteCacheInvalidationPublisher firstPublisher = new NoteCacheInvalidationPublisher(channel);
+        CachingNoteService first = new CachingNoteService(delegate, Caffeine.newBuilder().<String, Note>build(),
+                channel, firstPublisher);
+        CachingNoteService second = new CachingNoteService(delegate, Caffeine.newBuilder().<String, Note>build(),
+                channel, new NoteCacheInvalidationPublisher(channel));
+        Note changed = new Note("title", "new");
+        when(delegate.getNoteByTitle("title")).thenReturn(new Note("title", "old"), changed);
+        assertThat(second.getNoteByTitle("title").getText()).isEqualTo("old");
+
+        NoteChangedEvent event = NoteChangedEvent.updated("title", changed);
+        first.onNoteChanged(event);
+        firstPublisher.onNoteChanged(event);
+
+        assertThat(second.getNoteByTitle("title").getText()).isEqualTo("new");
+        verify(delegate, times(2)).getNoteByTitle("title");
+    }
+
+    @Test
+    @DisplayName("Вес записи должен ограничивать кэш и по числу записей, и по объёму текста")
+    void noteWeigher_shouldBoundEntriesAndBytes() {
+        NoteWeigher weigher = new NoteWeigher(10, 1000);
+
+        assertThat(weigher.weigh("t", new Note("t", "x"))).isEqualTo(100);
+        assertThat(weigher.weigh("t", new Note("t", "x".repeat(400)))).isEqualTo(802);
+    }
+}
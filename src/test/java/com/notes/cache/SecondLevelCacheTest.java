@@ -0,0 +1,121 @@
+package com.notes.cache;
+
+import com.notes.compression.NoteCompressionProperties;
+import com.notes.compression.NoteContentCodec;
+import com.notes.exception.NoteNotFoundException;
+import com.notes.model.Note;
+import com.notes.repository.NoteRepository;
+import com.notes.service.NoteServiceImpl;
+import com.notes.storage.jpa.JpaNoteStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({SecondLevelCacheConfig.class, CacheInvalidationConfig.class, NoteCacheInvalidationPublisher.class,
+        SecondLevelCacheInvalidator.class, NoteServiceImpl.class, JpaNoteStore.class,
+        NoteContentCodec.class,SimpleMeterRegistry.class})
+@EnableConfigurationProperties({NoteCompressionProperties.class, SecondLevelCacheProperties.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SecondLevelCacheTest {
+
+    @Autowired
+    private NoteServiceImpl noteService;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CacheInvalidationChannel channel;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        noteRepository.save(new Note("title", "text"));
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        sessionFactory.getCache().evictAllRegions();
+        statistics = sessionFactory.getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        noteRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Повторное чтение по названию должно обходиться без SQL")
+    void getNoteByTitle_shouldBeServedFromCacheOnSecondRead() {
+        noteService.getNoteByTitle("title");
+        statistics.clear();
+
+        assertThat(noteService.getNoteByTitle("title").getText()).isEqualTo("text");
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(statistics.getNaturalIdCacheHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Изменение с переименованием не должно оставлять в кэше старое состояние")
+    void patchNoteByTitle_shouldNotLeaveStaleEntries() {
+        noteService.getNoteByTitle("title");
+
+        noteService.patchNoteByTitle("title", "renamed", "new text");
+
+        assertThatThrownBy(() -> noteService.getNoteByTitle("title")).isInstanceOf(NoteNotFoundException.class);
+        assertThat(noteService.getNoteByTitle("renamed").getText()).isEqualTo("new text");
+        statistics.clear();
+        assertThat(noteService.getNoteByTitle("renamed").getVersion()).isEqualTo(1);
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("Последняя заметка должна браться из кэша запросов до следующей записи")
+    void getLastNote_shouldUseQueryCacheUntilNextWrite() {
+        noteService.getLastNote();
+        statistics.clear();
+
+        assertThat(noteService.getLastNote().getTitle()).isEqualTo("title");
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+
+        noteService.createNote("newer", "text");
+        assertThat(noteService.getLastNote().getTitle()).isEqualTo("newer");
+    }
+
+    @Test
+    @DisplayName("Инвалидация от другого экземпляра должна вытеснять заметку из кэша")
+    void invalidationFromAnotherInstance_shouldEvictNote() {
+        noteService.getNoteByTitle("title");
+        new JdbcTemplate(dataSource).update("UPDATE NOTES SET CONTENT = 'remote', VERSION = VERSION + 1 WHERE TITLE = 'title'");
+
+        assertThat(noteService.getNoteByTitle("title").getText()).isEqualTo("text");
+
+        channel.publish(new NoteCacheInvalidation("another-instance", List.of("title"), null));
+
+        assertThat(noteService.getNoteByTitle("title").getText()).isEqualTo("remote");
+    }
+}
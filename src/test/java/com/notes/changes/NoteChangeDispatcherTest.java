@@ -0,0 +1,153 @@
+package com.notes.changes;
+
+import com.notes.dto.NoteChangeBatch;
+import com.notes.event.NoteChangedEvent;
+import com.notes.model.NoteChange;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BooleanSupplier;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NoteChangeDispatcherTest {
+
+    @Mock
+    private NoteChangeLog changeLog;
+
+    private NoteChangeDispatcher dispatcher;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private Runnable commitListener;
+
+    @BeforeEach
+    void setUp() {
+        NoteChangeProperties properties = new NoteChangeProperties();
+        properties.setStreamQueueCapacity(2);
+        properties.setSendThreads(1);
+        meterRegistry = new SimpleMeterRegistry();
+        dispatcher = new NoteChangeDispatcher(changeLog, properties, meterRegistry);
+        ArgumentCaptor<Runnable> listenerCaptor = ArgumentCaptor.forClass(Runnable.class);
+        verify(changeLog).addCommitListener(listenerCaptor.capture());
+        commitListener = listenerCaptor.getValue();
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.destroy();
+    }
+
+    @Test
+    @DisplayName("Long-poll должен сразу вернуть уже накопленные изменения")
+    void poll_whenChangesExist_shouldReturnImmediately() {
+        NoteChangeBatch batch = new NoteChangeBatch(List.of(change(6)), 6);
+        when(changeLog.changesSince(5, 10)).thenReturn(batch);
+
+        DeferredResult<NoteChangeBatch> result = dispatcher.poll(5, 10);
+
+        assertThat(result.getResult()).isSameAs(batch);
+        assertThat(dispatcher.subscriberCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("Long-poll без изменений должен завершиться после первой зафиксированной транзакции")
+    void poll_whenNoChanges_shouldCompleteAfterCommit() throws Exception {
+        when(changeLog.changesSince(eq(5L), anyInt())).thenReturn(new NoteChangeBatch(List.of(), 5));
+
+        DeferredResult<NoteChangeBatch> result = dispatcher.poll(5, 10);
+        assertThat(result.hasResult()).isFalse();
+
+        when(changeLog.changesSince(eq(5L), anyInt())).thenReturn(new NoteChangeBatch(List.of(change(6), change(7)), 7));
+        commitListener.run();
+
+        await(result::hasResult);
+        NoteChangeBatch delivered = (NoteChangeBatch) result.getResult();
+        assertThat(delivered.getChanges()).extracting(NoteChange::getSeq).containsExactly(6L, 7L);
+        assertThat(delivered.getNext()).isEqualTo(7);
+    }
+
+    @Test
+    @DisplayName("SSE-подписчик, не успевающий читать, не должен задерживать других и должен отключаться")
+    void stream_whenSubscriberFallsBehind_shouldBeClosedWithoutBlockingOthers() throws Exception {
+        when(changeLog.changesSince(eq(5L), anyInt())).thenReturn(new NoteChangeBatch(List.of(), 5));
+        StalledEmitter emitter = new StalledEmitter();
+        dispatcher.subscribe(5, emitter);
+        DeferredResult<NoteChangeBatch> result = dispatcher.poll(5, 10);
+
+        when(changeLog.changesSince(eq(5L), anyInt())).thenReturn(new NoteChangeBatch(List.of(change(6)), 6));
+        commitListener.run();
+        await(result::hasResult);
+        emitter.sending.await();
+
+        List<NoteChange> changes = LongStream.rangeClosed(7, 10).mapToObj(NoteChangeDispatcherTest::change).toList();
+        when(changeLog.changesSince(eq(6L), anyInt())).thenReturn(new NoteChangeBatch(changes, 10));
+        commitListener.run();
+
+        await(() -> dispatcher.subscriberCount() == 0);
+        assertThat(meterRegistry.get("notes.changes.dropped").counter().count()).isEqualTo(1);
+
+        emitter.release.countDown();
+        await(() -> emitter.completed);
+        assertThat(emitter.sent).isEqualTo(1);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+
+    /**
+     * Клиент, который не читает: первая отправка висит, пока тест не отпустит её.
+     */
+    private static final class StalledEmitter extends SseEmitter {
+
+        private final CountDownLatch sending = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private volatile int sent;
+        private volatile boolean completed;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            sending.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+            sent++;
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+            super.complete();
+        }
+    }
+
+    private static NoteChange change(long seq) {
+        return new NoteChange(seq, NoteChangedEvent.Type.CREATED, "title " + seq, null, LocalDateTime.now());
+    }
+}
@@ -0,0 +1,136 @@
+package com.notes.changes;
+
+import com.notes.compression.NoteCompressionProperties;
+import com.notes.compression.NoteContentCodec;
+import com.notes.dto.NoteChangeBatch;
+import com.notes.event.NoteChangedEvent;
+import com.notes.model.NoteChange;
+import com.notes.repository.NoteChangeRepository;
+import com.notes.repository.NoteRepository;
+import com.notes.service.NoteServiceImpl;
+import com.notes.storage.jpa.JpaNoteStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@Import({NoteServiceImpl.class, JpaNoteStore.class, NoteContentCodec.class, SimpleMeterRegistry.class, NoteChangeLog.class})
+@EnableConfigurationProperties(NoteCompressionProperties.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class NoteChangeLogTest {
+
+    @Autowired
+    private NoteServiceImpl noteService;
+
+    @Autowired
+    private NoteChangeLog changeLog;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private NoteChangeRepository changeRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        noteRepository.deleteAll();
+        changeRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Каждое изменение заметки должно попадать в журнал по порядку, переименование - со старым названием")
+    void changesSince_shouldReturnMutationsInOrder() {
+        long start = changeLog.head();
+
+        noteService.createNote("a", "text");
+        noteService.editNoteByTitle("a", "b", "text 2");
+        noteService.patchNoteByTitle("b", null, "text 3");
+        noteService.deleteNoteByTitle("b");
+
+        NoteChangeBatch batch = changeLog.changesSince(start, 100);
+        assertThat(batch.getChanges()).extracting(NoteChange::getOp).containsExactly(
+                NoteChangedEvent.Type.CREATED, NoteChangedEvent.Type.UPDATED,
+                NoteChangedEvent.Type.UPDATED, NoteChangedEvent.Type.DELETED);
+        assertThat(batch.getChanges()).extracting(NoteChange::getTitle).containsExactly("a", "b", "b", "b");
+        assertThat(batch.getChanges()).extracting(NoteChange::getOldTitle).containsExactly(null, "a", null, null);
+        assertThat(batch.getNext()).isEqualTo(start + 4);
+        assertThat(changeLog.changesSince(batch.getNext(), 100).getChanges()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Курсор next должен позволять дочитывать журнал порциями")
+    void changesSince_whenLimited_shouldContinueFromCursor() {
+        long start = changeLog.head();
+        for (int i = 0; i < 5; i++) {
+            noteService.createNote("note " + i, "text");
+        }
+
+        NoteChangeBatch first = changeLog.changesSince(start, 3);
+        NoteChangeBatch second = changeLog.changesSince(first.getNext(), 3);
+
+        assertThat(first.getChanges()).hasSize(3);
+        assertThat(second.getChanges()).extracting(NoteChange::getTitle).containsExactly("note 3", "note 4");
+    }
+
+    @Test
+    @DisplayName("Откат транзакции не должен оставлять записей в журнале")
+    void onNoteChanged_whenTransactionRollsBack_shouldNotRecordChange() {
+        long start = changeLog.head();
+
+        assertThatThrownBy(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            noteService.createNote("a", "text");
+            throw new IllegalStateException("rollback");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(changeLog.changesSince(start, 100).getChanges()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Запись с большим номером не должна быть видна, пока не зафиксирована транзакция с меньшим")
+    void changesSince_whenEarlierTransactionIsOpen_shouldHideLaterChanges() throws Exception {
+        long start = changeLog.head();
+        CountDownLatch written = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        Thread slowWriter = new Thread(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            noteService.createNote("slow", "text");
+            written.countDown();
+            await(commit);
+        }));
+        slowWriter.start();
+        assertThat(written.await(10, TimeUnit.SECONDS)).isTrue();
+
+        noteService.createNote("fast", "text");
+        assertThat(changeLog.changesSince(start, 100).getChanges()).isEmpty();
+
+        commit.countDown();
+        slowWriter.join(10_000);
+        assertThat(changeLog.changesSince(start, 100).getChanges())
+                .extracting(NoteChange::getTitle).containsExactly("slow", "fast");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.notes.compression;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NoteContentCodecTest {
+
+    private final NoteContentCodec codec = new NoteContentCodec(new NoteCompressionProperties(), new SimpleMeterRegistry());
+
+    @Test
+    @DisplayName("Короткий текст должен храниться как есть")
+    void encode_whenTextIsShort_shouldKeepPlainText() {
+        assertThat(codec.encode("text")).isEqualTo("text");
+        assertThat(codec.encode(null)).isNull();
+    }
+
+    @Test
+    @DisplayName("Длинный текст должен сжиматься и восстанавливаться без потерь")
+    void encode_whenTextIsLong_shouldRoundTrip() {
+        String text = "Заметка с юникодом 😀 и повторами. ".repeat(500);
+
+        String stored = codec.encode(text);
+
+        assertThat(stored).startsWith(NoteContentCodec.MARKER);
+        assertThat(stored.length()).isLessThan(text.length());
+        assertThat(codec.decode(stored)).isEqualTo(text);
+        assertThat(NoteContentCodec.originalLength(stored, (long) stored.length())).isEqualTo(text.length());
+    }
+
+    @Test
+    @DisplayName("Текст, начинающийся с маркера, должен сжиматься независимо от длины")
+    void encode_whenTextStartsWithMarker_shouldAlwaysCompress() {
+        String text = NoteContentCodec.MARKER + "5:abc";
+
+        String stored = codec.encode(text);
+
+        assertThat(stored).isNotEqualTo(text);
+        assertThat(codec.decode(stored)).isEqualTo(text);
+    }
+
+    @Test
+    @DisplayName("Значение без маркера (записанное до включения сжатия) должно читаться как есть")
+    void decode_whenValueIsLegacyPlainText_shouldReturnIt() {
+        assertThat(codec.decode("старый текст")).isEqualTo("старый текст");
+        assertThat(NoteContentCodec.originalLength("старый текст", 12L)).isEqualTo(12L);
+    }
+
+    @Test
+    @DisplayName("Превью должно распаковываться по префиксу сжатого значения")
+    void decodePrefix_shouldInflatePartialStream() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; text.length() < 50_000; i++) {
+            text.append("Строка ").append(i).append('\n');
+        }
+        String stored = codec.encode(text.toString());
+
+        String preview = NoteContentCodec.decodePrefix(stored.substring(0, 200 * 6 + 128), 200);
+
+        assertThat(preview).isEqualTo(text.substring(0, 200));
+    }
+
+    @Test
+    @DisplayName("При выключенном сжатии длинный текст должен храниться как есть")
+    void encode_whenDisabled_shouldKeepPlainText() {
+        NoteCompressionProperties properties = new NoteCompressionProperties();
+        properties.setEnabled(false);
+        String text = "x".repeat(10_000);
+
+        assertThat(new NoteContentCodec(properties, new SimpleMeterRegistry()).encode(text)).isEqualTo(text);
+    }
+
+    @Test
+    @DisplayName("Метрики кодека должны попадать в переданный реестр, а не в глобальный")
+    void codecMeters_shouldBeRegisteredInInjectedRegistry() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        NoteContentCodec registered = new NoteContentCodec(new NoteCompressionProperties(), meterRegistry);
+
+        registered.decode(registered.encode("текст ".repeat(1000)));
+
+        assertThat(meterRegistry.get("notes.content.codec").tag("operation", "compress").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("notes.content.codec").tag("operation", "decompress").timer().count()).isEqualTo(1);
+        assertThat(Metrics.globalRegistry.find("notes.content.codec").timers()).isEmpty();
+    }
+}
@@ -1,30 +1,62 @@
 package com.notes.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.notes.dto.BulkItemResult;
+import com.notes.dto.BulkNoteOperation;
+import com.notes.dto.BulkResult;
 import com.notes.dto.CreateNoteRequest;
+import com.notes.dto.NotePage;
+import com.notes.dto.NoteSearchHit;
+import com.notes.dto.NoteSearchResult;
+import com.notes.dto.NoteSummary;
+import com.notes.dto.NoteVersion;
 import com.notes.dto.UpdateNoteRequest;
 import com.notes.exception.NoteNotFoundException;
+import com.notes.exception.NoteVersionMismatchException;
 import com.notes.model.Note;
+import com.notes.recent.RecentNotesTracker;
+import com.notes.search.NoteSearchIndex;
+import com.notes.search.NoteTitleIndex;
+import com.notes.service.NoteBulkService;
 import com.notes.service.NoteService;
+import com.notes.snapshot.NoteSnapshotService;
+import com.notes.storage.NoteContent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.data.jpa.mapping.JpaMetamodelMappingContext;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
 
 @WebMvcTest(NoteController.class)
+@Import(SimpleMeterRegistry.class)
 class NoteControllerTest {
 
     @Autowired
@@ -33,12 +65,30 @@ class NoteControllerTest {
     @MockBean
     private NoteService noteService;
 
+    @MockBean
+    private NoteSearchIndex searchIndex;
+
+    @MockBean
+    private NoteTitleIndex titleIndex;
+
+    @MockBean
+    private NoteBulkService bulkService;
+
+    @MockBean
+    private RecentNotesTracker recentNotes;
+
+    @MockBean
+    private NoteSnapshotService snapshotService;
+
     @MockBean
     private JpaMetamodelMappingContext jpaMetamodelMappingContext;
 
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private SimpleMeterRegistry meterRegistry;
+
     @Test
     @DisplayName("GET /api/notes должен вернуть список всех заметок и статус 200 OK")
     public void getAllNotes_shouldReturnListOfNotes() throws Exception {
@@ -59,6 +109,176 @@ class NoteControllerTest {
         verify(noteService, times(1)).getAllNotes();
     }
 
+    @Test
+    @DisplayName("GET /api/notes?limit= должен вернуть страницу заметок и курсор на следующую")
+    public void getNotesPage_shouldReturnPageWithNextCursor() throws Exception {
+        Note note = createTestNote();
+
+        when(noteService.getNotesPage(null, 1)).thenReturn(new NotePage(List.of(note), "cursor"));
+
+        mvc.perform(get("/api/notes").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].title", is(note.getTitle())))
+                .andExpect(jsonPath("$.next", is("cursor")));
+
+        verify(noteService, never()).getAllNotes();
+    }
+
+    @Test
+    @DisplayName("GET /api/notes?limit=&next= на последней странице должен вернуть пустой курсор")
+    public void getNotesPage_whenLastPage_shouldReturnNullCursor() throws Exception {
+        when(noteService.getNotesPage("cursor", 10)).thenReturn(new NotePage(List.of(), null));
+
+        mvc.perform(get("/api/notes").param("limit", "10").param("next", "cursor"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(0)))
+                .andExpect(jsonPath("$.next", nullValue()));
+    }
+
+    @Test
+    @DisplayName("GET /api/notes?prefix=&limit= должен вернуть заметки из индекса названий, а не страницу")
+    public void getNotesByTitlePrefix_shouldLoadNotesFoundInTitleIndex() throws Exception {
+        Note note = new Note("Spring Boot", "text");
+        when(titleIndex.findByPrefix("spr", true, 5)).thenReturn(List.of("Spring Boot"));
+        when(noteService.getNotesByTitles(List.of("Spring Boot"))).thenReturn(List.of(note));
+
+        mvc.perform(get("/api/notes").param("prefix", "spr").param("ignoreCase", "true").param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].title", is("Spring Boot")));
+
+        verify(noteService, never()).getNotesPage(any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("GET /api/notes?prefix=&view=summary должен искать по префиксу, а не отдавать все сводки")
+    public void getNotesByTitlePrefix_whenSummaryViewRequested_shouldNotListAllSummaries() throws Exception {
+        when(titleIndex.findByPrefix("a", false, 20)).thenReturn(List.of());
+
+        mvc.perform(get("/api/notes").param("prefix", "a").param("view", "summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+
+        verify(noteService, never()).getAllNoteSummaries();
+    }
+
+    @Test
+    @DisplayName("GET /api/notes?title= без ignoreCase должен искать точное название, а не отдавать все заметки")
+    public void getNotesByTitle_whenCaseSensitive_shouldLookUpExactTitle() throws Exception {
+        when(noteService.getNotesByTitles(List.of("x"))).thenReturn(List.of(new Note("x", "text")));
+
+        mvc.perform(get("/api/notes").param("title", "x"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].title", is("x")));
+
+        verify(noteService, never()).getAllNotes();
+        verifyNoInteractions(titleIndex);
+    }
+
+    @Test
+    @DisplayName("GET /api/notes?view=summary должен вернуть сводки заметок без текста")
+    public void getAllNoteSummaries_shouldReturnSummariesWithoutText() throws Exception {
+        NoteSummary summary = new SpelAwareProxyProjectionFactory().createProjection(NoteSummary.class, Map.of(
+                "id", 1L,
+                "title", "title1",
+                "createdAt", LocalDateTime.of(2025, 6, 17, 10, 5),
+                "updatedAt", LocalDateTime.of(2025, 6, 17, 10, 5),
+                "storedPreview", "text",
+                "storedLength", 4L));
+
+        when(noteService.getAllNoteSummaries()).thenReturn(List.of(summary));
+
+        mvc.perform(get("/api/notes").param("view", "summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].title", is("title1")))
+                .andExpect(jsonPath("$[0].preview", is("text")))
+                .andExpect(jsonPath("$[0].length", is(4)))
+                .andExpect(jsonPath("$[0].storedPreview").doesNotExist())
+                .andExpect(jsonPath("$[0].text").doesNotExist());
+
+        verify(noteService, never()).getAllNotes();
+    }
+
+    @Test
+    @DisplayName("GET /api/notes с Accept: application/x-ndjson должен отдавать заметки построчно")
+    @SuppressWarnings("unchecked")
+    public void streamAllNotes_shouldWriteOneNotePerLine() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<Note> action = invocation.getArgument(0);
+            action.accept(new Note("title1", "text1"));
+            action.accept(new Note("title2", "text2"));
+            return null;
+        }).when(noteService).forEachNote(any(Consumer.class));
+
+        MvcResult result = mvc.perform(get("/api/notes").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("title1", objectMapper.readTree(lines[0]).get("title").asText());
+        assertEquals("title2", objectMapper.readTree(lines[1]).get("title").asText());
+        verify(noteService, never()).getAllNotes();
+    }
+
+    @Test
+    @DisplayName("GET /api/notes/_search должен вернуть найденные заметки, а не заметку с названием _search")
+    public void searchNotes_shouldReturnRankedHits() throws Exception {
+        when(searchIndex.search("spring*", 0, 20))
+                .thenReturn(new NoteSearchResult(1, List.of(new NoteSearchHit(1L, "title1", 1.5))));
+
+        mvc.perform(get("/api/notes/_search").param("q", "spring*"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total", is(1)))
+                .andExpect(jsonPath("$.hits[0].title", is("title1")));
+
+        verify(noteService, never()).getNoteByTitle(any());
+    }
+
+    @Test
+    @DisplayName("GET /api/notes/_recent должен вернуть последние заметки из памяти")
+    public void getRecentNotes_shouldReturnTrackedNotes() throws Exception {
+        when(recentNotes.recent(2)).thenReturn(List.of(new Note("recent", "text")));
+
+        mvc.perform(get("/api/notes/_recent").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].title", is("recent")));
+
+        verify(noteService, never()).getNoteByTitle(any());
+    }
+
+    @Test
+    @DisplayName("GET /api/notes/recent должен вернуть заметку с названием recent")
+    public void getNoteByTitle_whenTitleIsRecent_shouldReturnNote() throws Exception {
+        when(noteService.getNoteByTitle("recent")).thenReturn(new Note("recent", "text"));
+
+        mvc.perform(get("/api/notes/{title}", "recent"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title", is("recent")));
+
+        verifyNoInteractions(recentNotes);
+    }
+
+    @Test
+    @DisplayName("GET /api/notes/search должен вернуть заметку с названием search")
+    public void getNoteByTitle_whenTitleIsSearch_shouldReturnNote() throws Exception {
+        when(noteService.getNoteByTitle("search")).thenReturn(new Note("search", "text"));
+
+        mvc.perform(get("/api/notes/{title}", "search"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title", is("search")));
+
+        verifyNoInteractions(searchIndex);
+    }
+
     @Test
     @DisplayName("GET /api/notes/{title} должен вернуть заметку с именем - title и статус 200 OK")
     public void getNoteByTitle_whenNoteExists_ShouldReturnNote() throws Exception {
@@ -75,6 +295,22 @@ class NoteControllerTest {
         verify(noteService, times(1)).getNoteByTitle(note.getTitle());
     }
 
+    @Test
+    @DisplayName("GET /api/notes/{title} должен учитывать размер отданного текста и число SQL-запросов")
+    public void getNoteByTitle_shouldRecordContentSizeAndStatementMetrics() throws Exception {
+        Note note = new Note("title", "текст");
+
+        when(noteService.getNoteByTitle("title")).thenReturn(note);
+        double contentOutBefore = meterRegistry.summary("notes.content.size", "direction", "out").totalAmount();
+
+        mvc.perform(get("/api/notes/{title}", "title"))
+                .andExpect(status().isOk());
+
+        double contentOut = meterRegistry.summary("notes.content.size", "direction", "out").totalAmount() - contentOutBefore;
+        assertEquals(10.0, contentOut);
+        assertNotEquals(0, meterRegistry.get("notes.db.statements").tag("uri", "/api/notes/{title}").summary().count());
+    }
+
     @Test
     @DisplayName("GET /api/notes/{title} должен вернуть статус 404 Not Found")
     public void getNoteByTitle_whenNoteNotExists_ShouldReturnNotFound() throws Exception {
@@ -131,6 +367,29 @@ class NoteControllerTest {
         verify(noteService, never()).createNote(any(), any());
     }
 
+    @Test
+    @DisplayName("POST /api/notes/_bulk должен принимать NDJSON и возвращать статус каждой операции")
+    @SuppressWarnings("unchecked")
+    public void bulk_whenBodyIsNdjson_shouldApplyEveryOperation() throws Exception {
+        List<String> titles = new ArrayList<>();
+        when(bulkService.apply(any(Iterator.class))).thenAnswer(invocation -> {
+            Iterator<BulkNoteOperation> operations = invocation.getArgument(0);
+            operations.forEachRemaining(operation -> titles.add(operation.getTitle()));
+            return new BulkResult(2, 0, List.of(
+                    new BulkItemResult(0, BulkNoteOperation.Op.CREATE, "title1", 201, null),
+                    new BulkItemResult(1, BulkNoteOperation.Op.DELETE, "title2", 204, null)));
+        });
+
+        mvc.perform(post("/api/notes/_bulk")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"title\":\"title1\",\"text\":\"text1\"}\n{\"op\":\"DELETE\",\"title\":\"title2\"}\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.succeeded", is(2)))
+                .andExpect(jsonPath("$.items[1].status", is(204)));
+
+        assertEquals(List.of("title1", "title2"), titles);
+    }
+
     @Test
     @DisplayName("PUT /api/notes/{oldTitle} должен возвращать изменённый объект и статус 200 ОК")
     public void editNote_whenNoteExists_shouldUpdateAndReturnNote() throws Exception {
@@ -178,6 +437,125 @@ class NoteControllerTest {
         verify(noteService, times(1)).editNoteByTitle(oldTitle, newTitle, newText);
     }
 
+    @Test
+    @DisplayName("GET /api/notes/{title} с актуальным If-None-Match должен вернуть 304 без загрузки заметки")
+    public void getNoteByTitle_whenETagMatches_shouldReturnNotModified() throws Exception {
+        when(noteService.getNoteVersion("title")).thenReturn(new NoteVersion(5, 2));
+
+        mvc.perform(get("/api/notes/{title}", "title").header("If-None-Match", "W/\"5.2\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "W/\"5.2\""))
+                .andExpect(content().string(""));
+
+        verify(noteService, never()).getNoteByTitle(any());
+    }
+
+    @Test
+    @DisplayName("GET /api/notes/{title} с устаревшим If-None-Match должен вернуть заметку и новый ETag")
+    public void getNoteByTitle_whenETagIsStale_shouldReturnNoteWithETag() throws Exception {
+        Note note = new Note("title", "text");
+        note.setVersion(3);
+        when(noteService.getNoteVersion("title")).thenReturn(new NoteVersion(0, 3));
+        when(noteService.getNoteByTitle("title")).thenReturn(note);
+
+        mvc.perform(get("/api/notes/{title}", "title").header("If-None-Match", "\"0.2\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "W/\"0.3\""))
+                .andExpect(jsonPath("$.text", is("text")))
+                .andExpect(jsonPath("$.version").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("GET /api/notes/{title}/content должен отдать текст целиком байтами UTF-8")
+    public void getNoteContent_shouldReturnWholeText() throws Exception {
+        when(noteService.openNoteContent("title")).thenReturn(noteContent("привет, мир"));
+
+        mvc.perform(get("/api/notes/{title}/content", "title"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Accept-Ranges", "bytes"))
+                .andExpect(header().string("ETag", "\"1.2\""))
+                .andExpect(header().longValue("Content-Length", "привет, мир".getBytes(StandardCharsets.UTF_8).length))
+                .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_PLAIN))
+                .andExpect(content().bytes("привет, мир".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    @DisplayName("GET /api/notes/{title}/content с Range должен вернуть 206 и запрошенные байты")
+    public void getNoteContent_whenRangeRequested_shouldReturnPartialContent() throws Exception {
+        when(noteService.openNoteContent("title")).thenReturn(noteContent("0123456789"));
+
+        mvc.perform(get("/api/notes/{title}/content", "title").header("Range", "bytes=2-5"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string("Content-Range", "bytes 2-5/10"))
+                .andExpect(content().string("2345"));
+
+        mvc.perform(get("/api/notes/{title}/content", "title").header("Range", "bytes=-3"))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().string("789"));
+    }
+
+    @Test
+    @DisplayName("GET /api/notes/{title}/content с недостижимым Range должен вернуть 416, а с неверным Range или чужим If-Range — весь текст")
+    public void getNoteContent_whenRangeIsNotApplicable_shouldFallBack() throws Exception {
+        when(noteService.openNoteContent("title")).thenReturn(noteContent("0123456789"));
+
+        mvc.perform(get("/api/notes/{title}/content", "title").header("Range", "bytes=20-30"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string("Content-Range", "bytes */10"));
+
+        mvc.perform(get("/api/notes/{title}/content", "title").header("Range", "bytes=5-2"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Range"))
+                .andExpect(content().string("0123456789"));
+
+        mvc.perform(get("/api/notes/{title}/content", "title").header("Range", "items=0-1"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("0123456789"));
+
+        mvc.perform(get("/api/notes/{title}/content", "title")
+                        .header("Range", "bytes=2-5")
+                        .header("If-Range", "\"1.1\""))
+                .andExpect(status().isOk())
+                .andExpect(content().string("0123456789"));
+    }
+
+    @Test
+    @DisplayName("GET /api/notes/{title}/content для несуществующей заметки должен вернуть 404")
+    public void getNoteContent_whenNoteNotExists_shouldReturnNotFound() throws Exception {
+        when(noteService.openNoteContent("missing")).thenThrow(new NoteNotFoundException("Заметка с названием missing не найдена."));
+
+        mvc.perform(get("/api/notes/{title}/content", "missing"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("PUT /api/notes/{oldTitle} с устаревшим слабым If-Match должен вернуть 412 Precondition Failed")
+    public void editNote_whenIfMatchIsStale_shouldReturnPreconditionFailed() throws Exception {
+        UpdateNoteRequest updateRequest = new UpdateNoteRequest();
+        updateRequest.setTitle("title");
+        updateRequest.setText("text");
+        when(noteService.editNoteByTitle("title", "title", "text", new NoteVersion(1, 2)))
+                .thenThrow(new NoteVersionMismatchException("Заметка с названием title была изменена другим запросом."));
+
+        mvc.perform(put("/api/notes/{oldTitle}", "title")
+                        .header("If-Match", "W/\"1.2\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(updateRequest)))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    @DisplayName("PATCH /api/notes/{oldTitle} с чужим If-Match должен вернуть 412 без обращения к сервису")
+    public void patchNote_whenIfMatchIsForeign_shouldReturnPreconditionFailed() throws Exception {
+        mvc.perform(patch("/api/notes/{oldTitle}", "title")
+                        .header("If-Match", "W/\"abc\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"text\":\"text\"}"))
+                .andExpect(status().isPreconditionFailed());
+
+        verifyNoInteractions(noteService);
+    }
+
     @Test
     @DisplayName("DELETE /api/notes/{title} должен удалять заметку и вернуть статус 204 No Content")
     public void deleteNote_whenNoteExists_shouldReturnNoContent() throws Exception {
@@ -214,4 +592,8 @@ class NoteControllerTest {
     private Note createTestNote() {
         return new Note("test-title", "text-text");
     }
-}
\ No newline at end of file
+
+    private static NoteContent noteContent(String text) {
+        return NoteContent.of(new NoteVersion(1, 2), text.getBytes(StandardCharsets.UTF_8));
+    }
+}
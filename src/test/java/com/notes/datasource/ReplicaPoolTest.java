@@ -0,0 +1,138 @@
+package com.notes.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Вместо основной базы и реплик — отдельные базы H2 в памяти, в каждой таблица MARKER со своим именем.
+ */
+class ReplicaPoolTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<AutoCloseable> resources = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (AutoCloseable resource : resources) {
+            resource.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Read-only соединение должно идти на реплику, остальные — в основную базу")
+    void readOnlyConnection_shouldBeRoutedToReplica() throws SQLException {
+        DataSource primary = database("primary");
+        DataSource dataSource = routing(primary, pool(primary, database("replica")));
+
+        assertThat(marker(dataSource, true)).isEqualTo("replica");
+        assertThat(marker(dataSource, false)).isEqualTo("primary");
+    }
+
+    @Test
+    @DisplayName("После записи клиента его чтения должны идти в основную базу")
+    void readOnlyConnection_whenPrimaryIsRequired_shouldUsePrimary() throws SQLException {
+        DataSource primary = database("primary");
+        DataSource dataSource = routing(primary, pool(primary, database("replica")));
+
+        try (PrimaryReads.Scope ignored = PrimaryReads.require()) {
+            assertThat(marker(dataSource, true)).isEqualTo("primary");
+        }
+        assertThat(marker(dataSource, true)).isEqualTo("replica");
+    }
+
+    @Test
+    @DisplayName("Недоступная реплика должна пропускаться, а без реплик чтение должно идти в основную базу")
+    void readOnlyConnection_whenReplicaIsDown_shouldFailOver() throws SQLException {
+        DataSource primary = database("primary");
+        ReplicaPool pool = pool(primary, unreachable(), database("replica"));
+        DataSource dataSource = routing(primary, pool);
+
+        assertThat(marker(dataSource, true)).isEqualTo("replica");
+        assertThat(marker(dataSource, true)).isEqualTo("replica");
+        assertThat(pool.healthyCount()).isEqualTo(1);
+
+        DataSource onlyDown = routing(primary, pool(primary, unreachable()));
+        assertThat(marker(onlyDown, true)).isEqualTo("primary");
+        assertThat(meterRegistry.get("notes.replicas.reads").tag("target", "primary-fallback").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Соединение с учётными данными реплик должно идти на реплику, с чужими — в основную базу")
+    void connectionWithCredentials_shouldBeRoutedByCredentials() throws SQLException {
+        HikariDataSource primary = database("primary");
+        try (Connection connection = primary.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE USER REPORTER PASSWORD 'secret' ADMIN");
+        }
+        ReplicaPool pool = pool(new DriverManagerDataSource(primary.getJdbcUrl()), database("replica"));
+
+        assertThat(marker(pool.getConnection("sa", null))).isEqualTo("replica");
+        assertThat(marker(pool.getConnection("reporter", "secret"))).isEqualTo("primary");
+    }
+
+    private ReplicaPool pool(DataSource primary, HikariDataSource... replicas) {
+        ReplicaPool pool = new ReplicaPool(primary, List.of(replicas), 60_000, meterRegistry);
+        resources.add(0, pool);
+        return pool;
+    }
+
+    private static DataSource routing(DataSource primary, ReplicaPool pool) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primary);
+        dataSource.setReadOnlyDataSource(pool);
+        return dataSource;
+    }
+
+    private HikariDataSource database(String name) throws SQLException {
+        HikariDataSource dataSource = hikari("jdbc:h2:mem:" + name + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        // короткий таймаут нужен только недоступным репликам; первое соединение с H2 бывает дольше
+        dataSource.setConnectionTimeout(5_000);
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE MARKER (NAME VARCHAR(20))");
+            statement.execute("INSERT INTO MARKER VALUES ('" + name + "')");
+        }
+        return dataSource;
+    }
+
+    private HikariDataSource unreachable() {
+        return hikari("jdbc:h2:file:./build/missing-replica/" + System.nanoTime() + ";IFEXISTS=TRUE");
+    }
+
+    private HikariDataSource hikari(String url) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername("sa");
+        dataSource.setConnectionTimeout(250);
+        dataSource.setInitializationFailTimeout(-1);
+        resources.add(dataSource);
+        return dataSource;
+    }
+
+    private static String marker(DataSource dataSource, boolean readOnly) throws SQLException {
+        Connection connection = dataSource.getConnection();
+        connection.setReadOnly(readOnly);
+        return marker(connection);
+    }
+
+    private static String marker(Connection connection) throws SQLException {
+        try (connection; Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT NAME FROM MARKER")) {
+            resultSet.next();
+            return resultSet.getString(1);
+        }
+    }
+}
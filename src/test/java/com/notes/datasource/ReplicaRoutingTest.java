@@ -0,0 +1,170 @@
+package com.notes.datasource;
+
+import com.notes.cache.CachingNoteService;
+import com.notes.cache.SecondLevelCacheConfig;
+import com.notes.changes.NoteChangeLog;
+import com.notes.dto.NoteSearchHit;
+import com.notes.exception.NoteNotFoundException;
+import com.notes.model.Note;
+import com.notes.model.NoteChange;
+import com.notes.recent.RecentNotesTracker;
+import com.notes.search.NoteSearchIndex;
+import com.notes.search.NoteSearchIndexer;
+import com.notes.search.NoteTitleIndex;
+import com.notes.service.NoteServiceImpl;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.cache.CacheManager;
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Приложение целиком с основной базой и одной репликой — двумя отдельными базами H2 в памяти.
+ * Реплика ничего не получает от основной базы, поэтому по данным видно, откуда шло чтение.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ReplicaRoutingTest.PRIMARY_URL,
+        "notes.replicas.enabled=true",
+        "notes.replicas.urls=" + ReplicaRoutingTest.REPLICA_URL
+})
+class ReplicaRoutingTest {
+
+    static final String PRIMARY_URL = "jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1";
+    static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1";
+
+    /*
+     * Схему и строки реплики создаём до подъёма контекста: к моменту тестов реплика
+     * должна быть готова, как настоящая.
+     */
+    static {
+        DriverManagerDataSource replica = new DriverManagerDataSource(REPLICA_URL, "sa", "");
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(replica);
+        insert(replica, 100000, "replica");
+    }
+
+    @Autowired
+    private NoteServiceImpl noteService;
+
+    @Autowired
+    private CachingNoteService cachingNoteService;
+
+    @Autowired
+    private NoteChangeLog changeLog;
+
+    @Autowired
+    private NoteSearchIndexer searchIndexer;
+
+    @Autowired
+    private NoteSearchIndex searchIndex;
+
+    @Autowired
+    private NoteTitleIndex titleIndex;
+
+    @Autowired
+    private RecentNotesTracker recentNotes;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CacheManager secondLevelCacheManager;
+
+    @Test
+    @DisplayName("Read-only транзакции JPA должны читать реплику, а чтения под PrimaryReads — основную базу")
+    void readOnlyTransaction_shouldReachReplica() {
+        assertThat(noteService.getNoteByTitle("replica").getText()).isEqualTo("from replica");
+        assertThat(meterRegistry.get("notes.replicas.reads").tag("target", "replica").counter().count()).isPositive();
+
+        insert(new DriverManagerDataSource(PRIMARY_URL, "sa", ""), 100001, "primary");
+        assertThatThrownBy(() -> noteService.getNoteByTitle("primary")).isInstanceOf(NoteNotFoundException.class);
+        try (PrimaryReads.Scope ignored = PrimaryReads.require()) {
+            assertThat(noteService.getNoteByTitle("primary").getText()).isEqualTo("from primary");
+        }
+    }
+
+    @Test
+    @DisplayName("Чтения с реплики не должны пополнять кэш второго уровня, чтения из основной базы — должны")
+    void replicaReads_shouldNotPopulateSecondLevelCache() {
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        sessionFactory.getCache().evictAllRegions();
+
+        noteService.getNoteByTitle("replica");
+        noteService.getLastNote();
+
+        assertThat(secondLevelCacheManager.getCache(SecondLevelCacheConfig.NOTE_REGION)).isEmpty();
+        assertThat(secondLevelCacheManager.getCache(SecondLevelCacheConfig.NOTE_TITLE_REGION)).isEmpty();
+        assertThat(secondLevelCacheManager.getCache(SecondLevelCacheConfig.NOTE_QUERY_REGION)).isEmpty();
+
+        insert(new DriverManagerDataSource(PRIMARY_URL, "sa", ""), 100002, "cached");
+        try (PrimaryReads.Scope ignored = PrimaryReads.require()) {
+            noteService.getNoteByTitle("cached");
+        }
+        assertThat(sessionFactory.getCache().containsEntity(Note.class, 100002L)).isTrue();
+        assertThat(secondLevelCacheManager.getCache(SecondLevelCacheConfig.NOTE_TITLE_REGION)).isNotEmpty();
+    }
+
+    @Test
+    @DisplayName("Кэш заметок должен заполняться из основной базы, а не устаревшей строкой с реплики")
+    void noteCache_shouldLoadFromPrimary() {
+        insert(new DriverManagerDataSource(REPLICA_URL, "sa", ""), 100003, "lagging", "old");
+        insert(new DriverManagerDataSource(PRIMARY_URL, "sa", ""), 100003, "lagging", "new");
+
+        assertThat(cachingNoteService.getNoteByTitle("lagging").getText()).isEqualTo("new");
+        assertThat(cachingNoteService.getNoteByTitle("lagging").getText()).isEqualTo("new");
+    }
+
+    @Test
+    @DisplayName("Индексы при перестроении должны читать основную базу и видеть заметки, которых нет на реплике")
+    void indexRebuilds_shouldReadPrimary() {
+        insert(new DriverManagerDataSource(PRIMARY_URL, "sa", ""), 100004, "unreplicated");
+
+        searchIndexer.afterSingletonsInstantiated();
+        titleIndex.afterSingletonsInstantiated();
+        recentNotes.afterSingletonsInstantiated();
+
+        assertThat(searchIndex.search("unreplicated", 0, 10).getHits())
+                .extracting(NoteSearchHit::getTitle)
+                .contains("unreplicated");
+        assertThat(titleIndex.findByPrefix("unrepl", false, 10)).containsExactly("unreplicated");
+        assertThat(recentNotes.recent(recentNotes.capacity()))
+                .extracting(Note::getTitle)
+                .contains("unreplicated");
+    }
+
+    @Test
+    @DisplayName("Лента изменений должна читаться из основной базы, где видна граница коммитов")
+    void changesSince_shouldReadPrimary() {
+        long head = changeLog.head();
+
+        noteService.createNote("changed", "text");
+
+        assertThat(changeLog.changesSince(head, 10).getChanges())
+                .extracting(NoteChange::getTitle)
+                .containsExactly("changed");
+        noteService.deleteNoteByTitle("changed");
+    }
+
+    private static void insert(DataSource dataSource, long id, String title) {
+        insert(dataSource, id, title, "from " + title);
+    }
+
+    private static void insert(DataSource dataSource, long id, String title, String text) {
+        new JdbcTemplate(dataSource).update("INSERT INTO NOTES (ID, TITLE, TITLE_NORMALIZED, CREATED_AT, UPDATED_AT, CONTENT, VERSION) "
+                + "VALUES (?, ?, ?, LOCALTIMESTAMP, LOCALTIMESTAMP, ?, 0)", id, title, title, text);
+    }
+}
@@ -0,0 +1,72 @@
+package com.notes.json;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.notes.dto.NotePage;
+import com.notes.dto.NoteSummary;
+import com.notes.model.Note;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NoteJsonModuleTest {
+
+    private final ObjectMapper reflective = Jackson2ObjectMapperBuilder.json().build();
+    private final ObjectMapper compiled = Jackson2ObjectMapperBuilder.json().modulesToInstall(new NoteJsonModule()).build();
+
+    @Test
+    @DisplayName("Note должна сериализоваться байт в байт как через аннотации Jackson")
+    void note_shouldMatchReflectiveSerialization() throws Exception {
+        List<Note> notes = List.of(
+                note(1, "title", "text", LocalDateTime.of(2025, 6, 17, 0, 5, 9), LocalDateTime.of(2025, 6, 17, 12, 0)),
+                note(2, "\"кавычки\" и \\", "строка\nс 😀 и \u0001", LocalDateTime.of(1999, 12, 31, 23, 59, 59, 999_999_999),
+                        LocalDateTime.of(2000, 1, 1, 13, 1, 2)),
+                note(3, "no text", null, LocalDateTime.of(12345, 1, 1, 1, 1), LocalDateTime.of(-5, 3, 4, 5, 6)),
+                note(4, "no dates", "", null, null));
+        assertThat(compiled.getSerializerProviderInstance().findValueSerializer(Note.class))
+                .isInstanceOf(NoteSerializer.class);
+
+        for (Note note : notes) {
+            assertThat(compiled.writeValueAsString(note)).isEqualTo(reflective.writeValueAsString(note));
+        }
+        NotePage<Note> page = new NotePage<>(notes, "cursor");
+        assertThat(compiled.writeValueAsString(page)).isEqualTo(reflective.writeValueAsString(page));
+    }
+
+    @Test
+    @DisplayName("Сводка должна сериализоваться как через @JsonPropertyOrder и геттеры NoteSummary")
+    void summary_shouldMatchReflectiveSerialization() throws Exception {
+        Map<String, Object> values = new HashMap<>();
+        values.put("id", 1L);
+        values.put("title", "title");
+        values.put("createdAt", LocalDateTime.of(2025, 6, 17, 10, 5));
+        values.put("updatedAt", LocalDateTime.of(2025, 6, 18, 22, 5));
+        values.put("storedPreview", "preview");
+        values.put("storedLength", 7L);
+        NoteSummary summary = new SpelAwareProxyProjectionFactory().createProjection(NoteSummary.class, values);
+        values.put("storedPreview", null);
+        values.put("storedLength", null);
+        NoteSummary empty = new SpelAwareProxyProjectionFactory().createProjection(NoteSummary.class, values);
+
+        List<NoteSummary> summaries = List.of(summary, empty);
+        assertThat(compiled.getSerializerProviderInstance().findValueSerializer(summary.getClass()))
+                .isInstanceOf(NoteSummarySerializer.class);
+        assertThat(compiled.writeValueAsString(summaries)).isEqualTo(reflective.writeValueAsString(summaries));
+        assertThat(compiled.writeValueAsString(summaries)).contains("\"createdAt\":\"2025-06-17 10:05:00\"");
+    }
+
+    private static Note note(long id, String title, String text, LocalDateTime createdAt, LocalDateTime updatedAt) {
+        Note note = new Note(title, text);
+        note.setId(id);
+        note.setCreatedAt(createdAt);
+        note.setUpdatedAt(updatedAt);
+        return note;
+    }
+}
@@ -0,0 +1,108 @@
+package com.notes.recent;
+
+import com.notes.event.NoteChangedEvent;
+import com.notes.model.Note;
+import com.notes.storage.NoteStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RecentNotesTrackerTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 6, 17, 10, 0);
+
+    @Mock
+    private NoteStore noteStore;
+
+    private RecentNotesTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        RecentNotesProperties properties = new RecentNotesProperties();
+        properties.setCapacity(3);
+        tracker = new RecentNotesTracker(noteStore, properties);
+    }
+
+    @Test
+    @DisplayName("На холодном старте список должен загружаться индексированным запросом один раз")
+    void recent_whenCold_shouldLoadFromRepositoryOnce() {
+        when(noteStore.findFirstPage(3)).thenReturn(List.of(note(3, 3), note(2, 2), note(1, 1)));
+
+        assertThat(tracker.recent(2)).extracting(Note::getId).containsExactly(3L, 2L);
+        assertThat(tracker.recent(3)).extracting(Note::getId).containsExactly(3L, 2L, 1L);
+
+        verify(noteStore, times(1)).findFirstPage(anyInt());
+    }
+
+    @Test
+    @DisplayName("Изменённая заметка должна становиться первой без обращения к БД")
+    void onNoteChanged_whenNoteUpdated_shouldMoveItToHead() {
+        when(noteStore.findFirstPage(3)).thenReturn(List.of(note(2, 2), note(1, 1)));
+        tracker.afterSingletonsInstantiated();
+
+        Note updated = note(1, 5);
+        updated.setVersion(1);
+        tracker.onNoteChanged(NoteChangedEvent.updated("title 1", updated));
+        tracker.onNoteChanged(NoteChangedEvent.created(note(7, 6)));
+
+        assertThat(tracker.recent(3)).extracting(Note::getId).containsExactly(7L, 1L, 2L);
+        verify(noteStore, times(1)).findFirstPage(anyInt());
+    }
+
+    @Test
+    @DisplayName("После удаления запрос длиннее списка должен дочитываться из БД")
+    void recent_afterDeletion_shouldFallBackToRepository() {
+        when(noteStore.findFirstPage(3))
+                .thenReturn(List.of(note(4, 4), note(3, 3), note(2, 2)))
+                .thenReturn(List.of(note(3, 3), note(2, 2), note(1, 1)));
+        tracker.afterSingletonsInstantiated();
+
+        tracker.onNoteChanged(NoteChangedEvent.deleted(4, "title 4"));
+
+        assertThat(tracker.recent(2)).extracting(Note::getId).containsExactly(3L, 2L);
+        verify(noteStore, times(1)).findFirstPage(anyInt());
+        assertThat(tracker.recent(3)).extracting(Note::getId).containsExactly(3L, 2L, 1L);
+        verify(noteStore, times(2)).findFirstPage(anyInt());
+    }
+
+    @Test
+    @DisplayName("Событие изменения, обработанное после удаления той же заметки, не должно её вернуть")
+    void onNoteChanged_whenUpdateArrivesAfterDelete_shouldIgnoreIt() {
+        when(noteStore.findFirstPage(3)).thenReturn(List.of());
+        tracker.afterSingletonsInstantiated();
+
+        tracker.onNoteChanged(NoteChangedEvent.deleted(1, "title 1"));
+        tracker.onNoteChanged(NoteChangedEvent.updated("title 1", note(1, 1)));
+
+        assertThat(tracker.recent(3)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Заметка старше последней в неполном списке не должна в него попадать")
+    void onNoteChanged_whenNoteIsOlderThanTail_shouldNotInsertIt() {
+        when(noteStore.findFirstPage(3)).thenReturn(List.of(note(5, 5), note(4, 4), note(3, 3)));
+        tracker.afterSingletonsInstantiated();
+        tracker.onNoteChanged(NoteChangedEvent.deleted(5, "title 5"));
+
+        tracker.onNoteChanged(NoteChangedEvent.created(note(1, 1)));
+
+        assertThat(tracker.recent(2)).extracting(Note::getId).containsExactly(4L, 3L);
+    }
+
+    private static Note note(long id, int minutes) {
+        Note note = new Note("title " + id, "text");
+        note.setId(id);
+        note.setUpdatedAt(NOW.plusMinutes(minutes));
+        return note;
+    }
+}
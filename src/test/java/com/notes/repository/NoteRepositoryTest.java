@@ -1,13 +1,20 @@
 package com.notes.repository;
 
+import com.notes.compression.NoteContentCodec;
+import com.notes.dto.NoteSummary;
+import com.notes.dto.NoteVersion;
 import com.notes.model.Note;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
@@ -18,6 +25,9 @@ class NoteRepositoryTest {
     @Autowired
     private NoteRepository noteRepository;
 
+    @Autowired
+    private TestEntityManager entityManager;
+
     @Test
     void saveNote_thenFindByTitle() {
         Note note = new Note();
@@ -66,6 +76,112 @@ class NoteRepositoryTest {
         assertEquals(size, allNotes.size());
     }
 
+    @Test
+    @DisplayName("Постраничная выборка по курсору должна обойти все заметки без повторов")
+    void whenPagingByCursor_thenEveryNoteIsReturnedOnce() {
+        saveTestNotes(5);
+        entityManager.flush();
+        entityManager.clear();
+
+        List<Note> firstPage = noteRepository.findFirstPage(Limit.of(2));
+        Note last = firstPage.get(firstPage.size() - 1);
+        List<Note> secondPage = noteRepository.findPageAfter(last.getUpdatedAt(), last.getId(), Limit.of(10));
+
+        assertEquals(2, firstPage.size());
+        assertEquals(3, secondPage.size());
+        assertTrue(secondPage.stream().noneMatch(firstPage::contains));
+    }
+
+    @Test
+    @DisplayName("streamAll() должен отдавать все заметки")
+    void whenStreamingAll_thenEveryNoteIsReturned() {
+        saveTestNotes(3);
+
+        try (Stream<Note> notes = noteRepository.streamAll()) {
+            assertEquals(3, notes.count());
+        }
+    }
+
+    @Test
+    @DisplayName("Сводка заметки должна содержать превью и длину текста без загрузки всего содержимого")
+    void whenLoadingSummaries_thenPreviewIsTruncatedAndLengthIsReported() {
+        Note note = new Note("long", "a".repeat(500));
+        noteRepository.save(note);
+        noteRepository.flush();
+
+        List<NoteSummary> summaries = noteRepository.findAllSummaries(10);
+
+        assertEquals(1, summaries.size());
+        NoteSummary summary = summaries.get(0);
+        assertEquals(note.getId(), summary.getId());
+        assertEquals("long", summary.getTitle());
+        assertEquals("a".repeat(10), summary.getPreview());
+        assertEquals(500L, summary.getLength());
+        assertNotNull(summary.getUpdatedAt());
+        assertNotNull(summary.getCreatedAt());
+    }
+
+    @Test
+    @DisplayName("Постраничная выборка сводок должна продолжаться с позиции курсора")
+    void whenPagingSummariesByCursor_thenNextPageStartsAfterCursor() {
+        saveTestNotes(3);
+        noteRepository.flush();
+
+        List<NoteSummary> firstPage = noteRepository.findFirstSummaryPage(10, Limit.of(1));
+        NoteSummary last = firstPage.get(0);
+        List<NoteSummary> secondPage = noteRepository.findSummaryPageAfter(last.getUpdatedAt(), last.getId(), 10, Limit.of(10));
+
+        assertEquals(2, secondPage.size());
+        assertTrue(secondPage.stream().noneMatch(summary -> summary.getId() == last.getId()));
+    }
+
+    @Test
+    @DisplayName("Большой текст должен храниться сжатым и прозрачно читаться, в том числе в сводке")
+    void whenTextIsLarge_thenItIsStoredCompressedAndReadTransparently() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; text.length() < 20_000; i++) {
+            text.append("## Раздел ").append(i).append("\nТекст заметки номер ").append(i * 31 % 97).append(".\n\n");
+        }
+        Note note = noteRepository.save(new Note("large", text.toString()));
+        entityManager.flush();
+        entityManager.clear();
+
+        String stored = (String) entityManager.getEntityManager()
+                .createNativeQuery("SELECT CAST(CONTENT AS VARCHAR(1000000)) FROM NOTES WHERE ID = :id")
+                .setParameter("id", note.getId())
+                .getSingleResult();
+        assertTrue(stored.startsWith(NoteContentCodec.MARKER));
+        assertTrue(stored.length() < text.length());
+
+        assertEquals(text.toString(), noteRepository.findByTitle("large").orElseThrow().getText());
+
+        NoteSummary summary = noteRepository.findAllSummaries(NoteSummary.PREVIEW_LENGTH).get(0);
+        assertEquals(text.substring(0, NoteSummary.PREVIEW_LENGTH), summary.getPreview());
+        assertEquals((long) text.length(), summary.getLength());
+    }
+
+    @Test
+    @DisplayName("Условное изменение должно применяться только к ожидаемой версии и увеличивать её")
+    void whenUpdatingWithExpectedVersion_thenOnlyMatchingVersionIsUpdated() {
+        Note note = noteRepository.save(new Note("title", "text"));
+        entityManager.flush();
+        entityManager.clear();
+        NoteVersion version = noteRepository.findVersionByTitle("title").orElseThrow();
+        assertEquals(new NoteVersion(note.getId(), 0), version);
+
+        Note updated = noteRepository.updateByTitle("title", "title", "title", "text 2", LocalDateTime.now(),
+                version.id(), version.version()).orElseThrow();
+        assertEquals(1, updated.getVersion());
+        entityManager.clear();
+
+        assertTrue(noteRepository.patchByTitle("title", null, null, "text 3", LocalDateTime.now(),
+                version.id(), version.version()).isEmpty());
+        assertTrue(noteRepository.patchByTitle("title", null, null, "text 3", LocalDateTime.now(),
+                null, null).isPresent());
+        entityManager.clear();
+        assertEquals(new NoteVersion(note.getId(), 2), noteRepository.findVersionByTitle("title").orElseThrow());
+    }
+
     private List<Note> saveTestNotes(int count) {
         List<Note> savedNotes = new ArrayList<>();
         for (int i = 0; i < count; i++) {
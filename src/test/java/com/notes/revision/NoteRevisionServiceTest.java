@@ -0,0 +1,159 @@
+package com.notes.revision;
+
+import com.notes.compression.NoteCompressionProperties;
+import com.notes.compression.NoteContentCodec;
+import com.notes.event.NoteChangedEvent;
+import com.notes.exception.RevisionNotFoundException;
+import com.notes.model.Note;
+import com.notes.model.NoteRevision;
+import com.notes.repository.NoteRepository;
+import com.notes.repository.NoteRevisionRepository;
+import com.notes.service.NoteServiceImpl;
+import com.notes.storage.jpa.JpaNoteStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest(properties = "notes.revisions.snapshot-interval=3")
+@Import({NoteRevisionService.class, NoteRevisionWriter.class, NoteServiceImpl.class, JpaNoteStore.class,
+        NoteContentCodec.class, SimpleMeterRegistry.class})
+@EnableConfigurationProperties({NoteRevisionProperties.class, NoteCompressionProperties.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class NoteRevisionServiceTest {
+
+    @Autowired
+    private NoteRevisionService revisionService;
+
+    @Autowired
+    private NoteRevisionWriter revisionWriter;
+
+    @Autowired
+    private NoteServiceImpl noteService;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private NoteRevisionRepository revisionRepository;
+
+    @Autowired
+    private SimpleMeterRegistry meterRegistry;
+
+    @AfterEach
+    void tearDown() {
+        noteRepository.deleteAll();
+        revisionRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Каждая ревизия должна собираться из дельт, полный текст - раз в snapshot-interval ревизий")
+    void getRevision_shouldReconstructEveryRevision() throws InterruptedException {
+        List<String> texts = new ArrayList<>();
+        texts.add("Первая строка заметки.");
+        noteService.createNote("title", texts.get(0));
+        for (int i = 1; i < 8; i++) {
+            String text = texts.get(i - 1) + "\nСтрока " + i + " 😀";
+            texts.add(text);
+            noteService.patchNoteByTitle("title", null, text);
+        }
+        revisionWriter.awaitWritten();
+
+        for (int revision = 0; revision < texts.size(); revision++) {
+            assertThat(revisionService.getRevision("title", revision).getText()).isEqualTo(texts.get(revision));
+        }
+        assertThat(revisionRepository.findAll().stream()
+                .sorted(Comparator.comparingLong(NoteRevision::getRevision))
+                .map(NoteRevision::getKind))
+                .containsExactly(NoteRevision.Kind.FULL, NoteRevision.Kind.DELTA, NoteRevision.Kind.DELTA,
+                        NoteRevision.Kind.FULL, NoteRevision.Kind.DELTA, NoteRevision.Kind.DELTA,
+                        NoteRevision.Kind.FULL, NoteRevision.Kind.DELTA);
+        assertThat(revisionService.getRevisions("title", 5L, 2))
+                .extracting(summary -> summary.getRevision())
+                .containsExactly(4L, 3L);
+    }
+
+    @Test
+    @DisplayName("Восстановление ревизии должно вернуть её текст и записать новую ревизию")
+    void restoreRevision_shouldRestoreTextAsNewRevision() throws InterruptedException {
+        noteService.createNote("title", "old text");
+        noteService.editNoteByTitle("title", "renamed", "new text");
+        revisionWriter.awaitWritten();
+
+        assertThat(revisionService.restoreRevision("renamed", 0).getText()).isEqualTo("old text");
+        revisionWriter.awaitWritten();
+
+        assertThat(revisionService.getRevisions("renamed", null, 10))
+                .extracting(summary -> summary.getTitle())
+                .containsExactly("renamed", "renamed", "title");
+        assertThat(revisionService.getRevision("renamed", 2).getText()).isEqualTo("old text");
+        assertThatThrownBy(() -> revisionService.getRevision("renamed", 3))
+                .isInstanceOf(RevisionNotFoundException.class);
+    }
+
+    @Test
+    @DisplayName("Ошибка одной ревизии не должна терять остальные ревизии пачки")
+    void whenOneRevisionFails_thenOthersAreStored() throws InterruptedException {
+        double droppedBefore = meterRegistry.get("notes.revisions.dropped").counter().count();
+        List<Long> expected = new ArrayList<>();
+        for (long id = 1000; id < 1020; id++) {
+            Note note = new Note(id == 1010 ? "x".repeat(41) : "title" + id, "text");
+            note.setId(id);
+            note.setUpdatedAt(LocalDateTime.now());
+            if (id != 1010) {
+                expected.add(id);
+            }
+            revisionWriter.onNoteChanged(NoteChangedEvent.created(note));
+        }
+        revisionWriter.awaitWritten();
+
+        assertThat(revisionRepository.findAll())
+                .extracting(NoteRevision::getNoteId)
+                .containsExactlyInAnyOrderElementsOf(expected);
+        assertThat(meterRegistry.get("notes.revisions.dropped").counter().count()).isEqualTo(droppedBefore + 1);
+    }
+
+    @Test
+    @DisplayName("Удаление заметки должно удалять её историю")
+    void deleteNote_shouldDeleteRevisions() throws InterruptedException {
+        noteService.createNote("title", "text");
+        noteService.patchNoteByTitle("title", null, "new text");
+        noteService.createNote("other", "text");
+        revisionWriter.awaitWritten();
+
+        noteService.deleteNoteByTitle("title");
+        revisionWriter.awaitWritten();
+
+        assertThat(revisionRepository.findAll())
+                .extracting(NoteRevision::getTitle)
+                .containsExactly("other");
+    }
+
+    @Test
+    @DisplayName("Удаление заметки без истории не должно трогать историю другой заметки с тем же названием")
+    void deleteNote_shouldDeleteRevisionsByNoteId() throws InterruptedException {
+        Note note = noteService.createNote("title", "text");
+        revisionWriter.awaitWritten();
+
+        revisionWriter.onNoteChanged(NoteChangedEvent.deleted(note.getId() + 1, "title"));
+        revisionWriter.awaitWritten();
+
+        assertThat(revisionRepository.findAll())
+                .extracting(NoteRevision::getNoteId)
+                .containsExactly(note.getId());
+    }
+}
@@ -0,0 +1,29 @@
+package com.notes.revision;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TextDeltaTest {
+
+    @Test
+    @DisplayName("Дельта должна содержать только изменённую середину текста")
+    void between_shouldKeepCommonPrefixAndSuffix() {
+        TextDelta delta = TextDelta.between("hello brave world", "hello new world");
+
+        assertThat(delta.prefixLength()).isEqualTo(6);
+        assertThat(delta.suffixLength()).isEqualTo(6);
+        assertThat(delta.inserted()).isEqualTo("new");
+    }
+
+    @Test
+    @DisplayName("Граница дельты не должна разрезать суррогатную пару")
+    void between_shouldNotSplitSurrogatePairs() {
+        TextDelta delta = TextDelta.between("a😀b", "a😁b");
+
+        assertThat(delta.inserted()).isEqualTo("😁");
+        assertThat(delta.prefixLength()).isEqualTo(1);
+        assertThat(delta.suffixLength()).isEqualTo(1);
+    }
+}
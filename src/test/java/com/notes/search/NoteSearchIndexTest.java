@@ -0,0 +1,97 @@
+package com.notes.search;
+
+import com.notes.dto.NoteSearchHit;
+import com.notes.dto.NoteSearchResult;
+import com.notes.model.Note;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NoteSearchIndexTest {
+
+    private final NoteSearchIndex searchIndex = new NoteSearchIndex();
+
+    @Test
+    @DisplayName("Заметка с большим числом совпадений должна быть выше в выдаче")
+    void search_shouldRankMoreRelevantNoteFirst() {
+        searchIndex.index(createNote(1, "Покупки", "молоко хлеб"));
+        searchIndex.index(createNote(2, "Рецепт", "молоко молоко молоко мука"));
+        searchIndex.index(createNote(3, "Работа", "отчёт"));
+
+        NoteSearchResult result = searchIndex.search("молоко", 0, 10);
+
+        assertThat(result.getTotal()).isEqualTo(2);
+        assertThat(result.getHits()).extracting(NoteSearchHit::getId).containsExactly(2L, 1L);
+    }
+
+    @Test
+    @DisplayName("Совпадение в названии должно весить больше совпадения в тексте")
+    void search_shouldBoostTitleMatches() {
+        searchIndex.index(createNote(1, "Spring notes", "boot"));
+        searchIndex.index(createNote(2, "Other", "spring boot"));
+
+        NoteSearchResult result = searchIndex.search("spring", 0, 10);
+
+        assertThat(result.getHits()).extracting(NoteSearchHit::getTitle).containsExactly("Spring notes", "Other");
+    }
+
+    @Test
+    @DisplayName("Слово со звёздочкой должно искаться как префикс")
+    void search_withWildcard_shouldMatchPrefix() {
+        searchIndex.index(createNote(1, "a", "transaction"));
+        searchIndex.index(createNote(2, "b", "transactional"));
+        searchIndex.index(createNote(3, "c", "trans"));
+
+        assertThat(searchIndex.search("transact", 0, 10).getTotal()).isEqualTo(0);
+        assertThat(searchIndex.search("transact*", 0, 10).getTotal()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Постраничная выдача должна пропускать offset лучших результатов")
+    void search_withOffset_shouldReturnNextPage() {
+        for (int i = 1; i <= 5; i++) {
+            searchIndex.index(createNote(i, "note " + i, "word ".repeat(i)));
+        }
+
+        NoteSearchResult firstPage = searchIndex.search("word", 0, 2);
+        NoteSearchResult secondPage = searchIndex.search("word", 2, 2);
+
+        assertThat(firstPage.getTotal()).isEqualTo(5);
+        assertThat(firstPage.getHits()).hasSize(2);
+        assertThat(secondPage.getHits()).hasSize(2);
+        assertThat(secondPage.getHits().get(0).getScore()).isLessThanOrEqualTo(firstPage.getHits().get(1).getScore());
+    }
+
+    @Test
+    @DisplayName("Смещение за пределами выдачи, в том числе близкое к Integer.MAX_VALUE, должно давать пустую страницу")
+    void search_withHugeOffset_shouldReturnEmptyPage() {
+        searchIndex.index(createNote(1, "note", "word"));
+
+        NoteSearchResult result = searchIndex.search("word", Integer.MAX_VALUE - 1, 10);
+
+        assertThat(result.getTotal()).isEqualTo(1);
+        assertThat(result.getHits()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Изменённая и удалённая заметки не должны находиться по старому содержимому")
+    void index_whenNoteIsUpdatedOrRemoved_shouldForgetOldTerms() {
+        searchIndex.index(createNote(1, "title", "old"));
+        searchIndex.index(createNote(1, "renamed", "new"));
+
+        assertThat(searchIndex.search("old", 0, 10).getTotal()).isEqualTo(0);
+        assertThat(searchIndex.search("new", 0, 10).getHits()).extracting(NoteSearchHit::getTitle).containsExactly("renamed");
+
+        searchIndex.remove("renamed");
+
+        assertThat(searchIndex.search("new", 0, 10).getTotal()).isEqualTo(0);
+        assertThat(searchIndex.size()).isEqualTo(0);
+    }
+
+    private Note createNote(long id, String title, String text) {
+        Note note = new Note(title, text);
+        note.setId(id);
+        return note;
+    }
+}
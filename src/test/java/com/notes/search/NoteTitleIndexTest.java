@@ -0,0 +1,54 @@
+package com.notes.search;
+
+import com.notes.event.NoteChangedEvent;
+import com.notes.model.Note;
+import com.notes.storage.NoteStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class NoteTitleIndexTest {
+
+    private final NoteStore noteStore = mock(NoteStore.class);
+    private final NoteTitleIndex titleIndex = new NoteTitleIndex(noteStore);
+
+    @BeforeEach
+    void setUp() {
+        when(noteStore.findAllTitles()).thenReturn(List.of("spring", "Spring Boot", "spring data", "Summer", "sprint"));
+        titleIndex.afterSingletonsInstantiated();
+    }
+
+    @Test
+    @DisplayName("Поиск по префиксу должен учитывать регистр, если не задано обратное")
+    void findByPrefix_shouldBeCaseSensitiveByDefault() {
+        assertThat(titleIndex.findByPrefix("spring", false, 10)).containsExactly("spring", "spring data");
+        assertThat(titleIndex.findByPrefix("spring", true, 10)).containsExactly("spring", "Spring Boot", "spring data");
+        assertThat(titleIndex.findByPrefix("SPR", true, 2)).containsExactly("spring", "Spring Boot");
+    }
+
+    @Test
+    @DisplayName("Поиск без учёта регистра должен вернуть все варианты названия")
+    void findIgnoringCase_shouldReturnAllCaseVariants() {
+        titleIndex.onNoteChanged(NoteChangedEvent.created(new Note("SPRING", "text")));
+
+        assertThat(titleIndex.findIgnoringCase("Spring")).containsExactly("SPRING", "spring");
+        assertThat(titleIndex.findIgnoringCase("spr")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Переименование и удаление должны обновлять индекс")
+    void onNoteChanged_shouldFollowRenamesAndDeletes() {
+        titleIndex.onNoteChanged(NoteChangedEvent.updated("sprint", new Note("autumn", "text")));
+        titleIndex.onNoteChanged(NoteChangedEvent.deleted(1, "spring"));
+
+        assertThat(titleIndex.findByPrefix("spr", false, 10)).containsExactly("spring data");
+        assertThat(titleIndex.findByPrefix("a", false, 10)).containsExactly("autumn");
+        assertThat(titleIndex.size()).isEqualTo(4);
+    }
+}
@@ -0,0 +1,114 @@
+package com.notes.service;
+
+import com.notes.compression.NoteCompressionProperties;
+import com.notes.compression.NoteContentCodec;
+import com.notes.dto.BulkItemResult;
+import com.notes.dto.BulkNoteOperation;
+import com.notes.dto.BulkResult;
+import com.notes.repository.NoteRepository;
+import com.notes.storage.jpa.JpaNoteStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "notes.bulk.chunk-size=100",
+        "notes.bulk.batch-size=50"
+})
+@Import({NoteBulkService.class, JpaNoteStore.class, NoteContentCodec.class,SimpleMeterRegistry.class})
+@ImportAutoConfiguration(ValidationAutoConfiguration.class)
+@EnableConfigurationProperties({NoteBulkProperties.class, NoteCompressionProperties.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class NoteBulkServiceTest {
+
+    @Autowired
+    private NoteBulkService bulkService;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @AfterEach
+    void tearDown() {
+        noteRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Массовое создание должно отправлять INSERT пачками, а не по одному")
+    void apply_whenCreatingManyNotes_shouldBatchInserts() {
+        List<BulkNoteOperation> operations = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            operations.add(operation(BulkNoteOperation.Op.CREATE, "title " + i, null));
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        BulkResult result = bulkService.apply(operations.iterator());
+
+        assertThat(result.getSucceeded()).isEqualTo(200);
+        assertThat(noteRepository.count()).isEqualTo(200);
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(200);
+        assertThat(statistics.getPrepareStatementCount()).isLessThan(20);
+    }
+
+    @Test
+    @DisplayName("Ошибочные операции должны получать свой статус, не мешая остальным")
+    void apply_whenSomeOperationsAreInvalid_shouldReportStatusPerItem() {
+        List<BulkNoteOperation> operations = List.of(
+                operation(BulkNoteOperation.Op.CREATE, "title1", null),
+                operation(BulkNoteOperation.Op.CREATE, "", null),
+                operation(BulkNoteOperation.Op.CREATE, "title1", null),
+                operation(BulkNoteOperation.Op.UPDATE, "title1", "title2"),
+                operation(BulkNoteOperation.Op.DELETE, "missing", null));
+
+        BulkResult result = bulkService.apply(operations.iterator());
+
+        assertThat(result.getItems()).extracting(BulkItemResult::getStatus).containsExactly(201, 400, 409, 200, 404);
+        assertThat(result.getSucceeded()).isEqualTo(2);
+        assertThat(result.getFailed()).isEqualTo(3);
+        assertThat(noteRepository.findByTitle("title2")).isPresent();
+        assertThat(noteRepository.findByTitle("title1")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Ошибка базы по элементу должна возвращаться понятным сообщением без SQL")
+    void apply_whenDatabaseRejectsItem_shouldNotExposeSqlMessage() {
+        String tooLong = "x".repeat(41);
+
+        BulkResult result = bulkService.apply(List.of(operation(BulkNoteOperation.Op.CREATE, tooLong, null)).iterator());
+
+        BulkItemResult item = result.getItems().get(0);
+        assertThat(item.getStatus()).isEqualTo(400);
+        assertThat(item.getError()).isEqualTo("Недопустимые данные заметки " + tooLong + ".")
+                .doesNotContain("NOTES", "SQL");
+    }
+
+    private BulkNoteOperation operation(BulkNoteOperation.Op op, String title, String newTitle) {
+        BulkNoteOperation operation = new BulkNoteOperation();
+        operation.setOp(op);
+        operation.setTitle(title);
+        operation.setNewTitle(newTitle);
+        operation.setText("text");
+        return operation;
+    }
+}
@@ -1,8 +1,13 @@
 package com.notes.service;
 
+import com.notes.dto.NotePage;
+import com.notes.dto.NoteVersion;
+import com.notes.event.NoteChangedEvent;
+import com.notes.exception.InvalidCursorException;
 import com.notes.exception.NoteNotFoundException;
+import com.notes.exception.NoteVersionMismatchException;
 import com.notes.model.Note;
-import com.notes.repository.NoteRepository;
+import com.notes.storage.NoteStore;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -10,9 +15,12 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalLong;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
@@ -22,13 +30,16 @@ import static org.mockito.Mockito.*;
 class NoteServiceImplTest {
 
     @Mock
-    private NoteRepository noteRepository;
+    private NoteStore noteStore;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
 
     @InjectMocks
     private NoteServiceImpl noteService;
 
     @Test
-    @DisplayName("Метод createNote должен вызывать noteRepository.save с корректно сформированным объёктом Note")
+    @DisplayName("Метод createNote должен вызывать noteStore.create с корректно сформированным объёктом Note")
     void createNote_should_CallRepositorySaveWithCorrectNote() {
         String title = "title";
         String text = "text";
@@ -36,7 +47,7 @@ class NoteServiceImplTest {
         ArgumentCaptor<Note> noteArgumentCaptor = ArgumentCaptor.forClass(Note.class);
         noteService.createNote(title, text);
 
-        verify(noteRepository, times(1)).save(noteArgumentCaptor.capture());
+        verify(noteStore, times(1)).create(noteArgumentCaptor.capture());
 
         Note capturedNote = noteArgumentCaptor.getValue();
         assertThat(capturedNote).isNotNull();
@@ -49,20 +60,20 @@ class NoteServiceImplTest {
     void getLastNote_whenNoteExists_shouldReturnNote() {
         Note expectedNote = new Note("Последняя заметка", "text1");
 
-        when(noteRepository.findFirstByOrderByUpdatedAtDesc()).thenReturn(Optional.of(expectedNote));
+        when(noteStore.findLatest()).thenReturn(Optional.of(expectedNote));
 
         Note actualNote = noteService.getLastNote();
 
         assertThat(actualNote).isNotNull();
         assertThat(actualNote.getTitle()).isEqualTo("Последняя заметка");
 
-        verify(noteRepository, times(1)).findFirstByOrderByUpdatedAtDesc();
+        verify(noteStore, times(1)).findLatest();
     }
 
     @Test
     @DisplayName("getLastNote должен выбросить NoteNotFoundException, если репозиторий пустой")
     void getLastNote_whenNoteNotExists_shouldThrowException() {
-        when(noteRepository.findFirstByOrderByUpdatedAtDesc()).thenReturn(Optional.empty());
+        when(noteStore.findLatest()).thenReturn(Optional.empty());
 
         assertThatThrownBy(() -> noteService.getLastNote())
                 .isInstanceOf(NoteNotFoundException.class)
@@ -70,16 +81,16 @@ class NoteServiceImplTest {
     }
 
     @Test
-    @DisplayName("Метод getAllNote должен вызывать noteRepository.findAll и возвращать верное количесто заметок")
+    @DisplayName("Метод getAllNote должен вызывать noteStore.findAll и возвращать верное количесто заметок")
     void getAllNotes_should_callRepositoryFindAll() {
-        when(noteRepository.findAll()).thenReturn(List.of(new Note(), new Note()));
+        when(noteStore.findAll()).thenReturn(List.of(new Note(), new Note()));
 
         List<Note> notesList = noteService.getAllNotes();
 
         assertThat(notesList).isNotNull();
         assertThat(notesList.size()).isEqualTo(2);
 
-        verify(noteRepository, times(1)).findAll();
+        verify(noteStore, times(1)).findAll();
     }
 
     @Test
@@ -87,7 +98,7 @@ class NoteServiceImplTest {
     void getNoteByTitle_whenNoteExists_shouldReturnNote() {
         Note expectedNote = new Note("title", "text");
 
-        when(noteRepository.findByTitle("title")).thenReturn(Optional.of(expectedNote));
+        when(noteStore.findByTitle("title")).thenReturn(Optional.of(expectedNote));
 
         Note actualNote = noteService.getNoteByTitle(expectedNote.getTitle());
 
@@ -95,40 +106,54 @@ class NoteServiceImplTest {
         assertThat(actualNote.getTitle()).isEqualTo(expectedNote.getTitle());
         assertThat(actualNote.getText()).isEqualTo(expectedNote.getText());
 
-        verify(noteRepository, times(1)).findByTitle(expectedNote.getTitle());
+        verify(noteStore, times(1)).findByTitle(expectedNote.getTitle());
     }
 
     @Test
     @DisplayName("getNoteByTitle должен выбросить NoteNotFoundException, если заметки с таким названием нет")
     void getNoteByTitle_whenNoteNotExists_shouldThrowException() {
         String title = "title";
-        when(noteRepository.findByTitle(title)).thenReturn(Optional.empty());
+        when(noteStore.findByTitle(title)).thenReturn(Optional.empty());
 
         assertThatThrownBy(() -> noteService.getNoteByTitle(title)).isInstanceOf(NoteNotFoundException.class).hasMessageContaining("Заметка с названием " + title + " не найдена");
     }
 
     @Test
-    @DisplayName("editNoteByTitle должен корректно изменять и сохранять новую версию заметку")
+    @DisplayName("editNoteByTitle должен изменять заметку одним UPDATE и возвращать её новую версию")
     void editNoteByTitle_whenNoteExists_shouldEditOldNoteCorrectly() {
-        Note noteToUpdate = new Note("oldTitle", "oldText");
+        String oldTitle = "oldTitle";
         String newTitle = "newTitle";
         String newText = "newText";
 
-        when(noteRepository.findByTitle(noteToUpdate.getTitle())).thenReturn(Optional.of(noteToUpdate));
-        when(noteRepository.save(any(Note.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(noteStore.updateByTitle(eq(oldTitle), eq(newTitle), eq(newText), isNull()))
+                .thenReturn(Optional.of(new Note(newTitle, newText)));
 
-        Note updatedNote = noteService.editNoteByTitle(noteToUpdate.getTitle(), newTitle, newText);
+        Note updatedNote = noteService.editNoteByTitle(oldTitle, newTitle, newText);
 
         assertThat(updatedNote).isNotNull();
         assertThat(updatedNote.getTitle()).isEqualTo(newTitle);
         assertThat(updatedNote.getText()).isEqualTo(newText);
 
-        ArgumentCaptor<Note> noteCaptor = ArgumentCaptor.forClass(Note.class);
-        verify(noteRepository).save(noteCaptor.capture());
+        verify(noteStore, never()).findByTitle(any());
+        verify(noteStore, never()).create(any());
+    }
+
+    @Test
+    @DisplayName("editNoteByTitle должен публиковать событие с прежним и новым названием заметки")
+    void editNoteByTitle_whenTitleChanges_shouldPublishRenameEvent() {
+        when(noteStore.updateByTitle(eq("oldTitle"), eq("newTitle"), eq("newText"), isNull()))
+                .thenReturn(Optional.of(new Note("newTitle", "newText")));
+
+        noteService.editNoteByTitle("oldTitle", "newTitle", "newText");
+
+        ArgumentCaptor<NoteChangedEvent> eventCaptor = ArgumentCaptor.forClass(NoteChangedEvent.class);
+        verify(eventPublisher).publishEvent(eventCaptor.capture());
 
-        Note savedNote = noteCaptor.getValue();
-        assertThat(savedNote.getTitle()).isEqualTo(newTitle);
-        assertThat(savedNote.getText()).isEqualTo(newText);
+        NoteChangedEvent event = eventCaptor.getValue();
+        assertThat(event.getType()).isEqualTo(NoteChangedEvent.Type.UPDATED);
+        assertThat(event.getOldTitle()).isEqualTo("oldTitle");
+        assertThat(event.getTitle()).isEqualTo("newTitle");
+        assertThat(event.isRename()).isTrue();
     }
 
     @Test
@@ -138,20 +163,70 @@ class NoteServiceImplTest {
         String newTitle = "newTitle";
         String newText = "newText";
 
-        when(noteRepository.findByTitle(oldTitle)).thenReturn(Optional.empty());
+        when(noteStore.updateByTitle(eq(oldTitle), eq(newTitle), eq(newText), isNull()))
+                .thenReturn(Optional.empty());
         assertThatThrownBy(() -> noteService.editNoteByTitle(oldTitle, newTitle, newText)).isInstanceOf(NoteNotFoundException.class).hasMessageContaining("Заметка с названием " + oldTitle + " не найдена");
     }
 
     @Test
-    @DisplayName("deleteNoteByTitle должен удалять заметку, если она существует")
+    @DisplayName("editNoteByTitle с устаревшей версией должен выбросить NoteVersionMismatchException")
+    void editNoteByTitle_whenVersionIsStale_shouldThrowVersionMismatch() {
+        when(noteStore.updateByTitle(eq("title"), eq("title"), eq("text"), eq(new NoteVersion(1, 3))))
+                .thenReturn(Optional.empty());
+        when(noteStore.existsByTitle("title")).thenReturn(true);
+
+        assertThatThrownBy(() -> noteService.editNoteByTitle("title", "title", "text", new NoteVersion(1, 3)))
+                .isInstanceOf(NoteVersionMismatchException.class);
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    @DisplayName("patchNoteByTitle с версией удалённой заметки должен выбросить NoteNotFoundException")
+    void patchNoteByTitle_whenVersionGivenAndNoteNotExists_shouldThrowNotFound() {
+        when(noteStore.patchByTitle(eq("title"), isNull(), eq("text"), eq(new NoteVersion(1, 3))))
+                .thenReturn(Optional.empty());
+        when(noteStore.existsByTitle("title")).thenReturn(false);
+
+        assertThatThrownBy(() -> noteService.patchNoteByTitle("title", null, "text", new NoteVersion(1, 3)))
+                .isInstanceOf(NoteNotFoundException.class);
+    }
+
+    @Test
+    @DisplayName("patchNoteByTitle должен менять только переданные поля одним UPDATE")
+    void patchNoteByTitle_whenNoteExists_shouldPatchInSingleStatement() {
+        when(noteStore.patchByTitle(eq("title"), isNull(), eq("newText"), isNull()))
+                .thenReturn(Optional.of(new Note("title", "newText")));
+
+        Note patchedNote = noteService.patchNoteByTitle("title", null, "newText");
+
+        assertThat(patchedNote.getTitle()).isEqualTo("title");
+        assertThat(patchedNote.getText()).isEqualTo("newText");
+        verify(noteStore, never()).findByTitle(any());
+    }
+
+    @Test
+    @DisplayName("patchNoteByTitle должен выбросить NoteNotFoundException, если заметки с таким названием нет")
+    void patchNoteByTitle_whenNoteNotExists_shouldThrowException() {
+        when(noteStore.patchByTitle(eq("title"), isNull(), eq("newText"), isNull()))
+                .thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> noteService.patchNoteByTitle("title", null, "newText"))
+                .isInstanceOf(NoteNotFoundException.class)
+                .hasMessageContaining("Заметка с названием title не найдена");
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    @DisplayName("deleteNoteByTitle должен удалять заметку одним DELETE, если она существует")
     void deleteNoteByTitle_whenNoteExist_shouldDeleteNoteCorrectly() {
         String title = "title";
 
-        when(noteRepository.existsByTitle(title)).thenReturn(true);
+        when(noteStore.deleteByTitle(title)).thenReturn(OptionalLong.of(1));
 
         noteService.deleteNoteByTitle(title);
 
-        verify(noteRepository, times(1)).deleteByTitle(title);
+        verify(noteStore, times(1)).deleteByTitle(title);
+        verify(noteStore, never()).existsByTitle(title);
     }
 
     @Test
@@ -159,9 +234,44 @@ class NoteServiceImplTest {
     void deleteNoteByTitle_whenNoteNotExist_shouldThrowException() {
         String title = "title";
 
-        when(noteRepository.existsByTitle(title)).thenReturn(false);
+        when(noteStore.deleteByTitle(title)).thenReturn(OptionalLong.empty());
 
         assertThatThrownBy(() -> noteService.deleteNoteByTitle(title)).isInstanceOf(NoteNotFoundException.class).hasMessageContaining("Невозможно удалить. Заметка с названием " + title + " не найдена.");
     }
 
-}
\ No newline at end of file
+    @Test
+    @DisplayName("getNotesPage должен вернуть курсор на следующую страницу, если заметок больше лимита")
+    void getNotesPage_whenMoreNotesThanLimit_shouldReturnNextCursor() {
+        Note first = createStoredNote(3, "title3");
+        Note second = createStoredNote(2, "title2");
+        Note third = createStoredNote(1, "title1");
+
+        when(noteStore.findFirstPage(3)).thenReturn(List.of(first, second, third));
+
+        NotePage<Note> page = noteService.getNotesPage(null, 2);
+
+        assertThat(page.getItems().size()).isEqualTo(2);
+        assertThat(page.getNext()).isNotNull();
+
+        when(noteStore.findPageAfter(second.getUpdatedAt(), second.getId(), 3)).thenReturn(List.of(third));
+
+        NotePage<Note> nextPage = noteService.getNotesPage(page.getNext(), 2);
+
+        assertThat(nextPage.getItems().size()).isEqualTo(1);
+        assertThat(nextPage.getNext()).isNull();
+    }
+
+    @Test
+    @DisplayName("getNotesPage должен выбросить InvalidCursorException для некорректного курсора")
+    void getNotesPage_whenCursorIsInvalid_shouldThrowException() {
+        assertThatThrownBy(() -> noteService.getNotesPage("not-a-cursor", 10))
+                .isInstanceOf(InvalidCursorException.class);
+    }
+
+    private Note createStoredNote(long id, String title) {
+        Note note = new Note(title, "text");
+        note.setId(id);
+        note.setUpdatedAt(LocalDateTime.of(2025, 6, 17, 10, 0).plusMinutes(id));
+        return note;
+    }
+}
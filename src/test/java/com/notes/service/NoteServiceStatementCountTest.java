@@ -0,0 +1,89 @@
+package com.notes.service;
+
+import com.notes.compression.NoteCompressionProperties;
+import com.notes.compression.NoteContentCodec;
+import com.notes.model.Note;
+import com.notes.repository.NoteRepository;
+import com.notes.storage.jpa.JpaNoteStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Замер числа SQL-запросов на одну операцию записи.
+ * До перехода на модифицирующие запросы: delete — 3 (exists, select, delete),
+ * edit/patch — 2 (select, update).
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({NoteServiceImpl.class, JpaNoteStore.class, NoteContentCodec.class,SimpleMeterRegistry.class})
+@EnableConfigurationProperties(NoteCompressionProperties.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class NoteServiceStatementCountTest {
+
+    @Autowired
+    private NoteServiceImpl noteService;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        noteRepository.save(new Note("title", "text"));
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        noteRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Удаление заметки должно выполняться одним запросом")
+    void deleteNoteByTitle_shouldUseSingleStatement() {
+        noteService.deleteNoteByTitle("title");
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(noteRepository.existsByTitle("title")).isFalse();
+    }
+
+    @Test
+    @DisplayName("Полное изменение заметки должно выполняться одним запросом")
+    void editNoteByTitle_shouldUseSingleStatement() {
+        Note note = noteService.editNoteByTitle("title", "newTitle", "newText");
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(note.getTitle()).isEqualTo("newTitle");
+        assertThat(note.getText()).isEqualTo("newText");
+    }
+
+    @Test
+    @DisplayName("Частичное изменение заметки должно выполняться одним запросом и сохранять непереданные поля")
+    void patchNoteByTitle_shouldUseSingleStatement() {
+        Note note = noteService.patchNoteByTitle("title", null, "newText");
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(note.getTitle()).isEqualTo("title");
+        assertThat(note.getText()).isEqualTo("newText");
+        assertThat(note.getCreatedAt()).isNotNull();
+        assertThat(note.getUpdatedAt()).isAfterOrEqualTo(note.getCreatedAt());
+    }
+}
@@ -0,0 +1,130 @@
+package com.notes.snapshot;
+
+import com.notes.compression.NoteCompressionProperties;
+import com.notes.compression.NoteContentCodec;
+import com.notes.dto.SnapshotImportResult;
+import com.notes.exception.InvalidSnapshotException;
+import com.notes.model.Note;
+import com.notes.repository.NoteRepository;
+import com.notes.service.NoteBulkProperties;
+import com.notes.service.NoteServiceImpl;
+import com.notes.storage.jpa.JpaNoteStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest(properties = "notes.snapshot.block-notes=2")
+@Import({NoteSnapshotService.class, NoteServiceImpl.class, JpaNoteStore.class, NoteContentCodec.class,SimpleMeterRegistry.class})
+@EnableConfigurationProperties({SnapshotProperties.class, NoteBulkProperties.class, NoteCompressionProperties.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class NoteSnapshotServiceTest {
+
+    @Autowired
+    private NoteSnapshotService snapshotService;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @AfterEach
+    void tearDown() {
+        noteRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Импорт экспортированного снимка должен восстановить заметки вместе с датами")
+    void importFrom_whenSnapshotWasExported_shouldRestoreNotesWithTimestamps() throws IOException {
+        noteRepository.save(new Note("first", "текст 😀"));
+        noteRepository.save(new Note("second", null));
+        noteRepository.save(new Note("third", "text"));
+        List<Note> original = sortedNotes();
+        byte[] snapshot = export();
+        noteRepository.deleteAll();
+
+        SnapshotImportResult result = snapshotService.importFrom(new ByteArrayInputStream(snapshot));
+
+        assertThat(result.getImported()).isEqualTo(3);
+        assertThat(result.getSkipped()).isZero();
+        assertThat(result.getBlocks()).isEqualTo(2);
+        assertThat(sortedNotes()).usingRecursiveComparison()
+                .comparingOnlyFields("title", "text", "createdAt", "updatedAt")
+                .isEqualTo(original);
+    }
+
+    @Test
+    @DisplayName("Заметки с уже занятыми названиями должны пропускаться")
+    void importFrom_whenTitleExists_shouldSkipNote() throws IOException {
+        noteRepository.save(new Note("first", "old"));
+        noteRepository.save(new Note("second", "text"));
+        byte[] snapshot = export();
+        noteRepository.deleteById(noteRepository.findByTitle("second").orElseThrow().getId());
+
+        SnapshotImportResult result = snapshotService.importFrom(new ByteArrayInputStream(snapshot));
+
+        assertThat(result.getImported()).isEqualTo(1);
+        assertThat(result.getSkipped()).isEqualTo(1);
+        assertThat(noteRepository.count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Повреждённый блок должен отклонять импорт, оставляя записанными предыдущие блоки")
+    void importFrom_whenBlockIsCorrupted_shouldKeepPreviousBlocks() throws IOException {
+        noteRepository.save(new Note("first", "text"));
+        noteRepository.save(new Note("second", "text"));
+        noteRepository.save(new Note("third", "text"));
+        byte[] snapshot = export();
+        noteRepository.deleteAll();
+        // последний байт второго блока, перед концом снимка (int 0 + long)
+        snapshot[snapshot.length - 13] ^= 1;
+
+        assertThatThrownBy(() -> snapshotService.importFrom(new ByteArrayInputStream(snapshot)))
+                .isInstanceOf(InvalidSnapshotException.class)
+                .hasMessageContaining("блока 2");
+        assertThat(noteRepository.count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Число заметок, не умещающееся в длину блока, должно отклоняться до разбора")
+    void importFrom_whenCountExceedsBlockLength_shouldRejectHeader() throws IOException {
+        ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(snapshot);
+        out.write(NoteSnapshotFormat.MAGIC);
+        out.writeByte(NoteSnapshotFormat.VERSION);
+        out.writeInt(Integer.MAX_VALUE);
+        out.writeInt(0);
+        out.writeInt(0);
+
+        assertThatThrownBy(() -> snapshotService.importFrom(new ByteArrayInputStream(snapshot.toByteArray())))
+                .isInstanceOf(InvalidSnapshotException.class)
+                .hasMessage("Некорректный заголовок блока 1");
+        assertThat(noteRepository.count()).isZero();
+    }
+
+    private byte[] export() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertThat(snapshotService.exportTo(out)).isEqualTo(noteRepository.count());
+        return out.toByteArray();
+    }
+
+    private List<Note> sortedNotes() {
+        return noteRepository.findAll().stream()
+                .sorted(Comparator.comparing(Note::getTitle))
+                .toList();
+    }
+}
@@ -0,0 +1,270 @@
+package com.notes.storage;
+
+import com.notes.dto.NoteSummary;
+import com.notes.dto.NoteVersion;
+import com.notes.model.Note;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Общие проверки для всех движков NoteStore; повторяют сценарии NoteRepositoryTest.
+ * Как и в NoteService, каждый сценарий идёт в транзакции (для движка log она не важна).
+ */
+@Transactional
+public abstract class NoteStoreContractTest {
+
+    protected abstract NoteStore store();
+
+    /**
+     * Сбрасывает изменения движка перед чтением, если он их откладывает.
+     */
+    protected void flush() {
+    }
+
+    @Test
+    @DisplayName("Созданная заметка должна находиться по названию с id, версией и датами")
+    void create_thenFindByTitle() {
+        Note note = store().create(new Note("Note1", "text1"));
+        flush();
+
+        Note byTitle = store().findByTitle("Note1").orElseThrow();
+        assertTrue(note.getId() > 0);
+        assertEquals(note, byTitle);
+        assertEquals("text1", byTitle.getText());
+        assertEquals(0, byTitle.getVersion());
+        assertNotNull(byTitle.getCreatedAt());
+        assertNotNull(byTitle.getUpdatedAt());
+        assertTrue(store().existsByTitle("Note1"));
+        assertFalse(store().existsByTitle("Note2"));
+    }
+
+    @Test
+    @DisplayName("Название в нижнем регистре должно следовать за переименованием")
+    void whenNoteIsRenamed_thenNormalizedTitleFollows() {
+        store().create(new Note("Note1", "text"));
+        store().create(new Note("Other", "text"));
+        flush();
+        store().updateByTitle("Note1", "Renamed", "text", null).orElseThrow();
+        store().patchByTitle("Other", "OTHER", null, null).orElseThrow();
+        flush();
+
+        assertEquals("renamed", store().findByTitle("Renamed").orElseThrow().getTitleNormalized());
+        assertEquals("other", store().findByTitle("OTHER").orElseThrow().getTitleNormalized());
+        assertThat(store().findAllTitles()).containsExactlyInAnyOrder("Renamed", "OTHER");
+    }
+
+    @Test
+    @DisplayName("Последней должна быть заметка, изменённая позже остальных")
+    void whenNoteIsPatched_thenItIsTheLatest() {
+        store().create(new Note("first", "text"));
+        store().create(new Note("second", "text"));
+        flush();
+        store().patchByTitle("first", null, "new text", null).orElseThrow();
+        flush();
+
+        Note latest = store().findLatest().orElseThrow();
+        assertEquals("first", latest.getTitle());
+        assertEquals("new text", latest.getText());
+    }
+
+    @Test
+    @DisplayName("Поиск последней заметки в пустом хранилище должен вернуть пустой Optional")
+    void whenStoreIsEmpty_findLatest_shouldReturnEmpty() {
+        assertThat(store().findLatest()).isEmpty();
+        assertThat(store().findAll()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Постраничная выборка по курсору должна обойти все заметки без повторов")
+    void whenPagingByCursor_thenEveryNoteIsReturnedOnce() {
+        createTestNotes(5);
+        flush();
+
+        List<Note> firstPage = store().findFirstPage(2);
+        Note last = firstPage.get(firstPage.size() - 1);
+        List<Note> secondPage = store().findPageAfter(last.getUpdatedAt(), last.getId(), 10);
+
+        assertEquals(2, firstPage.size());
+        assertEquals(3, secondPage.size());
+        assertTrue(secondPage.stream().noneMatch(firstPage::contains));
+        assertEquals(5, store().findAll().size());
+    }
+
+    @Test
+    @DisplayName("streamAll() должен отдавать все заметки")
+    void whenStreamingAll_thenEveryNoteIsReturned() {
+        createTestNotes(3);
+        flush();
+
+        try (Stream<Note> notes = store().streamAll()) {
+            assertEquals(3, notes.count());
+        }
+    }
+
+    @Test
+    @DisplayName("Сводка заметки должна содержать превью и длину текста")
+    void whenLoadingSummaries_thenPreviewIsTruncatedAndLengthIsReported() {
+        Note note = store().create(new Note("long", "ж".repeat(500)));
+        flush();
+
+        List<NoteSummary> summaries = store().findAllSummaries(10);
+
+        assertEquals(1, summaries.size());
+        NoteSummary summary = summaries.get(0);
+        assertEquals(note.getId(), summary.getId());
+        assertEquals("long", summary.getTitle());
+        assertEquals("ж".repeat(10), summary.getPreview());
+        assertEquals(500L, summary.getLength());
+        assertNotNull(summary.getUpdatedAt());
+        assertNotNull(summary.getCreatedAt());
+    }
+
+    @Test
+    @DisplayName("Постраничная выборка сводок должна продолжаться с позиции курсора")
+    void whenPagingSummariesByCursor_thenNextPageStartsAfterCursor() {
+        createTestNotes(3);
+        flush();
+
+        List<NoteSummary> firstPage = store().findFirstSummaryPage(10, 1);
+        NoteSummary last = firstPage.get(0);
+        List<NoteSummary> secondPage = store().findSummaryPageAfter(last.getUpdatedAt(), last.getId(), 10, 10);
+
+        assertEquals(2, secondPage.size());
+        assertTrue(secondPage.stream().noneMatch(summary -> summary.getId() == last.getId()));
+    }
+
+    @Test
+    @DisplayName("Условное изменение должно применяться только к ожидаемой версии и увеличивать её")
+    void whenUpdatingWithExpectedVersion_thenOnlyMatchingVersionIsUpdated() {
+        Note note = store().create(new Note("title", "text"));
+        flush();
+        NoteVersion version = store().findVersionByTitle("title").orElseThrow();
+        assertEquals(new NoteVersion(note.getId(), 0), version);
+
+        Note updated = store().updateByTitle("title", "title", "text 2", version).orElseThrow();
+        assertEquals(1, updated.getVersion());
+        flush();
+
+        assertTrue(store().patchByTitle("title", null, "text 3", version).isEmpty());
+        assertTrue(store().patchByTitle("title", null, "text 3", null).isPresent());
+        flush();
+        assertEquals(new NoteVersion(note.getId(), 2), store().findVersionByTitle("title").orElseThrow());
+        assertEquals("text 3", store().findByTitle("title").orElseThrow().getText());
+    }
+
+    @Test
+    @DisplayName("Переименование должно освобождать прежнее название и сохранять текст при частичном изменении")
+    void whenPatchingTitle_thenOldTitleIsFreedAndTextIsKept() {
+        Note note = store().create(new Note("old", "text"));
+        flush();
+
+        Note renamed = store().patchByTitle("old", "new", null, null).orElseThrow();
+        flush();
+
+        assertEquals(note.getId(), renamed.getId());
+        assertFalse(store().existsByTitle("old"));
+        assertEquals("text", store().findByTitle("new").orElseThrow().getText());
+        assertTrue(store().updateByTitle("old", "other", "text", null).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Повторное название при создании или переименовании должно приводить к DataIntegrityViolationException")
+    void whenTitleIsTaken_thenDataIntegrityViolation() {
+        store().create(new Note("first", "text"));
+        store().create(new Note("second", "text"));
+        flush();
+
+        assertThatThrownBy(() -> store().patchByTitle("second", "first", null, null))
+                .isInstanceOf(DataIntegrityViolationException.class);
+        assertThatThrownBy(() -> store().create(new Note("first", "other")))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    @Test
+    @DisplayName("deleteByTitle должен удалять существующую заметку и сообщать об отсутствующей")
+    void whenDeleting_thenNoteIsGone() {
+        Note note = store().create(new Note("title", "text"));
+        flush();
+
+        assertEquals(OptionalLong.of(note.getId()), store().deleteByTitle("title"));
+        flush();
+        assertEquals(OptionalLong.empty(), store().deleteByTitle("title"));
+        assertThat(store().findByTitle("title")).isEmpty();
+        assertThat(store().findVersionByTitle("title")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("writeBatch должен применять создание, изменение и удаление по порядку")
+    void whenWritingBatch_thenChangesAreAppliedInOrder() {
+        store().create(new Note("keep", "text"));
+        store().create(new Note("drop", "text"));
+        flush();
+
+        Map<String, Note> existing = store().findByTitleIn(List.of("keep", "drop", "missing")).stream()
+                .collect(Collectors.toMap(Note::getTitle, Function.identity()));
+        assertEquals(2, existing.size());
+
+        List<NoteWrite> writes = new ArrayList<>();
+        Note created = new Note("created", "new");
+        writes.add(NoteWrite.create(created));
+        created.setTitle("renamed");
+        created.setText("renamed text");
+        writes.add(NoteWrite.update("created", created));
+        Note kept = existing.get("keep");
+        kept.setText("changed");
+        writes.add(NoteWrite.update("keep", kept));
+        writes.add(NoteWrite.delete(existing.get("drop")));
+
+        store().writeBatch(writes, 50);
+        flush();
+
+        assertTrue(created.getId() > 0);
+        assertFalse(store().existsByTitle("created"));
+        assertEquals("renamed text", store().findByTitle("renamed").orElseThrow().getText());
+        Note changed = store().findByTitle("keep").orElseThrow();
+        assertEquals("changed", changed.getText());
+        assertEquals(1, changed.getVersion());
+        assertFalse(store().existsByTitle("drop"));
+    }
+
+    @Test
+    @DisplayName("Восстановление через writeBatch должно сохранять даты из заметки")
+    void whenRestoringNote_thenTimestampsArePreserved() {
+        LocalDateTime createdAt = LocalDateTime.of(2020, 1, 2, 3, 4, 5, 123_456_000);
+        LocalDateTime updatedAt = LocalDateTime.of(2021, 6, 7, 8, 9, 10, 654_321_000);
+        Note restored = new Note("restored", "text");
+        restored.restoreTimestamps(createdAt, updatedAt);
+
+        store().writeBatch(List.of(NoteWrite.restore(restored)), 50);
+        flush();
+
+        Note found = store().findByTitle("restored").orElseThrow();
+        assertTrue(found.getId() > 0);
+        assertEquals(createdAt, found.getCreatedAt());
+        assertEquals(updatedAt, found.getUpdatedAt());
+        assertEquals(0, found.getVersion());
+    }
+
+    protected List<Note> createTestNotes(int count) {
+        List<Note> notes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            notes.add(store().create(new Note("title " + i, "text " + i)));
+        }
+        return notes;
+    }
+}
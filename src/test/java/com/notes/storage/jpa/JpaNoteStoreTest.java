@@ -0,0 +1,35 @@
+package com.notes.storage.jpa;
+
+import com.notes.compression.NoteCompressionProperties;
+import com.notes.compression.NoteContentCodec;
+import com.notes.storage.NoteStore;
+import com.notes.storage.NoteStoreContractTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+@DataJpaTest
+@Import({JpaNoteStore.class, NoteContentCodec.class,SimpleMeterRegistry.class})
+@EnableConfigurationProperties(NoteCompressionProperties.class)
+class JpaNoteStoreTest extends NoteStoreContractTest {
+
+    @Autowired
+    private JpaNoteStore noteStore;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Override
+    protected NoteStore store() {
+        return noteStore;
+    }
+
+    @Override
+    protected void flush() {
+        entityManager.flush();
+        entityManager.clear();
+    }
+}
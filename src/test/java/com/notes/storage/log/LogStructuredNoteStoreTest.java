@@ -0,0 +1,234 @@
+package com.notes.storage.log;
+
+import com.notes.model.Note;
+import com.notes.storage.NoteContent;
+import com.notes.storage.NoteStorageProperties;
+import com.notes.storage.NoteStore;
+import com.notes.storage.NoteStoreContractTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogStructuredNoteStoreTest extends NoteStoreContractTest {
+
+    @TempDir
+    Path directory;
+
+    private NoteStorageProperties properties;
+    private LogStructuredNoteStore noteStore;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        properties = new NoteStorageProperties();
+        properties.getLog().setDirectory(directory);
+        noteStore = new LogStructuredNoteStore(properties);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        noteStore.destroy();
+    }
+
+    @Override
+    protected NoteStore store() {
+        return noteStore;
+    }
+
+    @Test
+    @DisplayName("В транзакции записи должны попадать в журнал только при коммите, после повторной проверки")
+    void whenInTransaction_thenRecordsAreAppendedOnCommit() throws Exception {
+        TransactionTemplate transactions = new TransactionTemplate(new DataSourceTransactionManager(
+                new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID())));
+        noteStore.create(new Note("kept", "text"));
+
+        transactions.executeWithoutResult(status -> {
+            noteStore.create(new Note("rolled back", "text"));
+            noteStore.patchByTitle("kept", "renamed", null, null);
+            assertThat(noteStore.findAllTitles()).containsExactly("kept");
+            status.setRollbackOnly();
+        });
+        assertThat(noteStore.findAllTitles()).containsExactly("kept");
+
+        transactions.executeWithoutResult(status -> {
+            noteStore.create(new Note("created", "text"));
+            assertEquals(1, noteStore.patchByTitle("created", "moved", null, null).orElseThrow().getVersion());
+        });
+        assertEquals("text", noteStore.findByTitle("moved").orElseThrow().getText());
+
+        assertThatThrownBy(() -> transactions.executeWithoutResult(status -> {
+            noteStore.create(new Note("taken", "mine"));
+            CompletableFuture.runAsync(() -> noteStore.create(new Note("taken", "other"))).join();
+        })).isInstanceOf(DataIntegrityViolationException.class);
+        assertEquals("other", noteStore.findByTitle("taken").orElseThrow().getText());
+
+        noteStore.destroy();
+        noteStore = new LogStructuredNoteStore(properties);
+        assertThat(noteStore.findAllTitles()).containsExactlyInAnyOrder("kept", "moved", "taken");
+        assertEquals("other", noteStore.findByTitle("taken").orElseThrow().getText());
+    }
+
+    @Test
+    @DisplayName("После перезапуска должны восстанавливаться заметки, версии, переименования и удаления")
+    void whenReopened_thenStateIsRecoveredFromLog() throws Exception {
+        Note kept = noteStore.create(new Note("kept", "text"));
+        noteStore.create(new Note("deleted", "text"));
+        noteStore.create(new Note("old", "text"));
+        noteStore.updateByTitle("kept", "kept", "text 2", null);
+        noteStore.patchByTitle("old", "new", null, null);
+        noteStore.deleteByTitle("deleted");
+
+        reopen();
+
+        assertEquals(List.of("kept", "new"), titles());
+        Note recovered = noteStore.findByTitle("kept").orElseThrow();
+        assertEquals(kept.getId(), recovered.getId());
+        assertEquals(1, recovered.getVersion());
+        assertEquals("text 2", recovered.getText());
+        assertEquals(kept.getCreatedAt(), recovered.getCreatedAt());
+
+        Note created = noteStore.create(new Note("deleted", "again"));
+        assertTrue(created.getId() > kept.getId() + 2);
+    }
+
+    @Test
+    @DisplayName("Оборванная последняя запись должна отрезаться при восстановлении")
+    void whenTailIsTorn_thenItIsTruncatedOnRecovery() throws Exception {
+        noteStore.create(new Note("first", "text"));
+        noteStore.create(new Note("second", "text"));
+        Path segment = onlySegment();
+        long intact = Files.size(segment);
+        ByteBuffer frame = LogRecord.put(99, 99, 0, LogRecord.now(), LogRecord.now(), "torn", null, "x".repeat(100)).encode();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(frame.limit(frame.limit() / 2));
+        }
+
+        reopen();
+
+        assertEquals(intact, Files.size(segment));
+        assertEquals(List.of("first", "second"), titles());
+        noteStore.create(new Note("third", "text"));
+        reopen();
+        assertEquals(List.of("first", "second", "third"), titles());
+    }
+
+    @Test
+    @DisplayName("Запись с неверной контрольной суммой в конце журнала должна отбрасываться")
+    void whenLastRecordIsCorrupted_thenItIsDropped() throws Exception {
+        noteStore.create(new Note("first", "text"));
+        noteStore.create(new Note("second", "text"));
+        Path segment = onlySegment();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{'?'}), Files.size(segment) - 1);
+        }
+
+        reopen();
+
+        assertEquals(List.of("first"), titles());
+    }
+
+    @Test
+    @DisplayName("Уплотнение должно удалять разреженные сегменты, не воскрешая удалённые и переименованные заметки")
+    void whenCompacted_thenGarbageIsReclaimedAndStateIsPreserved() throws Exception {
+        properties.getLog().setSegmentSize(DataSize.ofBytes(512));
+        reopen();
+        for (int i = 0; i < 5; i++) {
+            noteStore.create(new Note("note " + i, "text " + i));
+        }
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 3; i++) {
+                noteStore.patchByTitle("note " + i, null, "round " + round, null);
+            }
+        }
+        noteStore.patchByTitle("note 3", "renamed", null, null);
+        noteStore.deleteByTitle("note 4");
+        long before = segmentCount();
+
+        assertTrue(noteStore.compact() > 0);
+        assertTrue(segmentCount() < before);
+        reopen();
+
+        assertEquals(List.of("note 0", "note 1", "note 2", "renamed"), titles());
+        assertEquals("round 9", noteStore.findByTitle("note 0").orElseThrow().getText());
+        assertEquals(10, noteStore.findByTitle("note 1").orElseThrow().getVersion());
+        assertEquals("text 3", noteStore.findByTitle("renamed").orElseThrow().getText());
+    }
+
+    @Test
+    @DisplayName("Открытый текст должен читаться из сегмента, даже если уплотнение уже удалило его из журнала")
+    void whenContentIsOpen_thenCompactionDefersSegmentDeletion() throws Exception {
+        properties.getLog().setSegmentSize(DataSize.ofBytes(256));
+        reopen();
+        noteStore.create(new Note("content", "начало-" + "x".repeat(100)));
+        noteStore.create(new Note("filler", "y".repeat(200)));
+
+        try (NoteContent content = noteStore.openContent("content").orElseThrow()) {
+            for (int i = 0; i < 5; i++) {
+                noteStore.patchByTitle("content", null, "version " + i, null);
+            }
+            assertTrue(noteStore.compact() > 0);
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            content.transferTo(0, "начало".getBytes(StandardCharsets.UTF_8).length, Channels.newChannel(out));
+            assertEquals("начало", out.toString(StandardCharsets.UTF_8));
+            assertEquals(107 + "начало".length(), content.length());
+        }
+        assertThat(noteStore.openContent("missing")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Превью многобайтового текста должно читаться префиксом записи")
+    void whenTextIsMultibyte_thenPreviewIsDecodedFromPrefix() {
+        noteStore.create(new Note("emoji", "😀ж".repeat(300)));
+        noteStore.create(new Note("empty", null));
+
+        assertThat(noteStore.findAllSummaries(5))
+                .extracting("preview")
+                .containsExactly(null, "😀ж😀");
+    }
+
+    private void reopen() throws Exception {
+        noteStore.destroy();
+        noteStore = new LogStructuredNoteStore(properties);
+    }
+
+    private List<String> titles() {
+        return noteStore.findAll().stream().map(Note::getTitle).sorted().toList();
+    }
+
+    private Path onlySegment() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(LogSegment::isSegment).findFirst().orElseThrow();
+        }
+    }
+
+    private long segmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(LogSegment::isSegment).count();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.notes.storage.sharded;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardRingTest {
+
+    private static final int TITLES = 20_000;
+
+    @Test
+    @DisplayName("Названия должны распределяться по шардам примерно поровну")
+    void titlesAreSpreadEvenly() {
+        ShardRing ring = new ShardRing(4, 128);
+        int[] counts = new int[4];
+        IntStream.range(0, TITLES).forEach(i -> counts[ring.shardFor("note " + i)]++);
+
+        for (int count : counts) {
+            assertThat(count).isBetween(TITLES / 4 * 8 / 10, TITLES / 4 * 12 / 10);
+        }
+    }
+
+    @Test
+    @DisplayName("Добавленный шард должен забирать около 1/N названий, остальные остаются на месте")
+    void addingShardMovesOnlyItsShare() {
+        ShardRing before = new ShardRing(4, 128);
+        ShardRing after = new ShardRing(5, 128);
+
+        int moved = 0;
+        for (int i = 0; i < TITLES; i++) {
+            String title = "note " + i;
+            int target = after.shardFor(title);
+            if (target != before.shardFor(title)) {
+                assertEquals(4, target);
+                moved++;
+            }
+        }
+        assertThat(moved).isBetween(TITLES / 5 * 8 / 10, TITLES / 5 * 12 / 10);
+    }
+}
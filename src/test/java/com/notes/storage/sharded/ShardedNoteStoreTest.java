@@ -0,0 +1,260 @@
+package com.notes.storage.sharded;
+
+import com.notes.compression.NoteCompressionProperties;
+import com.notes.compression.NoteContentCodec;
+import com.notes.model.Note;
+import com.notes.storage.NoteStorageProperties;
+import com.notes.storage.NoteStore;
+import com.notes.storage.NoteStoreContractTest;
+import com.notes.storage.NoteWrite;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedNoteStoreTest extends NoteStoreContractTest {
+
+    private static final int SHARDS = 3;
+
+    private List<DriverManagerDataSource> dataSources;
+    private ShardedNoteStore noteStore;
+
+    @BeforeEach
+    void setUp() {
+        String name = UUID.randomUUID().toString();
+        dataSources = IntStream.range(0, SHARDS).mapToObj(i ->
+                new DriverManagerDataSource("jdbc:h2:mem:" + name + "-shard-" + i + ";DB_CLOSE_DELAY=-1"))
+                .toList();
+        noteStore = open();
+    }
+
+    @AfterEach
+    void tearDown() {
+        noteStore.destroy();
+        dataSources.forEach(dataSource -> jdbc(dataSource).execute("SHUTDOWN"));
+    }
+
+    @Override
+    protected NoteStore store() {
+        return noteStore;
+    }
+
+    @Test
+    @DisplayName("Переименование на другой шард должно переносить заметку с тем же id и увеличенной версией")
+    void whenRenamedAcrossShards_thenNoteMovesWithItsId() {
+        String source = titleOn(0, "source");
+        String target = titleOn(1, "target");
+        Note note = noteStore.create(new Note(source, "text"));
+
+        Note moved = noteStore.patchByTitle(source, target, null, null).orElseThrow();
+
+        assertEquals(note.getId(), moved.getId());
+        assertEquals(1, moved.getVersion());
+        assertEquals(note.getCreatedAt(), moved.getCreatedAt());
+        assertEquals(0, count(0, "NOTES"));
+        assertEquals(1, count(1, "NOTES"));
+        assertEquals(0, count(0, "NOTE_MOVES"));
+        Note found = noteStore.findByTitle(target).orElseThrow();
+        assertEquals("text", found.getText());
+        assertThat(noteStore.findByTitle(source)).isEmpty();
+        assertEquals(List.of(found), noteStore.findAll());
+    }
+
+    @Test
+    @DisplayName("Переименование в занятое название на другом шарде должно оставлять заметку на месте")
+    void whenTargetTitleIsTakenOnAnotherShard_thenMoveIsAborted() {
+        String source = titleOn(0, "source");
+        String target = titleOn(2, "target");
+        noteStore.create(new Note(source, "text"));
+        noteStore.create(new Note(target, "other"));
+
+        assertThatThrownBy(() -> noteStore.updateByTitle(source, target, "new text", null))
+                .isInstanceOf(DataIntegrityViolationException.class);
+
+        assertEquals("text", noteStore.findByTitle(source).orElseThrow().getText());
+        assertEquals("other", noteStore.findByTitle(target).orElseThrow().getText());
+        assertEquals(0, count(0, "NOTE_MOVES"));
+        assertEquals(2, noteStore.findAll().size());
+    }
+
+    @Test
+    @DisplayName("Прерванный переезд должен завершаться, если заметка дошла до целевого шарда, и откатываться иначе")
+    void whenMoveWasInterrupted_thenItIsRecoveredOnStart() {
+        String arrivedTitle = titleOn(0, "arrived");
+        String lostTitle = titleOn(0, "lost");
+        String targetTitle = titleOn(1, "target");
+        Note arrived = noteStore.create(new Note(arrivedTitle, "text"));
+        Note lost = noteStore.create(new Note(lostTitle, "text"));
+        jdbc(dataSources.get(0)).update("INSERT INTO NOTE_MOVES (NOTE_ID, TARGET_SHARD) VALUES (?, 1), (?, 1)",
+                arrived.getId(), lost.getId());
+        jdbc(dataSources.get(1)).update("INSERT INTO NOTES SELECT * FROM (VALUES (CAST(? AS BIGINT), ?, ?, "
+                        + "LOCALTIMESTAMP, LOCALTIMESTAMP, 'text', CAST(1 AS BIGINT)))",
+                arrived.getId(), targetTitle, targetTitle);
+        assertThat(noteStore.findAllTitles()).containsExactly(targetTitle);
+
+        noteStore.destroy();
+        noteStore = open();
+
+        assertThat(noteStore.findAllTitles()).containsExactlyInAnyOrder(targetTitle, lostTitle);
+        assertThat(noteStore.findByTitle(arrivedTitle)).isEmpty();
+        assertEquals(arrived.getId(), noteStore.findByTitle(targetTitle).orElseThrow().getId());
+        assertEquals(0, count(0, "NOTE_MOVES"));
+    }
+
+    @Test
+    @DisplayName("Намерение, оставшееся после сбоя, должно доводиться без перезапуска")
+    void whenMoveIsLeftOver_thenItIsRecoveredInBackground() throws InterruptedException {
+        noteStore.destroy();
+        noteStore = open(dataSources, Duration.ofMillis(20));
+        Note lost = noteStore.create(new Note(titleOn(0, "lost"), "text"));
+        jdbc(dataSources.get(0)).update("INSERT INTO NOTE_MOVES (NOTE_ID, TARGET_SHARD) VALUES (?, 1)", lost.getId());
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (count(0, "NOTE_MOVES") > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(0, count(0, "NOTE_MOVES"));
+        assertThat(noteStore.findAllTitles()).containsExactly(lost.getTitle());
+    }
+
+    @Test
+    @DisplayName("writeBatch должен переносить заметку на другой шард через намерение и удалять исходную строку после коммита")
+    void whenBatchRenamesAcrossShards_thenNoteMovesWithItsId() {
+        String source = titleOn(0, "source");
+        String target = titleOn(1, "target");
+        Note note = noteStore.create(new Note(source, "text"));
+        Note reused = new Note(source, "reused");
+
+        note.setTitle(target);
+        noteStore.writeBatch(List.of(NoteWrite.update(source, note), NoteWrite.create(reused)), 50);
+
+        Note moved = noteStore.findByTitle(target).orElseThrow();
+        assertEquals(note.getId(), moved.getId());
+        assertEquals(1, moved.getVersion());
+        assertEquals("reused", noteStore.findByTitle(source).orElseThrow().getText());
+        assertEquals(1, count(0, "NOTES"));
+        assertEquals(1, count(1, "NOTES"));
+        assertEquals(0, count(0, "NOTE_MOVES"));
+    }
+
+    @Test
+    @DisplayName("Откат writeBatch должен оставлять переносимую заметку на исходном шарде и снимать намерение")
+    void whenBatchWithMoveFails_thenNoteStaysOnSource() {
+        String source = titleOn(0, "source");
+        String target = titleOn(1, "target");
+        Note note = noteStore.create(new Note(source, "text"));
+        Note missing = new Note(titleOn(2, "missing"), "text");
+        missing.setId(Long.MAX_VALUE);
+
+        note.setTitle(target);
+        assertThatThrownBy(() -> noteStore.writeBatch(List.of(NoteWrite.update(source, note), NoteWrite.delete(missing)), 50))
+                .isInstanceOf(DataIntegrityViolationException.class);
+
+        assertEquals("text", noteStore.findByTitle(source).orElseThrow().getText());
+        assertThat(noteStore.findByTitle(target)).isEmpty();
+        assertEquals(0, count(1, "NOTES"));
+        assertEquals(0, count(0, "NOTE_MOVES"));
+        assertThat(noteStore.findAllTitles()).containsExactly(source);
+    }
+
+    @Test
+    @DisplayName("Заметка, вернувшаяся за writeBatch на исходный шард, должна остаться там одной строкой")
+    void whenBatchMovesNoteAwayAndBack_thenItStaysOnSource() {
+        String source = titleOn(0, "source");
+        String via = titleOn(1, "via");
+        String back = titleOn(0, "back");
+        Note note = noteStore.create(new Note(source, "text"));
+
+        Note first = new Note(via, "first");
+        first.setId(note.getId());
+        Note second = new Note(back, "second");
+        second.setId(note.getId());
+        noteStore.writeBatch(List.of(NoteWrite.update(source, first), NoteWrite.update(via, second)), 50);
+
+        Note found = noteStore.findByTitle(back).orElseThrow();
+        assertEquals(note.getId(), found.getId());
+        assertEquals("second", found.getText());
+        assertEquals(2, found.getVersion());
+        assertEquals(1, count(0, "NOTES"));
+        assertEquals(0, count(1, "NOTES"));
+        assertEquals(0, count(0, "NOTE_MOVES"));
+    }
+
+    @Test
+    @DisplayName("После добавления шарда заметки должны переезжать на свои по кольцу шарды с той же версией")
+    void whenShardIsAdded_thenMisplacedNotesAreMovedOnStart() {
+        noteStore.destroy();
+        noteStore = open(dataSources.subList(0, SHARDS - 1), Duration.ofSeconds(30));
+        List<Note> notes = createTestNotes(30);
+        noteStore.destroy();
+
+        noteStore = open();
+
+        assertTrue(count(SHARDS - 1, "NOTES") > 0);
+        assertEquals(30, IntStream.range(0, SHARDS).map(shard -> count(shard, "NOTES")).sum());
+        for (Note note : notes) {
+            Note found = noteStore.findByTitle(note.getTitle()).orElseThrow();
+            assertEquals(note.getId(), found.getId());
+            assertEquals(note.getVersion(), found.getVersion());
+            assertEquals(note.getUpdatedAt(), found.getUpdatedAt());
+        }
+        assertEquals(0, IntStream.range(0, SHARDS).map(shard -> count(shard, "NOTE_MOVES")).sum());
+    }
+
+    @Test
+    @DisplayName("Последняя заметка и страницы должны собираться со всех шардов")
+    void whenNotesAreSpreadOverShards_thenScatterGatherKeepsOrder() {
+        List<Note> expected = createTestNotes(30).stream()
+                .sorted(Comparator.comparing(Note::getUpdatedAt).thenComparing(Note::getId).reversed())
+                .toList();
+
+        assertTrue(IntStream.range(0, SHARDS).allMatch(shard -> count(shard, "NOTES") > 0));
+        assertEquals(expected.get(0), noteStore.findLatest().orElseThrow());
+        List<Note> page = noteStore.findFirstPage(10);
+        Note last = page.get(page.size() - 1);
+        List<Note> rest = noteStore.findPageAfter(last.getUpdatedAt(), last.getId(), 100);
+        assertEquals(expected.subList(0, 10), page);
+        assertEquals(expected.subList(10, 30), rest);
+    }
+
+    private ShardedNoteStore open() {
+        return open(dataSources, Duration.ofSeconds(30));
+    }
+
+    private ShardedNoteStore open(List<DriverManagerDataSource> shards, Duration moveRecoveryInterval) {
+        NoteStorageProperties.Sharded properties = new NoteStorageProperties().getSharded();
+        properties.setMoveRecoveryInterval(moveRecoveryInterval);
+        return new ShardedNoteStore(shards, properties, new NoteContentCodec(new NoteCompressionProperties(), new SimpleMeterRegistry()));
+    }
+
+    private String titleOn(int shard, String prefix) {
+        for (int i = 0; ; i++) {
+            if (noteStore.shardIndexFor(prefix + i) == shard) {
+                return prefix + i;
+            }
+        }
+    }
+
+    private int count(int shard, String table) {
+        return jdbc(dataSources.get(shard)).queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+    }
+
+    private static JdbcTemplate jdbc(DriverManagerDataSource dataSource) {
+        return new JdbcTemplate(dataSource);
+    }
+}
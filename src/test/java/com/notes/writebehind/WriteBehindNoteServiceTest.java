@@ -0,0 +1,206 @@
+package com.notes.writebehind;
+
+import com.notes.compression.NoteCompressionProperties;
+import com.notes.compression.NoteContentCodec;
+import com.notes.dto.NoteVersion;
+import com.notes.exception.NoteNotFoundException;
+import com.notes.exception.NoteVersionMismatchException;
+import com.notes.exception.WriteQueueFullException;
+import com.notes.model.Note;
+import com.notes.repository.NoteRepository;
+import com.notes.service.NoteServiceImpl;
+import com.notes.storage.NoteStore;
+import com.notes.storage.jpa.JpaNoteStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@Import({NoteServiceImpl.class, JpaNoteStore.class, NoteContentCodec.class,SimpleMeterRegistry.class})
+@EnableConfigurationProperties(NoteCompressionProperties.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class WriteBehindNoteServiceTest {
+
+    @Autowired
+    private NoteServiceImpl noteServiceImpl;
+
+    @Autowired
+    private NoteStore noteStore;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Gate gate = new Gate();
+    private WriteBehindNoteService service;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        gate.open();
+        if (service != null) {
+            service.destroy();
+        }
+        noteRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("В режиме COMMIT запись видна в базе сразу после ответа")
+    void commitMode_shouldReturnAfterGroupCommit() {
+        service = service(WriteBehindProperties.Ack.COMMIT, 100);
+
+        Note created = service.createNote("title", "text");
+        Note patched = service.patchNoteByTitle("title", null, "new text", NoteVersion.of(created));
+
+        assertThat(created.getId()).isPositive();
+        assertThat(patched.getVersion()).isEqualTo(created.getVersion() + 1);
+        assertThat(noteRepository.findByTitle("title")).get()
+                .extracting(Note::getText).isEqualTo("new text");
+
+        service.deleteNoteByTitle("title");
+        assertThat(noteRepository.count()).isZero();
+    }
+
+    @Test
+    @DisplayName("В режиме COMMIT ошибки записи возвращаются вызывающему")
+    void commitMode_shouldPropagateFailures() {
+        service = service(WriteBehindProperties.Ack.COMMIT, 100);
+        Note note = service.createNote("title", "text");
+
+        assertThatThrownBy(() -> service.editNoteByTitle("missing", "missing", "text"))
+                .isInstanceOf(NoteNotFoundException.class);
+        assertThatThrownBy(() -> service.patchNoteByTitle("title", null, "text",
+                new NoteVersion(note.getId(), note.getVersion() + 1)))
+                .isInstanceOf(NoteVersionMismatchException.class);
+        assertThatThrownBy(() -> service.createNote("title", "again"))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    @Test
+    @DisplayName("Правки текста заметки, ждущей в очереди, объединяются в одну запись")
+    void enqueueMode_shouldCoalesceQueuedEdits() throws InterruptedException {
+        service = service(WriteBehindProperties.Ack.ENQUEUE, 100);
+        holdWriter();
+
+        Note accepted = service.createNote("title", "v1");
+        service.patchNoteByTitle("title", null, "v2");
+        service.editNoteByTitle("title", "title", "v3");
+
+        assertThat(accepted.getId()).isZero();
+        assertThat(service.getNoteByTitle("title").getText()).isEqualTo("v3");
+        assertThat(noteRepository.findByTitle("title")).isEmpty();
+
+        gate.open();
+        awaitSettled();
+
+        Note stored = noteRepository.findByTitle("title").orElseThrow();
+        assertThat(stored.getText()).isEqualTo("v3");
+        assertThat(stored.getVersion()).isZero();
+        assertThat(meterRegistry.get("notes.write-behind.coalesced").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("В режиме ENQUEUE ошибки выявляются до постановки в очередь, а чтения видят свою запись")
+    void enqueueMode_shouldValidateAgainstQueuedState() throws InterruptedException {
+        service = service(WriteBehindProperties.Ack.ENQUEUE, 100);
+        noteServiceImpl.createNote("title", "text");
+        holdWriter();
+
+        service.deleteNoteByTitle("title");
+
+        assertThatThrownBy(() -> service.getNoteByTitle("title")).isInstanceOf(NoteNotFoundException.class);
+        assertThatThrownBy(() -> service.deleteNoteByTitle("title")).isInstanceOf(NoteNotFoundException.class);
+        assertThatThrownBy(() -> service.createNote("busy", "text")).isInstanceOf(DataIntegrityViolationException.class);
+        assertThat(noteRepository.findByTitle("title")).isPresent();
+
+        gate.open();
+        awaitSettled();
+
+        assertThat(noteRepository.findByTitle("title")).isEmpty();
+        assertThatThrownBy(() -> service.getNoteByTitle("title")).isInstanceOf(NoteNotFoundException.class);
+    }
+
+    @Test
+    @DisplayName("При заполненной очереди запись отклоняется")
+    void submit_whenQueueIsFull_shouldReject() throws InterruptedException {
+        service = service(WriteBehindProperties.Ack.ENQUEUE, 1);
+        holdWriter();
+
+        service.createNote("first", "text");
+
+        assertThatThrownBy(() -> service.createNote("second", "text")).isInstanceOf(WriteQueueFullException.class);
+        assertThat(meterRegistry.get("notes.write-behind.rejected").counter().count()).isEqualTo(1);
+
+        gate.open();
+        awaitSettled();
+        assertThat(noteRepository.count()).isEqualTo(2);
+    }
+
+    private WriteBehindNoteService service(WriteBehindProperties.Ack ack, int queueCapacity) {
+        WriteBehindProperties properties = new WriteBehindProperties();
+        properties.setAck(ack);
+        properties.setQueueCapacity(queueCapacity);
+        properties.setEnqueueTimeout(Duration.ofMillis(10));
+        return new WriteBehindNoteService(noteServiceImpl, noteStore, gate, transactionManager, properties, meterRegistry);
+    }
+
+    /**
+     * Занимает писателя группой с заметкой "busy", пока не открыт gate.
+     */
+    private void holdWriter() throws InterruptedException {
+        gate.close();
+        service.createNote("busy", "text");
+        assertThat(gate.entered.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private void awaitSettled() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (service.hasPendingWrites() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(service.hasPendingWrites()).isFalse();
+    }
+
+    private static class Gate implements ApplicationEventPublisher {
+
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private volatile CountDownLatch released = new CountDownLatch(0);
+
+        void close() {
+            released = new CountDownLatch(1);
+        }
+
+        void open() {
+            released.countDown();
+        }
+
+        @Override
+        public void publishEvent(Object event) {
+            entered.countDown();
+            try {
+                released.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}